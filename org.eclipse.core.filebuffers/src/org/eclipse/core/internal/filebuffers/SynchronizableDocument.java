@@ -131,6 +131,18 @@ public class SynchronizableDocument extends Document implements ISynchronizable
 		}
 	}
 
+	@Override
+	public void getChars(int offset, int length, char[] destination, int destinationOffset) throws BadLocationException {
+		Object lockObject= getLockObject();
+		if (lockObject == null) {
+			super.getChars(offset, length, destination, destinationOffset);
+			return;
+		}
+		synchronized (lockObject) {
+			super.getChars(offset, length, destination, destinationOffset);
+		}
+	}
+
 	@Override
 	public char getChar(int offset) throws BadLocationException {
 		Object lockObject= getLockObject();
@@ -18,15 +18,27 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import org.eclipse.jface.text.tests.codemining.CodeMiningProjectionViewerTest;
+import org.eclipse.jface.text.tests.codemining.CodeMiningReconcilerTest;
+import org.eclipse.jface.text.tests.codemining.CodeMiningResolveSchedulerTest;
 import org.eclipse.jface.text.tests.codemining.CodeMiningTest;
 import org.eclipse.jface.text.tests.contentassist.AsyncContentAssistTest;
+import org.eclipse.jface.text.tests.contentassist.BackgroundFilteringTest;
+import org.eclipse.jface.text.tests.contentassist.CompletionProposalMatcherTest;
+import org.eclipse.jface.text.tests.contentassist.ProposalCachingTest;
+import org.eclipse.jface.text.tests.contentassist.ProposalComputationTest;
+import org.eclipse.jface.text.tests.contentassist.ProposalRenderingTest;
 import org.eclipse.jface.text.tests.reconciler.AbstractReconcilerTest;
+import org.eclipse.jface.text.tests.reconciler.DirtyRegionMergingTest;
+import org.eclipse.jface.text.tests.rules.BufferedRuleBasedScannerTest;
+import org.eclipse.jface.text.tests.rules.CompactPartitionerTest;
 import org.eclipse.jface.text.tests.rules.DefaultPartitionerTest;
 import org.eclipse.jface.text.tests.rules.DefaultPartitionerZeroLengthTest;
 import org.eclipse.jface.text.tests.rules.FastPartitionerTest;
 import org.eclipse.jface.text.tests.rules.ScannerColumnTest;
 import org.eclipse.jface.text.tests.rules.WordRuleTest;
+import org.eclipse.jface.text.tests.source.AnnotationPainterTest;
 import org.eclipse.jface.text.tests.source.LineNumberRulerColumnTest;
+import org.eclipse.jface.text.tests.source.OverviewRulerTest;
 import org.eclipse.jface.text.tests.source.inlined.AnnotationOnTabTest;
 import org.eclipse.jface.text.tests.source.inlined.LineContentBoundsDrawingTest;
 import org.eclipse.jface.text.tests.templates.persistence.TemplatePersistenceDataTest;
@@ -40,29 +52,42 @@ import org.eclipse.jface.text.tests.templates.persistence.TemplatePersistenceDat
 @RunWith(Suite.class)
 @SuiteClasses({
 		LineNumberRulerColumnTest.class,
+		OverviewRulerTest.class,
+		AnnotationPainterTest.class,
 		HTML2TextReaderTest.class,
 		TextHoverPopupTest.class,
 		TextPresentationTest.class,
 		DefaultUndoManagerTest.class,
 		TextViewerTest.class,
 		TextViewerUndoManagerTest.class,
+		WhitespaceCharacterPainterTest.class,
 		DefaultPairMatcherTest.class,
 		DefaultPairMatcherTest2.class,
 		AsyncContentAssistTest.class,
+		ProposalCachingTest.class,
+		CompletionProposalMatcherTest.class,
+		ProposalRenderingTest.class,
+		BackgroundFilteringTest.class,
+		ProposalComputationTest.class,
 
 		AbstractReconcilerTest.class,
+		DirtyRegionMergingTest.class,
 
 		DefaultPartitionerTest.class,
 		DefaultPartitionerZeroLengthTest.class,
 		FastPartitionerTest.class,
+		CompactPartitionerTest.class,
 		ScannerColumnTest.class,
+		BufferedRuleBasedScannerTest.class,
 		WordRuleTest.class,
 
 		TemplatePersistenceDataTest.class,
 		LineContentBoundsDrawingTest.class,
 		AnnotationOnTabTest.class,
 		CodeMiningTest.class,
-		CodeMiningProjectionViewerTest.class
+		CodeMiningProjectionViewerTest.class,
+		CodeMiningReconcilerTest.class,
+		CodeMiningResolveSchedulerTest.class
 })
 public class JFaceTextTestSuite {
 	// see @SuiteClasses
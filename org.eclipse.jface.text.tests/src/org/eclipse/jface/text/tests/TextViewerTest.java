@@ -15,7 +15,11 @@
  *******************************************************************************/
 package org.eclipse.jface.text.tests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeNotNull;
@@ -39,9 +43,17 @@ import org.eclipse.jface.util.Util;
 
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocumentAdapter;
+import org.eclipse.jface.text.IPaintPositionManager;
+import org.eclipse.jface.text.IPainter;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.ITextViewerExtension9;
+import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextViewer;
+import org.eclipse.jface.text.presentation.IPresentationReconciler;
+import org.eclipse.jface.text.presentation.PresentationReconciler;
+import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.jface.text.source.SourceViewerConfiguration;
 import org.eclipse.jface.text.tests.util.DisplayHelper;
 
 /**
@@ -213,6 +225,224 @@ public class TextViewerTest {
 		DisplayHelper.driveEventQueue(display);
 	}
 
+	@Test
+	public void testContentKeptWhileNotRedrawing() throws Exception {
+		Shell shell= new Shell();
+		try {
+			TextViewer textViewer= new TextViewer(shell, SWT.NONE);
+			Document document= new Document("abc\ndef");
+			textViewer.setDocument(document);
+			StyledTextContent content= textViewer.getTextWidget().getContent();
+
+			textViewer.setRedraw(false);
+			assertEquals("abc", content.getLine(0));
+			document.replace(0, 3, "xyz\nuvw");
+			assertEquals("abc", content.getLine(0));
+			assertEquals(2, content.getLineCount());
+			textViewer.setRedraw(true);
+
+			assertEquals("xyz", content.getLine(0));
+			assertEquals(3, content.getLineCount());
+		} finally {
+			shell.dispose();
+		}
+	}
+
+	private static class TestPainter implements IPainter {
+		boolean fIsActive;
+
+		@Override
+		public void dispose() {
+			fIsActive= false;
+		}
+
+		@Override
+		public void paint(int reason) {
+			fIsActive= true;
+		}
+
+		@Override
+		public void deactivate(boolean redraw) {
+			fIsActive= false;
+		}
+
+		@Override
+		public void setPositionManager(IPaintPositionManager manager) {
+		}
+	}
+
+	/**
+	 * A painter which, like the painters of the platform, manages a position while it is active.
+	 */
+	private static class PositionPainter implements IPainter {
+		IPaintPositionManager fManager;
+		Position fPosition;
+
+		@Override
+		public void dispose() {
+		}
+
+		@Override
+		public void paint(int reason) {
+			if (fPosition == null) {
+				fPosition= new Position(0, 1);
+				fManager.managePosition(fPosition);
+			}
+		}
+
+		@Override
+		public void deactivate(boolean redraw) {
+			if (fPosition != null) {
+				fManager.unmanagePosition(fPosition);
+				fPosition= null;
+			}
+		}
+
+		@Override
+		public void setPositionManager(IPaintPositionManager manager) {
+			fManager= manager;
+		}
+	}
+
+	private static class TestPresentationReconciler extends PresentationReconciler {
+		boolean fIsInstalled;
+		int fInstallCount;
+
+		@Override
+		public void install(ITextViewer viewer) {
+			super.install(viewer);
+			fIsInstalled= true;
+			fInstallCount++;
+		}
+
+		@Override
+		public void uninstall() {
+			super.uninstall();
+			fIsInstalled= false;
+		}
+	}
+
+	@Test
+	public void testLargeDocumentMode() {
+		Shell shell= new Shell();
+		try {
+			SourceViewer sourceViewer= new SourceViewer(shell, null, SWT.NONE);
+			TestPresentationReconciler reconciler= new TestPresentationReconciler();
+			sourceViewer.configure(new SourceViewerConfiguration() {
+				@Override
+				public IPresentationReconciler getPresentationReconciler(ISourceViewer viewer) {
+					return reconciler;
+				}
+			});
+			TestPainter painter= new TestPainter();
+			sourceViewer.addPainter(painter);
+			sourceViewer.setLargeDocumentThresholds(-1, 100, new String[] { ITextViewerExtension9.PRESENTATION_RECONCILING, ITextViewerExtension9.PAINTERS });
+
+			sourceViewer.setDocument(new Document("abc"));
+			assertFalse(sourceViewer.isLargeDocumentMode());
+			assertArrayEquals(new String[0], sourceViewer.getDegradedFeatures());
+			assertTrue(reconciler.fIsInstalled);
+			assertTrue(painter.fIsActive);
+
+			sourceViewer.setDocument(new Document(generate5000Lines()));
+			assertTrue(sourceViewer.isLargeDocumentMode());
+			assertArrayEquals(new String[] { ITextViewerExtension9.PRESENTATION_RECONCILING, ITextViewerExtension9.PAINTERS }, sourceViewer.getDegradedFeatures());
+			assertFalse(reconciler.fIsInstalled);
+			assertFalse(painter.fIsActive);
+			assertEquals("start", sourceViewer.getTextWidget().getLine(0));
+
+			sourceViewer.setLargeDocumentThresholds(-1, -1, null);
+			assertFalse(sourceViewer.isLargeDocumentMode());
+			assertTrue(reconciler.fIsInstalled);
+			assertTrue(painter.fIsActive);
+
+			sourceViewer.setLargeDocumentThresholds(-1, 100, null);
+			assertTrue(sourceViewer.isLargeDocumentMode());
+			sourceViewer.setDocument(new Document("abc"));
+			assertFalse(sourceViewer.isLargeDocumentMode());
+			assertTrue(reconciler.fIsInstalled);
+			assertTrue(painter.fIsActive);
+		} finally {
+			shell.dispose();
+		}
+	}
+
+	@Test
+	public void testLargeDocumentModeLeavesOtherFeaturesAlone() {
+		Shell shell= new Shell();
+		try {
+			SourceViewer sourceViewer= new SourceViewer(shell, null, SWT.NONE);
+			TestPresentationReconciler reconciler= new TestPresentationReconciler();
+			sourceViewer.configure(new SourceViewerConfiguration() {
+				@Override
+				public IPresentationReconciler getPresentationReconciler(ISourceViewer viewer) {
+					return reconciler;
+				}
+			});
+			sourceViewer.setLargeDocumentThresholds(-1, 100, new String[] { ITextViewerExtension9.PAINTERS });
+			assertEquals(1, reconciler.fInstallCount);
+
+			sourceViewer.setDocument(new Document(generate5000Lines()));
+			assertTrue(sourceViewer.isLargeDocumentMode());
+			assertTrue(reconciler.fIsInstalled);
+			assertEquals(1, reconciler.fInstallCount);
+
+			// changing the thresholds must neither reinstall the reconciler nor leave the mode in between
+			sourceViewer.setLargeDocumentThresholds(-1, 200, new String[] { ITextViewerExtension9.PAINTERS, ITextViewerExtension9.RECONCILING });
+			assertTrue(sourceViewer.isLargeDocumentMode());
+			assertEquals(1, reconciler.fInstallCount);
+
+			sourceViewer.setLargeDocumentThresholds(-1, 200, new String[] { ITextViewerExtension9.PRESENTATION_RECONCILING });
+			assertFalse(reconciler.fIsInstalled);
+			sourceViewer.setLargeDocumentThresholds(-1, 200, new String[] { ITextViewerExtension9.PRESENTATION_RECONCILING });
+			assertFalse(reconciler.fIsInstalled);
+
+			sourceViewer.setDocument(new Document("abc"));
+			assertFalse(sourceViewer.isLargeDocumentMode());
+			assertTrue(reconciler.fIsInstalled);
+			assertEquals(2, reconciler.fInstallCount);
+		} finally {
+			shell.dispose();
+		}
+	}
+
+	@Test
+	public void testSuspendedPaintersKeepPositionManager() {
+		Shell shell= new Shell();
+		try {
+			SourceViewer sourceViewer= new SourceViewer(shell, null, SWT.NONE);
+			sourceViewer.setLargeDocumentThresholds(-1, 100, new String[] { ITextViewerExtension9.PAINTERS });
+			PositionPainter addedBefore= new PositionPainter();
+			sourceViewer.addPainter(addedBefore);
+			sourceViewer.setDocument(new Document(generate5000Lines()));
+			assertTrue(sourceViewer.isLargeDocumentMode());
+			assertNull(addedBefore.fPosition);
+
+			PositionPainter addedWhileSuspended= new PositionPainter();
+			sourceViewer.addPainter(addedWhileSuspended);
+			assertNull(addedWhileSuspended.fPosition);
+
+			// clients, e.g. the decoration support on preference changes, paint painters directly
+			addedBefore.paint(IPainter.CONFIGURATION);
+			addedWhileSuspended.paint(IPainter.CONFIGURATION);
+			assertNotNull(addedWhileSuspended.fPosition);
+			// the next event suspends them again
+			sourceViewer.setSelectedRange(1, 0);
+			assertNull(addedBefore.fPosition);
+			assertNull(addedWhileSuspended.fPosition);
+
+			sourceViewer.setDocument(new Document("abc"));
+			assertFalse(sourceViewer.isLargeDocumentMode());
+			assertNotNull(addedBefore.fPosition);
+			assertNotNull(addedWhileSuspended.fPosition);
+
+			sourceViewer.removePainter(addedWhileSuspended);
+			assertNull(addedWhileSuspended.fPosition);
+		} finally {
+			shell.dispose();
+		}
+	}
+
 	public static String generate5000Lines() {
 		StringBuilder b = new StringBuilder("start");
 		for (int i = 0; i < 5000; i++) {
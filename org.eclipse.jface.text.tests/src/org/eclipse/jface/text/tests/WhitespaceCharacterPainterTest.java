@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.TextViewer;
+import org.eclipse.jface.text.WhitespaceCharacterPainter;
+
+/**
+ * Tests the computation of the runs of visible characters drawn by the
+ * {@link WhitespaceCharacterPainter}.
+ */
+public class WhitespaceCharacterPainterTest {
+
+	private Shell fShell;
+	private TextViewer fViewer;
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		fViewer= new TextViewer(fShell, SWT.NONE);
+		fViewer.setDocument(new Document());
+	}
+
+	@After
+	public void tearDown() {
+		fShell.dispose();
+	}
+
+	private WhitespaceCharacterPainter createPainter(boolean showLeading, boolean showEnclosed, boolean showTrailing) {
+		return new WhitespaceCharacterPainter(fViewer, showLeading, showEnclosed, showTrailing, showLeading, showEnclosed, showTrailing, showLeading, showEnclosed, showTrailing, true, true, 80);
+	}
+
+	/**
+	 * Returns the runs as strings of the form <code>offset:characters</code>, with a trailing
+	 * <code>$</code> for runs which end the line.
+	 *
+	 * @param runs the runs computed by the painter
+	 * @return the runs as strings
+	 */
+	private static List<String> toStrings(Object runs) {
+		Accessor accessor= new Accessor(runs, runs.getClass());
+		int[] offsets= (int[]) accessor.get("fOffsets");
+		String[] characters= (String[]) accessor.get("fCharacters");
+		boolean[] isLineEnd= (boolean[]) accessor.get("fIsLineEnd");
+		List<String> result= new ArrayList<>();
+		for (int i= 0; i < offsets.length; i++)
+			result.add(offsets[i] + ":" + characters[i] + (isLineEnd[i] ? "$" : ""));
+		return result;
+	}
+
+	private static List<String> computeRuns(WhitespaceCharacterPainter painter, String lineText, int start, int end, boolean spaceCharsAreSameWidth) {
+		Accessor accessor= new Accessor(painter, WhitespaceCharacterPainter.class);
+		Object runs= accessor.invoke("computeRuns", new Class[] { String.class, int.class, int.class, boolean.class },
+				new Object[] { lineText, Integer.valueOf(start), Integer.valueOf(end), Boolean.valueOf(spaceCharsAreSameWidth) });
+		return toStrings(runs);
+	}
+
+	private static List<String> computeRuns(WhitespaceCharacterPainter painter, String lineText) {
+		return computeRuns(painter, lineText, 0, lineText.length(), true);
+	}
+
+	private static String repeat(char c, int count) {
+		return String.join("", Collections.nCopies(count, String.valueOf(c)));
+	}
+
+	@Test
+	public void testLeadingEnclosedTrailing() {
+		String line= "  a b\t \n";
+		assertEquals(Arrays.asList("0:\u00b7\u00b7", "3:\u00b7", "5:\u00bb", "6:\u00b7\u00b6$"), computeRuns(createPainter(true, true, true), line));
+		assertEquals(Arrays.asList("0:\u00b7\u00b7", "7:\u00b6$"), computeRuns(createPainter(true, false, false), line));
+		assertEquals(Arrays.asList("3:\u00b7", "7:\u00b6$"), computeRuns(createPainter(false, true, false), line));
+		assertEquals(Arrays.asList("5:\u00bb", "6:\u00b7\u00b6$"), computeRuns(createPainter(false, false, true), line));
+	}
+
+	@Test
+	public void testSpacesOfDifferentWidth() {
+		String line= "  a \u3000";
+		assertEquals(Arrays.asList("0:\u00b7", "1:\u00b7", "3:\u00b7", "4:\u00b0"), computeRuns(createPainter(true, true, true), line, 0, line.length(), false));
+		assertEquals(Arrays.asList("0:\u00b7\u00b7", "3:\u00b7\u00b0"), computeRuns(createPainter(true, true, true), line, 0, line.length(), true));
+	}
+
+	@Test
+	public void testWhitespaceOnlyLine() {
+		assertEquals(Arrays.asList("0:\u00b7\u00bb", "2:\u00b7\u00b6$"), computeRuns(createPainter(false, true, false), " \t \n"));
+		assertEquals(Arrays.asList("0:\u00b7\u00bb", "2:\u00b7\u00b6$"), computeRuns(createPainter(false, false, true), " \t \n"));
+	}
+
+	@Test
+	public void testLineDelimiters() {
+		WhitespaceCharacterPainter painter= createPainter(true, true, true);
+		assertEquals(Arrays.asList("1:\u00a4\u00b6$"), computeRuns(painter, "a\r\n"));
+		assertEquals(Arrays.asList("1:\u00b7\u00a4\u00b6$"), computeRuns(painter, "a \r\n"));
+		assertEquals(Arrays.asList("1:\u00a4$"), computeRuns(painter, "a\r"));
+		// the range ends between CR and LF
+		assertEquals(Arrays.asList("1:\u00a4$"), computeRuns(painter, "a\r\n", 0, 2, true));
+		assertEquals(Arrays.asList("2:\u00b6$"), computeRuns(painter, "a\r\n", 2, 3, true));
+		assertEquals(Collections.emptyList(), computeRuns(painter, "a"));
+	}
+
+	@Test
+	public void testLongLine() {
+		String line= repeat(' ', 1200) + "a" + repeat(' ', 300) + "\n";
+		WhitespaceCharacterPainter painter= createPainter(true, true, true);
+		assertEquals(Arrays.asList("1100:" + repeat('\u00b7', 50)), computeRuns(painter, line, 1100, 1150, true));
+		assertEquals(Arrays.asList("1300:" + repeat('\u00b7', 201) + "\u00b6$"), computeRuns(painter, line, 1300, line.length(), true));
+		assertEquals(Arrays.asList("1501:\u00b6$"), computeRuns(createPainter(true, true, false), line, 1300, line.length(), true));
+	}
+
+	@Test
+	public void testCachedRunsFollowTextChanges() throws Exception {
+		IDocument document= fViewer.getDocument();
+		document.set("a \n\tb\n  c\n" + repeat(' ', 1500) + "d\n");
+		WhitespaceCharacterPainter painter= createPainter(true, true, true);
+		StyledText widget= fViewer.getTextWidget();
+		Accessor accessor= new Accessor(painter, WhitespaceCharacterPainter.class);
+		accessor.invoke("setContent", new Class[] { StyledTextContent.class }, new Object[] { widget.getContent() });
+		assertCachedRuns(painter, widget);
+
+		// inserts a line in front of the cached lines
+		document.replace(0, 0, "x \n");
+		assertCachedRuns(painter, widget);
+
+		// changes a line without changing the number of lines
+		document.replace(document.getLineOffset(2), 0, " ");
+		assertCachedRuns(painter, widget);
+
+		// joins two lines
+		document.replace(document.getLineOffset(3) - 1, 1, "");
+		assertCachedRuns(painter, widget);
+
+		document.set("\t\n \n");
+		assertCachedRuns(painter, widget);
+	}
+
+	private static void assertCachedRuns(WhitespaceCharacterPainter painter, StyledText widget) {
+		Accessor accessor= new Accessor(painter, WhitespaceCharacterPainter.class);
+		for (int line= 0; line < widget.getLineCount(); line++) {
+			int lineOffset= widget.getOffsetAtLine(line);
+			int lineEndOffset= line + 1 < widget.getLineCount() ? widget.getOffsetAtLine(line + 1) : widget.getCharCount();
+			String lineText= widget.getTextRange(lineOffset, lineEndOffset - lineOffset);
+			Object runs= accessor.invoke("getRuns", new Class[] { int.class, int.class, int.class, int.class, int.class, boolean.class },
+					new Object[] { Integer.valueOf(line), Integer.valueOf(lineOffset), Integer.valueOf(lineEndOffset), Integer.valueOf(lineOffset), Integer.valueOf(lineEndOffset), Boolean.TRUE });
+			assertEquals("line " + line, computeRuns(painter, lineText), toStrings(runs));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.codemining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.codemining.CodeMiningReconciler;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.jface.text.tests.util.DisplayHelper;
+
+/**
+ * Tests that the code mining reconciler updates the code minings once per reconcile pass.
+ */
+public class CodeMiningReconcilerTest {
+
+	private static class RecordingViewer extends SourceViewer {
+
+		final List<IRegion> fDamages= Collections.synchronizedList(new ArrayList<>());
+		final AtomicInteger fFullUpdates= new AtomicInteger();
+
+		RecordingViewer(Composite parent) {
+			super(parent, null, SWT.NONE);
+		}
+
+		@Override
+		public void updateCodeMinings() {
+			fFullUpdates.incrementAndGet();
+		}
+
+		@Override
+		public void updateCodeMinings(IRegion damage) {
+			fDamages.add(damage);
+		}
+	}
+
+	private Shell fShell;
+	private Display fDisplay;
+	private RecordingViewer fViewer;
+	private IDocument fDocument;
+	private CodeMiningReconciler fReconciler;
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		fDisplay= fShell.getDisplay();
+		fViewer= new RecordingViewer(fShell);
+		fReconciler= new CodeMiningReconciler();
+		fReconciler.setDelay(200);
+		fReconciler.install(fViewer);
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 100; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		fDocument= new Document(text.toString());
+		fViewer.setDocument(fDocument);
+		// waits for the initial reconcile
+		waitForUpdates(1);
+		fViewer.fDamages.clear();
+		fViewer.fFullUpdates.set(0);
+	}
+
+	@After
+	public void tearDown() {
+		fReconciler.uninstall();
+		fShell.dispose();
+	}
+
+	private boolean waitForUpdates(int count, long timeout) {
+		return new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return fViewer.fDamages.size() + fViewer.fFullUpdates.get() >= count;
+			}
+		}.waitForCondition(fDisplay, timeout);
+	}
+
+	private void waitForUpdates(int count) {
+		assertTrue(waitForUpdates(count, 5000));
+	}
+
+	@Test
+	public void testDirtyRegionsOfOnePassAreCoalesced() throws Exception {
+		int first= fDocument.getLineOffset(10);
+		int second= fDocument.getLineOffset(80);
+		fDocument.replace(second, 0, "b");
+		fDocument.replace(first, 0, "a");
+		fDocument.replace(fDocument.getLineOffset(50), 0, "c");
+
+		waitForUpdates(1);
+		// no further update follows
+		assertFalse(waitForUpdates(2, 500));
+		assertEquals(0, fViewer.fFullUpdates.get());
+		assertEquals(1, fViewer.fDamages.size());
+		IRegion damage= fViewer.fDamages.get(0);
+		assertTrue(damage.getOffset() <= first);
+		assertTrue(damage.getOffset() + damage.getLength() > second);
+	}
+
+	@Test
+	public void testDamageFollowsLaterChanges() throws Exception {
+		int first= fDocument.getLineOffset(80);
+		fDocument.replace(first, 0, "b");
+		// moves the first change
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 10; i++) {
+			text.append("new line\n");
+		}
+		fDocument.replace(fDocument.getLineOffset(10), 0, text.toString());
+		fDocument.replace(fDocument.getLineOffset(20), 5, "");
+
+		waitForUpdates(1);
+		assertFalse(waitForUpdates(2, 500));
+		assertEquals(0, fViewer.fFullUpdates.get());
+		IRegion damage= fViewer.fDamages.get(0);
+		int moved= first + text.length() - 5;
+		assertEquals("b", fDocument.get(moved, 1));
+		assertTrue(damage.getOffset() <= fDocument.getLineOffset(10));
+		assertTrue(damage.getOffset() + damage.getLength() > moved);
+	}
+
+	@Test
+	public void testEachPassIsUpdated() throws Exception {
+		int first= fDocument.getLineOffset(10);
+		fDocument.replace(first, 0, "a");
+		waitForUpdates(1);
+
+		int second= fDocument.getLineOffset(80);
+		fDocument.replace(second, 0, "b");
+		waitForUpdates(2);
+
+		assertEquals(0, fViewer.fFullUpdates.get());
+		assertEquals(2, fViewer.fDamages.size());
+		assertEquals(first, fViewer.fDamages.get(0).getOffset());
+		assertEquals(second, fViewer.fDamages.get(1).getOffset());
+	}
+}
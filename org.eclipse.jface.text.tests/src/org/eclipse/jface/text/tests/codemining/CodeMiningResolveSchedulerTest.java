@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.codemining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jface.internal.text.codemining.CodeMiningResolveScheduler;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.codemining.AbstractCodeMiningProvider;
+import org.eclipse.jface.text.codemining.ICodeMining;
+import org.eclipse.jface.text.codemining.ICodeMiningProvider;
+import org.eclipse.jface.text.codemining.LineContentCodeMining;
+import org.eclipse.jface.text.source.SourceViewer;
+
+/**
+ * Tests the scheduling of code mining resolves.
+ */
+public class CodeMiningResolveSchedulerTest {
+
+	private static class TestProvider extends AbstractCodeMiningProvider {
+		@Override
+		public CompletableFuture<List<? extends ICodeMining>> provideCodeMinings(ITextViewer viewer, IProgressMonitor monitor) {
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+
+	/**
+	 * A mining whose resolve completes when the test completes its future, or immediately if it
+	 * is created with a completed future.
+	 */
+	private class TestMining extends LineContentCodeMining {
+		final CompletableFuture<Void> fFuture;
+		IProgressMonitor fMonitor;
+		boolean fLockHeld;
+
+		TestMining(int offset, ICodeMiningProvider provider, CompletableFuture<Void> future) {
+			super(new Position(offset, 1), provider);
+			fFuture= future;
+		}
+
+		@Override
+		protected CompletableFuture<Void> doResolve(ITextViewer viewer, IProgressMonitor monitor) {
+			fMonitor= monitor;
+			fLockHeld= Thread.holdsLock(fScheduler);
+			synchronized (fResolved) {
+				fResolved.add(this);
+			}
+			return fFuture;
+		}
+	}
+
+	private Shell fShell;
+	private CodeMiningResolveScheduler fScheduler;
+	private final List<TestMining> fResolved= new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		SourceViewer viewer= new SourceViewer(fShell, null, SWT.NONE);
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 200; i++) {
+			text.append("line\n");
+		}
+		IDocument document= new Document(text.toString());
+		viewer.setDocument(document);
+		fScheduler= new CodeMiningResolveScheduler(viewer);
+	}
+
+	@After
+	public void tearDown() {
+		fScheduler.dispose();
+		fShell.dispose();
+	}
+
+	@Test
+	public void testConcurrencyLimit() {
+		fScheduler.setMaxConcurrentResolves(2);
+		ICodeMiningProvider provider= new TestProvider();
+		ICodeMiningProvider other= new TestProvider();
+		List<TestMining> minings= new ArrayList<>();
+		// requested in reverse order, started in document order
+		for (int i= 4; i >= 0; i--) {
+			minings.add(0, new TestMining(i * 10, provider, new CompletableFuture<>()));
+		}
+		for (int i= 4; i >= 0; i--) {
+			fScheduler.resolve(minings.get(i), new NullProgressMonitor());
+		}
+		TestMining otherMining= new TestMining(0, other, new CompletableFuture<>());
+		fScheduler.resolve(otherMining, new NullProgressMonitor());
+
+		// the last requested minings start while the first ones wait
+		assertEquals(3, fResolved.size());
+		assertTrue(fResolved.contains(otherMining));
+
+		minings.get(4).fFuture.complete(null);
+		minings.get(3).fFuture.complete(null);
+		assertEquals(Arrays.asList(minings.get(4), minings.get(3), otherMining, minings.get(0), minings.get(1)), fResolved);
+
+		for (TestMining mining : minings) {
+			mining.fFuture.complete(null);
+		}
+		assertEquals(6, fResolved.size());
+		assertEquals(5, fScheduler.getStatistics(provider).getResolveCount());
+		for (TestMining mining : fResolved) {
+			assertFalse(mining.fLockHeld);
+		}
+	}
+
+	@Test
+	public void testCancelAll() {
+		fScheduler.setMaxConcurrentResolves(1);
+		ICodeMiningProvider provider= new TestProvider();
+		TestMining running= new TestMining(0, provider, new CompletableFuture<>());
+		TestMining waiting= new TestMining(10, provider, new CompletableFuture<>());
+		CompletableFuture<Void> runningResult= fScheduler.resolve(running, new NullProgressMonitor());
+		CompletableFuture<Void> waitingResult= fScheduler.resolve(waiting, new NullProgressMonitor());
+		assertEquals(Arrays.asList(running), fResolved);
+
+		assertTrue(fScheduler.cancelAll());
+		assertTrue(runningResult.isCancelled());
+		assertTrue(waitingResult.isCancelled());
+		assertTrue(running.fFuture.isCancelled());
+		assertTrue(running.fMonitor.isCanceled());
+		// the waiting mining is never resolved
+		assertEquals(Arrays.asList(running), fResolved);
+		assertFalse(fScheduler.cancelAll());
+
+		// a canceled mining can be resolved again
+		TestMining again= new TestMining(0, provider, CompletableFuture.completedFuture(null));
+		CompletableFuture<Void> result= fScheduler.resolve(again, new NullProgressMonitor());
+		assertTrue(result.isDone());
+		assertFalse(result.isCancelled());
+	}
+
+	@Test
+	public void testSynchronouslyCompletingResolves() {
+		fScheduler.setMaxConcurrentResolves(1);
+		ICodeMiningProvider provider= new TestProvider();
+		TestMining blocker= new TestMining(0, provider, new CompletableFuture<>());
+		fScheduler.resolve(blocker, new NullProgressMonitor());
+		List<CompletableFuture<Void>> results= new ArrayList<>();
+		for (int i= 1; i <= 5000; i++) {
+			results.add(fScheduler.resolve(new TestMining(i, provider, CompletableFuture.completedFuture(null)), new NullProgressMonitor()));
+		}
+
+		// completing the running resolve starts all waiting ones, which complete immediately
+		blocker.fFuture.complete(null);
+		for (CompletableFuture<Void> result : results) {
+			assertTrue(result.isDone());
+		}
+		assertEquals(5001, fScheduler.getStatistics(provider).getResolveCount());
+		for (TestMining mining : fResolved) {
+			assertFalse(mining.fLockHeld);
+		}
+	}
+
+	@Test
+	public void testCompletionInOtherThread() throws Exception {
+		fScheduler.setMaxConcurrentResolves(1);
+		ICodeMiningProvider provider= new TestProvider();
+		TestMining first= new TestMining(0, provider, new CompletableFuture<>());
+		CountDownLatch resolving= new CountDownLatch(1);
+		CountDownLatch release= new CountDownLatch(1);
+		// a resolve which blocks the thread that starts it
+		TestMining blocking= new TestMining(10, provider, null) {
+			@Override
+			protected CompletableFuture<Void> doResolve(ITextViewer viewer, IProgressMonitor monitor) {
+				fMonitor= monitor;
+				resolving.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.doResolve(viewer, monitor);
+			}
+		};
+		fScheduler.resolve(first, new NullProgressMonitor());
+		CompletableFuture<Void> blockingResult= fScheduler.resolve(blocking, new NullProgressMonitor());
+
+		Thread thread= new Thread(() -> first.fFuture.complete(null));
+		thread.start();
+		assertTrue(resolving.await(10, TimeUnit.SECONDS));
+
+		// the scheduler is not locked while the resolve blocks
+		assertNotNull(fScheduler.getStatistics(provider));
+		assertTrue(fScheduler.cancelAll());
+		assertTrue(blocking.fMonitor.isCanceled());
+		release.countDown();
+		thread.join(10000);
+		assertTrue(blockingResult.isCancelled());
+	}
+}
@@ -13,9 +13,12 @@
  *******************************************************************************/
 package org.eclipse.jface.text.tests.contentassist;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -84,4 +87,25 @@ public class AsyncContentAssistTest {
 		DisplayHelper.sleep(shell.getDisplay(), 1000);
 		assertNull(errorStatus);
 	}
+
+	@Test
+	public void testProposalComputationExecutor() {
+		Shell shell = new Shell();
+		SourceViewer viewer = new SourceViewer(shell, null, SWT.NONE);
+		Document document = new Document("a");
+		viewer.setDocument(document);
+		ContentAssistant contentAssistant = new ContentAssistant(true);
+		AtomicInteger executed = new AtomicInteger();
+		contentAssistant.setProposalComputationExecutor(task -> {
+			executed.incrementAndGet();
+			new Thread(task).start();
+		});
+		contentAssistant.addContentAssistProcessor(new ImmediateContentAssistProcessor(), IDocument.DEFAULT_CONTENT_TYPE);
+		contentAssistant.addContentAssistProcessor(new DelayedErrorContentAssistProcessor(), IDocument.DEFAULT_CONTENT_TYPE);
+		contentAssistant.install(viewer);
+		contentAssistant.showPossibleCompletions();
+		assertEquals(2, executed.get());
+		contentAssistant.uninstall();
+		shell.dispose();
+	}
 }
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.contentassist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.jface.text.tests.util.DisplayHelper;
+
+public class BackgroundFilteringTest {
+
+	private static final int PROPOSAL_COUNT= 500;
+
+	private class Proposal implements ICompletionProposal, ICompletionProposalExtension2 {
+
+		private final String fString;
+
+		Proposal(String string) {
+			fString= string;
+		}
+
+		@Override
+		public void apply(IDocument document) {
+		}
+
+		@Override
+		public void apply(ITextViewer viewer, char trigger, int stateMask, int offset) {
+			fApplied= this;
+		}
+
+		@Override
+		public Point getSelection(IDocument document) {
+			return null;
+		}
+
+		@Override
+		public String getAdditionalProposalInfo() {
+			return null;
+		}
+
+		@Override
+		public String getDisplayString() {
+			return fString;
+		}
+
+		@Override
+		public Image getImage() {
+			return null;
+		}
+
+		@Override
+		public IContextInformation getContextInformation() {
+			return null;
+		}
+
+		@Override
+		public void selected(ITextViewer viewer, boolean smartToggle) {
+		}
+
+		@Override
+		public void unselected(ITextViewer viewer) {
+		}
+
+		@Override
+		public boolean validate(IDocument document, int offset, DocumentEvent event) {
+			int active= fActiveValidations.incrementAndGet();
+			fMaxActiveValidations.accumulateAndGet(active, Math::max);
+			if (Thread.currentThread() != fDisplay.getThread())
+				fBackgroundValidations.incrementAndGet();
+			try {
+				if (fValidationDelay > 0)
+					Thread.sleep(fValidationDelay);
+				return fString.startsWith(document.get(0, offset));
+			} catch (BadLocationException | InterruptedException e) {
+				return false;
+			} finally {
+				fActiveValidations.decrementAndGet();
+			}
+		}
+	}
+
+	private class Processor extends ImmediateContentAssistProcessor {
+		@Override
+		public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+			ICompletionProposal[] proposals= new ICompletionProposal[PROPOSAL_COUNT];
+			for (int i= 0; i < PROPOSAL_COUNT; i++) {
+				proposals[i]= new Proposal(String.format("p%03d", Integer.valueOf(i)));
+			}
+			return proposals;
+		}
+	}
+
+	private Shell fShell;
+	private Display fDisplay;
+	private SourceViewer fViewer;
+	private Document fDocument;
+	private ContentAssistant fContentAssistant;
+
+	private final AtomicInteger fActiveValidations= new AtomicInteger();
+	private final AtomicInteger fBackgroundValidations= new AtomicInteger();
+	private final AtomicInteger fMaxActiveValidations= new AtomicInteger();
+	private volatile long fValidationDelay;
+	private Proposal fApplied;
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		fDisplay= fShell.getDisplay();
+		fViewer= new SourceViewer(fShell, null, SWT.NONE);
+		fDocument= new Document();
+		fViewer.setDocument(fDocument);
+		fContentAssistant= new ContentAssistant();
+		fContentAssistant.addContentAssistProcessor(new Processor(), IDocument.DEFAULT_CONTENT_TYPE);
+		fContentAssistant.install(fViewer);
+	}
+
+	@After
+	public void tearDown() {
+		fContentAssistant.uninstall();
+		fShell.dispose();
+	}
+
+	private void type(String text) throws BadLocationException {
+		int offset= fDocument.getLength();
+		fDocument.replace(offset, 0, text);
+		fViewer.setSelectedRange(offset + text.length(), 0);
+		// runs the filter runnable
+		DisplayHelper.driveEventQueue(fDisplay);
+	}
+
+	private void pressEnter() {
+		Event event= new Event();
+		event.character= SWT.CR;
+		event.keyCode= SWT.CR;
+		fViewer.getTextWidget().notifyListeners(SWT.KeyDown, event);
+	}
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		assertFalse(new ContentAssistant().isBackgroundFilteringEnabled());
+		assertFalse(new ContentAssistant(true).isBackgroundFilteringEnabled());
+
+		fContentAssistant.showPossibleCompletions();
+		type("p00");
+		assertEquals(0, fBackgroundValidations.get());
+		pressEnter();
+		assertEquals("p000", fApplied.getDisplayString());
+	}
+
+	@Test
+	public void testFilterInBackground() throws Exception {
+		AtomicInteger executed= new AtomicInteger();
+		fContentAssistant.setProposalComputationExecutor(task -> {
+			executed.incrementAndGet();
+			new Thread(task).start();
+		});
+		fContentAssistant.enableBackgroundFiltering(true);
+		assertTrue(fContentAssistant.isBackgroundFilteringEnabled());
+
+		fContentAssistant.showPossibleCompletions();
+		type("p00");
+		assertEquals(1, executed.get());
+		assertTrue(new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return fBackgroundValidations.get() == PROPOSAL_COUNT;
+			}
+		}.waitForCondition(fDisplay, 5000));
+		// applies the result
+		DisplayHelper.sleep(fDisplay, 100);
+
+		pressEnter();
+		assertEquals(PROPOSAL_COUNT, fBackgroundValidations.get());
+		assertEquals("p000", fApplied.getDisplayString());
+	}
+
+	@Test
+	public void testNoConcurrentValidation() throws Exception {
+		fContentAssistant.enableBackgroundFiltering(true);
+		fValidationDelay= 2;
+
+		fContentAssistant.showPossibleCompletions();
+		type("p0");
+		// the background request is still running and is replaced by a synchronous filter run
+		pressEnter();
+		assertTrue(fBackgroundValidations.get() < PROPOSAL_COUNT);
+		assertNotNull(fApplied);
+		assertEquals("p000", fApplied.getDisplayString());
+		assertEquals(1, fMaxActiveValidations.get());
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.contentassist;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.contentassist.CompletionProposalMatcher;
+
+public class CompletionProposalMatcherTest {
+
+	private static final String[] STRINGS= { "NullPointerException", "nullable", "Number", "IndexOutOfBoundsException", "toString", "to_string", "Null" };
+
+	@Test
+	public void testPrefix() {
+		CompletionProposalMatcher matcher= new CompletionProposalMatcher(STRINGS);
+		// exact prefix matches, shorter strings first, then other matches
+		assertArrayEquals(new int[] { 6, 2, 0, 1, 4, 5, 3 }, matcher.getMatches("N"));
+		assertEquals(CompletionProposalMatcher.PREFIX_IGNORE_CASE_MATCH, matcher.getScore(1, "N") & ~0xFFFF);
+		assertEquals(CompletionProposalMatcher.PREFIX_MATCH, matcher.getScore(0, "Null") & ~0xFFFF);
+	}
+
+	@Test
+	public void testCamelCase() {
+		CompletionProposalMatcher matcher= new CompletionProposalMatcher(STRINGS);
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(0, "NPE") & ~0xFFFF);
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(0, "nuPoEx") & ~0xFFFF);
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(3, "IOOBE") & ~0xFFFF);
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(5, "ts") & ~0xFFFF);
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(4, "tS") & ~0xFFFF);
+	}
+
+	@Test
+	public void testSubsequence() {
+		CompletionProposalMatcher matcher= new CompletionProposalMatcher(STRINGS);
+		assertEquals(CompletionProposalMatcher.SUBSEQUENCE_MATCH, matcher.getScore(0, "ntr") & ~0xFFFF);
+		assertTrue(matcher.matches(2, "nmr"));
+		assertFalse(matcher.matches(2, "nrm"));
+		assertFalse(matcher.matches(4, "x"));
+	}
+
+	@Test(timeout= 5000)
+	public void testManyHumps() {
+		StringBuilder string= new StringBuilder();
+		for (int i= 0; i < 50; i++)
+			string.append("Ab");
+		string.append('x');
+		StringBuilder pattern= new StringBuilder();
+		for (int i= 0; i < 20; i++)
+			pattern.append('a');
+		CompletionProposalMatcher matcher= new CompletionProposalMatcher(new String[] { string.toString() });
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(0, pattern.toString()) & ~0xFFFF);
+		// no hump starts with the x, so each choice of humps has to be rejected
+		assertEquals(CompletionProposalMatcher.SUBSEQUENCE_MATCH, matcher.getScore(0, pattern + "x") & ~0xFFFF);
+		assertEquals(CompletionProposalMatcher.CAMEL_CASE_MATCH, matcher.getScore(0, pattern + "bx") & ~0xFFFF);
+		assertFalse(matcher.matches(0, pattern + "y"));
+	}
+
+	@Test
+	public void testIncrementalMatching() {
+		CompletionProposalMatcher matcher= new CompletionProposalMatcher(STRINGS);
+		assertArrayEquals(new int[] { 1, 6, 2, 0, 4, 5, 3 }, matcher.getMatches("n"));
+		assertArrayEquals(new int[] { 1, 6, 2, 0, 3 }, matcher.getMatches("nu"));
+		assertArrayEquals(new int[] { 1, 6, 0 }, matcher.getMatches("nul"));
+		assertArrayEquals(new int[] { 0 }, matcher.getMatches("nulp"));
+		// deleting characters
+		assertArrayEquals(new int[] { 1, 6, 2, 0, 4, 5, 3 }, matcher.getMatches("n"));
+		assertArrayEquals(new int[] { 2 }, matcher.getMatches("nm"));
+		// a different pattern
+		assertArrayEquals(new int[] { 4, 5, 0, 3 }, matcher.getMatches("to"));
+		assertArrayEquals(new int[] { 4, 5, 3 }, matcher.getMatches("ts"));
+	}
+
+	@Test
+	public void testEmptyPattern() {
+		CompletionProposalMatcher matcher= new CompletionProposalMatcher(STRINGS);
+		assertEquals(STRINGS.length, matcher.getMatches("").length);
+		for (int i= 0; i < STRINGS.length; i++)
+			assertTrue(matcher.matches(i, ""));
+	}
+}
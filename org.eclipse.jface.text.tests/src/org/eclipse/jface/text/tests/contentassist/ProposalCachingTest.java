@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.contentassist;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+import org.eclipse.jface.text.contentassist.IContentAssistProcessorExtension;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+import org.eclipse.jface.text.source.SourceViewer;
+
+public class ProposalCachingTest {
+
+	private static class TestContentAssistant extends ContentAssistant {
+		void close() {
+			hide();
+		}
+	}
+
+	private static class Proposal implements ICompletionProposal, ICompletionProposalExtension2 {
+
+		private final String fString;
+
+		Proposal(String string) {
+			fString= string;
+		}
+
+		@Override
+		public void apply(IDocument document) {
+		}
+
+		@Override
+		public void apply(ITextViewer viewer, char trigger, int stateMask, int offset) {
+		}
+
+		@Override
+		public Point getSelection(IDocument document) {
+			return null;
+		}
+
+		@Override
+		public String getAdditionalProposalInfo() {
+			return null;
+		}
+
+		@Override
+		public String getDisplayString() {
+			return fString;
+		}
+
+		@Override
+		public Image getImage() {
+			return null;
+		}
+
+		@Override
+		public IContextInformation getContextInformation() {
+			return null;
+		}
+
+		@Override
+		public void selected(ITextViewer viewer, boolean smartToggle) {
+		}
+
+		@Override
+		public void unselected(ITextViewer viewer) {
+		}
+
+		@Override
+		public boolean validate(IDocument document, int offset, DocumentEvent event) {
+			try {
+				return fString.startsWith(document.get(0, offset));
+			} catch (BadLocationException e) {
+				return false;
+			}
+		}
+	}
+
+	private static class CountingProcessor extends ImmediateContentAssistProcessor implements IContentAssistProcessorExtension {
+
+		int fCount;
+
+		@Override
+		public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+			fCount++;
+			return new ICompletionProposal[] { new Proposal("foo"), new Proposal("foobar"), new Proposal("bar") };
+		}
+
+		@Override
+		public int getPrefixStart(ITextViewer viewer, int offset) {
+			return 0;
+		}
+	}
+
+	private Shell fShell;
+	private SourceViewer fViewer;
+	private Document fDocument;
+	private TestContentAssistant fContentAssistant;
+	private CountingProcessor fProcessor;
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		fViewer= new SourceViewer(fShell, null, SWT.NONE);
+		fDocument= new Document("fo");
+		fViewer.setDocument(fDocument);
+		fContentAssistant= new TestContentAssistant();
+		fContentAssistant.enableProposalCaching(true);
+		fProcessor= new CountingProcessor();
+		fContentAssistant.addContentAssistProcessor(fProcessor, IDocument.DEFAULT_CONTENT_TYPE);
+		fContentAssistant.install(fViewer);
+	}
+
+	@After
+	public void tearDown() {
+		fContentAssistant.uninstall();
+		fShell.dispose();
+	}
+
+	private void showPossibleCompletions(int offset) {
+		fViewer.setSelectedRange(offset, 0);
+		fContentAssistant.showPossibleCompletions();
+		fContentAssistant.close();
+	}
+
+	@Test
+	public void testReinvocation() {
+		showPossibleCompletions(2);
+		showPossibleCompletions(2);
+		assertEquals(1, fProcessor.fCount);
+		assertEquals(1, fContentAssistant.getProposalCacheHitCount());
+		assertEquals(1, fContentAssistant.getProposalCacheMissCount());
+	}
+
+	@Test
+	public void testTypingAfterInvocationOffset() throws Exception {
+		showPossibleCompletions(2);
+		fDocument.replace(2, 0, "o");
+		showPossibleCompletions(3);
+		assertEquals(1, fProcessor.fCount);
+		assertEquals(1, fContentAssistant.getProposalCacheHitCount());
+	}
+
+	@Test
+	public void testOtherChangeDiscardsProposals() throws Exception {
+		showPossibleCompletions(2);
+		fDocument.replace(0, 1, "f");
+		showPossibleCompletions(2);
+		assertEquals(2, fProcessor.fCount);
+		assertEquals(0, fContentAssistant.getProposalCacheHitCount());
+		assertEquals(2, fContentAssistant.getProposalCacheMissCount());
+	}
+
+	@Test
+	public void testInvocationBeforeInvocationOffset() {
+		showPossibleCompletions(2);
+		showPossibleCompletions(1);
+		assertEquals(2, fProcessor.fCount);
+	}
+}
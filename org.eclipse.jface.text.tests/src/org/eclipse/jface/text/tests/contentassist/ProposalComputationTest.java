@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.contentassist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.source.SourceViewer;
+
+/**
+ * Tests the deadline, the priority and the cancellation of asynchronous proposal computations.
+ */
+public class ProposalComputationTest {
+
+	private static class TestContentAssistant extends ContentAssistant {
+
+		TestContentAssistant() {
+			super(true);
+		}
+
+		@Override
+		public void hide() {
+			super.hide();
+		}
+	}
+
+	/**
+	 * A processor which records its calls and blocks until it is released.
+	 */
+	private class BlockingProcessor extends ImmediateContentAssistProcessor {
+
+		final CountDownLatch fStarted= new CountDownLatch(1);
+		final CountDownLatch fRelease;
+		volatile boolean fInterrupted;
+
+		BlockingProcessor(boolean block) {
+			fRelease= new CountDownLatch(block ? 1 : 0);
+		}
+
+		@Override
+		public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+			fCalled.add(this);
+			fStarted.countDown();
+			try {
+				fRelease.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				fInterrupted= true;
+			}
+			fInterrupted|= Thread.currentThread().isInterrupted();
+			return super.computeCompletionProposals(viewer, offset);
+		}
+	}
+
+	private Shell fShell;
+	private TestContentAssistant fContentAssistant;
+	private final List<BlockingProcessor> fCalled= Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		SourceViewer viewer= new SourceViewer(fShell, null, SWT.NONE);
+		viewer.setDocument(new Document("a"));
+		fContentAssistant= new TestContentAssistant();
+		fContentAssistant.install(viewer);
+	}
+
+	@After
+	public void tearDown() {
+		fContentAssistant.uninstall();
+		fShell.dispose();
+	}
+
+	private BlockingProcessor addProcessor(boolean block) {
+		BlockingProcessor processor= new BlockingProcessor(block);
+		fContentAssistant.addContentAssistProcessor(processor, IDocument.DEFAULT_CONTENT_TYPE);
+		return processor;
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		BlockingProcessor processor= addProcessor(true);
+		fContentAssistant.setProposalComputationExecutor(task -> new Thread(task).start());
+
+		fContentAssistant.setProposalComputationDeadline(processor, 500);
+		long start= System.currentTimeMillis();
+		fContentAssistant.showPossibleCompletions();
+		long waited= System.currentTimeMillis() - start;
+		assertTrue(waited >= 500);
+		assertTrue(waited < 5000);
+		fContentAssistant.hide();
+		processor.fRelease.countDown();
+
+		BlockingProcessor other= addProcessor(true);
+		fContentAssistant.setProposalComputationDeadline(0);
+		fContentAssistant.setProposalComputationDeadline(processor, 0);
+		start= System.currentTimeMillis();
+		fContentAssistant.showPossibleCompletions();
+		assertTrue(System.currentTimeMillis() - start < 500);
+		fContentAssistant.hide();
+		other.fRelease.countDown();
+	}
+
+	@Test
+	public void testPriority() throws Exception {
+		BlockingProcessor low= addProcessor(false);
+		BlockingProcessor high= addProcessor(false);
+		BlockingProcessor normal= addProcessor(false);
+		fContentAssistant.setProposalComputationPriority(low, -1);
+		fContentAssistant.setProposalComputationPriority(high, 1);
+		// runs the tasks in the order in which they are submitted
+		fContentAssistant.setProposalComputationExecutor(Runnable::run);
+
+		fContentAssistant.showPossibleCompletions();
+		assertEquals(Arrays.asList(high, normal, low), fCalled);
+	}
+
+	@Test
+	public void testCancelBeforeStart() throws Exception {
+		BlockingProcessor processor= addProcessor(false);
+		List<Runnable> tasks= new ArrayList<>();
+		fContentAssistant.setProposalComputationExecutor(tasks::add);
+		fContentAssistant.setProposalComputationDeadline(0);
+
+		fContentAssistant.showPossibleCompletions();
+		assertEquals(1, tasks.size());
+		fContentAssistant.hide();
+		tasks.get(0).run();
+		assertFalse(fCalled.contains(processor));
+	}
+
+	@Test
+	public void testCancelDoesNotInterrupt() throws Exception {
+		BlockingProcessor processor= addProcessor(true);
+		Thread[] thread= new Thread[1];
+		fContentAssistant.setProposalComputationExecutor(task -> {
+			thread[0]= new Thread(task);
+			thread[0].start();
+		});
+		fContentAssistant.setProposalComputationDeadline(0);
+
+		fContentAssistant.showPossibleCompletions();
+		assertTrue(processor.fStarted.await(10, TimeUnit.SECONDS));
+		fContentAssistant.hide();
+		processor.fRelease.countDown();
+		thread[0].join(10000);
+		assertFalse(processor.fInterrupted);
+	}
+}
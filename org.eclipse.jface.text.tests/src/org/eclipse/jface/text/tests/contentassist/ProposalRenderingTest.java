@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.contentassist;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ContentAssistEvent;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionListener;
+import org.eclipse.jface.text.contentassist.ICompletionListenerExtension3;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.jface.text.tests.util.DisplayHelper;
+
+public class ProposalRenderingTest {
+
+	private static class Proposal implements ICompletionProposal, ICompletionProposalExtension2 {
+
+		private final String fString;
+		int fDisplayStringCount;
+		int fImageCount;
+
+		Proposal(String string) {
+			fString= string;
+		}
+
+		@Override
+		public void apply(IDocument document) {
+		}
+
+		@Override
+		public void apply(ITextViewer viewer, char trigger, int stateMask, int offset) {
+		}
+
+		@Override
+		public Point getSelection(IDocument document) {
+			return null;
+		}
+
+		@Override
+		public String getAdditionalProposalInfo() {
+			return null;
+		}
+
+		@Override
+		public String getDisplayString() {
+			fDisplayStringCount++;
+			return fString;
+		}
+
+		@Override
+		public Image getImage() {
+			fImageCount++;
+			return null;
+		}
+
+		@Override
+		public IContextInformation getContextInformation() {
+			return null;
+		}
+
+		@Override
+		public void selected(ITextViewer viewer, boolean smartToggle) {
+		}
+
+		@Override
+		public void unselected(ITextViewer viewer) {
+		}
+
+		@Override
+		public boolean validate(IDocument document, int offset, DocumentEvent event) {
+			try {
+				return fString.startsWith(document.get(0, offset));
+			} catch (BadLocationException e) {
+				return false;
+			}
+		}
+	}
+
+	private static class RenderListener implements ICompletionListener, ICompletionListenerExtension3 {
+
+		final List<ICompletionProposal> fRendered= new ArrayList<>();
+
+		@Override
+		public void assistSessionStarted(ContentAssistEvent event) {
+		}
+
+		@Override
+		public void assistSessionEnded(ContentAssistEvent event) {
+		}
+
+		@Override
+		public void selectionChanged(ICompletionProposal proposal, boolean smartToggle) {
+		}
+
+		@Override
+		public void proposalRendered(ICompletionProposal proposal, long renderTime, boolean cached) {
+			assertTrue(renderTime >= 0);
+			fRendered.add(proposal);
+		}
+	}
+
+	private final Proposal[] fProposals= { new Proposal("foo"), new Proposal("foobar"), new Proposal("bar") };
+
+	private Shell fShell;
+	private SourceViewer fViewer;
+	private Document fDocument;
+	private ContentAssistant fContentAssistant;
+	private RenderListener fListener;
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		fShell.setSize(400, 300);
+		fShell.open();
+		fViewer= new SourceViewer(fShell, null, SWT.NONE);
+		fViewer.getTextWidget().setSize(400, 300);
+		fDocument= new Document("f");
+		fViewer.setDocument(fDocument);
+		fContentAssistant= new ContentAssistant();
+		fContentAssistant.addContentAssistProcessor(new ImmediateContentAssistProcessor() {
+			@Override
+			public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+				return fProposals;
+			}
+		}, IDocument.DEFAULT_CONTENT_TYPE);
+		fListener= new RenderListener();
+		fContentAssistant.addCompletionListener(fListener);
+		fContentAssistant.install(fViewer);
+	}
+
+	@After
+	public void tearDown() {
+		fContentAssistant.uninstall();
+		fShell.dispose();
+	}
+
+	@Test
+	public void testFilteringReusesRenderedRows() throws Exception {
+		fViewer.setSelectedRange(1, 0);
+		fContentAssistant.showPossibleCompletions();
+		DisplayHelper.sleep(fShell.getDisplay(), 500);
+
+		fDocument.replace(1, 0, "o");
+		fViewer.setSelectedRange(2, 0);
+		DisplayHelper.sleep(fShell.getDisplay(), 500);
+
+		for (Proposal proposal : fProposals) {
+			assertTrue(proposal.fDisplayStringCount <= 1);
+			assertTrue(proposal.fImageCount <= 1);
+		}
+		assertTrue(fListener.fRendered.contains(fProposals[0]));
+	}
+}
@@ -20,7 +20,11 @@ import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -353,6 +357,49 @@ public class AbstractReconcilerTest {
 //		fBarrier.wakeAll();
 	}
 
+	@Test
+	public void testReconcilersShareThreads() throws InterruptedException {
+		final int count= 20;
+		final CountDownLatch latch= new CountDownLatch(count);
+		final Set<Thread> threads= Collections.synchronizedSet(new HashSet<Thread>());
+		final List<String> errors= Collections.synchronizedList(new ArrayList<String>());
+		List<AbstractReconciler> reconcilers= new ArrayList<>();
+		for (int i= 0; i < count; i++) {
+			AbstractReconciler reconciler= new AbstractReconciler() {
+				@Override
+				protected void initialProcess() {
+					if (!isRunningInReconcilerThread())
+						errors.add("not running in reconciler thread");
+					threads.add(Thread.currentThread());
+					latch.countDown();
+				}
+				@Override
+				protected void process(DirtyRegion dirtyRegion) {
+				}
+				@Override
+				protected void reconcilerDocumentChanged(IDocument newDocument) {
+				}
+				@Override
+				public IReconcilingStrategy getReconcilingStrategy(String contentType) {
+					return null;
+				}
+			};
+			reconciler.setDelay(10);
+			ITextViewer viewer= new TestTextViewer();
+			reconciler.install(viewer);
+			viewer.setDocument(new Document("foo" + i));
+			reconcilers.add(reconciler);
+		}
+		try {
+			assertTrue("reconcilers did not run in 5 seconds", latch.await(5, TimeUnit.SECONDS));
+			assertTrue(errors.toString(), errors.isEmpty());
+			assertTrue("too many threads: " + threads.size(), threads.size() < count);
+		} finally {
+			for (AbstractReconciler reconciler : reconcilers)
+				reconciler.uninstall();
+		}
+	}
+
 	void installDocument() throws InterruptedException {
 		fDocument= new Document("foo");
 		fViewer.setDocument(fDocument);
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.reconciler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.reconciler.AbstractReconciler;
+import org.eclipse.jface.text.reconciler.DirtyRegion;
+import org.eclipse.jface.text.reconciler.IReconcilingStrategy;
+import org.eclipse.jface.text.tests.TestTextViewer;
+
+
+/**
+ * Tests merging of dirty regions by {@link AbstractReconciler}.
+ *
+ * @since 3.16
+ */
+public class DirtyRegionMergingTest {
+
+	private AbstractReconciler fReconciler;
+	private ITextViewer fViewer;
+	private Document fDocument;
+
+	@Before
+	public void setUp() {
+		fReconciler= new AbstractReconciler() {
+			@Override
+			protected void process(DirtyRegion dirtyRegion) {
+			}
+			@Override
+			protected void reconcilerDocumentChanged(IDocument newDocument) {
+			}
+			@Override
+			public IReconcilingStrategy getReconcilingStrategy(String contentType) {
+				return null;
+			}
+		};
+		fReconciler.setIsIncrementalReconciler(true);
+		// the queue must not be processed while the test runs
+		fReconciler.setDelay(60 * 1000);
+		fViewer= new TestTextViewer();
+		fDocument= new Document(createText(1000));
+	}
+
+	@After
+	public void tearDown() {
+		// uninstalling waits until the queue has been processed
+		fReconciler.setDelay(0);
+		fReconciler.uninstall();
+	}
+
+	private static String createText(int length) {
+		StringBuilder buffer= new StringBuilder(length);
+		for (int i= 0; i < length; i++)
+			buffer.append((char) ('a' + i % 26));
+		return buffer.toString();
+	}
+
+	private void install() {
+		fReconciler.install(fViewer);
+		fViewer.setDocument(fDocument);
+	}
+
+	private void typeWithCarets(int carets, int distance) throws BadLocationException {
+		// like typing with multiple carets, the last caret is served first
+		for (int i= carets - 1; i >= 0; i--)
+			fDocument.replace(i * distance, 0, "x");
+	}
+
+	@Test
+	public void testScatteredInsertsAreQueuedSeparately() throws BadLocationException {
+		install();
+		typeWithCarets(10, 50);
+		assertEquals(10, fReconciler.getDirtyRegionQueueSize());
+		assertEquals(0, fReconciler.getDirtyRegionMergeRatio(), 0);
+	}
+
+	@Test
+	public void testNearbyInsertsAreMerged() throws BadLocationException {
+		fReconciler.setDirtyRegionMergeThreshold(50);
+		install();
+		typeWithCarets(10, 50);
+		assertEquals(1, fReconciler.getDirtyRegionQueueSize());
+		assertEquals(0.9, fReconciler.getDirtyRegionMergeRatio(), 0.0001);
+	}
+
+	@Test
+	public void testDistantInsertsAreNotMerged() throws BadLocationException {
+		fReconciler.setDirtyRegionMergeThreshold(10);
+		install();
+		typeWithCarets(10, 50);
+		assertEquals(10, fReconciler.getDirtyRegionQueueSize());
+	}
+
+	@Test
+	public void testReplaceAll() throws BadLocationException {
+		fReconciler.setDirtyRegionMergeThreshold(30);
+		install();
+		// replace every 26th character with two characters, from the start of the document
+		for (int i= 0; i < 20; i++)
+			fDocument.replace(i * 27, 1, "XY");
+		// one remove and one insert region remain
+		assertEquals(2, fReconciler.getDirtyRegionQueueSize());
+	}
+
+	@Test
+	public void testContinuedTyping() throws BadLocationException {
+		fReconciler.setDirtyRegionMergeThreshold(0);
+		install();
+		for (int i= 0; i < 10; i++)
+			fDocument.replace(100 + i, 0, "x");
+		for (int i= 0; i < 5; i++)
+			fDocument.replace(109 - i, 1, "");
+		assertEquals(2, fReconciler.getDirtyRegionQueueSize());
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.rules.BufferedRuleBasedScanner;
+import org.eclipse.jface.text.rules.ICharacterScanner;
+import org.eclipse.jface.text.rules.IRule;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.jface.text.rules.Token;
+import org.eclipse.jface.text.rules.WhitespaceRule;
+
+/**
+ * Tests bulk reading from a {@link BufferedRuleBasedScanner}.
+ */
+public class BufferedRuleBasedScannerTest {
+
+	@Test
+	public void testBulkReadAcrossBufferBoundaries() {
+		IDocument document= new Document("0123456789abcdefghij");
+		BufferedRuleBasedScanner scanner= new BufferedRuleBasedScanner(4);
+		scanner.setRange(document, 2, 15);
+
+		char[] buffer= new char[20];
+		assertEquals('2', scanner.read());
+		assertEquals(10, scanner.read(buffer, 1, 10));
+		assertEquals("3456789abc", new String(buffer, 1, 10));
+		assertEquals('d', scanner.read());
+
+		scanner.unread(6);
+		assertEquals('8', scanner.read());
+		assertEquals(8, scanner.read(buffer, 0, 20));
+		assertEquals("9abcdefg", new String(buffer, 0, 8));
+		assertEquals(0, scanner.read(buffer, 0, 20));
+		assertEquals(ICharacterScanner.EOF, scanner.read());
+	}
+
+	@Test
+	public void testWhitespaceRuleBulkRead() {
+		StringBuilder text= new StringBuilder("x");
+		for (int i= 0; i < 100; i++)
+			text.append(' ');
+		text.append("y \t");
+		IDocument document= new Document(text.toString());
+
+		IToken whitespace= new Token("whitespace");
+		BufferedRuleBasedScanner scanner= new BufferedRuleBasedScanner(16);
+		scanner.setRules(new IRule[] { new WhitespaceRule(c -> c == ' ' || c == '\t', whitespace) });
+		scanner.setRange(document, 0, document.getLength());
+
+		scanner.nextToken();
+		assertSame(whitespace, scanner.nextToken());
+		assertEquals(1, scanner.getTokenOffset());
+		assertEquals(100, scanner.getTokenLength());
+		scanner.nextToken();
+		assertEquals(101, scanner.getTokenOffset());
+		assertSame(whitespace, scanner.nextToken());
+		assertEquals(2, scanner.getTokenLength());
+		assertSame(Token.EOF, scanner.nextToken());
+	}
+
+	@Test
+	public void testBulkReadUsesOverriddenRead() {
+		IDocument document= new Document("a  b  ");
+		int[] reads= new int[1];
+		BufferedRuleBasedScanner scanner= new BufferedRuleBasedScanner(16) {
+			@Override
+			public int read() {
+				reads[0]++;
+				int c= super.read();
+				// treats 'b' as a blank
+				return c == 'b' ? ' ' : c;
+			}
+		};
+		IToken whitespace= new Token("whitespace");
+		scanner.setRules(new IRule[] { new WhitespaceRule(c -> c == ' ', whitespace) });
+		scanner.setRange(document, 0, document.getLength());
+
+		scanner.nextToken();
+		assertSame(whitespace, scanner.nextToken());
+		assertEquals(1, scanner.getTokenOffset());
+		assertEquals(5, scanner.getTokenLength());
+		assertSame(Token.EOF, scanner.nextToken());
+		assertTrue(reads[0] >= document.getLength());
+
+		char[] buffer= new char[10];
+		scanner.setRange(document, 2, 3);
+		assertEquals(3, scanner.read(buffer, 0, 10));
+		assertEquals("   ", new String(buffer, 0, 3));
+		assertEquals(ICharacterScanner.EOF, scanner.read());
+		scanner.unread();
+		scanner.unread(2);
+		assertEquals(' ', scanner.read());
+	}
+}
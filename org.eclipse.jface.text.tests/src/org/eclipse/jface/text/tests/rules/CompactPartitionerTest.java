@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.rules;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.rules.CompactPartitioner;
+import org.eclipse.jface.text.rules.FastPartitioner;
+import org.eclipse.jface.text.rules.IPartitionTokenScanner;
+import org.eclipse.jface.text.rules.IPredicateRule;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.jface.text.rules.MultiLineRule;
+import org.eclipse.jface.text.rules.RuleBasedPartitionScanner;
+import org.eclipse.jface.text.rules.SingleLineRule;
+import org.eclipse.jface.text.rules.Token;
+
+public class CompactPartitionerTest extends FastPartitionerTest {
+
+	private static final String STRING= "string";
+
+	@Override
+	protected IDocumentPartitioner createPartitioner(IPartitionTokenScanner scanner) {
+		return new CompactPartitioner(scanner, new String[] { DEFAULT, COMMENT });
+	}
+
+	private static IPartitionTokenScanner createScanner() {
+		RuleBasedPartitionScanner scanner= new RuleBasedPartitionScanner();
+		IToken comment= new Token(COMMENT);
+		IToken string= new Token(STRING);
+		scanner.setPredicateRules(new IPredicateRule[] { new MultiLineRule("/*", "*/", comment), new SingleLineRule("\"", "\"", string, '\\') });
+		return scanner;
+	}
+
+	private static String[] contentTypes() {
+		return new String[] { DEFAULT, COMMENT, STRING };
+	}
+
+	@Test
+	public void testSameAsFastPartitioner() throws BadLocationException {
+		String text= "a /* b */ \"c\" d\n/* e\n f */ \"g\" h\n";
+		IDocument fastDocument= new Document(text);
+		IDocumentPartitioner fast= new FastPartitioner(createScanner(), contentTypes());
+		fastDocument.setDocumentPartitioner(fast);
+		fast.connect(fastDocument);
+
+		IDocument compactDocument= new Document(text);
+		IDocumentPartitioner compact= new CompactPartitioner(createScanner(), contentTypes());
+		compactDocument.setDocumentPartitioner(compact);
+		compact.connect(compactDocument);
+
+		int[][] edits= { { 2, 0 }, { 5, 2 }, { 0, 0 }, { 17, 3 }, { 10, 0 }, { 1, 4 } };
+		String[] texts= { "/*", "*/", "\"", "", " x */", "" };
+		for (int i= 0; i < edits.length; i++) {
+			fastDocument.replace(edits[i][0], edits[i][1], texts[i]);
+			compactDocument.replace(edits[i][0], edits[i][1], texts[i]);
+			int length= fastDocument.getLength();
+			assertArrayEquals(fast.computePartitioning(0, length), compact.computePartitioning(0, length));
+			for (int offset= 0; offset <= length; offset++)
+				assertEquals(fast.getPartition(offset), compact.getPartition(offset));
+		}
+	}
+
+	@Test
+	public void testRescanStopsBehindChange() throws BadLocationException {
+		StringBuilder buffer= new StringBuilder();
+		for (int i= 0; i < 1000; i++)
+			buffer.append("code /* comment */ \"string\"\n");
+		IDocument document= new Document(buffer.toString());
+		CompactPartitioner partitioner= new CompactPartitioner(createScanner(), contentTypes());
+		document.setDocumentPartitioner(partitioner);
+		partitioner.connect(document);
+
+		assertEquals(2000, partitioner.getPartitionCount());
+		assertEquals(document.getLength(), partitioner.getLastRescanLength());
+
+		// typing inside a comment does not change the partitioning
+		document.replace(10, 0, "x");
+		assertTrue(partitioner.getLastRescanLength() < 100);
+		assertTrue(partitioner.getLastRescanPartitionCount() <= 2);
+		assertEquals(2000, partitioner.getPartitionCount());
+
+		// opening a comment re-scans until the next comment end
+		document.replace(0, 0, "/*");
+		assertEquals(COMMENT, partitioner.getContentType(2));
+		assertEquals(0, partitioner.getPartition(10).getOffset());
+		assertEquals(2000, partitioner.getPartitionCount());
+		assertTrue(partitioner.getLastRescanLength() < 100);
+	}
+}
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.jface.text.tests.rules;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -26,6 +28,7 @@ import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.jface.text.rules.IRule;
 import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.rules.IWordDetector;
+import org.eclipse.jface.text.rules.KeywordTrie;
 import org.eclipse.jface.text.rules.PatternRule;
 import org.eclipse.jface.text.rules.RuleBasedScanner;
 import org.eclipse.jface.text.rules.Token;
@@ -211,5 +214,59 @@ public class WordRuleTest {
 
 	}
 
+	@Test
+	public void testSharedKeywordTrie() throws Exception {
+		IToken keywordToken= new Token("keyword");
+		IToken typeToken= new Token("type");
+		IToken localToken= new Token("local");
+		IToken defaultToken= new Token("default");
+
+		KeywordTrie keywords= new KeywordTrie(true);
+		keywords.addWords(new String[] { "select", "from", "where", "sel" }, keywordToken);
+		keywords.addWord("varchar", typeToken);
+		assertEquals(5, keywords.size());
+		assertSame(typeToken, keywords.getToken("VarChar"));
+		assertNull(keywords.getToken("selec"));
+
+		WordRule rule= new WordRule(new SimpleWordDetector(), defaultToken, keywords);
+		rule.addWord("Mine", localToken);
+		WordRule otherRule= new WordRule(new SimpleWordDetector(), Token.UNDEFINED, keywords);
+
+		IDocument document= new Document("SELECT selec Varchar mine x");
+		RuleBasedScanner scanner= new RuleBasedScanner();
+		scanner.setRules(new IRule[] { rule });
+		scanner.setRange(document, 0, document.getLength());
+		assertSame(keywordToken, scanner.nextToken());
+		scanner.nextToken();
+		assertSame(defaultToken, scanner.nextToken());
+		assertEquals(5, scanner.getTokenLength());
+		scanner.nextToken();
+		assertSame(typeToken, scanner.nextToken());
+		scanner.nextToken();
+		assertSame(localToken, scanner.nextToken());
+
+		scanner= new RuleBasedScanner();
+		scanner.setRules(new IRule[] { otherRule });
+		scanner.setRange(document, 7, 5);
+		scanner.nextToken();
+		assertEquals(1, scanner.getTokenLength());
+		assertEquals(7, scanner.getTokenOffset());
+
+		// only the trie decides
+		WordRule trieRule= new WordRule(new SimpleWordDetector(), defaultToken, keywords);
+		scanner= new RuleBasedScanner();
+		scanner.setRules(new IRule[] { trieRule });
+		scanner.setRange(document, 0, document.getLength());
+		assertSame(keywordToken, scanner.nextToken());
+		assertEquals(6, scanner.getTokenLength());
+		scanner.nextToken();
+		assertSame(defaultToken, scanner.nextToken());
+		assertEquals(5, scanner.getTokenLength());
+		scanner.nextToken();
+		assertSame(typeToken, scanner.nextToken());
+		scanner.nextToken();
+		assertSame(defaultToken, scanner.nextToken());
+		assertEquals(4, scanner.getTokenLength());
+	}
 
 }
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.AnnotationPainter;
+import org.eclipse.jface.text.source.AnnotationPainter.IDrawingStrategy;
+import org.eclipse.jface.text.source.IAnnotationAccess;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.jface.text.tests.util.DisplayHelper;
+
+/**
+ * Tests that the annotation painter catches up with the changes of the annotation model and of
+ * the document.
+ */
+public class AnnotationPainterTest {
+
+	private static final String DRAWN= "org.eclipse.jface.text.tests.drawn";
+	private static final String HIGHLIGHTED= "org.eclipse.jface.text.tests.highlighted";
+
+	private static class AnnotationAccess implements IAnnotationAccess {
+		@Override
+		public Object getType(Annotation annotation) {
+			return annotation.getType();
+		}
+
+		@Override
+		public boolean isMultiLine(Annotation annotation) {
+			return true;
+		}
+
+		@Override
+		public boolean isTemporary(Annotation annotation) {
+			return !annotation.isPersistent();
+		}
+	}
+
+	/**
+	 * Records the offsets at which annotations are drawn.
+	 */
+	private static class RecordingStrategy implements IDrawingStrategy {
+
+		final Map<Annotation, Integer> fDrawn= new HashMap<>();
+
+		@Override
+		public void draw(Annotation annotation, GC gc, StyledText textWidget, int offset, int length, Color color) {
+			if (gc != null)
+				fDrawn.put(annotation, Integer.valueOf(offset));
+		}
+	}
+
+	private Shell fShell;
+	private SourceViewer fViewer;
+	private IDocument fDocument;
+	private AnnotationModel fModel;
+	private RecordingStrategy fStrategy;
+	private Color fHighlightColor;
+
+	@Before
+	public void setUp() {
+		fShell= new Shell();
+		fShell.setSize(500, 500);
+		fViewer= new SourceViewer(fShell, null, SWT.NONE);
+		fViewer.getTextWidget().setSize(480, 480);
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 20; i++)
+			text.append("line ").append(i).append('\n');
+		fDocument= new Document(text.toString());
+		fModel= new AnnotationModel();
+		fViewer.setDocument(fDocument, fModel);
+
+		fStrategy= new RecordingStrategy();
+		fHighlightColor= fShell.getDisplay().getSystemColor(SWT.COLOR_YELLOW);
+		AnnotationPainter painter= new AnnotationPainter(fViewer, new AnnotationAccess());
+		painter.addDrawingStrategy(DRAWN, fStrategy);
+		painter.addAnnotationType(DRAWN, DRAWN);
+		painter.setAnnotationTypeColor(DRAWN, fShell.getDisplay().getSystemColor(SWT.COLOR_RED));
+		painter.addHighlightAnnotationType(HIGHLIGHTED);
+		painter.setAnnotationTypeColor(HIGHLIGHTED, fHighlightColor);
+		fViewer.addPainter(painter);
+		fViewer.addTextPresentationListener(painter);
+		fShell.open();
+		DisplayHelper.sleep(fShell.getDisplay(), 100);
+	}
+
+	@After
+	public void tearDown() {
+		fShell.dispose();
+	}
+
+	private Annotation add(String type, int line) throws Exception {
+		Annotation annotation= new Annotation(type, false, null);
+		fModel.addAnnotation(annotation, new Position(fDocument.getLineOffset(line), 4));
+		return annotation;
+	}
+
+	/**
+	 * Lets the painter catch up and repaints the whole widget.
+	 *
+	 * @return the offsets of the drawn annotations
+	 */
+	private Map<Annotation, Integer> paint() {
+		DisplayHelper.sleep(fShell.getDisplay(), 100);
+		fStrategy.fDrawn.clear();
+		StyledText textWidget= fViewer.getTextWidget();
+		textWidget.redraw();
+		textWidget.update();
+		return fStrategy.fDrawn;
+	}
+
+	private Color getHighlight(int offset) {
+		DisplayHelper.sleep(fShell.getDisplay(), 100);
+		StyleRange range= fViewer.getTextWidget().getStyleRangeAtOffset(offset);
+		return range != null ? range.background : null;
+	}
+
+	@Test
+	public void testAdd() throws Exception {
+		Annotation first= add(DRAWN, 2);
+		Annotation second= add(DRAWN, 5);
+		Map<Annotation, Integer> drawn= paint();
+		assertEquals(Integer.valueOf(fDocument.getLineOffset(2)), drawn.get(first));
+		assertEquals(Integer.valueOf(fDocument.getLineOffset(5)), drawn.get(second));
+
+		add(HIGHLIGHTED, 3);
+		assertEquals(fHighlightColor, getHighlight(fDocument.getLineOffset(3) + 1));
+	}
+
+	@Test
+	public void testChange() throws Exception {
+		Annotation drawnAnnotation= add(DRAWN, 2);
+		Annotation highlighted= add(HIGHLIGHTED, 4);
+		paint();
+
+		fModel.modifyAnnotationPosition(drawnAnnotation, new Position(fDocument.getLineOffset(8), 4));
+		fModel.modifyAnnotationPosition(highlighted, new Position(fDocument.getLineOffset(10), 4));
+		assertEquals(Integer.valueOf(fDocument.getLineOffset(8)), paint().get(drawnAnnotation));
+		assertEquals(fHighlightColor, getHighlight(fDocument.getLineOffset(10) + 1));
+		assertNull(getHighlight(fDocument.getLineOffset(4) + 1));
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		Annotation drawnAnnotation= add(DRAWN, 2);
+		Annotation highlighted= add(HIGHLIGHTED, 4);
+		paint();
+
+		fModel.removeAnnotation(drawnAnnotation);
+		fModel.removeAnnotation(highlighted);
+		assertFalse(paint().containsKey(drawnAnnotation));
+		assertNull(getHighlight(fDocument.getLineOffset(4) + 1));
+	}
+
+	@Test
+	public void testPositionsMovedByTextChanges() throws Exception {
+		Annotation drawnAnnotation= add(DRAWN, 6);
+		Annotation highlighted= add(HIGHLIGHTED, 8);
+		paint();
+
+		fDocument.replace(fDocument.getLineOffset(1), 0, "new line\nnew line\n");
+		assertEquals(Integer.valueOf(fDocument.getLineOffset(8)), paint().get(drawnAnnotation));
+		assertEquals(fHighlightColor, getHighlight(fDocument.getLineOffset(10) + 1));
+		assertEquals(fDocument.getLineOffset(10), fModel.getPosition(highlighted).getOffset());
+	}
+}
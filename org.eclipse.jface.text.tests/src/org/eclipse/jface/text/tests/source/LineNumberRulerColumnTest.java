@@ -13,17 +13,27 @@
  *******************************************************************************/
 package org.eclipse.jface.text.tests.source;
 
+import static org.junit.Assert.assertArrayEquals;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Shell;
 
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.source.CompositeRuler;
 import org.eclipse.jface.text.source.LineNumberRulerColumn;
 import org.eclipse.jface.text.source.SourceViewer;
 
+import org.eclipse.jface.text.tests.util.DisplayHelper;
+
 public class LineNumberRulerColumnTest {
 
 	private Shell fParent;
@@ -51,4 +61,44 @@ public class LineNumberRulerColumnTest {
 		lineNumberRulerColumn.redraw();
 	}
 
+	@Test
+	public void testScrollingPaintsSameAsRedraw() {
+		LineNumberRulerColumn lineNumberRulerColumn= new LineNumberRulerColumn();
+		CompositeRuler ruler= new CompositeRuler();
+		ruler.addDecorator(0, lineNumberRulerColumn);
+		SourceViewer sourceViewer= new SourceViewer(fParent, ruler, SWT.V_SCROLL);
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 200; i++)
+			text.append("line ").append(i).append('\n');
+		sourceViewer.setDocument(new Document(text.toString()));
+		fParent.setSize(300, 200);
+		fParent.open();
+		DisplayHelper.sleep(fParent.getDisplay(), 100);
+
+		for (int topIndex : new int[] { 3, 10, 9, 150, 148 }) {
+			sourceViewer.setTopIndex(topIndex);
+			DisplayHelper.sleep(fParent.getDisplay(), 100);
+			ImageData scrolled= print(lineNumberRulerColumn.getControl());
+
+			lineNumberRulerColumn.redraw();
+			ImageData redrawn= print(lineNumberRulerColumn.getControl());
+			assertArrayEquals(redrawn.data, scrolled.data);
+		}
+	}
+
+	private static ImageData print(Control control) {
+		Point size= control.getSize();
+		Image image= new Image(control.getDisplay(), size.x, size.y);
+		try {
+			GC gc= new GC(image);
+			try {
+				control.print(gc);
+			} finally {
+				gc.dispose();
+			}
+			return image.getImageData();
+		} finally {
+			image.dispose();
+		}
+	}
 }
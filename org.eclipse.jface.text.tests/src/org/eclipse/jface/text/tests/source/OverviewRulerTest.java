@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationAccess;
+import org.eclipse.jface.text.source.ISharedTextColors;
+import org.eclipse.jface.text.source.OverviewRuler;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionViewer;
+
+import org.eclipse.jface.text.tests.util.DisplayHelper;
+
+/**
+ * Tests that the overview ruler paints the same after incremental updates as after reloading all
+ * annotations from the model.
+ */
+public class OverviewRulerTest {
+
+	private static final String TYPE= "org.eclipse.jface.text.tests.overview";
+
+	private static class AnnotationAccess implements IAnnotationAccess {
+		@Override
+		public Object getType(Annotation annotation) {
+			return annotation.getType();
+		}
+
+		@Override
+		public boolean isMultiLine(Annotation annotation) {
+			return true;
+		}
+
+		@Override
+		public boolean isTemporary(Annotation annotation) {
+			return !annotation.isPersistent();
+		}
+	}
+
+	private static class SharedTextColors implements ISharedTextColors {
+
+		private final Map<RGB, Color> fColors= new HashMap<>();
+
+		@Override
+		public Color getColor(RGB rgb) {
+			return fColors.computeIfAbsent(rgb, key -> new Color(null, key));
+		}
+
+		@Override
+		public void dispose() {
+			fColors.values().forEach(Color::dispose);
+			fColors.clear();
+		}
+	}
+
+	private Shell fParent;
+	private SharedTextColors fColors;
+	private OverviewRuler fRuler;
+	private IDocument fDocument;
+	private AnnotationModel fModel;
+
+	@Before
+	public void setUp() {
+		fColors= new SharedTextColors();
+		createViewer(false);
+	}
+
+	private SourceViewer createViewer(boolean projection) {
+		fParent= new Shell();
+		fRuler= new OverviewRuler(new AnnotationAccess(), 12, fColors);
+		fRuler.addAnnotationType(TYPE);
+		fRuler.setAnnotationTypeLayer(TYPE, 0);
+		fRuler.setAnnotationTypeColor(TYPE, fParent.getDisplay().getSystemColor(SWT.COLOR_RED));
+		SourceViewer viewer;
+		if (projection)
+			viewer= new ProjectionViewer(fParent, null, fRuler, true, SWT.V_SCROLL);
+		else
+			viewer= new SourceViewer(fParent, null, fRuler, true, SWT.V_SCROLL);
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 200; i++)
+			text.append("line ").append(i).append('\n');
+		fDocument= new Document(text.toString());
+		fModel= new AnnotationModel();
+		viewer.setDocument(fDocument, fModel);
+		fParent.setSize(300, 400);
+		fParent.open();
+		DisplayHelper.sleep(fParent.getDisplay(), 100);
+		return viewer;
+	}
+
+	@After
+	public void tearDown() {
+		fParent.dispose();
+		fColors.dispose();
+	}
+
+	private Annotation addAnnotation(int line) throws Exception {
+		Annotation annotation= new Annotation(TYPE, true, null);
+		fModel.addAnnotation(annotation, new Position(fDocument.getLineOffset(line), 4));
+		return annotation;
+	}
+
+	/**
+	 * Asserts that the ruler paints the same as after reloading the annotations from the model,
+	 * and returns what it painted.
+	 *
+	 * @return the painted ruler
+	 */
+	private ImageData assertPaintsSameAsReload() {
+		DisplayHelper.sleep(fParent.getDisplay(), 100);
+		ImageData incremental= print(fRuler.getControl());
+		fRuler.update();
+		ImageData reloaded= print(fRuler.getControl());
+		assertArrayEquals(reloaded.data, incremental.data);
+		return reloaded;
+	}
+
+	@Test
+	public void testAddChangeRemove() throws Exception {
+		ImageData empty= assertPaintsSameAsReload();
+		Annotation first= addAnnotation(10);
+		addAnnotation(100);
+		assertFalse(Arrays.equals(empty.data, assertPaintsSameAsReload().data));
+
+		fModel.modifyAnnotationPosition(first, new Position(fDocument.getLineOffset(150), 4));
+		assertPaintsSameAsReload();
+
+		fModel.removeAnnotation(first);
+		assertPaintsSameAsReload();
+	}
+
+	@Test
+	public void testMarkedDeleted() throws Exception {
+		Annotation first= addAnnotation(10);
+		assertPaintsSameAsReload();
+
+		// marking an annotation deleted does not notify the model listeners
+		first.markDeleted(true);
+		addAnnotation(100);
+		assertPaintsSameAsReload();
+	}
+
+	@Test
+	public void testAnnotationsMovedByTextChanges() throws Exception {
+		addAnnotation(40);
+		addAnnotation(120);
+		assertPaintsSameAsReload();
+
+		// the number of lines stays the same, but the annotation at line 40 moves to line 20
+		int start= fDocument.getLineOffset(10);
+		fDocument.replace(start, fDocument.getLineOffset(30) - start, "");
+		StringBuilder lines= new StringBuilder();
+		for (int i= 0; i < 20; i++)
+			lines.append("new line\n");
+		fDocument.replace(fDocument.getLineOffset(60), 0, lines.toString());
+		fRuler.getControl().redraw();
+		assertPaintsSameAsReload();
+
+		// typing within a line
+		fDocument.replace(fDocument.getLineOffset(20), 0, "x");
+		fRuler.getControl().redraw();
+		assertPaintsSameAsReload();
+	}
+
+	@Test
+	public void testAnnotationsMovedByTextChangesInFoldedDocument() throws Exception {
+		fParent.dispose();
+		ProjectionViewer viewer= (ProjectionViewer) createViewer(true);
+		viewer.doOperation(ProjectionViewer.TOGGLE);
+		int start= fDocument.getLineOffset(10);
+		viewer.getProjectionAnnotationModel().addAnnotation(new ProjectionAnnotation(), new Position(start, fDocument.getLineOffset(31) - start));
+		viewer.doOperation(ProjectionViewer.COLLAPSE_ALL);
+		addAnnotation(58);
+		addAnnotation(120);
+		assertPaintsSameAsReload();
+
+		// the number of lines stays the same, but the annotation at line 58 moves to line 53, the
+		// changes are reported in offsets of the visible document, which precede those of the model
+		start= fDocument.getLineOffset(35);
+		fDocument.replace(start, fDocument.getLineOffset(40) - start, "");
+		StringBuilder lines= new StringBuilder();
+		for (int i= 0; i < 5; i++)
+			lines.append("new line\n");
+		fDocument.replace(fDocument.getLineOffset(55), 0, lines.toString());
+		fRuler.getControl().redraw();
+		assertPaintsSameAsReload();
+	}
+
+	private static ImageData print(Control control) {
+		Point size= control.getSize();
+		Image image= new Image(control.getDisplay(), size.x, size.y);
+		try {
+			GC gc= new GC(image);
+			try {
+				control.print(gc);
+			} finally {
+				gc.dispose();
+			}
+			return image.getImageData();
+		} finally {
+			image.dispose();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,9 @@ package org.eclipse.jface.text.source.projection;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.eclipse.swt.SWTError;
 import org.eclipse.swt.custom.ST;
@@ -272,6 +275,80 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 		}
 	}
 
+	/**
+	 * A set of master document ranges. Used to compute the result of a sequence of projection
+	 * changes, which is then applied to the projection document at once.
+	 *
+	 * @since 3.16
+	 */
+	private static class MasterRanges {
+
+		/** The disjoint, non-adjacent ranges, the start offsets mapped to the end offsets. */
+		private final TreeMap<Integer, Integer> fRanges= new TreeMap<>();
+
+		MasterRanges() {
+		}
+
+		MasterRanges(IRegion[] regions) {
+			if (regions != null) {
+				for (IRegion region : regions)
+					add(region.getOffset(), region.getLength());
+			}
+		}
+
+		void add(int offset, int length) {
+			if (length <= 0)
+				return;
+
+			int start= offset;
+			int end= offset + length;
+			Map.Entry<Integer, Integer> floor= fRanges.floorEntry(Integer.valueOf(start));
+			if (floor != null && floor.getValue().intValue() >= start) {
+				start= floor.getKey().intValue();
+				end= Math.max(end, floor.getValue().intValue());
+			}
+
+			SortedMap<Integer, Integer> merged= fRanges.subMap(Integer.valueOf(start), true, Integer.valueOf(end), true);
+			for (Integer mergedEnd : merged.values())
+				end= Math.max(end, mergedEnd.intValue());
+			merged.clear();
+			fRanges.put(Integer.valueOf(start), Integer.valueOf(end));
+		}
+
+		void remove(int offset, int length) {
+			if (length <= 0)
+				return;
+
+			int start= offset;
+			int end= offset + length;
+			Map.Entry<Integer, Integer> lower= fRanges.lowerEntry(Integer.valueOf(start));
+			if (lower != null && lower.getValue().intValue() > start) {
+				int lowerEnd= lower.getValue().intValue();
+				fRanges.put(lower.getKey(), Integer.valueOf(start));
+				if (lowerEnd > end)
+					fRanges.put(Integer.valueOf(end), Integer.valueOf(lowerEnd));
+			}
+
+			SortedMap<Integer, Integer> removed= fRanges.subMap(Integer.valueOf(start), Integer.valueOf(end));
+			if (!removed.isEmpty()) {
+				int lastEnd= removed.get(removed.lastKey()).intValue();
+				removed.clear();
+				if (lastEnd > end)
+					fRanges.put(Integer.valueOf(end), Integer.valueOf(lastEnd));
+			}
+		}
+
+		IRegion[] toRegions() {
+			IRegion[] regions= new IRegion[fRanges.size()];
+			int i= 0;
+			for (Map.Entry<Integer, Integer> range : fRanges.entrySet()) {
+				int start= range.getKey().intValue();
+				regions[i++]= new Region(start, range.getValue().intValue() - start);
+			}
+			return regions;
+		}
+	}
+
 	/** The projection annotation model used by this viewer. */
 	private ProjectionAnnotationModel fProjectionAnnotationModel;
 	/** The annotation model listener */
@@ -292,6 +369,12 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 	private IDocument fReplaceVisibleDocumentExecutionTrigger;
 	/** <code>true</code> if projection was on the last time we switched to segmented mode. */
 	private boolean fWasProjectionEnabled;
+	/**
+	 * <code>true</code> if projection is to be enabled but is suspended because folding is
+	 * degraded in large document mode.
+	 * @since 3.16
+	 */
+	private boolean fIsProjectionSuspended;
 	/** The queue of projection commands used to assess the costs of projection changes. */
 	private ProjectionCommandQueue fCommandQueue;
 	/**
@@ -354,14 +437,15 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 
 	@Override
 	public void setDocument(IDocument document, IAnnotationModel annotationModel, int modelRangeOffset, int modelRangeLength) {
-		boolean wasProjectionEnabled= false;
+		boolean wasProjectionEnabled= fIsProjectionSuspended;
+		fIsProjectionSuspended= false;
 
 		synchronized (fLock) {
 			fPendingRequests.clear();
 		}
 
 		if (fProjectionAnnotationModel != null) {
-			wasProjectionEnabled= removeProjectionAnnotationModel(getVisualAnnotationModel()) != null;
+			wasProjectionEnabled|= removeProjectionAnnotationModel(getVisualAnnotationModel()) != null;
 			fProjectionAnnotationModel= null;
 		}
 
@@ -505,6 +589,7 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 	 * Disables the projection mode.
 	 */
 	public final void disableProjection() {
+		fIsProjectionSuspended= false;
 		if (isProjectionMode()) {
 			removeProjectionAnnotationModel(getVisualAnnotationModel());
 			fProjectionAnnotationModel.removeAllAnnotations();
@@ -514,9 +599,16 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 	}
 
 	/**
-	 * Enables the projection mode.
+	 * Enables the projection mode. While folding is degraded in large document mode, the projection
+	 * mode is only enabled when the viewer leaves large document mode.
+	 *
+	 * @see #isLargeDocumentMode()
 	 */
 	public final void enableProjection() {
+		if (isLargeDocumentFeatureDegraded(FOLDING)) {
+			fIsProjectionSuspended= true;
+			return;
+		}
 		if (!isProjectionMode()) {
 			addProjectionAnnotationModel(getVisualAnnotationModel());
 			fFindReplaceDocumentAdapter= null;
@@ -683,7 +775,7 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 
 	@Override
 	public void setVisibleRegion(int start, int length) {
-		fWasProjectionEnabled= isProjectionMode();
+		fWasProjectionEnabled= isProjectionMode() || fIsProjectionSuspended;
 		disableProjection();
 		super.setVisibleRegion(start, length);
 	}
@@ -992,6 +1084,11 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 
 	private void executeProjectionCommands(ProjectionCommandQueue commandQueue, boolean fireRedraw) throws BadLocationException {
 
+		if (!fireRedraw && executeProjectionCommandsAtOnce(commandQueue)) {
+			commandQueue.clear();
+			return;
+		}
+
 		ProjectionCommand command;
 		Iterator<ProjectionCommand> e= commandQueue.iterator();
 		while (e.hasNext()) {
@@ -1013,6 +1110,100 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 		commandQueue.clear();
 	}
 
+	/**
+	 * Applies the add and remove commands of the given queue to their projection document with a
+	 * single projection change. Presentation invalidation commands are ignored.
+	 *
+	 * @param commandQueue the command queue
+	 * @return <code>true</code> if the commands have been executed, <code>false</code> if they
+	 *         target different projection documents
+	 * @throws BadLocationException in case a command range is invalid
+	 * @since 3.16
+	 */
+	private boolean executeProjectionCommandsAtOnce(ProjectionCommandQueue commandQueue) throws BadLocationException {
+		ProjectionDocument projection= null;
+		Iterator<ProjectionCommand> e= commandQueue.iterator();
+		while (e.hasNext()) {
+			ProjectionCommand command= e.next();
+			if (command.fType == ProjectionCommand.INVALIDATE_PRESENTATION)
+				continue;
+			if (projection == null)
+				projection= command.fProjection;
+			else if (projection != command.fProjection)
+				return false;
+		}
+		if (projection == null)
+			return true;
+
+		IDocument master= projection.getMasterDocument();
+		MasterRanges ranges= new MasterRanges(projection.computeProjectedMasterRegions(0, master.getLength()));
+		e= commandQueue.iterator();
+		while (e.hasNext()) {
+			ProjectionCommand command= e.next();
+			if (command.fType == ProjectionCommand.ADD)
+				addLineRange(ranges, master, command.fOffset, command.fLength);
+			else if (command.fType == ProjectionCommand.REMOVE)
+				removeLineRange(ranges, master, command.fOffset, command.fLength);
+		}
+
+		replaceMasterDocumentRanges(projection, ranges);
+		return true;
+	}
+
+	/**
+	 * Adds the given master range, extended to full lines like in
+	 * {@link #addMasterDocumentRange(ProjectionDocument, int, int)}, to the given ranges.
+	 *
+	 * @param ranges the ranges
+	 * @param master the master document
+	 * @param offset the offset in the master document
+	 * @param length the length in the master document
+	 * @throws BadLocationException in case the specified range is invalid
+	 * @since 3.16
+	 */
+	private void addLineRange(MasterRanges ranges, IDocument master, int offset, int length) throws BadLocationException {
+		int end= offset + length;
+		offset= toLineStart(master, offset, false);
+		ranges.add(offset, toLineStart(master, end, true) - offset);
+	}
+
+	/**
+	 * Removes the given master range, extended to full lines like in
+	 * {@link #removeMasterDocumentRange(ProjectionDocument, int, int)}, from the given ranges.
+	 *
+	 * @param ranges the ranges
+	 * @param master the master document
+	 * @param offset the offset in the master document
+	 * @param length the length in the master document
+	 * @throws BadLocationException in case the specified range is invalid
+	 * @since 3.16
+	 */
+	private void removeLineRange(MasterRanges ranges, IDocument master, int offset, int length) throws BadLocationException {
+		int end= offset + length;
+		offset= toLineStart(master, offset, false);
+		ranges.remove(offset, toLineStart(master, end, true) - offset);
+	}
+
+	/**
+	 * Replaces the master ranges of the given projection document with the given ranges. While
+	 * the modification is processed, the viewer no longer handles projection changes, as it is
+	 * causing them.
+	 *
+	 * @param projection the projection document
+	 * @param ranges the new master ranges
+	 * @throws BadLocationException in case a range is invalid
+	 * @see ProjectionDocument#replaceMasterDocumentRanges(IRegion[])
+	 * @since 3.16
+	 */
+	private void replaceMasterDocumentRanges(ProjectionDocument projection, MasterRanges ranges) throws BadLocationException {
+		try {
+			fHandleProjectionChanges= false;
+			projection.replaceMasterDocumentRanges(ranges.toRegions());
+		} finally {
+			fHandleProjectionChanges= true;
+		}
+	}
+
 	private ProjectionAnnotation[] computeCollapsedNestedAnnotations(int offset, int length) {
 		List<ProjectionAnnotation> annotations= new ArrayList<>(5);
 		Iterator<Annotation> e= fProjectionAnnotationModel.getAnnotationIterator(offset, length, false, false);
@@ -1193,27 +1384,27 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 				IDocument slave= manager.createSlaveDocument(master);
 				if (slave instanceof ProjectionDocument) {
 					projection= (ProjectionDocument) slave;
-					addMasterDocumentRange(projection, 0, master.getLength());
-				}
-			}
-		}
 
-		if (projection != null) {
-			Iterator<Annotation> e= fProjectionAnnotationModel.getAnnotationIterator();
-			while (e.hasNext()) {
-				ProjectionAnnotation annotation= (ProjectionAnnotation) e.next();
-				if (annotation.isCollapsed()) {
-					Position position= fProjectionAnnotationModel.getPosition(annotation);
-					if (position != null) {
-						IRegion[] regions= computeCollapsedRegions(position);
-						if (regions != null)
-							for (IRegion region : regions) {
-								removeMasterDocumentRange(projection, region.getOffset(), region.getLength());
+					// compute the visible ranges first and project them at once
+					MasterRanges ranges= new MasterRanges();
+					addLineRange(ranges, master, 0, master.getLength());
+					Iterator<Annotation> e= fProjectionAnnotationModel.getAnnotationIterator();
+					while (e.hasNext()) {
+						ProjectionAnnotation annotation= (ProjectionAnnotation) e.next();
+						if (annotation.isCollapsed()) {
+							Position position= fProjectionAnnotationModel.getPosition(annotation);
+							if (position != null) {
+								IRegion[] regions= computeCollapsedRegions(position);
+								if (regions != null)
+									for (IRegion region : regions) {
+										removeLineRange(ranges, master, region.getOffset(), region.getLength());
+								}
+							}
 						}
 					}
+					replaceMasterDocumentRanges(projection, ranges);
 				}
 			}
-
 		}
 
 		replaceVisibleDocument(projection);
@@ -1298,9 +1489,34 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 	@Override
 	protected void handleDispose() {
 		fWasProjectionEnabled= false;
+		fIsProjectionSuspended= false;
 		super.handleDispose();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The projection mode is disabled while folding is degraded.
+	 * </p>
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	protected void handleLargeDocumentModeChanged() {
+		super.handleLargeDocumentModeChanged();
+
+		if (isLargeDocumentFeatureDegraded(FOLDING)) {
+			if (isProjectionMode()) {
+				expandAll();
+				disableProjection();
+				fIsProjectionSuspended= true;
+			}
+		} else if (fIsProjectionSuspended) {
+			fIsProjectionSuspended= false;
+			enableProjection();
+		}
+	}
+
 	/*
 	 * @see org.eclipse.jface.text.TextViewer#handleVisibleDocumentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
 	 */
@@ -1477,6 +1693,8 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 			case EXPAND_ALL:
 				return isProjectionMode();
 			case TOGGLE:
+				if (isLargeDocumentFeatureDegraded(FOLDING))
+					return false;
 				return isProjectionMode() || !isSegmented();
 		}
 
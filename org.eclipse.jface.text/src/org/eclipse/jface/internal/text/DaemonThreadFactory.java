@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.internal.text;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates the named daemon threads of the bounded thread pools which run background work of
+ * text viewers, e.g. reconciling and the computation of completion proposals.
+ *
+ * @since 3.16
+ */
+public final class DaemonThreadFactory implements ThreadFactory {
+
+	/** The maximal number of threads of a pool created by {@link #createPool(String, int, BlockingQueue)}. */
+	public static final int MAX_WORKERS= Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	/** The time in seconds after which idle threads terminate. */
+	public static final long KEEP_ALIVE= 10;
+
+	private final String fName;
+	private final int fPriority;
+	private final AtomicInteger fCount= new AtomicInteger();
+
+	/**
+	 * Creates a new factory.
+	 *
+	 * @param name the name of the threads, a sequence number is appended
+	 * @param priority the priority of the threads
+	 */
+	public DaemonThreadFactory(String name, int priority) {
+		fName= name;
+		fPriority= priority;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread= new Thread(runnable, fName + " " + fCount.incrementAndGet()); //$NON-NLS-1$
+		thread.setPriority(fPriority);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Creates a pool of at most {@link #MAX_WORKERS} daemon threads. Idle threads terminate after
+	 * {@link #KEEP_ALIVE} seconds, so the pool holds no threads while there is nothing to do.
+	 *
+	 * @param name the name of the threads
+	 * @param priority the priority of the threads
+	 * @param queue the queue holding the tasks which wait for a thread
+	 * @return the thread pool
+	 */
+	public static ThreadPoolExecutor createPool(String name, int priority, BlockingQueue<Runnable> queue) {
+		ThreadPoolExecutor pool= new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, KEEP_ALIVE, TimeUnit.SECONDS, queue, new DaemonThreadFactory(name, priority));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+}
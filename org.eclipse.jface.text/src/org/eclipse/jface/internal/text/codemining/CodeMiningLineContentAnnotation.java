@@ -15,6 +15,7 @@ package org.eclipse.jface.internal.text.codemining;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import org.eclipse.swt.custom.StyledText;
@@ -61,6 +62,11 @@ public class CodeMiningLineContentAnnotation extends LineContentAnnotation imple
 	 */
 	private IProgressMonitor fMonitor;
 
+	/**
+	 * The scheduler used to resolve the minings or <code>null</code>
+	 */
+	private final CodeMiningResolveScheduler fResolveScheduler;
+
 	/**
 	 * Code mining annotation constructor.
 	 *
@@ -68,7 +74,21 @@ public class CodeMiningLineContentAnnotation extends LineContentAnnotation imple
 	 * @param viewer   the viewer
 	 */
 	public CodeMiningLineContentAnnotation(Position position, ISourceViewer viewer) {
+		this(position, viewer, null);
+	}
+
+	/**
+	 * Code mining annotation constructor.
+	 *
+	 * @param position  the position
+	 * @param viewer    the viewer
+	 * @param scheduler the scheduler used to resolve the minings or <code>null</code> to resolve
+	 *                      them directly
+	 * @since 3.16
+	 */
+	CodeMiningLineContentAnnotation(Position position, ISourceViewer viewer, CodeMiningResolveScheduler scheduler) {
 		super(position, viewer);
+		fResolveScheduler= scheduler;
 		fResolvedMinings= null;
 		fMinings= new ArrayList<>();
 		fBounds= new ArrayList<>();
@@ -94,6 +114,11 @@ public class CodeMiningLineContentAnnotation extends LineContentAnnotation imple
 		fMinings.addAll(minings);
 	}
 
+	@Override
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		fMonitor= monitor;
+	}
+
 	@Override
 	public void markDeleted(boolean deleted) {
 		super.markDeleted(deleted);
@@ -175,6 +200,25 @@ public class CodeMiningLineContentAnnotation extends LineContentAnnotation imple
 	public void redraw() {
 		// redraw codemining annotation is done only if all current minings are resolved.
 		List<ICodeMining> minings= new ArrayList<>(fMinings);
+		if (fResolveScheduler != null) {
+			List<CompletableFuture<Void>> futures= new ArrayList<>();
+			for (ICodeMining mining : minings) {
+				if (!mining.isResolved()) {
+					CompletableFuture<Void> future= fResolveScheduler.resolve(mining, fMonitor);
+					if (future == null) {
+						return;
+					}
+					futures.add(future);
+				}
+			}
+			if (!futures.isEmpty()) {
+				// some minings are not resolved, resolve them together and then redraw the annotation.
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenRunAsync(() -> {
+					this.redraw();
+				});
+				return;
+			}
+		}
 		for (ICodeMining mining : minings) {
 			if (!mining.isResolved()) {
 				// one of mining is not resolved, resolve it and then redraw the annotation.
@@ -15,6 +15,7 @@ package org.eclipse.jface.internal.text.codemining;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -62,6 +63,11 @@ public class CodeMiningLineHeaderAnnotation extends LineHeaderAnnotation impleme
 	 */
 	private IProgressMonitor fMonitor;
 
+	/**
+	 * The scheduler used to resolve the minings or <code>null</code>
+	 */
+	private final CodeMiningResolveScheduler fResolveScheduler;
+
 	/**
 	 * Code mining annotation constructor.
 	 *
@@ -69,7 +75,21 @@ public class CodeMiningLineHeaderAnnotation extends LineHeaderAnnotation impleme
 	 * @param viewer   the viewer
 	 */
 	public CodeMiningLineHeaderAnnotation(Position position, ISourceViewer viewer) {
+		this(position, viewer, null);
+	}
+
+	/**
+	 * Code mining annotation constructor.
+	 *
+	 * @param position  the position
+	 * @param viewer    the viewer
+	 * @param scheduler the scheduler used to resolve the minings or <code>null</code> to resolve
+	 *                      them directly
+	 * @since 3.16
+	 */
+	CodeMiningLineHeaderAnnotation(Position position, ISourceViewer viewer, CodeMiningResolveScheduler scheduler) {
 		super(position, viewer);
+		fResolveScheduler= scheduler;
 		fResolvedMinings= null;
 		fMinings= new ArrayList<>();
 		fBounds= new ArrayList<>();
@@ -113,6 +133,11 @@ public class CodeMiningLineHeaderAnnotation extends LineHeaderAnnotation impleme
 		fMinings.addAll(minings);
 	}
 
+	@Override
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		fMonitor= monitor;
+	}
+
 	@Override
 	public void markDeleted(boolean deleted) {
 		super.markDeleted(deleted);
@@ -192,6 +217,25 @@ public class CodeMiningLineHeaderAnnotation extends LineHeaderAnnotation impleme
 	public void redraw() {
 		// redraw codemining annotation is done only if all current minings are resolved.
 		List<ICodeMining> minings= new ArrayList<>(fMinings);
+		if (fResolveScheduler != null) {
+			List<CompletableFuture<Void>> futures= new ArrayList<>();
+			for (ICodeMining mining : minings) {
+				if (!mining.isResolved()) {
+					CompletableFuture<Void> future= fResolveScheduler.resolve(mining, fMonitor);
+					if (future == null) {
+						return;
+					}
+					futures.add(future);
+				}
+			}
+			if (!futures.isEmpty()) {
+				// some minings are not resolved, resolve them together and then redraw the annotation.
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenRunAsync(() -> {
+					this.redraw();
+				});
+				return;
+			}
+		}
 		for (ICodeMining mining : minings) {
 			if (!mining.isResolved()) {
 				// one of mining is not resolved, resolve it and then redraw the annotation.
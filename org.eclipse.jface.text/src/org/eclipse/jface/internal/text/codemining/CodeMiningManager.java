@@ -1,5 +1,5 @@
 /**
- *  Copyright (c) 2017 Angelo ZERR.
+ *  Copyright (c) 2017, 2019 Angelo ZERR.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -36,11 +36,15 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.codemining.ICodeMining;
 import org.eclipse.jface.text.codemining.ICodeMiningProvider;
+import org.eclipse.jface.text.codemining.ICodeMiningProviderExtension;
 import org.eclipse.jface.text.codemining.LineHeaderCodeMining;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.inlined.AbstractInlinedAnnotation;
@@ -73,6 +77,36 @@ public class CodeMiningManager implements Runnable {
 	 */
 	private IProgressMonitor fMonitor;
 
+	/**
+	 * The scheduler used to resolve the code minings.
+	 *
+	 * @since 3.16
+	 */
+	private final CodeMiningResolveScheduler fResolveScheduler;
+
+	/**
+	 * The code mining annotations rendered by the last update.
+	 *
+	 * @since 3.16
+	 */
+	private Set<AbstractInlinedAnnotation> fAnnotations= Collections.emptySet();
+
+	/**
+	 * The changed region of the document whose code minings have not yet been rendered, or
+	 * <code>null</code>.
+	 *
+	 * @since 3.16
+	 */
+	private IRegion fPendingDamage;
+
+	/**
+	 * Tells whether all code minings must be updated because an update of all code minings has
+	 * not yet been rendered.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fFullUpdatePending;
+
 	/**
 	 * Constructor of codemining manager with the given arguments.
 	 *
@@ -87,6 +121,7 @@ public class CodeMiningManager implements Runnable {
 		Assert.isNotNull(codeMiningProviders);
 		fViewer= viewer;
 		fInlinedAnnotationSupport= inlinedAnnotationSupport;
+		fResolveScheduler= new CodeMiningResolveScheduler(viewer);
 		setCodeMiningProviders(codeMiningProviders);
 	}
 
@@ -108,9 +143,13 @@ public class CodeMiningManager implements Runnable {
 	 */
 	public void uninstall() {
 		cancel();
+		fResolveScheduler.dispose();
 		if (fInlinedAnnotationSupport != null) {
 			fInlinedAnnotationSupport.updateAnnotations(Collections.emptySet());
 		}
+		synchronized (this) {
+			fAnnotations= Collections.emptySet();
+		}
 	}
 
 	/**
@@ -118,43 +157,145 @@ public class CodeMiningManager implements Runnable {
 	 */
 	@Override
 	public void run() {
+		run(null);
+	}
+
+	/**
+	 * Collect, resolve and render the code minings of the viewer after the given region of the
+	 * document has been changed.
+	 * <p>
+	 * If all code mining providers implement {@link ICodeMiningProviderExtension}, only the code
+	 * minings of the lines touched by the region are collected again; the annotations of the
+	 * other lines are kept as they are. Otherwise all code minings are collected.
+	 * </p>
+	 *
+	 * @param damage the changed region of the document, or <code>null</code> to update all code
+	 *            minings
+	 * @since 3.16
+	 */
+	public void run(IRegion damage) {
 		if (fViewer == null || fInlinedAnnotationSupport == null || fCodeMiningProviders == null
 				|| fCodeMiningProviders.isEmpty() || fViewer.getAnnotationModel() == null) {
 			return;
 		}
-		// Cancel the last progress monitor to cancel last resolve and render of code
-		// minings
-		cancel();
+		IProgressMonitor monitor= new CancellationExceptionMonitor();
+		IRegion region;
+		boolean resolvesCanceled;
+		synchronized (this) {
+			// The damage of an update which has not been rendered yet is still pending
+			if (damage == null || fFullUpdatePending || !isIncrementalUpdateSupported()) {
+				fFullUpdatePending= true;
+				fPendingDamage= null;
+			} else if (fPendingDamage == null) {
+				fPendingDamage= damage;
+			} else {
+				int start= Math.min(fPendingDamage.getOffset(), damage.getOffset());
+				int end= Math.max(fPendingDamage.getOffset() + fPendingDamage.getLength(), damage.getOffset() + damage.getLength());
+				fPendingDamage= new Region(start, end - start);
+			}
+			region= fPendingDamage;
+			// Cancel the last progress monitor to cancel last resolve and render of code
+			// minings
+			resolvesCanceled= cancel();
+			fMonitor= monitor;
+		}
 		// Update the code minings
-		updateCodeMinings();
+		updateCodeMinings(expandToLines(region), resolvesCanceled, monitor);
 	}
 
 	/**
 	 * Update the code minings.
+	 *
+	 * @param region the lines whose code minings must be updated, or <code>null</code> to update
+	 *            all code minings
+	 * @param resolvesCanceled <code>true</code> if resolves of the last code minings have been
+	 *            canceled
+	 * @param monitor the progress monitor
 	 */
-	private void updateCodeMinings() {
-		// Refresh the code minings by using the new progress monitor.
-		fMonitor= new CancellationExceptionMonitor();
-		IProgressMonitor monitor= fMonitor;
+	private void updateCodeMinings(IRegion region, boolean resolvesCanceled, IProgressMonitor monitor) {
 		// Collect the code minings for the viewer
-		getCodeMinings(fViewer, fCodeMiningProviders, monitor).thenAccept(symbols -> {
+		getCodeMinings(fViewer, fCodeMiningProviders, region, fResolveScheduler, monitor).thenAccept(symbols -> {
 			// check if request was canceled.
 			monitor.isCanceled();
 			// then group code minings by lines position
 			Map<Position, List<ICodeMining>> groups= groupByLines(symbols, fCodeMiningProviders);
 			// resolve and render code minings
-			renderCodeMinings(groups, fViewer, monitor);
+			renderCodeMinings(groups, region, resolvesCanceled, fViewer, monitor);
 		});
 	}
 
 	/**
 	 * Cancel the codemining process.
+	 *
+	 * @return <code>true</code> if resolves of code minings have been canceled
 	 */
-	private void cancel() {
+	private boolean cancel() {
 		// Cancel the last progress monitor.
 		if (fMonitor != null) {
 			fMonitor.setCanceled(true);
 		}
+		// Cancel the resolves of the last code minings.
+		if (fResolveScheduler != null) {
+			return fResolveScheduler.cancelAll();
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether all code mining providers can compute the code minings of a part of the
+	 * document.
+	 *
+	 * @return <code>true</code> if all providers implement {@link ICodeMiningProviderExtension}
+	 */
+	private boolean isIncrementalUpdateSupported() {
+		return fCodeMiningProviders.stream().allMatch(provider -> provider instanceof ICodeMiningProviderExtension);
+	}
+
+	/**
+	 * Returns the region of the complete lines touched by the given region.
+	 *
+	 * @param region the region, may be <code>null</code>
+	 * @return the region of the lines, or <code>null</code> if all code minings must be updated
+	 */
+	private IRegion expandToLines(IRegion region) {
+		IDocument document= fViewer.getDocument();
+		if (region == null || document == null) {
+			return null;
+		}
+		try {
+			int length= document.getLength();
+			int start= Math.max(0, Math.min(region.getOffset(), length));
+			int end= Math.max(start, Math.min(region.getOffset() + region.getLength(), length));
+			int startOffset= document.getLineOffset(document.getLineOfOffset(start));
+			int endLine= document.getLineOfOffset(end);
+			int endOffset= document.getLineOffset(endLine) + document.getLineLength(endLine);
+			return new Region(startOffset, endOffset - startOffset);
+		} catch (BadLocationException e) {
+			// the document has been changed meanwhile, update all code minings
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the statistics of the given code mining provider which measure its cost.
+	 *
+	 * @param provider the code mining provider
+	 * @return the statistics of the provider
+	 * @since 3.16
+	 */
+	public CodeMiningProviderStatistics getStatistics(ICodeMiningProvider provider) {
+		return fResolveScheduler.getStatistics(provider);
+	}
+
+	/**
+	 * Sets the maximal number of code minings of one provider that are resolved at the same
+	 * time.
+	 *
+	 * @param maxConcurrentResolves the maximal number of concurrent resolves per provider
+	 * @since 3.16
+	 */
+	public void setMaxConcurrentResolves(int maxConcurrentResolves) {
+		fResolveScheduler.setMaxConcurrentResolves(maxConcurrentResolves);
 	}
 
 	private static void logCodeMiningProviderException(Throwable e) {
@@ -179,14 +320,27 @@ public class CodeMiningManager implements Runnable {
 	 *
 	 * @param viewer    the text viewer.
 	 * @param providers the CodeMining list providers.
+	 * @param region    the lines for which code minings are requested, or <code>null</code> for
+	 *                  the whole document.
+	 * @param scheduler the scheduler recording the cost of the providers.
 	 * @param monitor   the progress monitor.
 	 * @return the list of {@link CompletableFuture} which provides the list of {@link ICodeMining}
 	 *         for the given <code>viewer</code> by using the given providers.
 	 */
 	private static CompletableFuture<List<? extends ICodeMining>> getCodeMinings(ITextViewer viewer,
-			List<ICodeMiningProvider> providers, IProgressMonitor monitor) {
+			List<ICodeMiningProvider> providers, IRegion region, CodeMiningResolveScheduler scheduler, IProgressMonitor monitor) {
 		List<CompletableFuture<List<? extends ICodeMining>>> com= providers.stream()
-				.map(provider -> provider.provideCodeMinings(viewer, monitor))
+				.map(provider -> {
+					long start= System.nanoTime();
+					CompletableFuture<List<? extends ICodeMining>> future= region != null
+							? ((ICodeMiningProviderExtension) provider).provideCodeMinings(viewer, region, monitor)
+							: provider.provideCodeMinings(viewer, monitor);
+					if (future != null) {
+						CodeMiningProviderStatistics statistics= scheduler.getStatistics(provider);
+						future.whenComplete((minings, e) -> statistics.provided(System.nanoTime() - start));
+					}
+					return future;
+				})
 				.filter(c -> c != null)
 				.map(future -> future.exceptionally(e -> {
 					logCodeMiningProviderException(e);
@@ -225,14 +379,19 @@ public class CodeMiningManager implements Runnable {
 	}
 
 	/**
-	 * Render the codemining grouped by line position.
+	 * Render the codemining grouped by line position. When only the code minings of some lines
+	 * have been collected, the annotations of all other lines are kept and are not redrawn.
 	 *
-	 * @param groups  code minings grouped by lines position
-	 * @param viewer  the viewer
-	 * @param monitor the progress monitor
+	 * @param groups           code minings grouped by lines position
+	 * @param region           the lines whose code minings have been collected, or
+	 *                         <code>null</code> for the whole document
+	 * @param resolvesCanceled <code>true</code> if resolves of the last code minings have been
+	 *                         canceled
+	 * @param viewer           the viewer
+	 * @param monitor          the progress monitor
 	 */
-	private void renderCodeMinings(Map<Position, List<ICodeMining>> groups, ISourceViewer viewer,
-			IProgressMonitor monitor) {
+	private void renderCodeMinings(Map<Position, List<ICodeMining>> groups, IRegion region,
+			boolean resolvesCanceled, ISourceViewer viewer, IProgressMonitor monitor) {
 		// check if request was canceled.
 		monitor.isCanceled();
 		IDocument document= viewer != null ? viewer.getDocument() : null;
@@ -243,6 +402,27 @@ public class CodeMiningManager implements Runnable {
 		}
 		Set<ICodeMiningAnnotation> annotationsToRedraw= new HashSet<>();
 		Set<AbstractInlinedAnnotation> currentAnnotations= new HashSet<>();
+		if (region != null) {
+			// keep the annotations outside of the updated lines
+			Set<AbstractInlinedAnnotation> annotations;
+			synchronized (this) {
+				annotations= fAnnotations;
+			}
+			for (AbstractInlinedAnnotation ann : annotations) {
+				Position position= ann.getPosition();
+				if (position == null || position.isDeleted() || isInRegion(position, region, document)) {
+					continue;
+				}
+				ICodeMiningAnnotation miningAnnotation= (ICodeMiningAnnotation) ann;
+				// the resolves of the kept minings must use the new monitor
+				miningAnnotation.setProgressMonitor(monitor);
+				if (resolvesCanceled && miningAnnotation.isInVisibleLines()) {
+					// restart the canceled resolves
+					annotationsToRedraw.add(miningAnnotation);
+				}
+				currentAnnotations.add(ann);
+			}
+		}
 		// Loop for grouped code minings
 		groups.entrySet().stream().forEach(g -> {
 			// check if request was canceled.
@@ -255,7 +435,7 @@ public class CodeMiningManager implements Runnable {
 			AbstractInlinedAnnotation ann= fInlinedAnnotationSupport.findExistingAnnotation(pos);
 			if (ann == null) {
 				// The annotation doesn't exists, create it.
-				ann= inLineHeader ? new CodeMiningLineHeaderAnnotation(pos, viewer) : new CodeMiningLineContentAnnotation(pos, viewer);
+				ann= inLineHeader ? new CodeMiningLineHeaderAnnotation(pos, viewer, fResolveScheduler) : new CodeMiningLineContentAnnotation(pos, viewer, fResolveScheduler);
 			} else if (ann instanceof ICodeMiningAnnotation && ((ICodeMiningAnnotation) ann).isInVisibleLines()) {
 				// annotation is in visible lines
 				annotationsToRedraw.add((ICodeMiningAnnotation) ann);
@@ -266,10 +446,32 @@ public class CodeMiningManager implements Runnable {
 		// check if request was canceled.
 		monitor.isCanceled();
 		fInlinedAnnotationSupport.updateAnnotations(currentAnnotations);
+		synchronized (this) {
+			fAnnotations= currentAnnotations;
+			if (fMonitor == monitor) {
+				// the damage has been rendered
+				fPendingDamage= null;
+				fFullUpdatePending= false;
+			}
+		}
 		// redraw the existing codemining annotations since their content can change
 		annotationsToRedraw.stream().forEach(ann -> ann.redraw());
 	}
 
+	/**
+	 * Returns whether the given position starts in the given lines.
+	 *
+	 * @param position the position
+	 * @param region   the region of complete lines
+	 * @param document the document
+	 * @return <code>true</code> if the position starts in the region
+	 */
+	private static boolean isInRegion(Position position, IRegion region, IDocument document) {
+		int offset= position.getOffset();
+		int end= region.getOffset() + region.getLength();
+		return offset >= region.getOffset() && (offset < end || end >= document.getLength());
+	}
+
 	/**
 	 * Returns <code>true</code> if the given mining has a non empty label and <code>false</code>
 	 * otherwise.
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.internal.text.codemining;
+
+import org.eclipse.jface.text.codemining.ICodeMiningProvider;
+
+/**
+ * Measures the cost of a {@link ICodeMiningProvider}: how often and how long it has been asked
+ * to provide and to resolve code minings. All times are given in nanoseconds and are measured
+ * until the future returned by the provider or mining completes.
+ *
+ * @since 3.16
+ */
+public class CodeMiningProviderStatistics {
+
+	private int fProvideCount;
+
+	private long fProvideTime;
+
+	private int fResolveCount;
+
+	private long fResolveTime;
+
+	private int fCancelCount;
+
+	synchronized void provided(long time) {
+		fProvideCount++;
+		fProvideTime+= time;
+	}
+
+	synchronized void resolved(long time, boolean canceled) {
+		if (canceled) {
+			fCancelCount++;
+		} else {
+			fResolveCount++;
+			fResolveTime+= time;
+		}
+	}
+
+	/**
+	 * Returns how often the provider has been asked to provide the code minings of a viewer.
+	 *
+	 * @return the number of calls to provide code minings
+	 */
+	public synchronized int getProvideCount() {
+		return fProvideCount;
+	}
+
+	/**
+	 * Returns the total time the provider took to provide code minings.
+	 *
+	 * @return the total time in nanoseconds
+	 */
+	public synchronized long getProvideTime() {
+		return fProvideTime;
+	}
+
+	/**
+	 * Returns how many code minings of the provider have been resolved.
+	 *
+	 * @return the number of completed resolves
+	 */
+	public synchronized int getResolveCount() {
+		return fResolveCount;
+	}
+
+	/**
+	 * Returns the total time the completed resolves of the provider's code minings took.
+	 *
+	 * @return the total time in nanoseconds
+	 */
+	public synchronized long getResolveTime() {
+		return fResolveTime;
+	}
+
+	/**
+	 * Returns the average time a resolve of one of the provider's code minings took.
+	 *
+	 * @return the average time in nanoseconds, or <code>0</code> if no resolve has completed
+	 */
+	public synchronized long getAverageResolveTime() {
+		return fResolveCount == 0 ? 0 : fResolveTime / fResolveCount;
+	}
+
+	/**
+	 * Returns how many resolves of the provider's code minings have been canceled because their
+	 * lines were scrolled out of view or the code minings were recomputed.
+	 *
+	 * @return the number of canceled resolves
+	 */
+	public synchronized int getCancelCount() {
+		return fCancelCount;
+	}
+}
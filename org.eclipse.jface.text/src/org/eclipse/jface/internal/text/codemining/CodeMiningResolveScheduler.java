@@ -0,0 +1,440 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.internal.text.codemining;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.swt.custom.StyledText;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IViewportListener;
+import org.eclipse.jface.text.JFaceTextUtil;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.codemining.ICodeMining;
+import org.eclipse.jface.text.codemining.ICodeMiningProvider;
+import org.eclipse.jface.text.source.ISourceViewer;
+
+/**
+ * Resolves code minings lazily and in viewport order.
+ * <p>
+ * Code mining annotations request the resolve of their minings through this scheduler when they
+ * are drawn, so only minings in the visible lines are resolved. For each provider at most
+ * {@link #getMaxConcurrentResolves()} resolves run at the same time; further requests wait and
+ * are started from the top of the viewport to its bottom. When the viewport changes, waiting
+ * requests for minings which are no longer visible are dropped and running ones are canceled.
+ * The cost of each provider is recorded in its {@link CodeMiningProviderStatistics}.
+ * </p>
+ * <p>
+ * The minings are resolved and their completion is handled without holding the lock of the
+ * scheduler, so that providers may block or call back into the viewer.
+ * </p>
+ *
+ * @since 3.16
+ */
+public class CodeMiningResolveScheduler implements IViewportListener {
+
+	/**
+	 * The default maximal number of concurrently running resolves per provider.
+	 */
+	static final int DEFAULT_MAX_CONCURRENT_RESOLVES= 2;
+
+	/**
+	 * Monitor of a single resolve request which is canceled when either the request or the
+	 * monitor of the code mining computation has been canceled.
+	 */
+	private static class RequestMonitor extends CancellationExceptionMonitor {
+
+		private final IProgressMonitor fParent;
+
+		RequestMonitor(IProgressMonitor parent) {
+			fParent= parent;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			if (fParent != null && fParent.isCanceled()) {
+				throw new CancellationException();
+			}
+			return super.isCanceled();
+		}
+	}
+
+	/**
+	 * A request to resolve a code mining.
+	 */
+	private static class Request implements Comparable<Request> {
+
+		final ICodeMining fMining;
+
+		/**
+		 * The offset of the mining when the request was made, used to order waiting requests.
+		 */
+		final int fOffset;
+
+		final RequestMonitor fMonitor;
+
+		/**
+		 * The future completed when the resolve of the mining has completed.
+		 */
+		final CompletableFuture<Void> fResult= new CompletableFuture<>();
+
+		/**
+		 * The future returned by the mining, <code>null</code> while the request waits.
+		 */
+		CompletableFuture<Void> fResolveFuture;
+
+		long fStartTime;
+
+		/**
+		 * Tells whether the request has been taken from the waiting requests.
+		 */
+		boolean fStarted;
+
+		boolean fCanceled;
+
+		Request(ICodeMining mining, IProgressMonitor monitor) {
+			fMining= mining;
+			Position position= mining.getPosition();
+			fOffset= position != null ? position.getOffset() : 0;
+			fMonitor= new RequestMonitor(monitor);
+		}
+
+		@Override
+		public int compareTo(Request other) {
+			return Integer.compare(fOffset, other.fOffset);
+		}
+	}
+
+	/**
+	 * The requests of one provider.
+	 */
+	private static class ProviderQueue {
+
+		final PriorityQueue<Request> fWaiting= new PriorityQueue<>();
+
+		final List<Request> fRunning= new ArrayList<>();
+
+		final CodeMiningProviderStatistics fStatistics= new CodeMiningProviderStatistics();
+
+		/**
+		 * Tells whether a thread is starting waiting requests of this queue.
+		 */
+		boolean fStarting;
+	}
+
+	private final ISourceViewer fViewer;
+
+	private final Map<ICodeMiningProvider, ProviderQueue> fQueues= new IdentityHashMap<>();
+
+	private final Map<ICodeMining, Request> fRequests= new IdentityHashMap<>();
+
+	private int fMaxConcurrentResolves= DEFAULT_MAX_CONCURRENT_RESOLVES;
+
+	/**
+	 * The first document offset of the visible lines when the viewport last changed, or
+	 * <code>-1</code> if unknown.
+	 */
+	private int fVisibleStart= -1;
+
+	/**
+	 * The last document offset of the visible lines when the viewport last changed.
+	 */
+	private int fVisibleEnd= -1;
+
+	private boolean fDisposed;
+
+	/**
+	 * Creates a new scheduler for the given viewer.
+	 *
+	 * @param viewer the source viewer
+	 */
+	public CodeMiningResolveScheduler(ISourceViewer viewer) {
+		fViewer= viewer;
+		fViewer.addViewportListener(this);
+	}
+
+	/**
+	 * Sets the maximal number of resolves of one provider that run at the same time.
+	 *
+	 * @param maxConcurrentResolves the maximal number of concurrent resolves, at least 1
+	 */
+	public synchronized void setMaxConcurrentResolves(int maxConcurrentResolves) {
+		fMaxConcurrentResolves= Math.max(1, maxConcurrentResolves);
+	}
+
+	/**
+	 * Returns the maximal number of resolves of one provider that run at the same time.
+	 *
+	 * @return the maximal number of concurrent resolves
+	 */
+	public synchronized int getMaxConcurrentResolves() {
+		return fMaxConcurrentResolves;
+	}
+
+	/**
+	 * Returns the statistics of the given provider.
+	 *
+	 * @param provider the code mining provider
+	 * @return the statistics of the provider
+	 */
+	public synchronized CodeMiningProviderStatistics getStatistics(ICodeMiningProvider provider) {
+		return getQueue(provider).fStatistics;
+	}
+
+	/**
+	 * Requests the resolve of the given code mining.
+	 *
+	 * @param mining the code mining to resolve
+	 * @param monitor the monitor of the code mining computation
+	 * @return the future completed when the mining has been resolved or <code>null</code> if
+	 *         this scheduler has been disposed. The future is canceled if the resolve is canceled.
+	 */
+	public CompletableFuture<Void> resolve(ICodeMining mining, IProgressMonitor monitor) {
+		Request request;
+		ProviderQueue queue;
+		synchronized (this) {
+			if (fDisposed) {
+				return null;
+			}
+			request= fRequests.get(mining);
+			if (request != null) {
+				return request.fResult;
+			}
+			request= new Request(mining, monitor);
+			fRequests.put(mining, request);
+			queue= getQueue(mining.getProvider());
+			queue.fWaiting.add(request);
+		}
+		startWaiting(queue);
+		return request.fResult;
+	}
+
+	/**
+	 * Cancels all waiting and running resolves.
+	 *
+	 * @return <code>true</code> if a resolve has been canceled
+	 */
+	public boolean cancelAll() {
+		List<Request> canceled= new ArrayList<>();
+		synchronized (this) {
+			for (ProviderQueue queue : fQueues.values()) {
+				canceled.addAll(queue.fWaiting);
+				queue.fWaiting.clear();
+				canceled.addAll(queue.fRunning);
+			}
+		}
+		cancel(canceled);
+		return !canceled.isEmpty();
+	}
+
+	/**
+	 * Cancels all resolves and stops listening to the viewer.
+	 */
+	public void dispose() {
+		synchronized (this) {
+			fDisposed= true;
+		}
+		fViewer.removeViewportListener(this);
+		cancelAll();
+	}
+
+	@Override
+	public void viewportChanged(int verticalOffset) {
+		List<Request> canceled= new ArrayList<>();
+		synchronized (this) {
+			computeVisibleLines();
+			for (ProviderQueue queue : fQueues.values()) {
+				for (Iterator<Request> iter= queue.fWaiting.iterator(); iter.hasNext();) {
+					Request request= iter.next();
+					if (!isVisible(request.fMining)) {
+						iter.remove();
+						canceled.add(request);
+					}
+				}
+				for (Request request : queue.fRunning) {
+					if (!isVisible(request.fMining)) {
+						canceled.add(request);
+					}
+				}
+			}
+		}
+		cancel(canceled);
+	}
+
+	private void cancel(List<Request> requests) {
+		for (Request request : requests) {
+			CompletableFuture<Void> resolveFuture;
+			boolean started;
+			synchronized (this) {
+				request.fCanceled= true;
+				resolveFuture= request.fResolveFuture;
+				started= request.fStarted;
+				if (!started) {
+					// the request was waiting
+					removeRequest(request);
+				}
+			}
+			request.fMonitor.setCanceled(true);
+			if (!started) {
+				request.fResult.cancel(true);
+			} else if (resolveFuture != null) {
+				// completes the request through finished(...)
+				resolveFuture.cancel(true);
+			}
+			// else the resolve is being started, the starting thread cancels its future
+		}
+	}
+
+	private void removeRequest(Request request) {
+		if (fRequests.get(request.fMining) == request) {
+			fRequests.remove(request.fMining);
+		}
+	}
+
+	private ProviderQueue getQueue(ICodeMiningProvider provider) {
+		ProviderQueue queue= fQueues.get(provider);
+		if (queue == null) {
+			queue= new ProviderQueue();
+			fQueues.put(provider, queue);
+		}
+		return queue;
+	}
+
+	/**
+	 * Starts waiting requests of the given queue as long as the provider has capacity. Must not be
+	 * called while holding the lock of this scheduler.
+	 * <p>
+	 * Only one thread starts the requests of a queue, other threads which free capacity in the
+	 * meantime, e.g. by completing a resolve, leave the starting to it. Resolves which complete
+	 * synchronously are therefore handled in a loop instead of recursively.
+	 * </p>
+	 *
+	 * @param queue the queue of a provider
+	 */
+	private void startWaiting(ProviderQueue queue) {
+		synchronized (this) {
+			if (queue.fStarting) {
+				// the starting thread checks the capacity again before it stops
+				return;
+			}
+			queue.fStarting= true;
+		}
+		boolean stopped= false;
+		try {
+			while (true) {
+				Request request;
+				synchronized (this) {
+					if (fDisposed || queue.fRunning.size() >= fMaxConcurrentResolves || queue.fWaiting.isEmpty()) {
+						queue.fStarting= false;
+						stopped= true;
+						return;
+					}
+					request= queue.fWaiting.poll();
+					request.fStarted= true;
+					queue.fRunning.add(request);
+					request.fStartTime= System.nanoTime();
+				}
+				CompletableFuture<Void> future;
+				try {
+					future= request.fMining.resolve(fViewer, request.fMonitor);
+				} catch (RuntimeException e) {
+					future= new CompletableFuture<>();
+					future.completeExceptionally(e);
+				}
+				if (future == null) {
+					future= CompletableFuture.completedFuture(null);
+				}
+				boolean canceled;
+				synchronized (this) {
+					request.fResolveFuture= future;
+					canceled= request.fCanceled;
+				}
+				if (canceled) {
+					future.cancel(true);
+				}
+				future.whenComplete((result, e) -> finished(request, queue, e));
+			}
+		} finally {
+			if (!stopped) {
+				synchronized (this) {
+					queue.fStarting= false;
+				}
+			}
+		}
+	}
+
+	private void finished(Request request, ProviderQueue queue, Throwable e) {
+		boolean canceled;
+		synchronized (this) {
+			queue.fRunning.remove(request);
+			removeRequest(request);
+			canceled= request.fCanceled || isCancellation(e);
+			queue.fStatistics.resolved(System.nanoTime() - request.fStartTime, canceled);
+		}
+		if (canceled) {
+			request.fResult.cancel(true);
+		} else if (e != null) {
+			request.fResult.completeExceptionally(e);
+		} else {
+			request.fResult.complete(null);
+		}
+		startWaiting(queue);
+	}
+
+	private static boolean isCancellation(Throwable e) {
+		return e instanceof CancellationException || e != null && e.getCause() instanceof CancellationException;
+	}
+
+	private boolean isVisible(ICodeMining mining) {
+		int start= fVisibleStart;
+		if (start == -1) {
+			return true;
+		}
+		Position position= mining.getPosition();
+		if (position == null) {
+			return true;
+		}
+		return !position.isDeleted() && position.getOffset() >= start && position.getOffset() <= fVisibleEnd;
+	}
+
+	/**
+	 * Computes the range of the visible lines. Must be called in the UI thread.
+	 */
+	private void computeVisibleLines() {
+		StyledText textWidget= fViewer.getTextWidget();
+		IDocument document= fViewer.getDocument();
+		if (textWidget == null || textWidget.isDisposed() || document == null) {
+			fVisibleStart= -1;
+			return;
+		}
+		try {
+			int top= JFaceTextUtil.getPartialTopIndex(fViewer);
+			int bottom= Math.min(JFaceTextUtil.getPartialBottomIndex(fViewer), document.getNumberOfLines() - 1);
+			fVisibleEnd= document.getLineOffset(bottom) + document.getLineLength(bottom);
+			fVisibleStart= document.getLineOffset(top);
+		} catch (BadLocationException e) {
+			fVisibleStart= -1;
+		}
+	}
+}
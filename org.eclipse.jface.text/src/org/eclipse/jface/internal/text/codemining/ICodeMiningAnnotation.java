@@ -34,6 +34,15 @@ public interface ICodeMiningAnnotation {
 	 */
 	void update(List<ICodeMining> minings, IProgressMonitor monitor);
 
+	/**
+	 * Sets the monitor used to resolve the current code minings without updating them. Used when
+	 * the code minings of the annotation are kept by an update of other lines.
+	 *
+	 * @param monitor the monitor
+	 * @since 3.16
+	 */
+	void setProgressMonitor(IProgressMonitor monitor);
+
 	/**
 	 * Redraw the codemining annotation.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -208,9 +208,12 @@ public class ContentAssistant2 implements IContentAssistant, IContentAssistantEx
 	 */
 	class AutoAssistListener implements VerifyKeyListener, Runnable {
 
-		private Thread fThread;
-		private boolean fIsReset= false;
-		private Object fMutex= new Object();
+		/**
+		 * The runnable scheduled with the display to show the assist once the auto activation
+		 * delay has passed, or <code>null</code> if none is scheduled. Only accessed in the UI
+		 * thread.
+		 */
+		private Runnable fTimer;
 		private int fShowStyle;
 
 		private final static int SHOW_PROPOSALS= 1;
@@ -221,42 +224,45 @@ public class ContentAssistant2 implements IContentAssistant, IContentAssistantEx
 
 		protected void start(int showStyle) {
 			fShowStyle= showStyle;
-			fThread= new Thread(this, ContentAssistMessages.getString("ContentAssistant.assist_delay_timer_name")); //$NON-NLS-1$
-			fThread.start();
+			Control control= fViewer.getTextWidget();
+			if (control == null || control.isDisposed())
+				return;
+
+			Runnable timer= new Runnable() {
+				@Override
+				public void run() {
+					// a timer that has been stopped may still be run if it was posted asynchronously
+					if (fTimer != this)
+						return;
+					fTimer= null;
+					AutoAssistListener.this.run();
+				}
+			};
+			fTimer= timer;
+			if (fAutoActivationDelay > 0)
+				control.getDisplay().timerExec(fAutoActivationDelay, timer);
+			else
+				control.getDisplay().asyncExec(timer);
 		}
 
 		@Override
 		public void run() {
-			try {
-				while (true) {
-					synchronized (fMutex) {
-						if (fAutoActivationDelay != 0)
-							fMutex.wait(fAutoActivationDelay);
-						if (fIsReset) {
-							fIsReset= false;
-							continue;
-						}
-					}
-					showAssist(fShowStyle);
-					break;
-				}
-			} catch (InterruptedException e) {
-			}
-			fThread= null;
+			showAssist(fShowStyle);
 		}
 
 		protected void reset(int showStyle) {
-			synchronized (fMutex) {
-				fShowStyle= showStyle;
-				fIsReset= true;
-				fMutex.notifyAll();
-			}
+			stop();
+			start(showStyle);
 		}
 
 		protected void stop() {
-			Thread threadToStop= fThread;
-			if (threadToStop != null)
-				threadToStop.interrupt();
+			Runnable timer= fTimer;
+			if (timer != null) {
+				fTimer= null;
+				Control control= fViewer.getTextWidget();
+				if (control != null && !control.isDisposed())
+					control.getDisplay().timerExec(-1, timer);
+			}
 		}
 
 		private boolean contains(char[] characters, char character) {
@@ -290,13 +296,12 @@ public class ContentAssistant2 implements IContentAssistant, IContentAssistantEx
 				if (contains(activation, e.character) && !fContextInfoPopup.isActive())
 					showStyle= SHOW_CONTEXT_INFO;
 				else {
-					if (fThread != null && fThread.isAlive())
-						stop();
+					stop();
 					return;
 				}
 			}
 
-			if (fThread != null && fThread.isAlive())
+			if (fTimer != null)
 				reset(showStyle);
 			else
 				start(showStyle);
@@ -833,6 +838,7 @@ public class ContentAssistant2 implements IContentAssistant, IContentAssistantEx
 
 		} else if (fAutoAssistListener != null) {
 
+			fAutoAssistListener.stop();
 			if (fViewer instanceof ITextViewerExtension) {
 				ITextViewerExtension extension= (ITextViewerExtension) fViewer;
 				extension.removeVerifyKeyListener(fAutoAssistListener);
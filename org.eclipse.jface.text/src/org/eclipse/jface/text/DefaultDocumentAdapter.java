@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -42,6 +42,13 @@ class DefaultDocumentAdapter implements IDocumentAdapter, IDocumentListener, IDo
 	private String fOriginalContent;
 	/** The original line delimiters */
 	private String[] fOriginalLineDelimiters;
+	/**
+	 * Tells whether the original content has not been taken yet because the adapted document has
+	 * not been changed since forwarding was stopped. In this case the adapted document is read
+	 * directly, so that large documents are not copied unless they are changed.
+	 * @since 3.16
+	 */
+	private boolean fIsOriginalContentPending;
 	/** The registered text change listeners */
 	private List<TextChangeListener> fTextChangeListeners= new ArrayList<>(1);
 	/**
@@ -96,13 +103,9 @@ class DefaultDocumentAdapter implements IDocumentAdapter, IDocumentListener, IDo
 
 		if (!fIsForwarding) {
 			fDocumentClone= null;
-			if (fDocument != null) {
-				fOriginalContent= fDocument.get();
-				fOriginalLineDelimiters= fDocument.getLegalLineDelimiters();
-			} else {
-				fOriginalContent= null;
-				fOriginalLineDelimiters= null;
-			}
+			fOriginalContent= null;
+			fOriginalLineDelimiters= null;
+			fIsOriginalContentPending= fDocument != null;
 		}
 
 		if (fDocument != null)
@@ -152,6 +155,8 @@ class DefaultDocumentAdapter implements IDocumentAdapter, IDocumentListener, IDo
 
 	private IDocument getDocumentForRead() {
 		if (!fIsForwarding) {
+			if (fIsOriginalContentPending)
+				return fDocument;
 			if (fDocumentClone == null) {
 				String content= fOriginalContent == null ? "" : fOriginalContent; //$NON-NLS-1$
 				String[] delims= fOriginalLineDelimiters == null ? DefaultLineTracker.DELIMITERS : fOriginalLineDelimiters;
@@ -275,6 +280,13 @@ class DefaultDocumentAdapter implements IDocumentAdapter, IDocumentListener, IDo
 	@Override
 	public void documentAboutToBeChanged(DocumentEvent event) {
 
+		if (fIsOriginalContentPending) {
+			// the widget must keep seeing the content it had when forwarding was stopped
+			fOriginalContent= fDocument.get();
+			fOriginalLineDelimiters= fDocument.getLegalLineDelimiters();
+			fIsOriginalContentPending= false;
+		}
+
 		fRememberedLengthOfDocument= fDocument.getLength();
 		try {
 			fRememberedLengthOfFirstLine= fDocument.getLineLength(0);
@@ -380,14 +392,17 @@ class DefaultDocumentAdapter implements IDocumentAdapter, IDocumentListener, IDo
 		fDocumentClone= null;
 		fOriginalContent= null;
 		fOriginalLineDelimiters= null;
+		fIsOriginalContentPending= false;
 		fireTextSet();
 	}
 
 	@Override
 	public void stopForwardingDocumentChanges() {
 		fDocumentClone= null;
-		fOriginalContent= fDocument.get();
-		fOriginalLineDelimiters= fDocument.getLegalLineDelimiters();
+		// the original content is taken when the document is changed for the first time
+		fOriginalContent= null;
+		fOriginalLineDelimiters= null;
+		fIsOriginalContentPending= fDocument != null;
 		fIsForwarding= false;
 	}
 }
@@ -47,6 +47,11 @@ class DocumentClone extends AbstractDocument {
 			return fContent.substring(offset, offset + length);
 		}
 
+		@Override
+		public void getChars(int offset, int length, char[] destination, int destinationOffset) {
+			fContent.getChars(offset, offset + length, destination, destinationOffset);
+		}
+
 		@Override
 		public int getLength() {
 			return fContent.length();
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.text;
+
+/**
+ * Extension interface for {@link org.eclipse.jface.text.IFindReplaceTarget}.
+ * <p>
+ * Allows to replace all occurrences of a string as one change instead of finding and replacing
+ * them one by one.
+ *
+ * @since 3.16
+ */
+public interface IFindReplaceTargetExtension4 {
+
+	/**
+	 * Replaces all occurrences of the given string in the scope of this target, or in the whole
+	 * target if no scope is set, with the given text. All occurrences are collected first and are
+	 * then replaced in a single document change. The selection is not changed by the search.
+	 *
+	 * @param findString the specification of what should be found
+	 * @param replaceString the specification of the substitution text
+	 * @param caseSensitive <code>true</code> performs a case sensitive search, <code>false</code> an insensitive search
+	 * @param wholeWord if <code>true</code> only occurrences are reported in which the findString stands as a word by itself.
+	 * 				Must not be used in combination with <code>regExSearch</code>.
+	 * @param regExSearch if <code>true</code> findString represents a regular expression and
+	 * 				replaceString is processed as by {@link IFindReplaceTargetExtension3#replaceSelection(String, boolean)}.
+	 * 				Must not be used in combination with <code>wholeWord</code>.
+	 * @return the number of replacements, or <code>-1</code> if this target cannot replace all
+	 *         occurrences at once and the caller has to replace them one by one
+	 * @throws java.util.regex.PatternSyntaxException if regExSearch is <code>true</code> and findString or replaceString is invalid
+	 */
+	int replaceAll(String findString, String replaceString, boolean caseSensitive, boolean wholeWord, boolean regExSearch);
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -88,6 +88,8 @@ import org.eclipse.jface.viewers.ISelectionProvider;
  * viewer with the ability to install tabs to spaces conversion.</li>
  * <li>{@link org.eclipse.jface.text.ITextViewerExtension8} since version 3.4 extending the text
  * viewer with the ability to print and rich hover support.</li>
+ * <li>{@link org.eclipse.jface.text.ITextViewerExtension9} since version 3.16 extending the text
+ * viewer with a large document mode which degrades expensive features.</li>
  * </ul>
  * <p>
  * Clients may implement this interface and its extension interfaces or use the standard
@@ -102,6 +104,7 @@ import org.eclipse.jface.viewers.ISelectionProvider;
  * @see org.eclipse.jface.text.ITextViewerExtension6
  * @see org.eclipse.jface.text.ITextViewerExtension7
  * @see org.eclipse.jface.text.ITextViewerExtension8
+ * @see org.eclipse.jface.text.ITextViewerExtension9
  * @see org.eclipse.jface.text.IDocument
  * @see org.eclipse.jface.text.ITextInputListener
  * @see org.eclipse.jface.text.IViewportListener
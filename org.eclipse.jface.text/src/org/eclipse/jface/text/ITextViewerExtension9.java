@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+
+/**
+ * Extension interface for {@link org.eclipse.jface.text.ITextViewer}. Adds a large document mode:
+ * documents whose length or number of lines exceeds the configured thresholds are shown with a
+ * reduced set of features, so that the costs of showing them stay bounded.
+ * <p>
+ * Whether the viewer is in large document mode is decided when its input document is set and
+ * when the thresholds are changed, not while the document is edited. Clients which contribute
+ * expensive features of their own, e.g. quick diff, may check {@link #isLargeDocumentMode()} and
+ * degrade them as well.
+ * </p>
+ *
+ * @since 3.16
+ */
+public interface ITextViewerExtension9 {
+
+	/**
+	 * Feature id of the presentation reconciler, i.e. of syntax coloring.
+	 */
+	String PRESENTATION_RECONCILING= "presentationReconciling"; //$NON-NLS-1$
+
+	/**
+	 * Feature id of the reconciler.
+	 */
+	String RECONCILING= "reconciling"; //$NON-NLS-1$
+
+	/**
+	 * Feature id of the code minings.
+	 */
+	String CODE_MININGS= "codeMinings"; //$NON-NLS-1$
+
+	/**
+	 * Feature id of the painters added with {@link ITextViewerExtension2#addPainter(IPainter)}.
+	 * Painters are suspended while the viewer is in large document mode and are reactivated when
+	 * it leaves the mode.
+	 */
+	String PAINTERS= "painters"; //$NON-NLS-1$
+
+	/**
+	 * Feature id of folding. Projection is suspended while the viewer is in large document mode
+	 * and is enabled again when it leaves the mode.
+	 */
+	String FOLDING= "folding"; //$NON-NLS-1$
+
+	/**
+	 * Sets the thresholds above which a document is shown in large document mode and the features
+	 * which are degraded in this mode. The mode of the current input document is updated
+	 * immediately.
+	 *
+	 * @param maxLength the maximal length of a document which is not shown in large document mode,
+	 *            <code>-1</code> for no limit
+	 * @param maxLines the maximal number of lines of a document which is not shown in large
+	 *            document mode, <code>-1</code> for no limit
+	 * @param features the ids of the features to degrade in large document mode, e.g.
+	 *            {@link #PRESENTATION_RECONCILING}, or <code>null</code> for all features known to
+	 *            this interface
+	 */
+	void setLargeDocumentThresholds(int maxLength, int maxLines, String[] features);
+
+	/**
+	 * Returns whether the current input document is shown in large document mode.
+	 *
+	 * @return <code>true</code> if the viewer is in large document mode
+	 */
+	boolean isLargeDocumentMode();
+
+	/**
+	 * Returns the ids of the features which are currently degraded because the viewer is in large
+	 * document mode.
+	 *
+	 * @return the ids of the degraded features, an empty array if the viewer is not in large
+	 *         document mode
+	 */
+	String[] getDegradedFeatures();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -180,6 +180,11 @@ public final class PaintManager implements KeyListener, MouseListener, ISelectio
 	private PositionManager fManager;
 	/** The associated text viewer */
 	private ITextViewer fTextViewer;
+	/**
+	 * Tells whether the painters are suspended.
+	 * @since 3.16
+	 */
+	private boolean fIsSuspended;
 
 	/**
 	 * Creates a new paint manager for the given text viewer.
@@ -204,7 +209,8 @@ public final class PaintManager implements KeyListener, MouseListener, ISelectio
 			if (fPainters.size() == 1)
 				install();
 			painter.setPositionManager(fManager);
-			painter.paint(IPainter.INTERNAL);
+			if (!fIsSuspended)
+				painter.paint(IPainter.INTERNAL);
 		}
 	}
 
@@ -224,6 +230,27 @@ public final class PaintManager implements KeyListener, MouseListener, ISelectio
 			dispose();
 	}
 
+	/**
+	 * Suspends or resumes the managed painters. Suspended painters stay registered with this
+	 * paint manager and keep their position manager, but they are deactivated and are not
+	 * triggered. A suspended painter which a client activates directly is deactivated again on
+	 * the next event.
+	 *
+	 * @param suspended <code>true</code> to suspend the painters, <code>false</code> to resume them
+	 * @since 3.16
+	 */
+	void setSuspended(boolean suspended) {
+		if (fIsSuspended == suspended)
+			return;
+		fIsSuspended= suspended;
+		if (suspended) {
+			for (IPainter painter : fPainters)
+				painter.deactivate(true);
+		} else {
+			paint(IPainter.INTERNAL);
+		}
+	}
+
 	/**
 	 * Installs/activates this paint manager. Is called as soon as the
 	 * first painter is to be managed by this paint manager.
@@ -301,6 +328,11 @@ public final class PaintManager implements KeyListener, MouseListener, ISelectio
 	 * @see IPainter
 	 */
 	private void paint(int reason) {
+		if (fIsSuspended) {
+			for (IPainter iPainter : fPainters)
+				iPainter.deactivate(true);
+			return;
+		}
 		for (IPainter iPainter : fPainters)
 			iPainter.paint(reason);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -112,7 +112,7 @@ import org.eclipse.jface.text.projection.ChildDocumentManager;
  * @noextend This class is not intended to be subclassed by clients.
  */
 public class TextViewer extends Viewer implements
-					ITextViewer, ITextViewerExtension, ITextViewerExtension2, ITextViewerExtension4, ITextViewerExtension6, ITextViewerExtension7, ITextViewerExtension8,
+					ITextViewer, ITextViewerExtension, ITextViewerExtension2, ITextViewerExtension4, ITextViewerExtension6, ITextViewerExtension7, ITextViewerExtension8, ITextViewerExtension9,
 					IEditingSupportRegistry, ITextOperationTarget, ITextOperationTargetExtension,
 					IWidgetTokenOwner, IWidgetTokenOwnerExtension, IPostSelectionProvider {
 
@@ -765,7 +765,7 @@ public class TextViewer extends Viewer implements
 	/**
 	 * This viewer's find/replace target.
 	 */
-	class FindReplaceTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, IFindReplaceTargetExtension3 {
+	class FindReplaceTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, IFindReplaceTargetExtension3, IFindReplaceTargetExtension4 {
 
 		/** The range for this target. */
 		private FindReplaceRange fRange;
@@ -851,6 +851,21 @@ public class TextViewer extends Viewer implements
 			return widgetOffset;
 		}
 
+		@Override
+		public int replaceAll(String findString, String replaceString, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+			IRegion range= null;
+			if (fRange != null) {
+				range= modelRange2WidgetRange(fRange.getRange());
+				if (range == null)
+					return 0;
+			}
+			try {
+				return TextViewer.this.getFindReplaceDocumentAdapter().replaceAll(findString, replaceString, caseSensitive, wholeWord, regExSearch, range);
+			} catch (BadLocationException x) {
+				return 0;
+			}
+		}
+
 		@Override
 		public boolean canPerformFind() {
 			return TextViewer.this.canPerformFind();
@@ -1643,6 +1658,39 @@ public class TextViewer extends Viewer implements
 	 * @since 3.8
 	 */
 	private Control fDisposedControl;
+	/**
+	 * The maximal length of a document which is not shown in large document mode, <code>-1</code>
+	 * for no limit.
+	 *
+	 * @since 3.16
+	 */
+	private int fLargeDocumentMaxLength= -1;
+	/**
+	 * The maximal number of lines of a document which is not shown in large document mode,
+	 * <code>-1</code> for no limit.
+	 *
+	 * @since 3.16
+	 */
+	private int fLargeDocumentMaxLines= -1;
+	/**
+	 * The ids of the features which are degraded in large document mode.
+	 *
+	 * @since 3.16
+	 */
+	private String[] fLargeDocumentFeatures= ALL_LARGE_DOCUMENT_FEATURES;
+	/**
+	 * Tells whether the input document is shown in large document mode.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fIsLargeDocumentMode;
+
+	/**
+	 * The ids of all features known to {@link ITextViewerExtension9}.
+	 *
+	 * @since 3.16
+	 */
+	private static final String[] ALL_LARGE_DOCUMENT_FEATURES= { PRESENTATION_RECONCILING, RECONCILING, CODE_MININGS, PAINTERS, FOLDING };
 
 
 	//---- Construction and disposal ------------------
@@ -2773,6 +2821,10 @@ public class TextViewer extends Viewer implements
 	@Override
 	public void setDocument(IDocument document) {
 
+		boolean isLargeDocument= isLargeDocument(document);
+		if (isLargeDocument)
+			setLargeDocumentMode(true);
+
 		fReplaceTextPresentation= true;
 		fireInputDocumentAboutToBeChanged(fDocument, document);
 
@@ -2785,6 +2837,8 @@ public class TextViewer extends Viewer implements
 		inputChanged(fDocument, oldDocument);
 
 		fireInputDocumentChanged(oldDocument, fDocument);
+		if (!isLargeDocument)
+			setLargeDocumentMode(false);
 		fLastSentSelectionChange= null;
 		fReplaceTextPresentation= false;
 	}
@@ -2792,6 +2846,10 @@ public class TextViewer extends Viewer implements
 	@Override
 	public void setDocument(IDocument document, int modelRangeOffset, int modelRangeLength) {
 
+		boolean isLargeDocument= isLargeDocument(document);
+		if (isLargeDocument)
+			setLargeDocumentMode(true);
+
 		fReplaceTextPresentation= true;
 		fireInputDocumentAboutToBeChanged(fDocument, document);
 
@@ -2812,6 +2870,8 @@ public class TextViewer extends Viewer implements
 		inputChanged(fDocument, oldDocument);
 
 		fireInputDocumentChanged(oldDocument, fDocument);
+		if (!isLargeDocument)
+			setLargeDocumentMode(false);
 		fLastSentSelectionChange= null;
 		fReplaceTextPresentation= false;
 	}
@@ -5043,8 +5103,10 @@ public class TextViewer extends Viewer implements
 	 * @since 2.1
 	 */
 	protected PaintManager getPaintManager() {
-		if (fPaintManager == null)
+		if (fPaintManager == null) {
 			fPaintManager= new PaintManager(this);
+			fPaintManager.setSuspended(isLargeDocumentFeatureDegraded(PAINTERS));
+		}
 		return fPaintManager;
 	}
 
@@ -5072,6 +5134,106 @@ public class TextViewer extends Viewer implements
 		getPaintManager().removePainter(painter);
 	}
 
+	//---- Large document mode
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public void setLargeDocumentThresholds(int maxLength, int maxLines, String[] features) {
+		fLargeDocumentMaxLength= maxLength;
+		fLargeDocumentMaxLines= maxLines;
+		fLargeDocumentFeatures= features == null ? ALL_LARGE_DOCUMENT_FEATURES : features.clone();
+		// the degraded features may have changed even if the mode has not
+		fIsLargeDocumentMode= isLargeDocument(fDocument);
+		handleLargeDocumentModeChanged();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public boolean isLargeDocumentMode() {
+		return fIsLargeDocumentMode;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public String[] getDegradedFeatures() {
+		if (!fIsLargeDocumentMode)
+			return new String[0];
+		return fLargeDocumentFeatures.clone();
+	}
+
+	/**
+	 * Returns whether the given feature is currently degraded because this viewer is in large
+	 * document mode.
+	 *
+	 * @param feature the id of the feature, see {@link ITextViewerExtension9}
+	 * @return <code>true</code> if the feature is degraded
+	 * @since 3.16
+	 */
+	protected final boolean isLargeDocumentFeatureDegraded(String feature) {
+		return fIsLargeDocumentMode && Arrays.asList(fLargeDocumentFeatures).contains(feature);
+	}
+
+	/**
+	 * Returns whether the given document exceeds the large document thresholds of this viewer.
+	 *
+	 * @param document the document, may be <code>null</code>
+	 * @return <code>true</code> if the document is to be shown in large document mode
+	 * @since 3.16
+	 */
+	protected boolean isLargeDocument(IDocument document) {
+		if (document == null)
+			return false;
+		if (fLargeDocumentMaxLength >= 0 && document.getLength() > fLargeDocumentMaxLength)
+			return true;
+		return fLargeDocumentMaxLines >= 0 && document.getNumberOfLines() > fLargeDocumentMaxLines;
+	}
+
+	/**
+	 * Enters or leaves large document mode.
+	 *
+	 * @param largeDocumentMode <code>true</code> to enter large document mode
+	 * @since 3.16
+	 */
+	private void setLargeDocumentMode(boolean largeDocumentMode) {
+		if (fIsLargeDocumentMode == largeDocumentMode)
+			return;
+		fIsLargeDocumentMode= largeDocumentMode;
+		handleLargeDocumentModeChanged();
+	}
+
+	/**
+	 * Degrades or restores the features of this viewer after it has entered or left large
+	 * document mode, or after the large document thresholds have been changed. When the mode is
+	 * changed by setting a new input document, the mode is entered before the input listeners are
+	 * informed about the new document and left after they have been informed, so that restored
+	 * features see the new document only.
+	 * <p>
+	 * Subclasses may extend this method to degrade their own features, they can use
+	 * {@link #isLargeDocumentFeatureDegraded(String)} to find out which of them are affected. The
+	 * method may be called although the degraded features have not changed, implementations must
+	 * only degrade or restore features whose state differs from the state they are in.
+	 * </p>
+	 *
+	 * @see #isLargeDocumentMode()
+	 * @since 3.16
+	 */
+	protected void handleLargeDocumentModeChanged() {
+		if (fPaintManager != null)
+			fPaintManager.setSuspended(isLargeDocumentFeatureDegraded(PAINTERS));
+	}
+
 	// ----------------------------------- conversions -------------------------------------------------------
 
 	/**
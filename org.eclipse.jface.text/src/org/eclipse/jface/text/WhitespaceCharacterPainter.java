@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2018 Wind River Systems, Inc., IBM Corporation and others.
+ * Copyright (c) 2006, 2019 Wind River Systems, Inc., IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,10 +17,17 @@
  *******************************************************************************/
 package org.eclipse.jface.text;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Color;
@@ -47,6 +54,40 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 	private static final String SPACE_SIGN_STRING= String.valueOf(SPACE_SIGN);
 	private static final String IDEOGRAPHIC_SPACE_SIGN_STRING= String.valueOf(IDEOGRAPHIC_SPACE_SIGN);
 
+	/**
+	 * The maximal length of the lines whose whitespace runs are cached. Only the visible part of
+	 * longer lines is looked at.
+	 * @since 3.16
+	 */
+	private static final int MAX_CACHED_LINE_LENGTH= 1000;
+	/**
+	 * The maximal number of lines whose whitespace runs are cached. The cache is cleared when
+	 * more lines are drawn.
+	 * @since 3.16
+	 */
+	private static final int MAX_CACHED_LINES= 500;
+
+	/**
+	 * The visible characters drawn for the whitespace of a line, grouped into runs which are
+	 * drawn with a single call.
+	 *
+	 * @since 3.16
+	 */
+	private static final class WhitespaceRuns {
+		/** The offsets of the runs relative to the line. */
+		final int[] fOffsets;
+		/** The visible characters of the runs. */
+		final String[] fCharacters;
+		/** Tells for each run whether it ends the line. */
+		final boolean[] fIsLineEnd;
+
+		WhitespaceRuns(int[] offsets, String[] characters, boolean[] isLineEnd) {
+			fOffsets= offsets;
+			fCharacters= characters;
+			fIsLineEnd= isLineEnd;
+		}
+	}
+
 	/** Indicates whether this painter is active. */
 	private boolean fIsActive= false;
 	/** The source viewer this painter is attached to. */
@@ -84,6 +125,65 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 	private boolean fShowLineFeed= true;
 	/** @since 3.7 */
 	private int fAlpha= 80;
+	/**
+	 * The whitespace runs of the widget lines, indexed by widget line, <code>null</code> for lines
+	 * whose runs are not known. Text changes replace the entries of the changed lines.
+	 * @since 3.16
+	 */
+	private final List<WhitespaceRuns> fCachedRuns= new ArrayList<>();
+	/**
+	 * The number of non-<code>null</code> entries of {@link #fCachedRuns}.
+	 * @since 3.16
+	 */
+	private int fCachedLineCount;
+	/**
+	 * The widget content whose changes {@link #fCachedRuns} follows.
+	 * @since 3.16
+	 */
+	private StyledTextContent fContent;
+	/**
+	 * The first widget line of the change announced by the last text changing event.
+	 * @since 3.16
+	 */
+	private int fChangeStartLine;
+	/**
+	 * The number of lines replaced by the change announced by the last text changing event.
+	 * @since 3.16
+	 */
+	private int fChangeReplacedLines;
+	/**
+	 * The number of lines inserted by the change announced by the last text changing event.
+	 * @since 3.16
+	 */
+	private int fChangeNewLines;
+	/**
+	 * Keeps {@link #fCachedRuns} in sync with the widget content.
+	 * @since 3.16
+	 */
+	private final TextChangeListener fTextChangeListener= new TextChangeListener() {
+		@Override
+		public void textChanging(TextChangingEvent event) {
+			fChangeStartLine= fContent.getLineAtOffset(event.start);
+			fChangeReplacedLines= event.replaceLineCount;
+			fChangeNewLines= event.newLineCount;
+		}
+
+		@Override
+		public void textChanged(TextChangedEvent event) {
+			linesChanged(fChangeStartLine, fChangeReplacedLines, fChangeNewLines);
+		}
+
+		@Override
+		public void textSet(TextChangedEvent event) {
+			clearCachedRuns();
+		}
+	};
+	/**
+	 * Tells whether the cached runs have been computed for space characters which have the same
+	 * width as their visible characters.
+	 * @since 3.16
+	 */
+	private boolean fCachedRunsForSameWidth;
 
 	/**
 	 * Creates a new painter for the given text viewer.
@@ -139,6 +239,7 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 
 	@Override
 	public void dispose() {
+		setContent(null);
 		fTextViewer= null;
 		fTextWidget= null;
 	}
@@ -155,6 +256,7 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 			fTextWidget.addPaintListener(this);
 			redrawAll();
 		} else if (reason == CONFIGURATION || reason == INTERNAL) {
+			clearCachedRuns();
 			redrawAll();
 		}
 	}
@@ -164,6 +266,7 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 		if (fIsActive) {
 			fIsActive= false;
 			fTextWidget.removePaintListener(this);
+			setContent(null);
 			if (redraw) {
 				redrawAll();
 			}
@@ -225,6 +328,19 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 		int spaceCharWidth= gc.stringExtent(" ").x; //$NON-NLS-1$
 		boolean spaceCharsAreSameWidth= spaceCharWidth == gc.stringExtent(SPACE_SIGN_STRING).x &&
 				spaceCharWidth == gc.stringExtent(IDEOGRAPHIC_SPACE_SIGN_STRING).x;
+		setContent(fTextWidget.getContent());
+		if (spaceCharsAreSameWidth != fCachedRunsForSameWidth) {
+			clearCachedRuns();
+			fCachedRunsForSameWidth= spaceCharsAreSameWidth;
+		}
+		// Compute baseline delta (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=165640)
+		FontMetrics fontMetrics= gc.getFontMetrics();
+		int fontBaseline= fontMetrics.getAscent() + fontMetrics.getLeading();
+		/*
+		 * Block selection is drawn using alpha and no selection-inverting
+		 * takes place, we always draw as 'unselected' in block selection mode.
+		 */
+		Point selection= !fTextWidget.getBlockSelection() && fIsFullSelectionStyle ? fTextWidget.getSelection() : null;
 
 		for (int line= startLine; line <= endLine; line++) {
 			int lineOffset= fTextWidget.getOffsetAtLine(line);
@@ -274,7 +390,7 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 			}
 			// draw character range
 			if (endOffset > startOffset) {
-				drawCharRange(gc, startOffset, endOffset, lineOffset, lineEndOffset, spaceCharsAreSameWidth);
+				drawCharRange(gc, line, startOffset, endOffset, lineOffset, lineEndOffset, spaceCharsAreSameWidth, fontBaseline, selection);
 			}
 		}
 	}
@@ -287,19 +403,160 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 	 * Draw characters of content range.
 	 *
 	 * @param gc the GC
+	 * @param line the widget line
 	 * @param startOffset inclusive start index of the drawing range
 	 * @param endOffset exclusive end index of the drawing range
 	 * @param lineOffset inclusive start index of the line
 	 * @param lineEndOffset exclusive end index of the line
 	 * @param spaceCharsAreSameWidth whether or not all space chars are same width, if <code>true</code>
 	 *            rendering can be optimized
+	 * @param fontBaseline the baseline of the font of the GC
+	 * @param selection the selection drawn with the selection foreground, or <code>null</code>
 	 */
-	private void drawCharRange(GC gc, int startOffset, int endOffset, int lineOffset, int lineEndOffset, boolean spaceCharsAreSameWidth) {
-		StyledTextContent content= fTextWidget.getContent();
-		String lineText= content.getTextRange(lineOffset, lineEndOffset - lineOffset);
+	private void drawCharRange(GC gc, int line, int startOffset, int endOffset, int lineOffset, int lineEndOffset, boolean spaceCharsAreSameWidth, int fontBaseline, Point selection) {
+		WhitespaceRuns runs= getRuns(line, lineOffset, lineEndOffset, startOffset, endOffset, spaceCharsAreSameWidth);
 		int startOffsetInLine= startOffset - lineOffset;
 		int endOffsetInLine= endOffset - lineOffset;
 
+		StyleRange[] styleRanges= null;
+		int styleIndex= 0;
+		int y= -1;
+		int baselineDelta= 0;
+		for (int i= 0; i < runs.fOffsets.length; i++) {
+			int offsetInLine= runs.fOffsets[i];
+			String visibleChars= runs.fCharacters[i];
+			if (offsetInLine >= endOffsetInLine || offsetInLine + visibleChars.length() <= startOffsetInLine)
+				continue;
+			if (runs.fIsLineEnd[i] && isFoldedLine(line))
+				continue;
+
+			int widgetOffset= lineOffset + offsetInLine;
+			Color fg;
+			if (selection != null && widgetOffset >= selection.x && widgetOffset < selection.y) {
+				fg= fTextWidget.getSelectionForeground();
+			} else {
+				// the runs are ordered, the style ranges of the line are fetched once
+				if (styleRanges == null)
+					styleRanges= fTextWidget.getStyleRanges(lineOffset, lineEndOffset - lineOffset, true);
+				while (styleIndex < styleRanges.length && styleRanges[styleIndex].start + styleRanges[styleIndex].length <= widgetOffset)
+					styleIndex++;
+				StyleRange styleRange= styleIndex < styleRanges.length && styleRanges[styleIndex].start <= widgetOffset ? styleRanges[styleIndex] : null;
+				if (styleRange == null || styleRange.foreground == null) {
+					fg= fTextWidget.getForeground();
+				} else {
+					fg= styleRange.foreground;
+				}
+			}
+
+			Point pos= fTextWidget.getLocationAtOffset(widgetOffset);
+			if (pos.y != y) {
+				// the baseline only changes with the visual line of a wrapped line
+				y= pos.y;
+				baselineDelta= fTextWidget.getBaseline(widgetOffset) - fontBaseline;
+			}
+			gc.setForeground(fg);
+			gc.drawString(visibleChars, pos.x, pos.y + baselineDelta, true);
+		}
+	}
+
+	/**
+	 * Returns the whitespace runs of the given widget line. The runs of lines up to
+	 * {@link #MAX_CACHED_LINE_LENGTH} characters are computed for the whole line and cached, for
+	 * longer lines only the runs in the given range are computed.
+	 *
+	 * @param line the widget line
+	 * @param lineOffset inclusive start index of the line
+	 * @param lineEndOffset exclusive end index of the line, including the line delimiter
+	 * @param startOffset inclusive start index of the drawing range
+	 * @param endOffset exclusive end index of the drawing range
+	 * @param spaceCharsAreSameWidth whether or not all space chars are same width
+	 * @return the runs of the line
+	 * @since 3.16
+	 */
+	private WhitespaceRuns getRuns(int line, int lineOffset, int lineEndOffset, int startOffset, int endOffset, boolean spaceCharsAreSameWidth) {
+		int lineLength= lineEndOffset - lineOffset;
+		if (lineLength > MAX_CACHED_LINE_LENGTH) {
+			String lineText= fContent.getTextRange(lineOffset, lineLength);
+			return computeRuns(lineText, startOffset - lineOffset, endOffset - lineOffset, spaceCharsAreSameWidth);
+		}
+
+		WhitespaceRuns runs= line < fCachedRuns.size() ? fCachedRuns.get(line) : null;
+		if (runs == null) {
+			String lineText= fContent.getTextRange(lineOffset, lineLength);
+			runs= computeRuns(lineText, 0, lineLength, spaceCharsAreSameWidth);
+			if (fCachedLineCount >= MAX_CACHED_LINES)
+				clearCachedRuns();
+			while (fCachedRuns.size() <= line)
+				fCachedRuns.add(null);
+			fCachedRuns.set(line, runs);
+			fCachedLineCount++;
+		}
+		return runs;
+	}
+
+	/**
+	 * Replaces the cached runs of the changed lines by unknown runs.
+	 *
+	 * @param startLine the first changed line
+	 * @param replacedLineCount the number of replaced line delimiters
+	 * @param newLineCount the number of inserted line delimiters
+	 * @since 3.16
+	 */
+	private void linesChanged(int startLine, int replacedLineCount, int newLineCount) {
+		if (startLine >= fCachedRuns.size())
+			return;
+
+		List<WhitespaceRuns> replaced= fCachedRuns.subList(startLine, Math.min(fCachedRuns.size(), startLine + replacedLineCount + 1));
+		for (WhitespaceRuns runs : replaced) {
+			if (runs != null)
+				fCachedLineCount--;
+		}
+		replaced.clear();
+		if (startLine < fCachedRuns.size())
+			fCachedRuns.addAll(startLine, Collections.<WhitespaceRuns>nCopies(newLineCount + 1, null));
+	}
+
+	/**
+	 * Clears the cached runs.
+	 *
+	 * @since 3.16
+	 */
+	private void clearCachedRuns() {
+		fCachedRuns.clear();
+		fCachedLineCount= 0;
+	}
+
+	/**
+	 * Sets the widget content whose changes the cached runs follow and clears the cached runs if
+	 * the content changes.
+	 *
+	 * @param content the content of the widget, or <code>null</code> to stop following the content
+	 * @since 3.16
+	 */
+	private void setContent(StyledTextContent content) {
+		if (content == fContent)
+			return;
+		if (fContent != null)
+			fContent.removeTextChangeListener(fTextChangeListener);
+		fContent= content;
+		if (fContent != null)
+			fContent.addTextChangeListener(fTextChangeListener);
+		clearCachedRuns();
+	}
+
+	/**
+	 * Computes the runs of visible characters to draw for the whitespace in the given range of a
+	 * line.
+	 *
+	 * @param lineText the text of the line including its delimiter
+	 * @param startOffsetInLine inclusive start index of the range
+	 * @param endOffsetInLine exclusive end index of the range
+	 * @param spaceCharsAreSameWidth whether or not all space chars are same width, if
+	 *            <code>true</code> runs of spaces are drawn at once
+	 * @return the runs of visible characters
+	 * @since 3.16
+	 */
+	private WhitespaceRuns computeRuns(String lineText, int startOffsetInLine, int endOffsetInLine, boolean spaceCharsAreSameWidth) {
 		int textBegin= -1;
 		for (int i= 0; i < lineText.length(); ++i) {
 			if (!isWhitespaceCharacter(lineText.charAt(i))) {
@@ -318,8 +575,9 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 			}
 		}
 
-		StyleRange styleRange= null;
-		Color fg= null;
+		List<Integer> offsets= new ArrayList<>();
+		List<String> characters= new ArrayList<>();
+		List<Boolean> lineEnds= new ArrayList<>();
 		StringBuilder visibleChar= new StringBuilder(10);
 		int delta= 0;
 		for (int textOffset= startOffsetInLine; textOffset <= endOffsetInLine; ++textOffset) {
@@ -348,8 +606,9 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 						}
 						// 'continue' improves performance but may produce drawing errors
 						// for long runs of space if width of space and dot differ, therefore
-						// it can be used only for monospace fonts
-						if (spaceCharsAreSameWidth) {
+						// it can be used only for monospace fonts. A hidden space must not start
+						// a run, the next visible character would be drawn at its offset
+						if (spaceCharsAreSameWidth && visibleChar.length() > 0) {
 							continue;
 						}
 						break;
@@ -373,8 +632,9 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 						}
 						// 'continue' improves performance but may produce drawing errors
 						// for long runs of space if width of space and dot differ, therefore
-						// it can be used only for monospace fonts
-						if (spaceCharsAreSameWidth) {
+						// it can be used only for monospace fonts. A hidden space must not start
+						// a run, the next visible character would be drawn at its offset
+						if (spaceCharsAreSameWidth && visibleChar.length() > 0) {
 							continue;
 						}
 						break;
@@ -417,42 +677,22 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 				}
 			}
 			if (visibleChar.length() > 0) {
-				int widgetOffset= startOffset + textOffset - startOffsetInLine - delta + 1;
-				if (!eol || !isFoldedLine(content.getLineAtOffset(widgetOffset))) {
-					/*
-					 * Block selection is drawn using alpha and no selection-inverting
-					 * takes place, we always draw as 'unselected' in block selection mode.
-					 */
-					if (!fTextWidget.getBlockSelection() && fIsFullSelectionStyle && isOffsetSelected(fTextWidget, widgetOffset)) {
-						fg= fTextWidget.getSelectionForeground();
-					} else if (styleRange == null || styleRange.start + styleRange.length <= widgetOffset) {
-						styleRange= fTextWidget.getStyleRangeAtOffset(widgetOffset);
-						if (styleRange == null || styleRange.foreground == null) {
-							fg= fTextWidget.getForeground();
-						} else {
-							fg= styleRange.foreground;
-						}
-					}
-					draw(gc, widgetOffset, visibleChar.toString(), fg);
-				}
+				offsets.add(Integer.valueOf(textOffset - delta + 1));
+				characters.add(visibleChar.toString());
+				lineEnds.add(Boolean.valueOf(eol));
 				visibleChar.delete(0, visibleChar.length());
 			}
 			delta= 0;
 		}
-	}
 
-	/**
-	 * Returns <code>true</code> if <code>offset</code> is selection in <code>widget</code>,
-	 * <code>false</code> otherwise.
-	 *
-	 * @param widget the widget
-	 * @param offset the offset
-	 * @return <code>true</code> if <code>offset</code> is selection, <code>false</code> otherwise
-	 * @since 3.5
-	 */
-	private static final boolean isOffsetSelected(StyledText widget, int offset) {
-		Point selection= widget.getSelection();
-		return offset >= selection.x && offset < selection.y;
+		int count= offsets.size();
+		int[] runOffsets= new int[count];
+		boolean[] runLineEnds= new boolean[count];
+		for (int i= 0; i < count; i++) {
+			runOffsets[i]= offsets.get(i).intValue();
+			runLineEnds[i]= lineEnds.get(i).booleanValue();
+		}
+		return new WhitespaceRuns(runOffsets, characters.toArray(new String[count]), runLineEnds);
 	}
 
 	/**
@@ -478,24 +718,4 @@ public class WhitespaceCharacterPainter implements IPainter, PaintListener {
 		fTextWidget.redraw();
 	}
 
-	/**
-	 * Draw string at widget offset.
-	 *
-	 * @param gc the GC
-	 * @param offset the widget offset
-	 * @param s the string to be drawn
-	 * @param fg the foreground color
-	 */
-	private void draw(GC gc, int offset, String s, Color fg) {
-		// Compute baseline delta (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=165640)
-		int baseline= fTextWidget.getBaseline(offset);
-		FontMetrics fontMetrics= gc.getFontMetrics();
-		int fontBaseline= fontMetrics.getAscent() + fontMetrics.getLeading();
-		int baslineDelta= baseline - fontBaseline;
-
-		Point pos= fTextWidget.getLocationAtOffset(offset);
-		gc.setForeground(fg);
-		gc.drawString(s, pos.x, pos.y + baslineDelta, true);
-	}
-
 }
@@ -96,9 +96,17 @@ public abstract class AbstractCodeMining implements ICodeMining {
 		this.label= label;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The future is created once and returned on subsequent calls. If the future has been
+	 * canceled, e.g. because the mining was scrolled out of view while it was being resolved, a
+	 * new future is created.
+	 * </p>
+	 */
 	@Override
 	public final CompletableFuture<Void> resolve(ITextViewer viewer, IProgressMonitor monitor) {
-		if (resolveFuture == null) {
+		if (resolveFuture == null || resolveFuture.isCancelled()) {
 			resolveFuture= doResolve(viewer, monitor);
 		}
 		return resolveFuture;
@@ -118,7 +126,7 @@ public abstract class AbstractCodeMining implements ICodeMining {
 
 	@Override
 	public boolean isResolved() {
-		return (resolveFuture != null && resolveFuture.isDone());
+		return (resolveFuture != null && resolveFuture.isDone() && !resolveFuture.isCancelled());
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /**
- *  Copyright (c) 2017 Angelo ZERR.
+ *  Copyright (c) 2017, 2019 Angelo ZERR.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -14,11 +14,21 @@
 package org.eclipse.jface.text.codemining;
 
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.reconciler.DirtyRegion;
 import org.eclipse.jface.text.reconciler.Reconciler;
 
 /**
  * A reconciler which update code minings.
+ * <p>
+ * The reconciler is incremental: the dirty regions of one reconcile pass are merged and passed to
+ * the viewer at once, so only the code minings of the changed lines are updated if all code mining
+ * providers implement {@link ICodeMiningProviderExtension}. Up to 3.15 the reconciler was not
+ * incremental and every pass updated all code minings; subclasses which rely on this can call
+ * {@link #setIsIncrementalReconciler(boolean)} with <code>false</code>.
+ * </p>
  *
  * @since 3.13
  */
@@ -26,8 +36,29 @@ public class CodeMiningReconciler extends Reconciler {
 
 	private CodeMiningStrategy fStrategy;
 
+	/**
+	 * The start and end offsets of the dirty regions processed in the current reconcile pass in
+	 * the document after the last processed region, or <code>-1</code> if there are none.
+	 */
+	private int fDamageStart= -1, fDamageEnd= -1;
+
+	/**
+	 * The number of dirty regions processed in the current reconcile pass.
+	 */
+	private int fRegionCount;
+
+	/**
+	 * Tells whether the dirty region queue merges regions of different document states.
+	 */
+	private boolean fIsCoalescing;
+
+	/**
+	 * Tells whether all code minings are updated at the end of the current reconcile pass.
+	 */
+	private boolean fIsFullUpdate;
+
 	public CodeMiningReconciler() {
-		super.setIsIncrementalReconciler(false);
+		super.setIsIncrementalReconciler(true);
 		fStrategy= new CodeMiningStrategy();
 		this.setReconcilingStrategy(fStrategy, IDocument.DEFAULT_CONTENT_TYPE);
 	}
@@ -44,4 +75,84 @@ public class CodeMiningReconciler extends Reconciler {
 		fStrategy.uninstall();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the queue merges regions, the merged regions of a reconcile pass no longer describe
+	 * successive document changes, and all code minings are updated after such a pass.
+	 * </p>
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public void setDirtyRegionMergeThreshold(int threshold) {
+		super.setDirtyRegionMergeThreshold(threshold);
+		fIsCoalescing= threshold >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The code minings do not depend on partitions. The dirty regions are collected until the
+	 * last one of the reconcile pass has been processed, then the code minings are updated once
+	 * for all of them.
+	 * </p>
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	protected void process(DirtyRegion dirtyRegion) {
+		if (dirtyRegion == null) {
+			fIsFullUpdate= true;
+		} else {
+			addDamage(dirtyRegion);
+		}
+		if (getDirtyRegionQueueSize() > 0) {
+			// further dirty regions of this pass follow
+			return;
+		}
+
+		boolean isFullUpdate= fIsFullUpdate || fDamageStart == -1 || fIsCoalescing && fRegionCount > 1;
+		IRegion damage= isFullUpdate ? null : new Region(fDamageStart, fDamageEnd - fDamageStart);
+		fIsFullUpdate= false;
+		fDamageStart= -1;
+		fDamageEnd= -1;
+		fRegionCount= 0;
+		if (damage != null) {
+			fStrategy.update(damage);
+		} else {
+			IDocument document= getDocument();
+			if (document != null) {
+				fStrategy.reconcile(new Region(0, document.getLength()));
+			}
+		}
+	}
+
+	/**
+	 * Adds the given dirty region to the damage of the current reconcile pass. Each dirty region
+	 * describes a change of the document after the previous one, so the damage collected so far
+	 * is first moved along with the text of the change.
+	 *
+	 * @param dirtyRegion the dirty region
+	 */
+	private void addDamage(DirtyRegion dirtyRegion) {
+		fRegionCount++;
+		int offset= dirtyRegion.getOffset();
+		boolean isInsert= DirtyRegion.INSERT.equals(dirtyRegion.getType());
+		int textLength= isInsert ? dirtyRegion.getLength() : 0;
+		int replacedLength= isInsert ? 0 : dirtyRegion.getLength();
+		if (fDamageStart == -1) {
+			fDamageStart= offset;
+			fDamageEnd= offset + textLength;
+			return;
+		}
+		int delta= textLength - replacedLength;
+		if (fDamageStart > offset)
+			fDamageStart= Math.max(offset, fDamageStart + delta);
+		if (fDamageEnd > offset)
+			fDamageEnd= Math.max(offset, fDamageEnd + delta);
+		fDamageStart= Math.min(fDamageStart, offset);
+		fDamageEnd= Math.max(fDamageEnd, offset + textLength);
+	}
+
 }
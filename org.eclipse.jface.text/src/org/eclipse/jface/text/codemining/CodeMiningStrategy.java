@@ -1,5 +1,5 @@
 /**
- *  Copyright (c) 2017 Angelo ZERR.
+ *  Copyright (c) 2017, 2019 Angelo ZERR.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -69,7 +69,19 @@ class CodeMiningStrategy implements IReconcilingStrategy, IReconcilingStrategyEx
 
 	@Override
 	public void reconcile(DirtyRegion dirtyRegion, IRegion subRegion) {
-		// Do nothing
+		update(subRegion);
+	}
+
+	/**
+	 * Updates the code minings after the given region of the document has been changed.
+	 *
+	 * @param damage the changed region of the document
+	 * @since 3.16
+	 */
+	void update(IRegion damage) {
+		if (fViewer != null) {
+			fViewer.updateCodeMinings(damage);
+		}
 	}
 
 }
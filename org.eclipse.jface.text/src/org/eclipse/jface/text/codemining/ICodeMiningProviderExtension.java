@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.codemining;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextViewer;
+
+/**
+ * Extension interface for {@link ICodeMiningProvider}.
+ * <p>
+ * Adds the ability to compute the code minings of a part of the document only. When the document
+ * has been changed and all code mining providers of a viewer implement this interface, only the
+ * code minings of the changed lines are recomputed; the code minings of all other lines are kept
+ * as they are and are neither resolved nor drawn again.
+ * </p>
+ *
+ * @see ICodeMiningProvider
+ * @since 3.16
+ */
+public interface ICodeMiningProviderExtension {
+
+	/**
+	 * Computes the code minings {@link ICodeMining} located in the given region of the viewer's
+	 * document. The region always covers complete lines. Code minings located outside of the
+	 * region are kept by the caller, so they must not be returned. The same rules as for
+	 * {@link ICodeMiningProvider#provideCodeMinings(ITextViewer, IProgressMonitor)} apply.
+	 *
+	 * @param viewer the viewer in which the command was invoked.
+	 * @param region the region of the document for which code minings are requested.
+	 * @param monitor A progress monitor.
+	 * @return An array of future of code minings that resolves to such. The lack of a result can be
+	 *         signaled by returning null, or an empty array.
+	 */
+	CompletableFuture<List<? extends ICodeMining>> provideCodeMinings(ITextViewer viewer, IRegion region, IProgressMonitor monitor);
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016 Red Hat Inc. and others.
+ * Copyright (c) 2016, 2019 Red Hat Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,7 +21,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -54,9 +56,42 @@ import org.eclipse.jface.text.TextUtilities;
  */
 class AsyncCompletionProposalPopup extends CompletionProposalPopup {
 
-	private static final int MAX_WAIT_IN_MS= 50; // TODO make it a preference
 	private List<CompletableFuture<List<ICompletionProposal>>> fFutures;
 
+	/**
+	 * Computes the proposals of a processor on the executor of the content assistant. If the
+	 * computation is canceled before it has started, the processor is not called at all; if it is
+	 * canceled while running, its result is discarded. The computing thread is never interrupted,
+	 * as processors do not expect to be interrupted.
+	 *
+	 * @since 3.16
+	 */
+	private final class ProcessorTask extends CompletableFuture<List<ICompletionProposal>> implements Runnable {
+
+		private final IContentAssistProcessor fProcessor;
+		private final int fOffset;
+		/** The time in milliseconds to wait for this task before presenting the proposals. */
+		final int fDeadline;
+
+		ProcessorTask(IContentAssistProcessor processor, int invocationOffset) {
+			fProcessor= processor;
+			fOffset= invocationOffset;
+			fDeadline= fContentAssistant.getProposalComputationDeadline(processor);
+		}
+
+		@Override
+		public void run() {
+			if (isDone())
+				return;
+			complete(computeProposals(fProcessor, fOffset));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return super.cancel(false);
+		}
+	}
+
 	private static final class ComputingProposal implements ICompletionProposal, ICompletionProposalExtension {
 
 		private final int fOffset;
@@ -156,6 +191,7 @@ class AsyncCompletionProposalPopup extends CompletionProposalPopup {
 			fFilterOffset= fInvocationOffset;
 			fLastCompletionOffset= fFilterOffset;
 			// start invocation of processors as Futures, and make them populate the proposals upon completion
+			cancelFutures();
 			fFutures= buildCompletionFuturesOrJobs(fInvocationOffset);
 			runFutures(fInvocationOffset, null, true, autoActivated, true);
 		} else {
@@ -181,21 +217,22 @@ class AsyncCompletionProposalPopup extends CompletionProposalPopup {
 		}
 
 		long requestBeginningTimestamp= System.currentTimeMillis();
-		long stillRemainingThreeshold= MAX_WAIT_IN_MS;
-		for (CompletableFuture<?> future : populateFutures) {
+		boolean allDone= true;
+		for (int i= 0; i < populateFutures.size(); i++) {
+			CompletableFuture<Void> future= populateFutures.get(i);
+			// wait for each processor until its deadline has passed
+			long stillRemainingThreeshold= getDeadline(fFutures.get(i)) - (System.currentTimeMillis() - requestBeginningTimestamp);
 			try {
-				future.get(stillRemainingThreeshold, TimeUnit.MILLISECONDS);
+				if (stillRemainingThreeshold > 0) {
+					future.get(stillRemainingThreeshold, TimeUnit.MILLISECONDS);
+				}
 			} catch (TimeoutException | ExecutionException | InterruptedException ex) {
 				// future failed or took more time than we want to wait
 			}
-			stillRemainingThreeshold= MAX_WAIT_IN_MS - (System.currentTimeMillis() - requestBeginningTimestamp);
-			if (stillRemainingThreeshold < 0) {
-				// we already spent too much time (more than MAX_WAIT_IN_MS), stop waiting.
-				break;
-			}
+			allDone&= future.isDone();
 		}
 		fComputedProposals= computedProposals;
-		if (stillRemainingThreeshold > 0) { // everything ready in time, go synchronous
+		if (allDone) { // everything ready in time, go synchronous
 			int count= computedProposals.size();
 			if (count == 0 && hideWhenNoProposals(autoActivated))
 				return computedProposals;
@@ -303,7 +340,7 @@ class AsyncCompletionProposalPopup extends CompletionProposalPopup {
 	void cancelFutures() {
 		if (fFutures != null) {
 			for (Future<?> future : fFutures) {
-				future.cancel(true);
+				future.cancel(false);
 			}
 			fFutures= null;
 		}
@@ -326,6 +363,19 @@ class AsyncCompletionProposalPopup extends CompletionProposalPopup {
 		return super.computeFilteredProposals(offset, event);
 	}
 
+	@Override
+	boolean canFilterInBackground(int offset, DocumentEvent event) {
+		if (fComputedProposals != null && !fComputedProposals.isEmpty() && fComputedProposals.get(0) instanceof ComputingProposal) {
+			return false;
+		}
+		return super.canFilterInBackground(offset, event);
+	}
+
+	@Override
+	boolean canCacheRendering(ICompletionProposal proposal) {
+		return !(proposal instanceof ComputingProposal) && super.canCacheRendering(proposal);
+	}
+
 	@Override
 	public void hide() {
 		super.hide();
@@ -342,33 +392,52 @@ class AsyncCompletionProposalPopup extends CompletionProposalPopup {
 		if (processors == null) {
 			return Collections.emptyList();
 		}
+		// submit the processors with the highest priority first
+		List<IContentAssistProcessor> sortedProcessors= new ArrayList<>(processors);
+		sortedProcessors.sort((p1, p2) -> Integer.compare(fContentAssistant.getProposalComputationPriority(p2), fContentAssistant.getProposalComputationPriority(p1)));
+		Executor executor= fContentAssistant.getProposalComputationExecutor();
 		List<CompletableFuture<List<ICompletionProposal>>> futures = new ArrayList<>(processors.size());
-		for (IContentAssistProcessor processor : processors) {
-			futures.add(CompletableFuture.supplyAsync(() -> {
-				AtomicReference<List<ICompletionProposal>> result= new AtomicReference<>();
-				SafeRunner.run(new ISafeRunnable() {
-					@Override
-					public void run() throws Exception {
-						ICompletionProposal[] proposals= processor.computeCompletionProposals(fViewer, invocationOffset);
-						if (proposals == null) {
-							result.set(Collections.emptyList());
-						} else {
-							result.set(Arrays.asList(proposals));
-						}
-					}
-				});
-				List<ICompletionProposal> proposals= result.get();
-				if (proposals == null) { // an error occurred during computeCompletionProposal,
-					// possible improvement: give user feedback by returning an error "proposal" shown
-					// in completion popup and providing details
-					return Collections.emptyList();
-				}
-				return proposals;
-			}));
+		for (IContentAssistProcessor processor : sortedProcessors) {
+			ProcessorTask task= new ProcessorTask(processor, invocationOffset);
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.complete(Collections.emptyList());
+			}
+			futures.add(task);
 		}
 		return futures;
 	}
 
+	private List<ICompletionProposal> computeProposals(IContentAssistProcessor processor, int invocationOffset) {
+		AtomicReference<List<ICompletionProposal>> result= new AtomicReference<>();
+		SafeRunner.run(new ISafeRunnable() {
+			@Override
+			public void run() throws Exception {
+				ICompletionProposal[] proposals= fContentAssistant.computeCompletionProposals(processor, fViewer, invocationOffset);
+				if (proposals == null) {
+					result.set(Collections.emptyList());
+				} else {
+					result.set(Arrays.asList(proposals));
+				}
+			}
+		});
+		List<ICompletionProposal> proposals= result.get();
+		if (proposals == null) { // an error occurred during computeCompletionProposal,
+			// possible improvement: give user feedback by returning an error "proposal" shown
+			// in completion popup and providing details
+			return Collections.emptyList();
+		}
+		return proposals;
+	}
+
+	private int getDeadline(CompletableFuture<List<ICompletionProposal>> future) {
+		if (future instanceof ProcessorTask) {
+			return ((ProcessorTask) future).fDeadline;
+		}
+		return ContentAssistant.DEFAULT_PROPOSAL_COMPUTATION_DEADLINE;
+	}
+
 	private String getTokenContentType(int invocationOffset) throws BadLocationException {
 		if (fContentAssistSubjectControl != null) {
 			IDocument document= fContentAssistSubjectControl.getDocument();
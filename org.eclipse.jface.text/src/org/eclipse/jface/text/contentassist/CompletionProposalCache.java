@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.contentassist;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.TextUtilities;
+
+
+/**
+ * Remembers the proposals most recently computed by each {@link IContentAssistProcessorExtension
+ * cache-safe} processor, so that invoking content assist again at the same location or after
+ * typing further characters of the same prefix re-filters the remembered proposals instead of
+ * computing them again.
+ * <p>
+ * A remembered result is keyed by the modification stamp of the document, the start of the prefix
+ * and the content type at that offset. Typing or deleting characters after the original
+ * invocation offset keeps the result valid, any other change of the document discards it.
+ * </p>
+ * <p>
+ * The cache is connected to the document of the content assistant in the UI thread, whereas
+ * proposals may be looked up and stored in any thread.
+ * </p>
+ *
+ * @since 3.16
+ */
+final class CompletionProposalCache implements IDocumentListener {
+
+	/**
+	 * The proposals computed by a processor.
+	 */
+	private static class Entry {
+
+		/** The content type at the start of the prefix. */
+		final String fContentType;
+		/** The start of the prefix the proposals have been computed for. */
+		final int fPrefixStart;
+		/** The offset for which the proposals have been computed. */
+		final int fInvocationOffset;
+		/** The end of the prefix, updated while characters are typed after the invocation offset. */
+		int fPrefixEnd;
+		/** The modification stamp of the document which the entry is valid for. */
+		long fModificationStamp;
+		/** The computed proposals. */
+		final ICompletionProposal[] fProposals;
+
+		Entry(String contentType, int prefixStart, int invocationOffset, long modificationStamp, ICompletionProposal[] proposals) {
+			fContentType= contentType;
+			fPrefixStart= prefixStart;
+			fInvocationOffset= invocationOffset;
+			fPrefixEnd= invocationOffset;
+			fModificationStamp= modificationStamp;
+			fProposals= proposals;
+		}
+	}
+
+	/** The connected document, or <code>null</code>. */
+	private IDocument fDocument;
+	/** The remembered proposals by processor. */
+	private final Map<IContentAssistProcessor, Entry> fEntries= new IdentityHashMap<>();
+	/** The number of proposal computations that could be answered from this cache. */
+	private int fHitCount;
+	/** The number of proposal computations that could not be answered from this cache. */
+	private int fMissCount;
+
+	/**
+	 * Connects this cache to the given document. Must be called in the UI thread.
+	 *
+	 * @param document the document, may be <code>null</code>
+	 */
+	void connect(IDocument document) {
+		synchronized (this) {
+			if (document == fDocument)
+				return;
+		}
+		disconnect();
+		if (document instanceof IDocumentExtension4) {
+			document.addDocumentListener(this);
+			synchronized (this) {
+				fDocument= document;
+			}
+		}
+	}
+
+	/**
+	 * Disconnects this cache from its document and discards all remembered proposals. Must be
+	 * called in the UI thread.
+	 */
+	void disconnect() {
+		IDocument document;
+		synchronized (this) {
+			document= fDocument;
+			fDocument= null;
+			fEntries.clear();
+		}
+		if (document != null)
+			document.removeDocumentListener(this);
+	}
+
+	/**
+	 * Discards all remembered proposals.
+	 */
+	synchronized void clear() {
+		fEntries.clear();
+	}
+
+	/**
+	 * Returns the proposals of the given processor for the given offset. The proposals are taken
+	 * from this cache if possible, otherwise they are computed by the processor and remembered if
+	 * the processor is cache-safe and all its proposals support filtering.
+	 *
+	 * @param processor the processor
+	 * @param viewer the viewer for which to compute the proposals
+	 * @param offset a document offset
+	 * @param partitioning the document partitioning
+	 * @return the proposals or <code>null</code> if no proposals are possible
+	 */
+	ICompletionProposal[] computeCompletionProposals(IContentAssistProcessor processor, ITextViewer viewer, int offset, String partitioning) {
+		if (!(processor instanceof IContentAssistProcessorExtension))
+			return processor.computeCompletionProposals(viewer, offset);
+
+		IDocument document= viewer.getDocument();
+		long modificationStamp;
+		synchronized (this) {
+			if (document == null || document != fDocument)
+				return processor.computeCompletionProposals(viewer, offset);
+			modificationStamp= ((IDocumentExtension4) document).getModificationStamp();
+		}
+
+		int prefixStart= ((IContentAssistProcessorExtension) processor).getPrefixStart(viewer, offset);
+		if (prefixStart < 0 || prefixStart > offset)
+			return processor.computeCompletionProposals(viewer, offset);
+
+		String contentType;
+		try {
+			contentType= TextUtilities.getContentType(document, partitioning, prefixStart, true);
+		} catch (BadLocationException e) {
+			return processor.computeCompletionProposals(viewer, offset);
+		}
+
+		Entry entry;
+		synchronized (this) {
+			entry= fEntries.get(processor);
+			if (entry != null && (entry.fModificationStamp != modificationStamp || entry.fPrefixStart != prefixStart || !entry.fContentType.equals(contentType)
+					|| offset < entry.fInvocationOffset || offset > entry.fPrefixEnd))
+				entry= null;
+		}
+		if (entry != null) {
+			List<ICompletionProposal> filtered= filter(entry.fProposals, document, offset);
+			if (filtered != null) {
+				synchronized (this) {
+					fHitCount++;
+				}
+				return filtered.isEmpty() ? null : filtered.toArray(new ICompletionProposal[filtered.size()]);
+			}
+		}
+
+		synchronized (this) {
+			fMissCount++;
+		}
+		ICompletionProposal[] proposals= processor.computeCompletionProposals(viewer, offset);
+		if (proposals != null && canFilter(proposals)) {
+			synchronized (this) {
+				if (document == fDocument && ((IDocumentExtension4) document).getModificationStamp() == modificationStamp)
+					fEntries.put(processor, new Entry(contentType, prefixStart, offset, modificationStamp, proposals.clone()));
+			}
+		}
+		return proposals;
+	}
+
+	/**
+	 * Returns the number of proposal computations which have been answered from this cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	synchronized int getHitCount() {
+		return fHitCount;
+	}
+
+	/**
+	 * Returns the number of proposal computations of cache-safe processors which could not be
+	 * answered from this cache.
+	 *
+	 * @return the number of cache misses
+	 */
+	synchronized int getMissCount() {
+		return fMissCount;
+	}
+
+	@Override
+	public void documentAboutToBeChanged(DocumentEvent event) {
+	}
+
+	@Override
+	public synchronized void documentChanged(DocumentEvent event) {
+		if (fEntries.isEmpty())
+			return;
+		long modificationStamp= ((IDocumentExtension4) event.getDocument()).getModificationStamp();
+		int delta= (event.getText() == null ? 0 : event.getText().length()) - event.getLength();
+		for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+			Entry entry= iter.next();
+			if (event.getOffset() >= entry.fInvocationOffset && event.getOffset() + event.getLength() <= entry.fPrefixEnd) {
+				// characters typed or deleted after the invocation offset
+				entry.fPrefixEnd+= delta;
+				entry.fModificationStamp= modificationStamp;
+			} else {
+				iter.remove();
+			}
+		}
+	}
+
+	private static boolean canFilter(ICompletionProposal[] proposals) {
+		for (ICompletionProposal proposal : proposals) {
+			if (!(proposal instanceof ICompletionProposalExtension2) && !(proposal instanceof ICompletionProposalExtension))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the given proposals which are valid for the given offset.
+	 *
+	 * @param proposals the proposals
+	 * @param document the document
+	 * @param offset the offset
+	 * @return the valid proposals or <code>null</code> if the proposals could not be filtered
+	 */
+	private static List<ICompletionProposal> filter(ICompletionProposal[] proposals, IDocument document, int offset) {
+		List<ICompletionProposal> filtered= new ArrayList<>(proposals.length);
+		for (ICompletionProposal proposal : proposals) {
+			try {
+				if (proposal instanceof ICompletionProposalExtension2) {
+					if (((ICompletionProposalExtension2) proposal).validate(document, offset, null))
+						filtered.add(proposal);
+				} else if (((ICompletionProposalExtension) proposal).isValidFor(document, offset)) {
+					filtered.add(proposal);
+				}
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+		return filtered;
+	}
+}
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.contentassist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.Assert;
+
+
+/**
+ * Matches the strings of a fixed set of completion proposals against the prefix typed by the
+ * user. A string matches a pattern if it starts with the pattern, if the pattern matches its
+ * camel case humps, or if it contains the characters of the pattern in order; all comparisons
+ * ignore case.
+ * <p>
+ * For each string, a bit mask of the contained characters is computed once, so most strings
+ * which cannot match are rejected without looking at their characters. The matches of each
+ * pattern are remembered: if the user types further characters, only the strings that matched
+ * the shorter pattern are considered again, and deleting characters returns the remembered
+ * matches of the shorter pattern.
+ * </p>
+ * <p>
+ * A processor opts into fast filtering by creating one matcher for the strings of all the
+ * proposals it computes and by letting the proposals delegate
+ * {@link ICompletionProposalExtension2#validate(org.eclipse.jface.text.IDocument, int, org.eclipse.jface.text.DocumentEvent)}
+ * to {@link #matches(int, String)} with their index. Then only the first proposal that is
+ * validated for a new prefix pays for the matching.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.16
+ */
+public final class CompletionProposalMatcher {
+
+	/** Score of strings that start with the pattern in the same case. */
+	public static final int PREFIX_MATCH= 3 << 16;
+	/** Score of strings that start with the pattern ignoring case. */
+	public static final int PREFIX_IGNORE_CASE_MATCH= 2 << 16;
+	/** Score of strings whose camel case humps match the pattern. */
+	public static final int CAMEL_CASE_MATCH= 1 << 16;
+	/** Score of strings which contain the characters of the pattern in order. */
+	public static final int SUBSEQUENCE_MATCH= 0;
+	/** Score of strings which do not match the pattern. */
+	public static final int NO_MATCH= -1;
+
+	/** The maximal number of remembered patterns. */
+	private static final int MAX_LEVELS= 32;
+
+	/**
+	 * The strings matching a pattern.
+	 */
+	private static final class Level {
+		/** The pattern. */
+		final String fPattern;
+		/** The ascending indices of the matching strings. */
+		final int[] fIndices;
+		/** The scores of the matching strings, in the order of {@link #fIndices}. */
+		final int[] fScores;
+
+		Level(String pattern, int[] indices, int[] scores) {
+			fPattern= pattern;
+			fIndices= indices;
+			fScores= scores;
+		}
+	}
+
+	/** The strings to match. */
+	private final String[] fStrings;
+	/** The character masks of the strings. */
+	private final long[] fMasks;
+	/** The remembered matches, each pattern extends the pattern of the previous level. */
+	private final List<Level> fLevels= new ArrayList<>();
+
+
+	/**
+	 * Creates a new matcher for the given strings.
+	 *
+	 * @param strings the strings to match, usually the display strings of the proposals
+	 */
+	public CompletionProposalMatcher(String[] strings) {
+		Assert.isNotNull(strings);
+		fStrings= strings.clone();
+		fMasks= new long[strings.length];
+		for (int i= 0; i < strings.length; i++)
+			fMasks[i]= mask(strings[i]);
+	}
+
+	/**
+	 * Returns the number of strings of this matcher.
+	 *
+	 * @return the number of strings
+	 */
+	public int size() {
+		return fStrings.length;
+	}
+
+	/**
+	 * Tells whether the string with the given index matches the given pattern.
+	 *
+	 * @param index the index of the string
+	 * @param pattern the pattern, usually the prefix typed by the user
+	 * @return <code>true</code> if the string matches
+	 */
+	public boolean matches(int index, String pattern) {
+		return getScore(index, pattern) != NO_MATCH;
+	}
+
+	/**
+	 * Returns the score of the string with the given index for the given pattern. Better matches
+	 * have higher scores.
+	 *
+	 * @param index the index of the string
+	 * @param pattern the pattern, usually the prefix typed by the user
+	 * @return the score, or {@link #NO_MATCH} if the string does not match
+	 */
+	public int getScore(int index, String pattern) {
+		Level level= getLevel(pattern);
+		int i= Arrays.binarySearch(level.fIndices, index);
+		return i < 0 ? NO_MATCH : level.fScores[i];
+	}
+
+	/**
+	 * Returns the indices of the strings matching the given pattern, ordered by descending score
+	 * and then by ascending index.
+	 *
+	 * @param pattern the pattern, usually the prefix typed by the user
+	 * @return the indices of the matching strings
+	 */
+	public int[] getMatches(String pattern) {
+		Level level= getLevel(pattern);
+		int count= level.fIndices.length;
+		long[] keys= new long[count];
+		for (int i= 0; i < count; i++) {
+			// descending score, then ascending index
+			keys[i]= ((long) (Integer.MAX_VALUE - level.fScores[i]) << 32) | level.fIndices[i];
+		}
+		Arrays.sort(keys);
+		int[] matches= new int[count];
+		for (int i= 0; i < count; i++)
+			matches[i]= (int) keys[i];
+		return matches;
+	}
+
+	private synchronized Level getLevel(String pattern) {
+		Assert.isNotNull(pattern);
+
+		// find the longest remembered pattern the given one extends
+		int depth= fLevels.size();
+		while (depth > 0 && !pattern.startsWith(fLevels.get(depth - 1).fPattern))
+			depth--;
+		if (depth > 0) {
+			Level level= fLevels.get(depth - 1);
+			if (level.fPattern.length() == pattern.length())
+				return level;
+		}
+		fLevels.subList(depth, fLevels.size()).clear();
+
+		Level level= depth > 0 ? match(pattern, fLevels.get(depth - 1).fIndices) : match(pattern, null);
+		if (fLevels.size() == MAX_LEVELS)
+			fLevels.remove(0);
+		fLevels.add(level);
+		return level;
+	}
+
+	/**
+	 * Matches the given pattern against the given strings.
+	 *
+	 * @param pattern the pattern
+	 * @param candidates the ascending indices of the strings to consider, or <code>null</code>
+	 *            to consider all strings
+	 * @return the matches
+	 */
+	private Level match(String pattern, int[] candidates) {
+		int count= candidates == null ? fStrings.length : candidates.length;
+		long patternMask= mask(pattern);
+		int[] indices= new int[count];
+		int[] scores= new int[count];
+		int matches= 0;
+		for (int i= 0; i < count; i++) {
+			int index= candidates == null ? i : candidates[i];
+			if ((patternMask & ~fMasks[index]) != 0)
+				continue;
+			int score= computeScore(fStrings[index], pattern);
+			if (score != NO_MATCH) {
+				indices[matches]= index;
+				scores[matches]= score;
+				matches++;
+			}
+		}
+		return new Level(pattern, Arrays.copyOf(indices, matches), Arrays.copyOf(scores, matches));
+	}
+
+	/**
+	 * Computes the score of the given string for the given pattern.
+	 *
+	 * @param string the string
+	 * @param pattern the pattern
+	 * @return the score, or {@link #NO_MATCH} if the string does not match
+	 */
+	static int computeScore(String string, String pattern) {
+		if (string.startsWith(pattern))
+			return PREFIX_MATCH + bonus(string, pattern);
+		if (startsWithIgnoreCase(string, pattern))
+			return PREFIX_IGNORE_CASE_MATCH + bonus(string, pattern);
+		// every camel case match is a subsequence match
+		if (!subsequenceMatch(string, pattern))
+			return NO_MATCH;
+		if (camelCaseMatch(string, pattern))
+			return CAMEL_CASE_MATCH + bonus(string, pattern);
+		return SUBSEQUENCE_MATCH + bonus(string, pattern);
+	}
+
+	/**
+	 * Returns the bonus of a match within its kind of match: shorter strings are preferred.
+	 *
+	 * @param string the string
+	 * @param pattern the pattern
+	 * @return the bonus, less than <code>1 &lt;&lt; 16</code>
+	 */
+	private static int bonus(String string, String pattern) {
+		return 0xFFFF - Math.min(string.length() - pattern.length(), 0xFFFF);
+	}
+
+	/**
+	 * Tells whether the pattern matches the camel case humps of the string. Each pattern
+	 * character either continues the current hump or starts at one of the following humps.
+	 * <p>
+	 * The positions at which the matched part of the pattern can end are computed character by
+	 * character, so the time is bounded by the product of the lengths instead of growing
+	 * exponentially with the number of humps.
+	 * </p>
+	 *
+	 * @param string the string
+	 * @param pattern the pattern
+	 * @return <code>true</code> if the pattern matches
+	 */
+	private static boolean camelCaseMatch(String string, String pattern) {
+		int length= string.length();
+		// ends[i] tells whether the part of the pattern matched so far can end before position i
+		boolean[] ends= new boolean[length + 1];
+		boolean[] nextEnds= new boolean[length + 1];
+		ends[0]= true;
+		int first= 0;
+		for (int p= 0; p < pattern.length(); p++) {
+			char c= pattern.charAt(p);
+			int nextFirst= -1;
+			Arrays.fill(nextEnds, false);
+			for (int i= first; i < length; i++) {
+				// continue the current hump or start one of the humps after the first end
+				if (equalsIgnoreCase(string.charAt(i), c) && (i > 0 && ends[i] || isHumpStart(string, i))) {
+					nextEnds[i + 1]= true;
+					if (nextFirst == -1)
+						nextFirst= i + 1;
+				}
+			}
+			if (nextFirst == -1)
+				return false;
+			boolean[] swap= ends;
+			ends= nextEnds;
+			nextEnds= swap;
+			first= nextFirst;
+		}
+		return true;
+	}
+
+	private static boolean isHumpStart(String string, int index) {
+		if (index == 0)
+			return true;
+		char c= string.charAt(index);
+		char previous= string.charAt(index - 1);
+		if (Character.isUpperCase(c))
+			return !Character.isUpperCase(previous) || index + 1 < string.length() && Character.isLowerCase(string.charAt(index + 1));
+		return Character.isLetterOrDigit(c) && !Character.isLetterOrDigit(previous);
+	}
+
+	private static boolean startsWithIgnoreCase(String string, String pattern) {
+		if (string.length() < pattern.length())
+			return false;
+		for (int i= 0; i < pattern.length(); i++) {
+			if (!equalsIgnoreCase(string.charAt(i), pattern.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean subsequenceMatch(String string, String pattern) {
+		int stringIndex= 0;
+		for (int i= 0; i < pattern.length(); i++) {
+			char c= pattern.charAt(i);
+			while (stringIndex < string.length() && !equalsIgnoreCase(string.charAt(stringIndex), c))
+				stringIndex++;
+			if (stringIndex == string.length())
+				return false;
+			stringIndex++;
+		}
+		return true;
+	}
+
+	private static boolean equalsIgnoreCase(char c1, char c2) {
+		return c1 == c2 || Character.toLowerCase(c1) == Character.toLowerCase(c2);
+	}
+
+	/**
+	 * Computes the character mask of the given string. Each bit stands for a set of characters
+	 * ignoring case; a string can only match a pattern if its mask contains all bits of the mask
+	 * of the pattern.
+	 *
+	 * @param string the string
+	 * @return the character mask
+	 */
+	private static long mask(String string) {
+		long mask= 0;
+		for (int i= 0; i < string.length(); i++)
+			mask|= 1L << bit(Character.toLowerCase(string.charAt(i)));
+		return mask;
+	}
+
+	private static int bit(char c) {
+		if (c >= 'a' && c <= 'z')
+			return c - 'a';
+		if (c >= '0' && c <= '9')
+			return 26 + c - '0';
+		if (c == '_')
+			return 36;
+		return 37 + c % 27;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,7 +21,9 @@ package org.eclipse.jface.text.contentassist;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.osgi.util.TextProcessor;
 
@@ -273,6 +275,111 @@ class CompletionProposalPopup implements IContentAssistListener {
 		}
 	}
 
+	/**
+	 * The rendering of a proposal in the proposal table, remembered while the popup is open.
+	 *
+	 * @since 3.16
+	 */
+	private static final class RenderedRow {
+		/** The image of the proposal. */
+		Image fImage;
+		/**
+		 * The prefix the display string has been computed for, or <code>null</code> if the display
+		 * string does not depend on the prefix.
+		 */
+		String fPrefix;
+		/** The display string, or <code>null</code> if it has to be computed. */
+		String fDisplayString;
+		/** The style ranges of the display string, may be <code>null</code>. */
+		StyleRange[] fStyleRanges;
+	}
+
+	/**
+	 * Filters and sorts a snapshot of the proposals for a given offset. If the request is run in
+	 * a background thread, the result is applied in the UI thread unless the request has been
+	 * discarded in the meantime.
+	 *
+	 * @since 3.16
+	 */
+	private final class FilterRequest implements Runnable {
+		/** The offset to filter for. */
+		final int fOffset;
+		/** The merged document event, may be <code>null</code>. */
+		final DocumentEvent fEvent;
+		/** The document events merged into {@link #fEvent}. */
+		final List<DocumentEvent> fEvents;
+		/** The proposals to filter. */
+		final List<ICompletionProposal> fProposals;
+		/** Tells whether {@link #fProposals} are the currently displayed proposals. */
+		final boolean fIsFilteredSubset;
+		private final IDocument fDocument;
+		private final ICompletionProposalSorter fSorter;
+		private final Display fDisplay;
+		/** Set when the result of this request is no longer needed. */
+		volatile boolean fCanceled;
+		/** Set when this request has been computed in the background. */
+		volatile boolean fDone;
+		/**
+		 * The filtered and sorted proposals, or <code>null</code> if one of the proposals does
+		 * not support filtering.
+		 */
+		volatile List<ICompletionProposal> fResult;
+
+		FilterRequest(int offset, DocumentEvent event, List<DocumentEvent> events, List<ICompletionProposal> proposals, boolean isFilteredSubset) {
+			fOffset= offset;
+			fEvent= event;
+			fEvents= new ArrayList<>(events);
+			fProposals= new ArrayList<>(proposals);
+			fIsFilteredSubset= isFilteredSubset;
+			fDocument= fContentAssistSubjectControlAdapter.getDocument();
+			fSorter= CompletionProposalPopup.this.fSorter;
+			fDisplay= fContentAssistSubjectControlAdapter.getControl().getDisplay();
+		}
+
+		@Override
+		public void run() {
+			synchronized (this) {
+				if (fCanceled)
+					return;
+				List<ICompletionProposal> result= compute(true);
+				if (fCanceled)
+					return;
+				fResult= result;
+				fDone= true;
+			}
+			if (!fDisplay.isDisposed())
+				fDisplay.asyncExec(() -> filterRequestDone(this));
+		}
+
+		/**
+		 * Cancels this request and waits until its computation in the background, if any, has
+		 * stopped. The proposals are therefore never validated by two threads at the same time.
+		 *
+		 * @return <code>true</code> if the request had already been computed
+		 */
+		boolean cancel() {
+			fCanceled= true;
+			synchronized (this) {
+				return fDone;
+			}
+		}
+
+		/**
+		 * Filters and sorts the proposals.
+		 *
+		 * @param cancelable <code>true</code> if the computation should stop once the request has
+		 *            been canceled
+		 * @return the filtered and sorted proposals, or <code>null</code> if one of the
+		 *         proposals does not support filtering
+		 */
+		List<ICompletionProposal> compute(boolean cancelable) {
+			List<ICompletionProposal> filtered= filter(fProposals, fDocument, fOffset, fEvent, cancelable ? this : null);
+			if (filtered != null && fSorter != null && !(cancelable && fCanceled))
+				filtered.sort(fSorter::compare);
+			return filtered;
+		}
+	}
+
 
 	/** The associated text viewer. */
 	ITextViewer fViewer;
@@ -351,6 +458,7 @@ class CompletionProposalPopup implements IContentAssistListener {
 				return;
 
 			fIsFilterPending= false;
+			discardFilterRequest();
 
 			if (!Helper.okToUse(fContentAssistSubjectControlAdapter.getControl()))
 				return;
@@ -361,29 +469,17 @@ class CompletionProposalPopup implements IContentAssistListener {
 			try {
 				if (offset > -1) {
 					event= TextUtilities.mergeProcessedDocumentEvents(fDocumentEvents);
+					if (fContentAssistant.isBackgroundFilteringEnabled() && canFilterInBackground(offset, event)) {
+						filterInBackground(offset, event);
+						return;
+					}
 					proposals= computeFilteredProposals(offset, event);
 				}
 			} catch (BadLocationException x) {
 			} finally {
 				fDocumentEvents.clear();
 			}
-			fFilterOffset= offset;
-
-			if (proposals != null && !proposals.isEmpty())
-				setProposals(proposals, fIsFilteredSubset);
-			else {
-				hide();
-				if (fContentAssistant.isAutoActivation() && offset > 0 && event != null) {
-					try {
-						char charBeforeOffset= event.getDocument().getChar(offset - 1);
-						if (fContentAssistant.isAutoActivationTriggerChar(charBeforeOffset)) {
-							fContentAssistant.fireSessionBeginEvent(true);
-							showProposals(true);
-						}
-					} catch (BadLocationException e) {
-					}
-				}
-			}
+			applyFilteredProposals(offset, event, proposals, fIsFilteredSubset);
 		}
 	};
 	/**
@@ -393,6 +489,47 @@ class CompletionProposalPopup implements IContentAssistListener {
 	 * @since 3.1.1
 	 */
 	private boolean fIsFilterPending= false;
+	/**
+	 * The minimal number of proposals that are filtered in a background thread if background
+	 * filtering is enabled.
+	 *
+	 * @since 3.16
+	 */
+	private static final int BACKGROUND_FILTER_THRESHOLD= 200;
+	/**
+	 * The filter request running in the background, or <code>null</code> if none.
+	 *
+	 * @since 3.16
+	 */
+	private FilterRequest fFilterRequest;
+	/**
+	 * The indices of the first and the last table item whose data has been set since the table
+	 * was last refreshed. Only these items need to be cleared when the proposals change.
+	 *
+	 * @since 3.16
+	 */
+	private int fFirstSetItem= Integer.MAX_VALUE, fLastSetItem= -1;
+	/**
+	 * The renderings of the proposals which have been shown since the popup was opened. Scrolling
+	 * through the proposals or filtering them does not compute display strings and images again.
+	 *
+	 * @since 3.16
+	 */
+	private final Map<ICompletionProposal, RenderedRow> fRenderedRows= new IdentityHashMap<>();
+	/**
+	 * The offset from which the prefix of the rendered rows starts, or <code>-1</code> if not yet
+	 * known. Never greater than the invocation offset.
+	 *
+	 * @since 3.16
+	 */
+	private int fRenderAnchor= -1;
+	/**
+	 * The document content between {@link #fRenderAnchor} and the filter offset, or
+	 * <code>null</code> if it has to be computed.
+	 *
+	 * @since 3.16
+	 */
+	private String fRenderPrefix;
 	/**
 	 * The info message at the bottom of the popup, or <code>null</code> for no popup (if
 	 * ContentAssistant does not provide one).
@@ -871,46 +1008,70 @@ class CompletionProposalPopup implements IContentAssistListener {
 	 */
 	private void handleSetData(Event event) {
 		TableItem item= (TableItem) event.item;
-		int index= fProposalTable.indexOf(item);
+		int index= event.index;
 
 		if (0 <= index && index < fFilteredProposals.size()) {
 			ICompletionProposal current= fFilteredProposals.get(index);
+			fFirstSetItem= Math.min(fFirstSetItem, index);
+			fLastSetItem= Math.max(fLastSetItem, index);
 
-			String displayString;
-			StyleRange[] styleRanges= null;
-			Image image= null;
-			try {
-				if (fIsColoredLabelsSupportEnabled && current instanceof ICompletionProposalExtension7 && Helper.okToUse(fProposalShell)) {
-					BoldStylerProvider boldStylerProvider= fContentAssistant.getBoldStylerProvider();
-					if (boldStylerProvider == null) {
-						boldStylerProvider= new BoldStylerProvider(fProposalShell.getFont());
-						fContentAssistant.setBoldStylerProvider(boldStylerProvider);
-					}
-					StyledString styledString= ((ICompletionProposalExtension7) current).getStyledDisplayString(fContentAssistSubjectControlAdapter.getDocument(), fFilterOffset,
-							boldStylerProvider);
-					displayString= styledString.getString();
-					styleRanges= styledString.getStyleRanges();
-				} else if (fIsColoredLabelsSupportEnabled && current instanceof ICompletionProposalExtension6) {
-					StyledString styledString= ((ICompletionProposalExtension6) current).getStyledDisplayString();
-					displayString= styledString.getString();
-					styleRanges= styledString.getStyleRanges();
-				} else {
-					displayString= current.getDisplayString();
-				}
-			} catch (RuntimeException e) {
-				// On failures to retrieve the proposal's text, insert a dummy entry and log the error.
-				displayString= JFaceTextMessages.getString("CompletionProposalPopup.error_retrieving_proposal"); //$NON-NLS-1$
+			boolean timed= fContentAssistant.hasRenderListeners();
+			long start= timed ? System.nanoTime() : 0;
 
-				String PLUGIN_ID= "org.eclipse.jface.text"; //$NON-NLS-1$
-				ILog log= Platform.getLog(Platform.getBundle(PLUGIN_ID));
-				log.log(new Status(IStatus.ERROR, PLUGIN_ID, IStatus.OK, JFaceTextMessages.getString("CompletionProposalPopup.unexpected_error"), e)); //$NON-NLS-1$
+			boolean cacheable= canCacheRendering(current);
+			RenderedRow row= cacheable ? fRenderedRows.get(current) : null;
+			boolean cached= row != null;
+			if (row == null) {
+				row= new RenderedRow();
+				try {
+					row.fImage= current.getImage();
+				} catch (RuntimeException e) {
+					// If we are unable to retrieve the proposal's image, leave it blank.
+				}
+				if (cacheable)
+					fRenderedRows.put(current, row);
 			}
 
-			try {
-				image= current.getImage();
-			} catch (RuntimeException e) {
-				// If we are unable to retrieve the proposal's image, leave it blank.
+			String displayString= row.fDisplayString;
+			StyleRange[] styleRanges= row.fStyleRanges;
+			boolean prefixDependent= fIsColoredLabelsSupportEnabled && current instanceof ICompletionProposalExtension7;
+			String prefix= prefixDependent ? getRenderPrefix() : null;
+			if (displayString == null || prefixDependent && (prefix == null || !prefix.equals(row.fPrefix))) {
+				cached= false;
+				styleRanges= null;
+				try {
+					if (prefixDependent && Helper.okToUse(fProposalShell)) {
+						BoldStylerProvider boldStylerProvider= fContentAssistant.getBoldStylerProvider();
+						if (boldStylerProvider == null) {
+							boldStylerProvider= new BoldStylerProvider(fProposalShell.getFont());
+							fContentAssistant.setBoldStylerProvider(boldStylerProvider);
+						}
+						StyledString styledString= ((ICompletionProposalExtension7) current).getStyledDisplayString(fContentAssistSubjectControlAdapter.getDocument(), fFilterOffset,
+								boldStylerProvider);
+						displayString= styledString.getString();
+						styleRanges= styledString.getStyleRanges();
+					} else if (fIsColoredLabelsSupportEnabled && current instanceof ICompletionProposalExtension6) {
+						StyledString styledString= ((ICompletionProposalExtension6) current).getStyledDisplayString();
+						displayString= styledString.getString();
+						styleRanges= styledString.getStyleRanges();
+					} else {
+						displayString= current.getDisplayString();
+					}
+					if (prefix != null || !prefixDependent) {
+						row.fDisplayString= displayString;
+						row.fStyleRanges= styleRanges;
+						row.fPrefix= prefix;
+					}
+				} catch (RuntimeException e) {
+					// On failures to retrieve the proposal's text, insert a dummy entry and log the error.
+					displayString= JFaceTextMessages.getString("CompletionProposalPopup.error_retrieving_proposal"); //$NON-NLS-1$
+
+					String PLUGIN_ID= "org.eclipse.jface.text"; //$NON-NLS-1$
+					ILog log= Platform.getLog(Platform.getBundle(PLUGIN_ID));
+					log.log(new Status(IStatus.ERROR, PLUGIN_ID, IStatus.OK, JFaceTextMessages.getString("CompletionProposalPopup.unexpected_error"), e)); //$NON-NLS-1$
+				}
 			}
+			Image image= row.fImage;
 
 			item.setText(displayString);
 			if (fIsColoredLabelsSupportEnabled)
@@ -918,11 +1079,52 @@ class CompletionProposalPopup implements IContentAssistListener {
 
 			item.setImage(image);
 			item.setData(current);
+
+			if (timed)
+				fContentAssistant.fireRenderedEvent(current, System.nanoTime() - start, cached);
 		} else {
 			// this should not happen, but does on win32
 		}
 	}
 
+	/**
+	 * Tells whether the rendering of the given proposal may be remembered while the popup is
+	 * open. Proposals whose display string changes on its own must not be cached.
+	 *
+	 * @param proposal the proposal
+	 * @return <code>true</code> if the rendering of the proposal can be cached
+	 * @since 3.16
+	 */
+	boolean canCacheRendering(ICompletionProposal proposal) {
+		return proposal != fEmptyProposal;
+	}
+
+	/**
+	 * Returns the prefix which the rendering of proposals depending on the filter offset is keyed
+	 * by. This is the document content between the lowest offset at which the popup has been
+	 * invoked or filtered and the current filter offset; the content before that offset does not
+	 * change while the popup is open.
+	 *
+	 * @return the prefix, or <code>null</code> if the rendering must not be cached
+	 * @since 3.16
+	 */
+	private String getRenderPrefix() {
+		if (fRenderPrefix == null) {
+			int anchor= Math.min(fInvocationOffset, fFilterOffset);
+			if (fRenderAnchor == -1 || anchor < fRenderAnchor) {
+				if (fRenderAnchor != -1)
+					fRenderedRows.clear();
+				fRenderAnchor= anchor;
+			}
+			try {
+				fRenderPrefix= fContentAssistSubjectControlAdapter.getDocument().get(fRenderAnchor, fFilterOffset - fRenderAnchor);
+			} catch (BadLocationException | RuntimeException e) {
+				return null;
+			}
+		}
+		return fRenderPrefix;
+	}
+
 	/**
 	 * Returns the proposal selected in the proposal selector.
 	 *
@@ -935,6 +1137,8 @@ class CompletionProposalPopup implements IContentAssistListener {
 		 */
 		if (fIsFilterPending)
 			fFilterRunnable.run();
+		if (fFilterRequest != null)
+			applyFilterRequest(fFilterRequest);
 
 		// filter runnable may have hidden the proposals
 		if (!Helper.okToUse(fProposalTable))
@@ -971,6 +1175,8 @@ class CompletionProposalPopup implements IContentAssistListener {
 	 */
 	void insertProposal(ICompletionProposal p, char trigger, int stateMask, final int offset) {
 
+		// applying a proposal may change its state, do not offer it again
+		fContentAssistant.clearProposalCache();
 		fInserting= true;
 		IRewriteTarget target= null;
 		IEditingSupport helper= new IEditingSupport() {
@@ -1116,6 +1322,10 @@ class CompletionProposalPopup implements IContentAssistListener {
 
 		fEmptyMessage= null;
 
+		fRenderedRows.clear();
+		fRenderAnchor= -1;
+		fRenderPrefix= null;
+
 		fLastCompletionOffset= -1;
 
 		fContentAssistant.fireSessionEndEvent();
@@ -1133,6 +1343,7 @@ class CompletionProposalPopup implements IContentAssistListener {
 				document.removeDocumentListener(fDocumentListener);
 			fDocumentListener= null;
 		}
+		discardFilterRequest();
 		fDocumentEvents.clear();
 
 		if (fKeyListener != null && fContentAssistSubjectControlAdapter.getControl() != null && !fContentAssistSubjectControlAdapter.getControl().isDisposed()) {
@@ -1196,7 +1407,13 @@ class CompletionProposalPopup implements IContentAssistListener {
 			fFilteredProposals= proposals;
 			final int newLen= proposals.size();
 
-			fProposalTable.clearAll();
+			// only items whose data has been set need to be cleared, the others are still virtual
+			int lastSetItem= Math.min(fLastSetItem, fProposalTable.getItemCount() - 1);
+			if (fFirstSetItem <= lastSetItem)
+				fProposalTable.clear(fFirstSetItem, lastSetItem);
+			fFirstSetItem= Integer.MAX_VALUE;
+			fLastSetItem= -1;
+			fRenderPrefix= null;
 			fProposalTable.setItemCount(newLen);
 
 			Point currentLocation= fProposalShell.getLocation();
@@ -1537,10 +1754,39 @@ class CompletionProposalPopup implements IContentAssistListener {
 		}
 
 		IDocument document= fContentAssistSubjectControlAdapter.getDocument();
+		List<ICompletionProposal> filtered= filter(proposals, document, offset, event, null);
+		if (filtered == null) {
+			// restore original behavior
+			fIsFilteredSubset= false;
+			fInvocationOffset= offset;
+			fContentAssistant.fireSessionRestartEvent();
+			fComputedProposals= computeProposals(fInvocationOffset);
+			return fComputedProposals;
+		}
+		return filtered;
+	}
+
+	/**
+	 * Returns the proposals which are valid for the given offset.
+	 *
+	 * @param proposals the proposals to filter
+	 * @param document the document
+	 * @param offset the offset
+	 * @param event the merged document event, may be <code>null</code>
+	 * @param request the request to check for cancellation, or <code>null</code> if filtering
+	 *            cannot be canceled
+	 * @return the valid proposals, or <code>null</code> if one of the proposals does not support
+	 *         filtering
+	 * @since 3.16
+	 */
+	private static List<ICompletionProposal> filter(List<ICompletionProposal> proposals, IDocument document, int offset, DocumentEvent event, FilterRequest request) {
 		int length= proposals.size();
 		List<ICompletionProposal> filtered= new ArrayList<>(length);
 		for (ICompletionProposal proposal : proposals) {
 
+			if (request != null && request.fCanceled)
+				return filtered;
+
 			if (proposal instanceof ICompletionProposalExtension2) {
 
 				ICompletionProposalExtension2 p= (ICompletionProposalExtension2) proposal;
@@ -1560,18 +1806,128 @@ class CompletionProposalPopup implements IContentAssistListener {
 					// Make sure that poorly behaved completion proposers do not break filtering.
 				}
 			} else {
-				// restore original behavior
-				fIsFilteredSubset= false;
-				fInvocationOffset= offset;
-				fContentAssistant.fireSessionRestartEvent();
-				fComputedProposals= computeProposals(fInvocationOffset);
-				return fComputedProposals;
+				return null;
 			}
 		}
 
 		return filtered;
 	}
 
+	/**
+	 * Tells whether the proposals can be filtered for the given offset in a background thread.
+	 * This is only worthwhile for large numbers of proposals. Proposals that must be recomputed
+	 * are always computed in the UI thread.
+	 *
+	 * @param offset the offset
+	 * @param event the merged document event
+	 * @return <code>true</code> if the proposals can be filtered in a background thread
+	 * @since 3.16
+	 */
+	boolean canFilterInBackground(int offset, DocumentEvent event) {
+		if (offset < fInvocationOffset || offset == fInvocationOffset && event == null)
+			return false;
+		List<ICompletionProposal> proposals= offset < fFilterOffset ? fComputedProposals : fFilteredProposals;
+		return proposals != null && proposals.size() >= BACKGROUND_FILTER_THRESHOLD;
+	}
+
+	/**
+	 * Filters the proposals for the given offset in a background thread. The proposals are
+	 * updated once filtering has completed, unless the request has been discarded in the
+	 * meantime.
+	 *
+	 * @param offset the offset
+	 * @param event the merged document event
+	 * @since 3.16
+	 */
+	private void filterInBackground(int offset, DocumentEvent event) {
+		boolean isFilteredSubset= offset >= fFilterOffset;
+		fFilterRequest= new FilterRequest(offset, event, fDocumentEvents, isFilteredSubset ? fFilteredProposals : fComputedProposals, isFilteredSubset);
+		fContentAssistant.getProposalComputationExecutor().execute(fFilterRequest);
+	}
+
+	/**
+	 * Called in the UI thread when the given request has been computed in the background.
+	 *
+	 * @param request the request
+	 * @since 3.16
+	 */
+	private void filterRequestDone(FilterRequest request) {
+		if (request == fFilterRequest && !fIsFilterPending && Helper.okToUse(fContentAssistSubjectControlAdapter.getControl()))
+			applyFilterRequest(request);
+	}
+
+	/**
+	 * Displays the result of the given request. If the request has not yet been computed in the
+	 * background it is computed right away.
+	 *
+	 * @param request the request
+	 * @since 3.16
+	 */
+	private void applyFilterRequest(FilterRequest request) {
+		fFilterRequest= null;
+		List<ICompletionProposal> proposals;
+		if (request.cancel())
+			proposals= request.fResult;
+		else
+			proposals= request.compute(false);
+
+		boolean isFilteredSubset= request.fIsFilteredSubset;
+		if (proposals == null) {
+			proposals= computeFilteredProposals(request.fOffset, request.fEvent);
+			isFilteredSubset= fIsFilteredSubset;
+		} else if (!proposals.isEmpty()) {
+			// the proposals have already been sorted
+			fIsInitialSort= true;
+		}
+		applyFilteredProposals(request.fOffset, request.fEvent, proposals, isFilteredSubset);
+	}
+
+	/**
+	 * Discards the filter request running in the background, if any, since the document or the
+	 * selection has changed after it has been started. The document events it was computed for
+	 * are taken into account by the next filter run. Waits until the request has stopped
+	 * validating proposals.
+	 *
+	 * @since 3.16
+	 */
+	private void discardFilterRequest() {
+		if (fFilterRequest != null) {
+			fFilterRequest.cancel();
+			fDocumentEvents.addAll(0, fFilterRequest.fEvents);
+			fFilterRequest= null;
+		}
+	}
+
+	/**
+	 * Displays the given filtered proposals or hides this popup if there are none.
+	 *
+	 * @param offset the offset for which the proposals have been filtered
+	 * @param event the merged document event, may be <code>null</code>
+	 * @param proposals the filtered proposals, may be <code>null</code>
+	 * @param isFilteredSubset <code>true</code> if the proposals are a subset of the displayed
+	 *            proposals
+	 * @since 3.16
+	 */
+	private void applyFilteredProposals(int offset, DocumentEvent event, List<ICompletionProposal> proposals, boolean isFilteredSubset) {
+		fFilterOffset= offset;
+
+		if (proposals != null && !proposals.isEmpty())
+			setProposals(proposals, isFilteredSubset);
+		else {
+			hide();
+			if (fContentAssistant.isAutoActivation() && offset > 0 && event != null) {
+				try {
+					char charBeforeOffset= event.getDocument().getChar(offset - 1);
+					if (fContentAssistant.isAutoActivationTriggerChar(charBeforeOffset)) {
+						fContentAssistant.fireSessionBeginEvent(true);
+						showProposals(true);
+					}
+				} catch (BadLocationException e) {
+				}
+			}
+		}
+	}
+
 	/**
 	 * Requests the proposal shell to take focus.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,11 +23,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Function;
 
 import org.eclipse.swt.SWT;
@@ -70,11 +74,13 @@ import org.eclipse.jface.bindings.keys.KeySequence;
 import org.eclipse.jface.contentassist.IContentAssistSubjectControl;
 import org.eclipse.jface.contentassist.ISubjectControlContentAssistProcessor;
 import org.eclipse.jface.dialogs.IDialogSettings;
+import org.eclipse.jface.internal.text.DaemonThreadFactory;
 import org.eclipse.jface.preference.JFacePreferences;
 import org.eclipse.jface.util.Geometry;
 import org.eclipse.jface.util.OpenStrategy;
 
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentExtension3;
 import org.eclipse.jface.text.IEventConsumer;
@@ -111,6 +117,14 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.4
 	 */
 	public static final String SELECT_PREVIOUS_PROPOSAL_COMMAND_ID= "org.eclipse.ui.edit.text.contentAssist.selectPreviousProposal"; //$NON-NLS-1$
+	/**
+	 * The default time in milliseconds an asynchronous content assistant waits for the proposals
+	 * of its processors.
+	 *
+	 * @see #setProposalComputationDeadline(int)
+	 * @since 3.16
+	 */
+	public static final int DEFAULT_PROPOSAL_COMPUTATION_DEADLINE= 50;
 
 
 	/**
@@ -242,17 +256,22 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	/**
 	 * An implementation of <code>IContentAssistListener</code>, this class is used to monitor
 	 * key events in support of automatic activation of the content assistant. If enabled, the
-	 * implementation utilizes a thread to watch for input characters matching the activation
-	 * characters specified by the content assist processor, and if detected, will wait the
+	 * implementation watches for input characters matching the activation characters specified
+	 * by the content assist processor, and if detected, uses a timer of the display to wait the
 	 * indicated delay interval before activating the content assistant.
 	 *
 	 * @since 3.4 protected, was added in 2.1 as private class
 	 */
 	protected class AutoAssistListener extends KeyAdapter implements Runnable, VerifyKeyListener {
 
-		private Thread fThread;
-		private boolean fIsReset= false;
-		private Object fMutex= new Object();
+		/**
+		 * The runnable scheduled with the display to show the assist once the auto activation
+		 * delay has passed, or <code>null</code> if none is scheduled. Only accessed in the UI
+		 * thread.
+		 *
+		 * @since 3.16
+		 */
+		private Runnable fTimer;
 		private int fShowStyle;
 
 		private final static int SHOW_PROPOSALS= 1;
@@ -263,42 +282,45 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 
 		protected void start(int showStyle) {
 			fShowStyle= showStyle;
-			fThread= new Thread(this, JFaceTextMessages.getString("ContentAssistant.assist_delay_timer_name")); //$NON-NLS-1$
-			fThread.start();
+			Control control= fContentAssistSubjectControlAdapter.getControl();
+			if (control == null || control.isDisposed())
+				return;
+
+			Runnable timer= new Runnable() {
+				@Override
+				public void run() {
+					// a timer that has been stopped may still be run if it was posted asynchronously
+					if (fTimer != this)
+						return;
+					fTimer= null;
+					AutoAssistListener.this.run();
+				}
+			};
+			fTimer= timer;
+			if (fAutoActivationDelay > 0)
+				control.getDisplay().timerExec(fAutoActivationDelay, timer);
+			else
+				control.getDisplay().asyncExec(timer);
 		}
 
 		@Override
 		public void run() {
-			try {
-				while (true) {
-					synchronized (fMutex) {
-						if (fAutoActivationDelay != 0)
-							fMutex.wait(fAutoActivationDelay);
-						if (fIsReset) {
-							fIsReset= false;
-							continue;
-						}
-					}
-					showAssist(fShowStyle);
-					break;
-				}
-			} catch (InterruptedException e) {
-			}
-			fThread= null;
+			showAssist(fShowStyle);
 		}
 
 		protected void reset(int showStyle) {
-			synchronized (fMutex) {
-				fShowStyle= showStyle;
-				fIsReset= true;
-				fMutex.notifyAll();
-			}
+			stop();
+			start(showStyle);
 		}
 
 		protected void stop() {
-			Thread threadToStop= fThread;
-			if (threadToStop != null && threadToStop.isAlive())
-				threadToStop.interrupt();
+			Runnable timer= fTimer;
+			if (timer != null) {
+				fTimer= null;
+				Control control= fContentAssistSubjectControlAdapter.getControl();
+				if (control != null && !control.isDisposed())
+					control.getDisplay().timerExec(-1, timer);
+			}
 		}
 
 		private boolean contains(char[] characters, char character) {
@@ -346,7 +368,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 				}
 			}
 
-			if (fThread != null && fThread.isAlive())
+			if (fTimer != null)
 				reset(showStyle);
 			else
 				start(showStyle);
@@ -1059,6 +1081,58 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 
 	private boolean fCompletionProposalTriggerCharsEnabled= true;
 
+	/**
+	 * Tells whether large proposal lists are filtered in a background thread.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fIsBackgroundFilteringEnabled;
+
+	/**
+	 * The executor computing the proposals of an asynchronous content assistant, or
+	 * <code>null</code> to use the default executor.
+	 *
+	 * @since 3.16
+	 */
+	private Executor fProposalComputationExecutor;
+
+	/**
+	 * The threads of this content assistant which compute the proposals if no executor has been
+	 * set, or <code>null</code> if they have not been created yet.
+	 *
+	 * @since 3.16
+	 */
+	private ThreadPoolExecutor fDefaultProposalComputationExecutor;
+
+	/**
+	 * The time in milliseconds an asynchronous content assistant waits for a processor before
+	 * the proposals are presented while the processor is still computing.
+	 *
+	 * @since 3.16
+	 */
+	private int fProposalComputationDeadline= DEFAULT_PROPOSAL_COMPUTATION_DEADLINE;
+
+	/**
+	 * The deadlines of the processors which do not use the default deadline.
+	 *
+	 * @since 3.16
+	 */
+	private final Map<IContentAssistProcessor, Integer> fProcessorDeadlines= new IdentityHashMap<>();
+
+	/**
+	 * The priorities of the processors which do not use the default priority <code>0</code>.
+	 *
+	 * @since 3.16
+	 */
+	private final Map<IContentAssistProcessor, Integer> fProcessorPriorities= new IdentityHashMap<>();
+
+	/**
+	 * The cache of computed proposals, or <code>null</code> if proposal caching is disabled.
+	 *
+	 * @since 3.16
+	 */
+	private CompletionProposalCache fProposalCache;
+
 	/**
 	 * Creates a new content assistant. The content assistant is not automatically activated,
 	 * overlays the completion proposals with context information list if necessary, and shows the
@@ -1184,6 +1258,179 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 		return res;
 	}
 
+	/**
+	 * Sets the executor which computes the proposals if this content assistant is asynchronous,
+	 * and which filters them if {@link #enableBackgroundFiltering(boolean) background filtering}
+	 * is enabled. By default, each content assistant uses its own bounded pool of threads, so slow
+	 * processors of one content assistant do not delay the proposals of the others.
+	 *
+	 * @param executor the executor, or <code>null</code> to use the default executor
+	 * @since 3.16
+	 */
+	public void setProposalComputationExecutor(Executor executor) {
+		fProposalComputationExecutor= executor;
+	}
+
+	/**
+	 * Returns the executor which computes the proposals if this content assistant is
+	 * asynchronous, and which filters them in the background.
+	 *
+	 * @return the executor
+	 * @since 3.16
+	 */
+	Executor getProposalComputationExecutor() {
+		if (fProposalComputationExecutor != null)
+			return fProposalComputationExecutor;
+		if (fDefaultProposalComputationExecutor == null)
+			fDefaultProposalComputationExecutor= DaemonThreadFactory.createPool("Content Assist", Thread.NORM_PRIORITY, new LinkedBlockingQueue<Runnable>()); //$NON-NLS-1$
+		return fDefaultProposalComputationExecutor;
+	}
+
+	/**
+	 * Sets the time an asynchronous content assistant waits for the proposals of its processors.
+	 * If a processor has not completed by then, the proposals computed so far are presented and
+	 * completed as the remaining processors finish. The default is
+	 * {@value #DEFAULT_PROPOSAL_COMPUTATION_DEADLINE} milliseconds.
+	 *
+	 * @param deadline the deadline in milliseconds, <code>0</code> to never wait
+	 * @see #setProposalComputationDeadline(IContentAssistProcessor, int)
+	 * @since 3.16
+	 */
+	public void setProposalComputationDeadline(int deadline) {
+		fProposalComputationDeadline= Math.max(0, deadline);
+	}
+
+	/**
+	 * Sets the time an asynchronous content assistant waits for the proposals of the given
+	 * processor. A short deadline favors latency, a long one completeness of the initially
+	 * presented proposals.
+	 *
+	 * @param processor the processor
+	 * @param deadline the deadline in milliseconds, <code>0</code> to never wait, or
+	 *            <code>-1</code> to use the deadline of this content assistant
+	 * @see #setProposalComputationDeadline(int)
+	 * @since 3.16
+	 */
+	public void setProposalComputationDeadline(IContentAssistProcessor processor, int deadline) {
+		Assert.isNotNull(processor);
+		if (deadline < 0)
+			fProcessorDeadlines.remove(processor);
+		else
+			fProcessorDeadlines.put(processor, Integer.valueOf(deadline));
+	}
+
+	/**
+	 * Returns the time an asynchronous content assistant waits for the proposals of the given
+	 * processor.
+	 *
+	 * @param processor the processor
+	 * @return the deadline in milliseconds
+	 * @since 3.16
+	 */
+	int getProposalComputationDeadline(IContentAssistProcessor processor) {
+		Integer deadline= fProcessorDeadlines.get(processor);
+		return deadline != null ? deadline.intValue() : fProposalComputationDeadline;
+	}
+
+	/**
+	 * Sets the priority of the given processor. An asynchronous content assistant submits the
+	 * computations of processors with a higher priority to its executor first. The default
+	 * priority is <code>0</code>.
+	 *
+	 * @param processor the processor
+	 * @param priority the priority
+	 * @since 3.16
+	 */
+	public void setProposalComputationPriority(IContentAssistProcessor processor, int priority) {
+		Assert.isNotNull(processor);
+		if (priority == 0)
+			fProcessorPriorities.remove(processor);
+		else
+			fProcessorPriorities.put(processor, Integer.valueOf(priority));
+	}
+
+	/**
+	 * Returns the priority of the given processor.
+	 *
+	 * @param processor the processor
+	 * @return the priority
+	 * @since 3.16
+	 */
+	int getProposalComputationPriority(IContentAssistProcessor processor) {
+		Integer priority= fProcessorPriorities.get(processor);
+		return priority != null ? priority.intValue() : 0;
+	}
+
+	/**
+	 * Sets whether the proposals computed by processors which implement
+	 * {@link IContentAssistProcessorExtension} are cached. If enabled, invoking content assist
+	 * again at the same location, or after typing further characters of the same prefix, filters
+	 * the cached proposals instead of computing them again. Cached proposals are discarded when
+	 * the document is changed in any other way.
+	 *
+	 * @param enable <code>true</code> to enable proposal caching
+	 * @since 3.16
+	 */
+	public void enableProposalCaching(boolean enable) {
+		if (enable == (fProposalCache != null))
+			return;
+		if (enable) {
+			fProposalCache= new CompletionProposalCache();
+		} else {
+			fProposalCache.disconnect();
+			fProposalCache= null;
+		}
+	}
+
+	/**
+	 * Returns whether proposal caching is enabled.
+	 *
+	 * @return <code>true</code> if proposal caching is enabled
+	 * @see #enableProposalCaching(boolean)
+	 * @since 3.16
+	 */
+	public boolean isProposalCachingEnabled() {
+		return fProposalCache != null;
+	}
+
+	/**
+	 * Returns how often the proposals of a processor have been taken from the proposal cache
+	 * since proposal caching has been enabled.
+	 *
+	 * @return the number of cache hits
+	 * @see #enableProposalCaching(boolean)
+	 * @since 3.16
+	 */
+	public int getProposalCacheHitCount() {
+		CompletionProposalCache cache= fProposalCache;
+		return cache != null ? cache.getHitCount() : 0;
+	}
+
+	/**
+	 * Returns how often the proposals of a processor which implements
+	 * {@link IContentAssistProcessorExtension} had to be computed although proposal caching is
+	 * enabled.
+	 *
+	 * @return the number of cache misses
+	 * @see #enableProposalCaching(boolean)
+	 * @since 3.16
+	 */
+	public int getProposalCacheMissCount() {
+		CompletionProposalCache cache= fProposalCache;
+		return cache != null ? cache.getMissCount() : 0;
+	}
+
+	/**
+	 * Discards the cached proposals, for example because one of them has been applied.
+	 *
+	 * @since 3.16
+	 */
+	void clearProposalCache() {
+		CompletionProposalCache cache= fProposalCache;
+		if (cache != null)
+			cache.clear();
+	}
+
 	/**
 	 * @return whether the given char is an auto-activation trigger char
 	 * @since 3.15
@@ -1259,6 +1506,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			}
 
 		} else if (fAutoAssistListener != null) {
+			fAutoAssistListener.stop();
 			// For details see https://bugs.eclipse.org/bugs/show_bug.cgi?id=49212
 			if (fContentAssistSubjectControlAdapter.supportsVerifyKeyListener())
 				fContentAssistSubjectControlAdapter.removeVerifyKeyListener(fAutoAssistListener);
@@ -1560,6 +1808,9 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	public void uninstall() {
 		hide();
 
+		if (fProposalCache != null)
+			fProposalCache.disconnect();
+
 		if (fBoldStylerProvider != null) {
 			fBoldStylerProvider.dispose();
 			fBoldStylerProvider= null;
@@ -1577,6 +1828,11 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			fCloser= null;
 		}
 
+		if (fDefaultProposalComputationExecutor != null) {
+			fDefaultProposalComputationExecutor.shutdown();
+			fDefaultProposalComputationExecutor= null;
+		}
+
 		if (Helper.okToUse(fContentAssistSubjectControlShell))
 			fContentAssistSubjectControlShell.removeTraverseListener(fCASCSTraverseListener);
 		fCASCSTraverseListener= null;
@@ -1849,6 +2105,9 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			}
 		}
 
+		if (fProposalCache != null)
+			fProposalCache.connect(fViewer != null ? fViewer.getDocument() : null);
+
 		promoteKeyListener();
 		fireSessionBeginEvent(isAutoActivated);
 		return true;
@@ -2012,7 +2271,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 				@Override
 				public void run() throws Exception {
 					processors.forEach(p -> {
-						ICompletionProposal[] proposals= p.computeCompletionProposals(viewer, offset);
+						ICompletionProposal[] proposals= computeCompletionProposals(p, viewer, offset);
 						if (proposals != null) {
 							res.addAll(Arrays.asList(proposals));
 						}
@@ -2025,6 +2284,24 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 		return res.isEmpty() ? null : res.toArray(new ICompletionProposal[res.size()]);
 	}
 
+	/**
+	 * Returns the completion proposals of the given processor for the specified document position.
+	 * If proposal caching is enabled, the proposals may be taken from the cache.
+	 *
+	 * @param processor the content assist processor
+	 * @param viewer the viewer for which to compute the proposals
+	 * @param offset a document offset
+	 * @return an array of completion proposals or <code>null</code> if no proposals are possible
+	 * @see #enableProposalCaching(boolean)
+	 * @since 3.16
+	 */
+	ICompletionProposal[] computeCompletionProposals(IContentAssistProcessor processor, ITextViewer viewer, int offset) {
+		CompletionProposalCache cache= fProposalCache;
+		if (cache == null)
+			return processor.computeCompletionProposals(viewer, offset);
+		return cache.computeCompletionProposals(processor, viewer, offset, getDocumentPartitioning());
+	}
+
 	/**
 	 * Returns an array of context information objects computed based on the specified document
 	 * position. The position is used to determine the appropriate content assist processor to
@@ -2656,6 +2933,36 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 		}
 	}
 
+	/**
+	 * Tells whether a listener wants to be notified about rendered proposals, see
+	 * {@link ICompletionListenerExtension3}.
+	 *
+	 * @return <code>true</code> if rendering should be timed
+	 * @since 3.16
+	 */
+	boolean hasRenderListeners() {
+		for (ICompletionListener listener : fCompletionListeners) {
+			if (listener instanceof ICompletionListenerExtension3)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Fires an event after rendering a proposal, see {@link ICompletionListenerExtension3}.
+	 *
+	 * @param proposal the rendered proposal
+	 * @param renderTime the render time in nanoseconds
+	 * @param cached <code>true</code> if the rendering has been taken from the cache
+	 * @since 3.16
+	 */
+	void fireRenderedEvent(ICompletionProposal proposal, long renderTime, boolean cached) {
+		for (ICompletionListener listener : fCompletionListeners) {
+			if (listener instanceof ICompletionListenerExtension3)
+				((ICompletionListenerExtension3)listener).proposalRendered(proposal, renderTime, cached);
+		}
+	}
+
 	/*
 	 * @see org.eclipse.jface.text.contentassist.IContentAssistantExtension3#setInvocationTrigger(org.eclipse.jface.bindings.keys.KeySequence)
 	 * @since 3.2
@@ -2785,6 +3092,36 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 		fCompletionProposalTriggerCharsEnabled= enable;
 	}
 
+	/**
+	 * Returns whether large proposal lists are filtered in a background thread while the user
+	 * types.
+	 *
+	 * @return <code>true</code> if proposals are filtered in a background thread
+	 * @see #enableBackgroundFiltering(boolean)
+	 * @since 3.16
+	 */
+	public boolean isBackgroundFilteringEnabled() {
+		return fIsBackgroundFilteringEnabled;
+	}
+
+	/**
+	 * Sets whether large proposal lists are filtered in a background thread while the user
+	 * types. If enabled, {@link ICompletionProposalExtension2#validate(IDocument, int, DocumentEvent)},
+	 * {@link ICompletionProposalExtension#isValidFor(IDocument, int)} and the configured
+	 * {@link ICompletionProposalSorter} may be called outside the UI thread, hence they must not
+	 * access any widgets. Results which are outdated by further typing are discarded.
+	 * <p>
+	 * Background filtering is disabled by default. The proposals are filtered by the
+	 * {@link #setProposalComputationExecutor(Executor) proposal computation executor}.
+	 * </p>
+	 *
+	 * @param enable <code>true</code> to filter proposals in a background thread
+	 * @since 3.16
+	 */
+	public void enableBackgroundFiltering(boolean enable) {
+		fIsBackgroundFilteringEnabled= enable;
+	}
+
 	boolean isAutoActivation() {
 		return fIsAutoActivated;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -34,6 +34,12 @@ package org.eclipse.jface.text.contentassist;
  * <li>additional notification after applying a proposal</li>
  * </ul>
  * </li>
+ * <li>{@link org.eclipse.jface.text.contentassist.ICompletionListenerExtension3} since version 3.16
+ * introducing the following functions:
+ * <ul>
+ * <li>additional notification after rendering a proposal in the proposal popup</li>
+ * </ul>
+ * </li>
  * </ul>
  *
  * <p>
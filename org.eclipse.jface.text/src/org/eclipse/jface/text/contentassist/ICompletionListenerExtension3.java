@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.contentassist;
+
+
+/**
+ * Extends {@link org.eclipse.jface.text.contentassist.ICompletionListener} with a notification
+ * each time a row of the proposal popup has been rendered. This is meant for measuring the cost
+ * of the styled display strings and images of proposals.
+ * <p>
+ * Clients may implement this interface.
+ * </p>
+ *
+ * @since 3.16
+ */
+public interface ICompletionListenerExtension3 {
+
+	/**
+	 * Called in the UI thread after the row of a proposal has been rendered in the proposal popup.
+	 *
+	 * @param proposal the rendered proposal
+	 * @param renderTime the time spent computing the display string, the style ranges and the
+	 *            image of the row, in nanoseconds
+	 * @param cached <code>true</code> if the row has been rendered from the values remembered
+	 *            when the proposal was last shown for the same prefix
+	 */
+	void proposalRendered(ICompletionProposal proposal, long renderTime, boolean cached);
+
+}
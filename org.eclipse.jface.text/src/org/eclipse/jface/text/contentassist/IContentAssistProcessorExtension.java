@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.contentassist;
+
+import org.eclipse.jface.text.ITextViewer;
+
+
+/**
+ * Extends {@link org.eclipse.jface.text.contentassist.IContentAssistProcessor} with
+ * the following function:
+ * <ul>
+ * <li>declares that the computed proposals may be cached and re-filtered</li>
+ * </ul>
+ * <p>
+ * A processor implementing this interface guarantees that, as long as the document is only
+ * changed by typing or deleting characters after the invocation offset, the proposals it
+ * computed for an offset, filtered with
+ * {@link ICompletionProposalExtension2#validate(org.eclipse.jface.text.IDocument, int, org.eclipse.jface.text.DocumentEvent)}
+ * or {@link ICompletionProposalExtension#isValidFor(org.eclipse.jface.text.IDocument, int)},
+ * equal the proposals it would compute for a later offset with the same prefix start. Such
+ * proposals are reused by a {@link ContentAssistant} which has proposal caching enabled.
+ * </p>
+ *
+ * @see ContentAssistant#enableProposalCaching(boolean)
+ * @since 3.16
+ */
+public interface IContentAssistProcessorExtension {
+
+	/**
+	 * Returns the start of the prefix which the proposals computed for the given offset are
+	 * filtered with, for example the start of the identifier that ends at the offset.
+	 *
+	 * @param viewer the viewer whose document is used to compute the proposals
+	 * @param offset an offset within the document for which completions should be computed
+	 * @return the start offset of the prefix, or <code>-1</code> if the proposals for the given
+	 *         offset must not be cached
+	 */
+	int getPrefixStart(ITextViewer viewer, int offset);
+
+}
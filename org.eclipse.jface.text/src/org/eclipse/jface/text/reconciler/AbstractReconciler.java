@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,12 @@
  *******************************************************************************/
 package org.eclipse.jface.text.reconciler;
 
+import java.util.concurrent.ScheduledFuture;
+
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.FocusEvent;
+import org.eclipse.swt.events.FocusListener;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -41,6 +47,15 @@ import org.eclipse.jface.text.ITextViewer;
  * <p>
  * It is subclass responsibility to specify how dirty regions are processed.
  * </p>
+ * <p>
+ * Since 3.16 the background activities of all reconcilers share a small, bounded pool of daemon
+ * threads instead of each reconciler owning a thread. The activity of a single reconciler is
+ * still run sequentially, i.e. {@link #initialProcess()} and {@link #process(DirtyRegion)} are
+ * never called concurrently for the same reconciler, but not necessarily always in the same
+ * thread. Reconcilers of the viewer whose text widget has the focus are served first. Clients
+ * should not block in {@link #process(DirtyRegion)} longer than necessary as this delays the
+ * reconcilers of other viewers.
+ * </p>
  *
  * @see org.eclipse.jface.text.IDocumentListener
  * @see org.eclipse.jface.text.ITextInputListener
@@ -51,30 +66,31 @@ abstract public class AbstractReconciler implements IReconciler {
 
 
 	/**
-	 * Background thread for the reconciling activity.
+	 * Background activity of the reconciler. The activity does not own a thread; each time
+	 * something needs to be done it is scheduled on the threads shared by all reconcilers, see
+	 * {@link ReconcilerScheduler}. At most one task of an activity is pending or running at any
+	 * time.
 	 */
-	class BackgroundThread extends Thread {
+	class BackgroundWorker {
 
 		/** Has the reconciler been canceled. */
-		private boolean fCanceled= false;
-		/** Has the reconciler been reset. */
-		private boolean fReset= false;
+		private volatile boolean fCanceled= false;
+		/** Has the background activity been started. */
+		private boolean fIsStarted= false;
+		/** Has {@link AbstractReconciler#initialProcess()} been called. */
+		private boolean fInitialProcessDone= false;
 		/** Some changes need to be processed. */
 		private boolean fIsDirty= false;
 		/** Is a reconciling strategy active. */
-		private boolean fIsActive= false;
-
-		/**
-		 * Creates a new background thread. The thread
-		 * runs with minimal priority.
-		 *
-		 * @param name the thread's name
-		 */
-		public BackgroundThread(String name) {
-			super(name);
-			setPriority(Thread.MIN_PRIORITY);
-			setDaemon(true);
-		}
+		private volatile boolean fIsActive= false;
+		/** The task that is scheduled next, or <code>null</code> if none. */
+		private ReconcilerScheduler.Task fPendingTask;
+		/** The delayed hand over of the pending task, or <code>null</code>. */
+		private ScheduledFuture<?> fPendingFuture;
+		/** The thread currently running a task of this activity, or <code>null</code>. */
+		private volatile Thread fRunningThread;
+		/** Has a task been requested while another one was running. */
+		private boolean fIsRescheduleRequested= false;
 
 		/**
 		 * Returns whether a reconciling strategy is active right now.
@@ -96,20 +112,54 @@ abstract public class AbstractReconciler implements IReconciler {
 		}
 
 		/**
-		 * Cancels the background thread.
+		 * Returns whether the background activity has been started and not yet been canceled.
+		 *
+		 * @return <code>true</code> if the background activity is alive
+		 */
+		public synchronized boolean isAlive() {
+			return fIsStarted && !fCanceled;
+		}
+
+		/**
+		 * Returns whether the current thread is running this background activity.
+		 *
+		 * @return <code>true</code> if called from this background activity
+		 */
+		public boolean isCurrentThread() {
+			return fRunningThread == Thread.currentThread();
+		}
+
+		/**
+		 * Starts the background activity. {@link AbstractReconciler#initialProcess()} is called
+		 * after the reconciler delay.
+		 */
+		public void start() {
+			synchronized (this) {
+				if (fIsStarted)
+					return;
+				fIsStarted= true;
+			}
+			schedule();
+		}
+
+		/**
+		 * Cancels the background activity.
 		 */
 		public void cancel() {
 			fCanceled= true;
 			IProgressMonitor pm= fProgressMonitor;
 			if (pm != null)
 				pm.setCanceled(true);
+			synchronized (this) {
+				cancelPendingTask();
+			}
 			synchronized (fDirtyRegionQueue) {
 				fDirtyRegionQueue.notifyAll();
 			}
 		}
 
 		/**
-		 * Suspends the caller of this method until this background thread has
+		 * Suspends the caller of this method until this background activity has
 		 * emptied the dirty region queue.
 		 */
 		public void suspendCallerWhileDirty() {
@@ -128,98 +178,158 @@ abstract public class AbstractReconciler implements IReconciler {
 		}
 
 		/**
-		 * Reset the background thread as the text viewer has been changed,
+		 * Reset the background activity as the text viewer has been changed. A pending task is
+		 * postponed so that it runs once no further change has arrived for the reconciler delay.
 		 */
 		public void reset() {
 
-			if (fDelay > 0) {
-
-				synchronized (this) {
-					fIsDirty= true;
-					fReset= true;
-				}
-
-			} else {
-
-				synchronized (this) {
-					fIsDirty= true;
-				}
+			synchronized (this) {
+				fIsDirty= true;
+			}
 
+			if (fDelay <= 0) {
 				synchronized (fDirtyRegionQueue) {
 					fDirtyRegionQueue.notifyAll();
 				}
 			}
 
+			schedule();
+
 			reconcilerReset();
 		}
 
 		/**
-		 * The background activity. Waits until there is something in the
-		 * queue managing the changes that have been applied to the text viewer.
-		 * Removes the first change from the queue and process it.
-		 * <p>
-		 * Calls {@link AbstractReconciler#initialProcess()} on entrance.
-		 * </p>
+		 * Schedules the next task of this activity after the reconciler delay, replacing a
+		 * pending task. If a task is running the next one is scheduled when it is done.
 		 */
-		@Override
-		public void run() {
+		private synchronized void schedule() {
+			if (!fIsStarted || fCanceled)
+				return;
 
-			synchronized (fDirtyRegionQueue) {
-				try {
-					fDirtyRegionQueue.wait(fDelay);
-				} catch (InterruptedException x) {
-				}
+			if (fRunningThread != null) {
+				fIsRescheduleRequested= true;
+				return;
 			}
 
-			if (fCanceled)
-				return;
+			cancelPendingTask();
+			ReconcilerScheduler.Task task= new ReconcilerScheduler.Task() {
+				@Override
+				public void run() {
+					runTask(this);
+				}
+				@Override
+				boolean isHighPriority() {
+					return fHasFocus;
+				}
+			};
+			fPendingTask= task;
+			fPendingFuture= ReconcilerScheduler.schedule(task, fDelay);
+		}
 
-			initialProcess();
+		private void cancelPendingTask() {
+			fPendingTask= null;
+			if (fPendingFuture != null) {
+				fPendingFuture.cancel(false);
+				fPendingFuture= null;
+			}
+		}
 
-			while (!fCanceled) {
+		/**
+		 * Runs the given task if it is still the pending task of this activity.
+		 *
+		 * @param task the task to run
+		 */
+		private void runTask(ReconcilerScheduler.Task task) {
+			Thread thread= Thread.currentThread();
+			synchronized (this) {
+				if (task != fPendingTask || fCanceled)
+					return;
+				fPendingTask= null;
+				fPendingFuture= null;
+				fRunningThread= thread;
+			}
 
-				synchronized (fDirtyRegionQueue) {
-					try {
-						fDirtyRegionQueue.wait(fDelay);
-					} catch (InterruptedException x) {
+			String name= thread.getName();
+			thread.setName(AbstractReconciler.this.getClass().getName());
+			boolean completed= false;
+			try {
+				step();
+				completed= true;
+			} finally {
+				thread.setName(name);
+				synchronized (this) {
+					fRunningThread= null;
+					if (!completed) {
+						// like a dedicated thread, the activity ends on a run-time exception or error
+						fCanceled= true;
+						fIsActive= false;
 					}
+					boolean reschedule= fIsRescheduleRequested || fInitialProcessDone && fIsDirty;
+					fIsRescheduleRequested= false;
+					if (reschedule)
+						schedule();
 				}
+			}
+		}
 
-				if (fCanceled)
-					break;
-
-				if (!isDirty())
-					continue;
+		/**
+		 * One step of the background activity. Calls
+		 * {@link AbstractReconciler#initialProcess()} on the first step. Each further step
+		 * removes the first change from the queue managing the changes that have been applied
+		 * to the text viewer and processes it.
+		 */
+		private void step() {
 
+			if (!fInitialProcessDone) {
+				initialProcess();
 				synchronized (this) {
-					if (fReset) {
-						fReset= false;
-						continue;
-					}
+					fInitialProcessDone= true;
 				}
+				return;
+			}
 
-				DirtyRegion r= null;
-				synchronized (fDirtyRegionQueue) {
-					r= fDirtyRegionQueue.removeNextDirtyRegion();
-				}
+			if (fCanceled || !isDirty())
+				return;
 
-				fIsActive= true;
+			DirtyRegion r= null;
+			synchronized (fDirtyRegionQueue) {
+				r= fDirtyRegionQueue.removeNextDirtyRegion();
+			}
 
-				fProgressMonitor.setCanceled(false);
+			fIsActive= true;
 
-				process(r);
+			fProgressMonitor.setCanceled(false);
 
-				synchronized (fDirtyRegionQueue) {
-					if (0 == fDirtyRegionQueue.getSize()) {
-						synchronized (this) {
-							fIsDirty= fProgressMonitor.isCanceled();
-						}
-						fDirtyRegionQueue.notifyAll();
+			process(r);
+
+			synchronized (fDirtyRegionQueue) {
+				if (0 == fDirtyRegionQueue.getSize()) {
+					synchronized (this) {
+						fIsDirty= fProgressMonitor.isCanceled();
 					}
+					fDirtyRegionQueue.notifyAll();
 				}
-
-				fIsActive= false;
 			}
+
+			fIsActive= false;
+		}
+	}
+
+	/**
+	 * Tracks whether the text widget of the viewer has the focus.
+	 *
+	 * @since 3.16
+	 */
+	class FocusTracker implements FocusListener {
+
+		@Override
+		public void focusGained(FocusEvent e) {
+			fHasFocus= true;
+		}
+
+		@Override
+		public void focusLost(FocusEvent e) {
+			fHasFocus= false;
 		}
 	}
 
@@ -236,7 +346,7 @@ abstract public class AbstractReconciler implements IReconciler {
 		public void documentChanged(DocumentEvent e) {
 
 			if (fThread.isActive() || !fThread.isDirty() && fThread.isAlive()) {
-				if (!fIsAllowedToModifyDocument && Thread.currentThread() == fThread)
+				if (!fIsAllowedToModifyDocument && fThread.isCurrentThread())
 					throw new UnsupportedOperationException("The reconciler thread is not allowed to modify the document"); //$NON-NLS-1$
 				aboutToBeReconciled();
 			}
@@ -300,12 +410,17 @@ abstract public class AbstractReconciler implements IReconciler {
 
 	/** Queue to manage the changes applied to the text viewer. */
 	private DirtyRegionQueue fDirtyRegionQueue;
-	/** The background thread. */
-	private BackgroundThread fThread;
+	/** The background activity. */
+	private BackgroundWorker fThread;
 	/** Internal document and text input listener. */
 	private Listener fListener;
-	/** The background thread delay. */
+	/** The background activity delay. */
 	private int fDelay= 500;
+	/**
+	 * The maximal number of characters between merged dirty regions, or <code>-1</code>.
+	 * @since 3.16
+	 */
+	private int fMergeThreshold= -1;
 	/** Are there incremental reconciling strategies? */
 	private boolean fIsIncrementalReconciler= true;
 	/** The progress monitor used by this reconciler. */
@@ -321,6 +436,16 @@ abstract public class AbstractReconciler implements IReconciler {
 	private IDocument fDocument;
 	/** The text viewer */
 	private ITextViewer fViewer;
+	/**
+	 * Tracks the focus of the viewer's text widget, or <code>null</code>.
+	 * @since 3.16
+	 */
+	private FocusTracker fFocusTracker;
+	/**
+	 * Tells whether the viewer's text widget has the focus.
+	 * @since 3.16
+	 */
+	private volatile boolean fHasFocus= false;
 
 
 	/**
@@ -361,6 +486,63 @@ abstract public class AbstractReconciler implements IReconciler {
 		fDelay= delay;
 	}
 
+	/**
+	 * Tells the reconciler to merge queued dirty regions of the same type which overlap or
+	 * which are at most the given number of characters apart. Scattered changes, e.g. typing
+	 * with multiple carets, are thereby processed as a few larger regions instead of many small
+	 * ones. A merged insert region only provides its text if the merged insertions are
+	 * contiguous. By default, a dirty region is only merged with the previous one if it directly
+	 * continues it.
+	 * <p>
+	 * This setting only affects incremental reconcilers and should be made before the
+	 * reconciler is installed.
+	 * </p>
+	 *
+	 * @param threshold the maximal number of characters between merged regions, or
+	 *            <code>-1</code> to only merge directly continuing regions
+	 * @since 3.16
+	 */
+	public void setDirtyRegionMergeThreshold(int threshold) {
+		fMergeThreshold= threshold;
+		DirtyRegionQueue queue= fDirtyRegionQueue;
+		if (queue != null) {
+			synchronized (queue) {
+				queue.setMergeThreshold(threshold);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of dirty regions waiting to be processed.
+	 *
+	 * @return the number of queued dirty regions
+	 * @since 3.16
+	 */
+	public int getDirtyRegionQueueSize() {
+		DirtyRegionQueue queue= fDirtyRegionQueue;
+		if (queue == null)
+			return 0;
+		synchronized (queue) {
+			return queue.getSize();
+		}
+	}
+
+	/**
+	 * Returns the ratio of the dirty regions that have been merged into other regions to all
+	 * dirty regions that have been created since the reconciler has been installed.
+	 *
+	 * @return the merge ratio between <code>0</code> and <code>1</code>
+	 * @since 3.16
+	 */
+	public double getDirtyRegionMergeRatio() {
+		DirtyRegionQueue queue= fDirtyRegionQueue;
+		if (queue == null)
+			return 0;
+		synchronized (queue) {
+			return queue.getMergeRatio();
+		}
+	}
+
 	/**
 	 * Tells the reconciler whether any of the available reconciling strategies
 	 * is interested in getting detailed dirty region information or just in the
@@ -450,10 +632,18 @@ abstract public class AbstractReconciler implements IReconciler {
 		synchronized (this) {
 			if (fThread != null)
 				return;
-			fThread= new BackgroundThread(getClass().getName());
+			fThread= new BackgroundWorker();
+		}
+
+		StyledText textWidget= textViewer.getTextWidget();
+		if (textWidget != null && !textWidget.isDisposed()) {
+			fFocusTracker= new FocusTracker();
+			textWidget.addFocusListener(fFocusTracker);
+			fHasFocus= textWidget.isFocusControl();
 		}
 
 		fDirtyRegionQueue= new DirtyRegionQueue();
+		fDirtyRegionQueue.setMergeThreshold(fMergeThreshold);
 
 		fListener= new Listener();
 		fViewer.addTextInputListener(fListener);
@@ -476,6 +666,13 @@ abstract public class AbstractReconciler implements IReconciler {
 		if (fListener != null) {
 
 			fViewer.removeTextInputListener(fListener);
+			if (fFocusTracker != null) {
+				StyledText textWidget= fViewer.getTextWidget();
+				if (textWidget != null && !textWidget.isDisposed())
+					textWidget.removeFocusListener(fFocusTracker);
+				fFocusTracker= null;
+				fHasFocus= false;
+			}
 			if (fDocument != null) {
 				fListener.inputDocumentAboutToBeChanged(fDocument, null);
 				fListener.inputDocumentChanged(fDocument, null);
@@ -484,7 +681,7 @@ abstract public class AbstractReconciler implements IReconciler {
 
 			synchronized (this) {
 				// http://dev.eclipse.org/bugs/show_bug.cgi?id=19135
-				BackgroundThread bt= fThread;
+				BackgroundWorker bt= fThread;
 				fThread= null;
 				bt.cancel();
 			}
@@ -565,14 +762,10 @@ abstract public class AbstractReconciler implements IReconciler {
 			return;
 
 		if (!fThread.isAlive()) {
-			try {
-				fThread.start();
-			} catch (IllegalThreadStateException e) {
-				// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=40549
-				// This is the only instance where the thread is started; since
-				// we checked that it is not alive, it must be dead already due
-				// to a run-time exception or error. Exit.
-			}
+			// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=40549
+			// If the activity is not alive although it has been started, it
+			// has been ended by a run-time exception or error and start() does nothing.
+			fThread.start();
 		} else {
 			fThread.reset();
 		}
@@ -592,6 +785,7 @@ abstract public class AbstractReconciler implements IReconciler {
 	 * @since 3.4
 	 */
 	protected boolean isRunningInReconcilerThread() {
-		return Thread.currentThread() == fThread;
+		BackgroundWorker worker= fThread;
+		return worker != null && worker.isCurrentThread();
 	}
 }
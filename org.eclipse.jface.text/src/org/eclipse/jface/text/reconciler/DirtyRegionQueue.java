@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.jface.text.reconciler;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -21,14 +22,112 @@ import java.util.List;
  * Queue used by {@link org.eclipse.jface.text.reconciler.AbstractReconciler} to manage
  * dirty regions. When a dirty region is inserted into the queue, the queue tries
  * to fold it into the neighboring dirty region.
+ * <p>
+ * If a merge threshold has been set, the queue keeps the queued changes as a set of intervals of
+ * the current document instead: the queued regions are adjusted to each further change, and a new
+ * region is merged with all queued regions of the same type which overlap it or which are at
+ * most the threshold number of characters away from it. Scattered changes, e.g. typing with
+ * multiple carets or replacing all occurrences of a word, are thereby reduced to a few regions. A
+ * merged insert region only provides its text if the merged insertions are contiguous. A merged
+ * remove region covers all merged removals and the text between them.
+ * </p>
  *
  * @see org.eclipse.jface.text.reconciler.AbstractReconciler
  * @see org.eclipse.jface.text.reconciler.DirtyRegion
  */
 class DirtyRegionQueue {
 
+	/**
+	 * A queued change of the coalescing queue. The range is given in the coordinates of the
+	 * current document.
+	 *
+	 * @since 3.16
+	 */
+	private static class Entry {
+
+		/** The type of the change, either {@link DirtyRegion#INSERT} or {@link DirtyRegion#REMOVE}. */
+		final String fType;
+		/** The start of the range. */
+		int fStart;
+		/** The end of the range, exclusive. */
+		int fEnd;
+		/** The inserted text or <code>null</code> if it is unknown or the entry is a removal. */
+		String fText;
+		/** The number of removed characters of a removal. */
+		int fRemoved;
+
+		Entry(DirtyRegion region) {
+			fType= region.getType();
+			fStart= region.getOffset();
+			if (fType == DirtyRegion.INSERT) {
+				fEnd= fStart + region.getLength();
+				fText= region.getText();
+			} else {
+				fEnd= fStart;
+				fRemoved= region.getLength();
+			}
+		}
+
+		/**
+		 * Returns the number of characters between this and the given entry. The distance is
+		 * negative if the entries overlap.
+		 *
+		 * @param other the other entry
+		 * @return the distance
+		 */
+		int distance(Entry other) {
+			return Math.max(fStart, other.fStart) - Math.min(fEnd, other.fEnd);
+		}
+
+		/**
+		 * Extends this entry by the given one of the same type.
+		 *
+		 * @param other the entry to merge into this entry
+		 */
+		void mergeWith(Entry other) {
+			if (fType == DirtyRegion.INSERT) {
+				if (fText != null && other.fText != null && fEnd == other.fStart)
+					fText= fText + other.fText;
+				else if (fText != null && other.fText != null && other.fEnd == fStart)
+					fText= other.fText + fText;
+				else
+					fText= null;
+			} else {
+				fRemoved+= other.fRemoved;
+			}
+			fStart= Math.min(fStart, other.fStart);
+			fEnd= Math.max(fEnd, other.fEnd);
+		}
+
+		DirtyRegion toDirtyRegion() {
+			if (fType == DirtyRegion.INSERT)
+				return new DirtyRegion(fStart, fEnd - fStart, DirtyRegion.INSERT, fText);
+			return new DirtyRegion(fStart, fEnd - fStart + fRemoved, DirtyRegion.REMOVE, null);
+		}
+	}
+
 	/** The list of dirty regions. */
 	private List<DirtyRegion> fDirtyRegions= new ArrayList<>();
+	/**
+	 * The queued changes if the queue coalesces changes.
+	 * @since 3.16
+	 */
+	private List<Entry> fEntries= new ArrayList<>();
+	/**
+	 * The maximal number of characters between merged regions, or <code>-1</code>.
+	 * @since 3.16
+	 */
+	private int fMergeThreshold= -1;
+	/**
+	 * The number of dirty regions added to this queue.
+	 * @since 3.16
+	 */
+	private long fAddedCount;
+	/**
+	 * The number of dirty regions merged into other regions.
+	 * @since 3.16
+	 */
+	private long fMergedCount;
 
 	/**
 	 * Creates a new empty dirty region.
@@ -37,12 +136,43 @@ class DirtyRegionQueue {
 		super();
 	}
 
+	/**
+	 * Sets the maximal number of characters between two regions of the same type which are
+	 * merged. A negative threshold restores the default behavior of only merging a region with
+	 * the last queued region if it directly continues it. The threshold should be set while the
+	 * queue is empty.
+	 *
+	 * @param threshold the merge threshold or <code>-1</code>
+	 * @since 3.16
+	 */
+	public void setMergeThreshold(int threshold) {
+		fMergeThreshold= Math.max(-1, threshold);
+	}
+
+	/**
+	 * Returns the maximal number of characters between two regions of the same type which are
+	 * merged.
+	 *
+	 * @return the merge threshold or <code>-1</code> if only directly continuing regions are merged
+	 * @since 3.16
+	 */
+	public int getMergeThreshold() {
+		return fMergeThreshold;
+	}
+
 	/**
 	 * Adds a dirty region to the end of the dirty-region queue.
 	 *
 	 * @param dr the dirty region to add
 	 */
 	public void addDirtyRegion(DirtyRegion dr) {
+		++ fAddedCount;
+
+		if (fMergeThreshold >= 0 && (dr.getType() == DirtyRegion.INSERT || dr.getType() == DirtyRegion.REMOVE)) {
+			coalesce(dr);
+			return;
+		}
+
 		// If the dirty region being added is directly after the last dirty
 		// region on the queue then merge the two dirty regions together.
 		DirtyRegion lastDR= getLastDirtyRegion();
@@ -64,6 +194,102 @@ class DirtyRegionQueue {
 		if (!wasMerged)
 			// Don't merge- just add the new one onto the queue.
 			fDirtyRegions.add(dr);
+		else
+			++ fMergedCount;
+	}
+
+	/**
+	 * Adjusts the queued changes to the given change and merges it with the queued changes
+	 * close to it.
+	 *
+	 * @param dr the dirty region to add
+	 * @since 3.16
+	 */
+	private void coalesce(DirtyRegion dr) {
+		Entry entry= new Entry(dr);
+		int offset= dr.getOffset();
+		int length= dr.getLength();
+
+		Entry absorbing= null;
+		for (Iterator<Entry> e= fEntries.iterator(); e.hasNext();) {
+			Entry queued= e.next();
+			if (entry.fType == DirtyRegion.INSERT) {
+				if (offset < queued.fStart || offset == queued.fStart && queued.fType == DirtyRegion.INSERT) {
+					queued.fStart+= length;
+					queued.fEnd+= length;
+				} else if (offset > queued.fStart && offset < queued.fEnd) {
+					if (queued.fType == DirtyRegion.INSERT && absorbing == null) {
+						if (queued.fText != null && entry.fText != null) {
+							int index= offset - queued.fStart;
+							queued.fText= queued.fText.substring(0, index) + entry.fText + queued.fText.substring(index);
+						} else {
+							queued.fText= null;
+						}
+						absorbing= queued;
+					}
+					queued.fEnd+= length;
+				}
+			} else {
+				int start= map(queued.fStart, offset, length);
+				int end= map(queued.fEnd, offset, length);
+				if (queued.fType == DirtyRegion.INSERT && end - start != queued.fEnd - queued.fStart) {
+					if (start == end) {
+						e.remove();
+						++ fMergedCount;
+						continue;
+					}
+					if (queued.fText != null && offset >= queued.fStart && offset + length <= queued.fEnd) {
+						int index= offset - queued.fStart;
+						queued.fText= queued.fText.substring(0, index) + queued.fText.substring(index + length);
+					} else {
+						queued.fText= null;
+					}
+				}
+				queued.fStart= start;
+				queued.fEnd= end;
+			}
+		}
+
+		if (absorbing != null) {
+			++ fMergedCount;
+			return;
+		}
+
+		boolean wasMerged= false;
+		boolean found;
+		do {
+			found= false;
+			for (Entry queued : fEntries) {
+				if (queued != entry && queued.fType == entry.fType && queued.distance(entry) <= fMergeThreshold) {
+					queued.mergeWith(entry);
+					if (wasMerged)
+						fEntries.remove(entry);
+					++ fMergedCount;
+					wasMerged= true;
+					entry= queued;
+					found= true;
+					break;
+				}
+			}
+		} while (found);
+
+		if (!wasMerged)
+			fEntries.add(entry);
+	}
+
+	/**
+	 * Maps a position of the document before a removal to the document after the removal.
+	 *
+	 * @param position the position
+	 * @param offset the offset of the removal
+	 * @param length the length of the removal
+	 * @return the position after the removal
+	 * @since 3.16
+	 */
+	private static int map(int position, int offset, int length) {
+		if (position <= offset)
+			return position;
+		return Math.max(offset, position - length);
 	}
 
 	/**
@@ -82,7 +308,38 @@ class DirtyRegionQueue {
 	 * @return the dirty-region queue-size
 	 */
 	public int getSize() {
-		return fDirtyRegions.size();
+		return fDirtyRegions.size() + fEntries.size();
+	}
+
+	/**
+	 * Returns the number of dirty regions that have been added to this queue.
+	 *
+	 * @return the number of added dirty regions
+	 * @since 3.16
+	 */
+	public long getAddedCount() {
+		return fAddedCount;
+	}
+
+	/**
+	 * Returns the number of added dirty regions that have been merged into other regions
+	 * instead of being queued on their own.
+	 *
+	 * @return the number of merged dirty regions
+	 * @since 3.16
+	 */
+	public long getMergedCount() {
+		return fMergedCount;
+	}
+
+	/**
+	 * Returns the ratio of merged to added dirty regions.
+	 *
+	 * @return the merge ratio between <code>0</code> and <code>1</code>
+	 * @since 3.16
+	 */
+	public double getMergeRatio() {
+		return fAddedCount == 0 ? 0 : (double) fMergedCount / fAddedCount;
 	}
 
 	/**
@@ -90,6 +347,7 @@ class DirtyRegionQueue {
 	 */
 	public void purgeQueue() {
 		fDirtyRegions.clear();
+		fEntries.clear();
 	}
 
 	/**
@@ -98,10 +356,10 @@ class DirtyRegionQueue {
 	 * @return the next dirty region on the queue
 	 */
 	public DirtyRegion removeNextDirtyRegion() {
-		if (fDirtyRegions.isEmpty())
-			return null;
-		DirtyRegion dr= fDirtyRegions.get(0);
-		fDirtyRegions.remove(0);
-		return dr;
+		if (!fDirtyRegions.isEmpty())
+			return fDirtyRegions.remove(0);
+		if (!fEntries.isEmpty())
+			return fEntries.remove(0).toDirtyRegion();
+		return null;
 	}
 }
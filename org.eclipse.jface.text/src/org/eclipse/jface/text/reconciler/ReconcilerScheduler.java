@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.reconciler;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jface.internal.text.DaemonThreadFactory;
+
+
+/**
+ * Runs the background activities of all {@link AbstractReconciler}s on a small, bounded pool of
+ * daemon threads instead of one dedicated thread per reconciler.
+ * <p>
+ * Delays are handled by a single timer thread which only hands the due tasks over to the worker
+ * pool. The worker pool runs the tasks of reconcilers with a high priority, i.e. the reconcilers
+ * of the viewer that has the focus, before all others and otherwise in the order in which they
+ * became due. Idle threads terminate after a while, so no threads are held when nothing needs to
+ * be reconciled.
+ * </p>
+ *
+ * @since 3.16
+ */
+final class ReconcilerScheduler {
+
+	/**
+	 * A task of a reconciler that is due for execution. Tasks are ordered by priority and then by
+	 * the order in which they became due.
+	 */
+	static abstract class Task implements Runnable, Comparable<Task> {
+
+		/** Whether this task was due while its reconciler had a high priority. */
+		private boolean fHighPriority;
+		/** The sequence number assigned when this task became due. */
+		private long fSequence;
+
+		@Override
+		public int compareTo(Task other) {
+			if (fHighPriority != other.fHighPriority)
+				return fHighPriority ? -1 : 1;
+			return Long.compare(fSequence, other.fSequence);
+		}
+
+		/**
+		 * Returns whether the reconciler of this task should currently be preferred over
+		 * others.
+		 *
+		 * @return <code>true</code> if the task should be run before tasks of other reconcilers
+		 */
+		abstract boolean isHighPriority();
+	}
+
+	/** Counter for the sequence numbers of due tasks. */
+	private static final AtomicLong fgSequence= new AtomicLong();
+	/** The thread handing over delayed tasks to the worker pool. */
+	private static final ScheduledThreadPoolExecutor fgTimer;
+	/** The threads running the tasks. */
+	private static final ThreadPoolExecutor fgWorkers;
+
+	static {
+		fgTimer= new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("Reconciler Timer", Thread.MIN_PRIORITY)); //$NON-NLS-1$
+		fgTimer.setRemoveOnCancelPolicy(true);
+		fgTimer.setKeepAliveTime(DaemonThreadFactory.KEEP_ALIVE, TimeUnit.SECONDS);
+		fgTimer.allowCoreThreadTimeOut(true);
+
+		fgWorkers= DaemonThreadFactory.createPool("Reconciler", Thread.MIN_PRIORITY, new PriorityBlockingQueue<Runnable>()); //$NON-NLS-1$
+	}
+
+	private ReconcilerScheduler() {
+	}
+
+	/**
+	 * Schedules the given task to be run after the given delay.
+	 *
+	 * @param task the task to run
+	 * @param delay the delay in milliseconds, the task is run as soon as possible if the delay is
+	 *            not positive
+	 * @return the future of the delayed hand over or <code>null</code> if the task has been
+	 *         handed over right away
+	 */
+	static ScheduledFuture<?> schedule(Task task, long delay) {
+		if (delay <= 0) {
+			execute(task);
+			return null;
+		}
+		return fgTimer.schedule(() -> execute(task), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private static void execute(Task task) {
+		task.fHighPriority= task.isHighPriority();
+		task.fSequence= fgSequence.getAndIncrement();
+		fgWorkers.execute(task);
+	}
+}
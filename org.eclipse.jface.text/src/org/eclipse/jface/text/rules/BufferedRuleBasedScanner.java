@@ -18,13 +18,20 @@ import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension5;
 
 /**
  * A buffered rule based scanner. The buffer always contains a section
  * of a fixed size of the document to be scanned. Completely adheres to
  * the contract of <code>RuleBasedScanner</code>.
+ * <p>
+ * Since 3.16, rules may read runs of characters directly from the buffer
+ * using {@link ICharacterScannerExtension}. If a subclass overrides
+ * {@link #read()} or {@link #unread()}, bulk reads call these methods for each
+ * character instead.
+ * </p>
  */
-public class BufferedRuleBasedScanner extends RuleBasedScanner {
+public class BufferedRuleBasedScanner extends RuleBasedScanner implements ICharacterScannerExtension {
 
 	/** The default buffer size. Value = 500 */
 	private final static int DEFAULT_BUFFER_SIZE= 500;
@@ -38,6 +45,11 @@ public class BufferedRuleBasedScanner extends RuleBasedScanner {
 	private int fEnd;
 	/** The cached length of the document */
 	private int fDocumentLength;
+	/**
+	 * Tells whether a subclass overrides {@link #read()} or {@link #unread()}.
+	 * @since 3.16
+	 */
+	private final boolean fIsReadOverridden= isReadOverridden(getClass());
 
 
 	/**
@@ -86,8 +98,12 @@ public class BufferedRuleBasedScanner extends RuleBasedScanner {
 
 		try {
 
-			String content= fDocument.get(fStart, fEnd - fStart);
-			content.getChars(0, fEnd - fStart, fBuffer, 0);
+			if (fDocument instanceof IDocumentExtension5) {
+				((IDocumentExtension5) fDocument).getChars(fStart, fEnd - fStart, fBuffer, 0);
+			} else {
+				String content= fDocument.get(fStart, fEnd - fStart);
+				content.getChars(0, fEnd - fStart, fBuffer, 0);
+			}
 
 		} catch (BadLocationException x) {
 		}
@@ -127,6 +143,77 @@ public class BufferedRuleBasedScanner extends RuleBasedScanner {
 		--fOffset;
 		fColumn= UNDEFINED;
 	}
-}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public int read(char[] buffer, int offset, int length) {
+		if (fIsReadOverridden) {
+			for (int i= 0; i < length; i++) {
+				int c= read();
+				if (c == EOF) {
+					unread();
+					return i;
+				}
+				buffer[offset + i]= (char) c;
+			}
+			return length;
+		}
+
+		fColumn= UNDEFINED;
+		int count= Math.min(length, fRangeEnd - fOffset);
+		if (count <= 0)
+			return 0;
+
+		int read= 0;
+		while (read < count) {
+			if (fOffset == fEnd)
+				shiftBuffer(fEnd);
+			else if (fOffset < fStart || fEnd < fOffset)
+				shiftBuffer(fOffset);
+
+			int available= Math.min(count - read, fEnd - fOffset);
+			System.arraycopy(fBuffer, fOffset - fStart, buffer, offset + read, available);
+			fOffset += available;
+			read += available;
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public void unread(int count) {
+		if (fIsReadOverridden) {
+			for (int i= 0; i < count; i++)
+				unread();
+			return;
+		}
+
+		fOffset -= count;
+		fColumn= UNDEFINED;
+	}
 
+	/**
+	 * Tells whether the given scanner class overrides {@link #read()} or {@link #unread()}.
+	 * Bulk reads must then go through these methods.
+	 *
+	 * @param scannerClass the class of the scanner
+	 * @return <code>true</code> if the class overrides one of the methods
+	 * @since 3.16
+	 */
+	private static boolean isReadOverridden(Class<?> scannerClass) {
+		try {
+			return scannerClass.getMethod("read").getDeclaringClass() != BufferedRuleBasedScanner.class //$NON-NLS-1$
+					|| scannerClass.getMethod("unread").getDeclaringClass() != BufferedRuleBasedScanner.class; //$NON-NLS-1$
+		} catch (NoSuchMethodException | SecurityException e) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,965 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.Assert;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.DocumentRewriteSession;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.IDocumentPartitionerExtension;
+import org.eclipse.jface.text.IDocumentPartitionerExtension2;
+import org.eclipse.jface.text.IDocumentPartitionerExtension3;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextUtilities;
+import org.eclipse.jface.text.TypedRegion;
+
+
+/**
+ * A document partitioner that produces the same partitioning as {@link FastPartitioner} but
+ * keeps the partition boundaries in primitive arrays owned by the partitioner instead of
+ * storing {@link org.eclipse.jface.text.TypedPosition}s in a document position category.
+ * <p>
+ * The document is not involved in updating the partitions. Instead, the result of the
+ * re-scan triggered by a document change is collected first and then spliced into the
+ * arrays in a single step. Offsets of the partitions behind the change are shifted lazily,
+ * i.e. the shift is only materialized for the partitions between two consecutive change
+ * locations. Local edits therefore cost time proportional to the number of re-scanned
+ * partitions rather than to the number of partitions in the document.
+ * </p>
+ * <p>
+ * The partitioner records how much of the document the last change re-scanned, see
+ * {@link #getLastRescanLength()} and {@link #getLastRescanPartitionCount()}.
+ * </p>
+ * <p>
+ * This partitioner does not use a position category, thus
+ * {@link #getManagingPositionCategories()} returns <code>null</code>.
+ * </p>
+ *
+ * @see FastPartitioner
+ * @see IPartitionTokenScanner
+ * @since 3.16
+ */
+public class CompactPartitioner implements IDocumentPartitioner, IDocumentPartitionerExtension, IDocumentPartitionerExtension2, IDocumentPartitionerExtension3 {
+
+	/** The initial capacity of the partition arrays. */
+	private static final int INITIAL_CAPACITY= 16;
+
+	/** The partitioner's scanner */
+	protected final IPartitionTokenScanner fScanner;
+	/** The legal content types of this partitioner */
+	protected final String[] fLegalContentTypes;
+	/** The partitioner's document */
+	protected IDocument fDocument;
+
+	/** The offsets of the partitions, not including the pending shift */
+	private int[] fOffsets= new int[INITIAL_CAPACITY];
+	/** The lengths of the partitions */
+	private int[] fLengths= new int[INITIAL_CAPACITY];
+	/** The content types of the partitions, <code>null</code> marks a deleted partition during an update */
+	private String[] fTypes= new String[INITIAL_CAPACITY];
+	/** The number of partitions */
+	private int fSize;
+	/** The index of the first partition to which {@link #fShiftDelta} has not been applied yet */
+	private int fShiftIndex;
+	/** The pending offset shift of all partitions at or behind {@link #fShiftIndex} */
+	private int fShiftDelta;
+
+	/** The offset at which the first changed partition starts */
+	private int fStartOffset;
+	/** The offset at which the last changed partition ends */
+	private int fEndOffset;
+	/** The offset at which a partition has been deleted */
+	private int fDeleteOffset;
+	/** The number of characters re-scanned by the last document change */
+	private int fLastRescanLength;
+	/** The number of partitions re-scanned by the last document change */
+	private int fLastRescanPartitionCount;
+
+	/** The active document rewrite session. */
+	private DocumentRewriteSession fActiveRewriteSession;
+	/** Flag indicating whether this partitioner has been initialized. */
+	private boolean fIsInitialized= false;
+
+
+	/**
+	 * Creates a new partitioner that uses the given scanner and may return
+	 * partitions of the given legal content types.
+	 *
+	 * @param scanner the scanner this partitioner is supposed to use
+	 * @param legalContentTypes the legal content types of this partitioner
+	 */
+	public CompactPartitioner(IPartitionTokenScanner scanner, String[] legalContentTypes) {
+		fScanner= scanner;
+		fLegalContentTypes= TextUtilities.copy(legalContentTypes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This partitioner does not use a position category.
+	 * </p>
+	 */
+	@Override
+	public String[] getManagingPositionCategories() {
+		return null;
+	}
+
+	@Override
+	public final void connect(IDocument document) {
+		connect(document, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public void connect(IDocument document, boolean delayInitialization) {
+		Assert.isNotNull(document);
+
+		fDocument= document;
+		clear();
+
+		fIsInitialized= false;
+		if (!delayInitialization)
+			checkInitialization();
+	}
+
+	/**
+	 * Calls {@link #initialize()} if the receiver is not yet initialized.
+	 */
+	protected final void checkInitialization() {
+		if (!fIsInitialized)
+			initialize();
+	}
+
+	/**
+	 * Performs the initial partitioning of the partitioner's document.
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	protected void initialize() {
+		fIsInitialized= true;
+		clear();
+		fScanner.setRange(fDocument, 0, fDocument.getLength());
+
+		IToken token= fScanner.nextToken();
+		while (!token.isEOF()) {
+
+			String contentType= getTokenContentType(token);
+
+			if (isSupportedContentType(contentType))
+				add(fScanner.getTokenOffset(), fScanner.getTokenLength(), contentType);
+
+			token= fScanner.nextToken();
+		}
+		fShiftIndex= fSize;
+		fLastRescanLength= fDocument.getLength();
+		fLastRescanPartitionCount= fSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public void disconnect() {
+		clear();
+		fDocument= null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public void documentAboutToBeChanged(DocumentEvent e) {
+		if (fIsInitialized) {
+
+			Assert.isTrue(e.getDocument() == fDocument);
+
+			fStartOffset= -1;
+			fEndOffset= -1;
+			fDeleteOffset= -1;
+		}
+	}
+
+	@Override
+	public final boolean documentChanged(DocumentEvent e) {
+		if (fIsInitialized) {
+			IRegion region= documentChanged2(e);
+			return (region != null);
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public IRegion documentChanged2(DocumentEvent e) {
+
+		if (!fIsInitialized)
+			return null;
+
+		Assert.isTrue(e.getDocument() == fDocument);
+
+		int eventOffset= e.getOffset();
+		int eventLength= e.getLength();
+		int newLength= e.getText() == null ? 0 : e.getText().length();
+
+		fLastRescanLength= 0;
+		fLastRescanPartitionCount= 0;
+
+		int reparseStart;
+		try {
+			reparseStart= fDocument.getLineInformationOfOffset(eventOffset).getOffset();
+		} catch (BadLocationException x) {
+			return null;
+		}
+
+		int partitionStart;
+		String contentType= null;
+		int first= indexOf(reparseStart);
+		if (first > 0) {
+			int previous= first - 1;
+			int previousOffset= offsetAt(previous);
+			int previousEnd= previousOffset + fLengths[previous];
+			if (previousOffset <= reparseStart && reparseStart < previousEnd
+					|| reparseStart == eventOffset && reparseStart == previousEnd) {
+				partitionStart= previousOffset;
+				contentType= fTypes[previous];
+				reparseStart= partitionStart;
+				-- first;
+			} else {
+				partitionStart= previousEnd;
+				contentType= IDocument.DEFAULT_CONTENT_TYPE;
+			}
+		} else {
+			partitionStart= 0;
+			reparseStart= 0;
+		}
+
+		int touchedEnd= adaptToChange(first, eventOffset, eventLength, newLength);
+
+		fScanner.setPartialRange(fDocument, reparseStart, fDocument.getLength() - reparseStart, contentType, partitionStart);
+
+		int[] offsets= new int[INITIAL_CAPACITY];
+		int[] lengths= new int[INITIAL_CAPACITY];
+		String[] types= new String[INITIAL_CAPACITY];
+		int count= 0;
+
+		int behindLastScannedPosition= reparseStart;
+		int next= first;
+		IToken token= fScanner.nextToken();
+		while (!token.isEOF()) {
+
+			contentType= getTokenContentType(token);
+
+			if (!isSupportedContentType(contentType)) {
+				token= fScanner.nextToken();
+				continue;
+			}
+
+			int start= fScanner.getTokenOffset();
+			int length= fScanner.getTokenLength();
+
+			behindLastScannedPosition= start + length;
+			int lastScannedPosition= behindLastScannedPosition - 1;
+			++ fLastRescanPartitionCount;
+
+			// remove all affected partitions
+			boolean exists= false;
+			while (next < fSize) {
+				String type= fTypes[next];
+				if (type == null) {
+					++ next;
+					continue;
+				}
+				int offset= offsetAt(next);
+				int end= offset + fLengths[next];
+				exists= offset == start && end == behindLastScannedPosition && contentType.equals(type);
+				if (lastScannedPosition >= end || !exists && overlapsWith(offset, end - offset, start, length)) {
+					rememberRegion(offset, end - offset);
+					++ next;
+					exists= false;
+				} else
+					break;
+			}
+
+			if (count == offsets.length) {
+				int capacity= count * 2;
+				offsets= grow(offsets, capacity);
+				lengths= grow(lengths, capacity);
+				types= grow(types, capacity);
+			}
+			offsets[count]= start;
+			lengths[count]= length;
+			types[count]= contentType;
+			++ count;
+
+			if (exists) {
+				++ next;
+				// the partition already exists and we have scanned at least the area covered by the event, we are done
+				if (lastScannedPosition >= eventOffset + newLength) {
+					fLastRescanLength= behindLastScannedPosition - reparseStart;
+					splice(first, Math.max(next, touchedEnd), next, offsets, lengths, types, count);
+					return createRegion();
+				}
+			} else {
+				rememberRegion(start, length);
+			}
+
+			token= fScanner.nextToken();
+		}
+
+		// remove all remaining partitions
+		for (int i= next; i < fSize; i++) {
+			if (fTypes[i] != null)
+				rememberRegion(offsetAt(i), fLengths[i]);
+		}
+
+		fLastRescanLength= fDocument.getLength() - reparseStart;
+		splice(first, fSize, fSize, offsets, lengths, types, count);
+		return createRegion();
+	}
+
+	/**
+	 * Adapts the partitions at and behind <code>first</code> to the given document change in
+	 * the same way as {@link org.eclipse.jface.text.DefaultPositionUpdater} does. Partitions
+	 * that start at or behind the end of the replaced range are only shifted, which is recorded
+	 * lazily. Partitions which are completely covered by the replaced range are marked as
+	 * deleted.
+	 *
+	 * @param first the index of the first partition that may be affected by the change
+	 * @param offset the offset of the change
+	 * @param length the length of the replaced range
+	 * @param replaceLength the length of the replacement text
+	 * @return the index of the first partition that has only been shifted
+	 */
+	private int adaptToChange(int first, int offset, int length, int replaceLength) {
+		int end= offset + length;
+		int touchedEnd= first;
+		while (touchedEnd < fSize && offsetAt(touchedEnd) < end)
+			++ touchedEnd;
+
+		moveShiftIndex(touchedEnd);
+		fShiftDelta += replaceLength - length;
+
+		for (int i= first; i < touchedEnd; i++) {
+			int myOffset= fOffsets[i];
+			int myLength= fLengths[i];
+
+			if (offset < myOffset && myOffset + myLength < end) {
+				fTypes[i]= null;
+				fDeleteOffset= offset;
+				continue;
+			}
+
+			if (length > 0 && myOffset <= offset && end <= myOffset + myLength) {
+				myLength += replaceLength - length;
+			} else {
+				int myEnd= Math.max(myOffset, myOffset + myLength - 1);
+				if (length > 0 && myEnd >= offset) {
+					int yoursEnd= Math.max(offset, end - 1);
+					if (myOffset <= offset) {
+						if (yoursEnd <= myEnd)
+							myLength -= length;
+						else
+							myLength -= (myEnd - offset + 1);
+					} else if (yoursEnd < myOffset) {
+						myOffset -= length;
+					} else {
+						myLength -= (yoursEnd - myOffset + 1);
+						myOffset= offset;
+					}
+					if (myOffset < 0)
+						myOffset= 0;
+					if (myLength < 0)
+						myLength= 0;
+				}
+
+				myEnd= Math.max(myOffset, myOffset + myLength - 1);
+				if (replaceLength > 0 && myEnd >= offset) {
+					if (myOffset < offset)
+						myLength += replaceLength;
+					else
+						myOffset += replaceLength;
+				}
+			}
+
+			fOffsets[i]= myOffset;
+			fLengths[i]= myLength;
+		}
+
+		return touchedEnd;
+	}
+
+	/**
+	 * Replaces the partitions in the range <code>[from, to)</code> with the given partitions.
+	 * The partitions in <code>[retainedFrom, to)</code> which are not marked as deleted are
+	 * kept behind the given partitions.
+	 *
+	 * @param from the index of the first partition to replace
+	 * @param to the index behind the last partition to replace
+	 * @param retainedFrom the index of the first partition to retain
+	 * @param offsets the offsets of the new partitions
+	 * @param lengths the lengths of the new partitions
+	 * @param types the types of the new partitions
+	 * @param count the number of new partitions
+	 */
+	private void splice(int from, int to, int retainedFrom, int[] offsets, int[] lengths, String[] types, int count) {
+		moveShiftIndex(to);
+
+		int retained= 0;
+		for (int i= retainedFrom; i < to; i++) {
+			if (fTypes[i] != null)
+				++ retained;
+		}
+
+		int newEnd= from + count + retained;
+		int newSize= fSize - (to - from) + count + retained;
+		if (newSize > fOffsets.length) {
+			int capacity= Math.max(newSize, fOffsets.length * 2);
+			fOffsets= grow(fOffsets, capacity);
+			fLengths= grow(fLengths, capacity);
+			fTypes= grow(fTypes, capacity);
+		}
+
+		if (retained > 0) {
+			int[] retainedOffsets= new int[retained];
+			int[] retainedLengths= new int[retained];
+			String[] retainedTypes= new String[retained];
+			for (int i= retainedFrom, j= 0; i < to; i++) {
+				if (fTypes[i] != null) {
+					retainedOffsets[j]= fOffsets[i];
+					retainedLengths[j]= fLengths[i];
+					retainedTypes[j++]= fTypes[i];
+				}
+			}
+			moveTail(to, newEnd);
+			System.arraycopy(retainedOffsets, 0, fOffsets, from + count, retained);
+			System.arraycopy(retainedLengths, 0, fLengths, from + count, retained);
+			System.arraycopy(retainedTypes, 0, fTypes, from + count, retained);
+		} else {
+			moveTail(to, newEnd);
+		}
+
+		System.arraycopy(offsets, 0, fOffsets, from, count);
+		System.arraycopy(lengths, 0, fLengths, from, count);
+		System.arraycopy(types, 0, fTypes, from, count);
+
+		for (int i= newSize; i < fSize; i++)
+			fTypes[i]= null;
+		fSize= newSize;
+		fShiftIndex= newEnd;
+	}
+
+	/**
+	 * Moves the partitions starting at <code>from</code> to <code>to</code>.
+	 *
+	 * @param from the index of the first partition to move
+	 * @param to the target index
+	 */
+	private void moveTail(int from, int to) {
+		if (from == to)
+			return;
+		int length= fSize - from;
+		System.arraycopy(fOffsets, from, fOffsets, to, length);
+		System.arraycopy(fLengths, from, fLengths, to, length);
+		System.arraycopy(fTypes, from, fTypes, to, length);
+	}
+
+	/**
+	 * Moves the boundary behind which the pending shift applies to the given index.
+	 *
+	 * @param index the new shift index
+	 */
+	private void moveShiftIndex(int index) {
+		if (fShiftDelta == 0) {
+			fShiftIndex= index;
+			return;
+		}
+		if (index > fShiftIndex) {
+			for (int i= fShiftIndex; i < index; i++)
+				fOffsets[i] += fShiftDelta;
+		} else {
+			for (int i= index; i < fShiftIndex; i++)
+				fOffsets[i] -= fShiftDelta;
+		}
+		fShiftIndex= index;
+	}
+
+	/**
+	 * Returns the offset of the partition at the given index.
+	 *
+	 * @param index the index of the partition
+	 * @return the partition's offset
+	 */
+	private int offsetAt(int index) {
+		return index < fShiftIndex ? fOffsets[index] : fOffsets[index] + fShiftDelta;
+	}
+
+	/**
+	 * Returns the index of the first partition that starts at or behind the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first partition starting at or behind the offset
+	 */
+	private int indexOf(int offset) {
+		int low= 0, high= fSize;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (offsetAt(mid) < offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Appends a partition. Only used while the shift is not pending.
+	 *
+	 * @param offset the partition's offset
+	 * @param length the partition's length
+	 * @param type the partition's content type
+	 */
+	private void add(int offset, int length, String type) {
+		if (fSize == fOffsets.length) {
+			int capacity= fSize * 2;
+			fOffsets= grow(fOffsets, capacity);
+			fLengths= grow(fLengths, capacity);
+			fTypes= grow(fTypes, capacity);
+		}
+		fOffsets[fSize]= offset;
+		fLengths[fSize]= length;
+		fTypes[fSize]= type;
+		++ fSize;
+	}
+
+	/**
+	 * Removes all partitions.
+	 */
+	private void clear() {
+		fOffsets= new int[INITIAL_CAPACITY];
+		fLengths= new int[INITIAL_CAPACITY];
+		fTypes= new String[INITIAL_CAPACITY];
+		fSize= 0;
+		fShiftIndex= 0;
+		fShiftDelta= 0;
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		int[] result= new int[capacity];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	private static String[] grow(String[] array, int capacity) {
+		String[] result= new String[capacity];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	/**
+	 * Returns whether the two given ranges overlap, using the semantics of
+	 * {@link org.eclipse.jface.text.Position#overlapsWith(int, int)}.
+	 *
+	 * @param offset the offset of the first range
+	 * @param length the length of the first range
+	 * @param rangeOffset the offset of the second range
+	 * @param rangeLength the length of the second range
+	 * @return <code>true</code> if the ranges overlap
+	 */
+	private static boolean overlapsWith(int offset, int length, int rangeOffset, int rangeLength) {
+		int end= rangeOffset + rangeLength;
+		int thisEnd= offset + length;
+
+		if (rangeLength > 0) {
+			if (length > 0)
+				return offset < end && rangeOffset < thisEnd;
+			return rangeOffset <= offset && offset < end;
+		}
+
+		if (length > 0)
+			return offset <= rangeOffset && rangeOffset < thisEnd;
+		return offset == rangeOffset;
+	}
+
+	/**
+	 * Helper method for tracking the minimal region containing all partition changes.
+	 *
+	 * @param offset the offset
+	 * @param length the length
+	 */
+	private void rememberRegion(int offset, int length) {
+		if (fStartOffset == -1 || offset < fStartOffset)
+			fStartOffset= offset;
+
+		int endOffset= offset + length;
+		if (fEndOffset == -1 || endOffset > fEndOffset)
+			fEndOffset= endOffset;
+	}
+
+	/**
+	 * Creates the minimal region containing all partition changes using the
+	 * remembered offset, end offset, and deletion offset.
+	 *
+	 * @return the minimal region containing all the partition changes
+	 */
+	private IRegion createRegion() {
+		if (fDeleteOffset == -1) {
+			if (fStartOffset == -1 || fEndOffset == -1)
+				return null;
+			return new Region(fStartOffset, fEndOffset - fStartOffset);
+		} else if (fStartOffset == -1 || fEndOffset == -1) {
+			return new Region(fDeleteOffset, 0);
+		} else {
+			int offset= Math.min(fDeleteOffset, fStartOffset);
+			int endOffset= Math.max(fDeleteOffset, fEndOffset);
+			return new Region(offset, endOffset - offset);
+		}
+	}
+
+	/**
+	 * Returns the number of characters that have been re-scanned in response to the last
+	 * document change. After initialization this is the document length.
+	 *
+	 * @return the number of re-scanned characters
+	 */
+	public int getLastRescanLength() {
+		return fLastRescanLength;
+	}
+
+	/**
+	 * Returns the number of partitions the scanner has returned in response to the last
+	 * document change. After initialization this is the number of partitions.
+	 *
+	 * @return the number of re-scanned partitions
+	 */
+	public int getLastRescanPartitionCount() {
+		return fLastRescanPartitionCount;
+	}
+
+	/**
+	 * Returns the number of partitions that are explicitly known to this partitioner, i.e.
+	 * not counting the implicit default content type gaps between them.
+	 *
+	 * @return the number of partitions
+	 */
+	public int getPartitionCount() {
+		checkInitialization();
+		return fSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public String getContentType(int offset) {
+		checkInitialization();
+
+		int index= indexOf(offset);
+		if (index < fSize && offsetAt(index) == offset) {
+			if (fLengths[index] > 0)
+				return fTypes[index];
+		} else if (index > 0) {
+			int previousOffset= offsetAt(index - 1);
+			if (previousOffset <= offset && offset < previousOffset + fLengths[index - 1])
+				return fTypes[index - 1];
+		}
+
+		return IDocument.DEFAULT_CONTENT_TYPE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public ITypedRegion getPartition(int offset) {
+		checkInitialization();
+
+		if (fSize == 0)
+			return new TypedRegion(0, fDocument.getLength(), IDocument.DEFAULT_CONTENT_TYPE);
+
+		int index= indexOf(offset);
+
+		if (index < fSize) {
+
+			int nextOffset= offsetAt(index);
+			if (offset == nextOffset)
+				return new TypedRegion(nextOffset, fLengths[index], fTypes[index]);
+
+			if (index == 0)
+				return new TypedRegion(0, nextOffset, IDocument.DEFAULT_CONTENT_TYPE);
+
+			int previousOffset= offsetAt(index - 1);
+			int endOffset= previousOffset + fLengths[index - 1];
+			if (previousOffset <= offset && offset < endOffset)
+				return new TypedRegion(previousOffset, fLengths[index - 1], fTypes[index - 1]);
+
+			return new TypedRegion(endOffset, nextOffset - endOffset, IDocument.DEFAULT_CONTENT_TYPE);
+		}
+
+		int previousOffset= offsetAt(fSize - 1);
+		int endOffset= previousOffset + fLengths[fSize - 1];
+		if (previousOffset <= offset && offset < endOffset)
+			return new TypedRegion(previousOffset, fLengths[fSize - 1], fTypes[fSize - 1]);
+
+		return new TypedRegion(endOffset, fDocument.getLength() - endOffset, IDocument.DEFAULT_CONTENT_TYPE);
+	}
+
+	@Override
+	public final ITypedRegion[] computePartitioning(int offset, int length) {
+		return computePartitioning(offset, length, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public String[] getLegalContentTypes() {
+		return TextUtilities.copy(fLegalContentTypes);
+	}
+
+	/**
+	 * Returns whether the given type is one of the legal content types.
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 *
+	 * @param contentType the content type to check
+	 * @return <code>true</code> if the content type is a legal content type
+	 */
+	protected boolean isSupportedContentType(String contentType) {
+		if (contentType != null) {
+			for (String fLegalContentType : fLegalContentTypes) {
+				if (fLegalContentType.equals(contentType))
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns a content type encoded in the given token. If the token's
+	 * data is not <code>null</code> and a string it is assumed that
+	 * it is the encoded content type.
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 *
+	 * @param token the token whose content type is to be determined
+	 * @return the token's content type
+	 */
+	protected String getTokenContentType(IToken token) {
+		Object data= token.getData();
+		if (data instanceof String)
+			return (String) data;
+		return null;
+	}
+
+	/* zero-length partition support */
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public String getContentType(int offset, boolean preferOpenPartitions) {
+		return getPartition(offset, preferOpenPartitions).getType();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public ITypedRegion getPartition(int offset, boolean preferOpenPartitions) {
+		ITypedRegion region= getPartition(offset);
+		if (preferOpenPartitions) {
+			if (region.getOffset() == offset && !region.getType().equals(IDocument.DEFAULT_CONTENT_TYPE)) {
+				if (offset > 0) {
+					region= getPartition(offset - 1);
+					if (region.getType().equals(IDocument.DEFAULT_CONTENT_TYPE))
+						return region;
+				}
+				return new TypedRegion(offset, 0, IDocument.DEFAULT_CONTENT_TYPE);
+			}
+		}
+		return region;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be replaced or extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public ITypedRegion[] computePartitioning(int offset, int length, boolean includeZeroLengthPartitions) {
+		checkInitialization();
+		List<TypedRegion> list= new ArrayList<>();
+
+		int endOffset= offset + length;
+		int previousEnd= -1;
+		int start, end, gapOffset, gapLength;
+
+		int startIndex= getFirstIndexEndingAfterOffset(offset);
+		int endIndex= indexOf(endOffset);
+		for (int i= startIndex; i < endIndex; i++) {
+
+			int currentOffset= offsetAt(i);
+			int currentLength= fLengths[i];
+
+			gapOffset= (previousEnd != -1) ? previousEnd : 0;
+			gapLength= currentOffset - gapOffset;
+			if ((includeZeroLengthPartitions && overlapsOrTouches(gapOffset, gapLength, offset, length)) ||
+					(gapLength > 0 && overlapsWith(gapOffset, gapLength, offset, length))) {
+				start= Math.max(offset, gapOffset);
+				end= Math.min(endOffset, gapOffset + gapLength);
+				list.add(new TypedRegion(start, end - start, IDocument.DEFAULT_CONTENT_TYPE));
+			}
+
+			if (overlapsWith(currentOffset, currentLength, offset, length)) {
+				start= Math.max(offset, currentOffset);
+				end= Math.min(endOffset, currentOffset + currentLength);
+				list.add(new TypedRegion(start, end - start, fTypes[i]));
+			}
+
+			previousEnd= currentOffset + currentLength;
+		}
+
+		if (previousEnd != -1) {
+			gapOffset= previousEnd;
+			gapLength= fDocument.getLength() - gapOffset;
+			if ((includeZeroLengthPartitions && overlapsOrTouches(gapOffset, gapLength, offset, length)) ||
+					(gapLength > 0 && overlapsWith(gapOffset, gapLength, offset, length))) {
+				start= Math.max(offset, gapOffset);
+				end= Math.min(endOffset, fDocument.getLength());
+				list.add(new TypedRegion(start, end - start, IDocument.DEFAULT_CONTENT_TYPE));
+			}
+		}
+
+		if (list.isEmpty())
+			list.add(new TypedRegion(offset, length, IDocument.DEFAULT_CONTENT_TYPE));
+
+		TypedRegion[] result= new TypedRegion[list.size()];
+		list.toArray(result);
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given ranges overlap with or touch each other.
+	 *
+	 * @param gapOffset the offset of the first range
+	 * @param gapLength the length of the first range
+	 * @param offset the offset of the second range
+	 * @param length the length of the second range
+	 * @return <code>true</code> if the given ranges overlap with or touch each other
+	 */
+	private static boolean overlapsOrTouches(int gapOffset, int gapLength, int offset, int length) {
+		return gapOffset <= offset + length && offset <= gapOffset + gapLength;
+	}
+
+	/**
+	 * Returns the index of the first partition which ends after the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first partition which ends after the offset
+	 */
+	private int getFirstIndexEndingAfterOffset(int offset) {
+		int i= -1, j= fSize;
+		while (j - i > 1) {
+			int k= (i + j) >> 1;
+			if (offsetAt(k) + fLengths[k] > offset)
+				j= k;
+			else
+				i= k;
+		}
+		return j;
+	}
+
+	@Override
+	public void startRewriteSession(DocumentRewriteSession session) throws IllegalStateException {
+		if (fActiveRewriteSession != null)
+			throw new IllegalStateException();
+		fActiveRewriteSession= session;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public void stopRewriteSession(DocumentRewriteSession session) {
+		if (fActiveRewriteSession == session)
+			flushRewriteSession();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * May be extended by subclasses.
+	 * </p>
+	 */
+	@Override
+	public DocumentRewriteSession getActiveRewriteSession() {
+		return fActiveRewriteSession;
+	}
+
+	/**
+	 * Flushes the active rewrite session.
+	 */
+	protected final void flushRewriteSession() {
+		fActiveRewriteSession= null;
+		clear();
+		fIsInitialized= false;
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.rules;
+
+
+/**
+ * Extension interface for {@link ICharacterScanner}. It allows rules to read
+ * runs of characters in bulk instead of calling {@link ICharacterScanner#read()}
+ * for each single character.
+ * <p>
+ * Bulk reads and single character reads may be mixed freely. After a bulk read
+ * the scanner is positioned behind the last character that has been read.
+ * </p>
+ *
+ * @see BufferedRuleBasedScanner
+ * @since 3.16
+ */
+public interface ICharacterScannerExtension {
+
+	/**
+	 * Reads up to <code>length</code> characters into the given buffer. Fewer
+	 * characters are read if the end of the scanned range is reached.
+	 *
+	 * @param buffer the buffer to store the characters in
+	 * @param offset the index in <code>buffer</code> at which to store the first character
+	 * @param length the maximum number of characters to read
+	 * @return the number of characters read, <code>0</code> if the scanner is at the end of the
+	 *         scanned range
+	 */
+	int read(char[] buffer, int offset, int length);
+
+	/**
+	 * Rewinds the scanner by the given number of characters.
+	 *
+	 * @param count the number of characters to unread
+	 */
+	void unread(int count);
+}
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.rules;
+
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.Assert;
+
+
+/**
+ * A set of words and their associated tokens that is organized as a trie. A word rule created
+ * with {@link WordRule#WordRule(IWordDetector, IToken, KeywordTrie)} walks the trie while it reads
+ * the characters of a word from the {@link ICharacterScanner} and therefore neither needs to build
+ * a string nor to compute a hash code for each candidate word.
+ * <p>
+ * A trie is intended to be populated once per language and then be shared between all scanners
+ * of that language. Looking up words does not modify the trie, so it may be shared between threads
+ * as long as no words are added after it has been published.
+ * </p>
+ * <p>
+ * If the trie ignores case, words are compared character by character using
+ * {@link Character#toLowerCase(char)}.
+ * </p>
+ *
+ * @since 3.16
+ */
+public final class KeywordTrie {
+
+	/** The index of the root node. */
+	static final int ROOT= 0;
+	/** Node index used to indicate that no word starts with the characters read so far. */
+	static final int NONE= -1;
+
+	/** The initial capacity of the node arrays. */
+	private static final int INITIAL_CAPACITY= 64;
+	/** Shared empty key array. */
+	private static final char[] NO_KEYS= new char[0];
+	/** Shared empty child array. */
+	private static final int[] NO_CHILDREN= new int[0];
+
+	/** Tells whether this trie ignores case. */
+	private final boolean fIgnoreCase;
+	/** The sorted characters labeling the outgoing edges of each node. */
+	private char[][] fKeys= new char[INITIAL_CAPACITY][];
+	/** The target nodes of the outgoing edges of each node, in the order of {@link #fKeys}. */
+	private int[][] fChildren= new int[INITIAL_CAPACITY][];
+	/** The token of the word ending at each node, or <code>null</code>. */
+	private IToken[] fTokens= new IToken[INITIAL_CAPACITY];
+	/** The number of nodes. */
+	private int fNodeCount;
+	/** The number of words. */
+	private int fWordCount;
+
+
+	/**
+	 * Creates a new case sensitive keyword trie.
+	 */
+	public KeywordTrie() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new keyword trie.
+	 *
+	 * @param ignoreCase <code>true</code> if words should be matched ignoring case
+	 */
+	public KeywordTrie(boolean ignoreCase) {
+		fIgnoreCase= ignoreCase;
+		newNode();
+	}
+
+	/**
+	 * Returns whether this trie ignores case.
+	 *
+	 * @return <code>true</code> if this trie ignores case
+	 */
+	public boolean isIgnoreCase() {
+		return fIgnoreCase;
+	}
+
+	/**
+	 * Adds a word and the token to be returned if it is detected. If the word has already been
+	 * added its token is replaced.
+	 *
+	 * @param word the word, may not be <code>null</code> or empty
+	 * @param token the token to be returned if the word has been found, may not be
+	 *            <code>null</code>
+	 */
+	public void addWord(String word, IToken token) {
+		Assert.isNotNull(word);
+		Assert.isLegal(word.length() > 0);
+		Assert.isNotNull(token);
+
+		int node= ROOT;
+		for (int i= 0; i < word.length(); i++) {
+			char c= normalize(word.charAt(i));
+			char[] keys= fKeys[node];
+			int index= Arrays.binarySearch(keys, c);
+			if (index >= 0) {
+				node= fChildren[node][index];
+			} else {
+				int child= newNode();
+				insertEdge(node, -(index + 1), c, child);
+				node= child;
+			}
+		}
+
+		if (fTokens[node] == null)
+			++ fWordCount;
+		fTokens[node]= token;
+	}
+
+	/**
+	 * Adds all given words with the same token.
+	 *
+	 * @param words the words, may not be <code>null</code>
+	 * @param token the token to be returned if one of the words has been found, may not be
+	 *            <code>null</code>
+	 */
+	public void addWords(String[] words, IToken token) {
+		Assert.isNotNull(words);
+		for (String word : words)
+			addWord(word, token);
+	}
+
+	/**
+	 * Returns the token associated with the given word.
+	 *
+	 * @param word the word to look up
+	 * @return the associated token or <code>null</code> if the word is not contained in this trie
+	 */
+	public IToken getToken(String word) {
+		int node= ROOT;
+		for (int i= 0; i < word.length() && node != NONE; i++)
+			node= next(node, word.charAt(i));
+		return getToken(node);
+	}
+
+	/**
+	 * Returns the number of words in this trie.
+	 *
+	 * @return the number of words
+	 */
+	public int size() {
+		return fWordCount;
+	}
+
+	/**
+	 * Returns the node reached from the given node by the given character.
+	 *
+	 * @param node the current node or {@link #NONE}
+	 * @param c the next character of the word
+	 * @return the next node or {@link #NONE} if no word continues with the character
+	 */
+	int next(int node, char c) {
+		if (node == NONE)
+			return NONE;
+		char[] keys= fKeys[node];
+		int length= keys.length;
+		if (length == 0)
+			return NONE;
+		c= normalize(c);
+		int index;
+		if (length <= 8) {
+			index= NONE;
+			for (int i= 0; i < length; i++) {
+				if (keys[i] == c) {
+					index= i;
+					break;
+				}
+			}
+		} else {
+			index= Arrays.binarySearch(keys, c);
+		}
+		return index < 0 ? NONE : fChildren[node][index];
+	}
+
+	/**
+	 * Returns the token of the word ending at the given node.
+	 *
+	 * @param node the node or {@link #NONE}
+	 * @return the token or <code>null</code> if no word ends at the node
+	 */
+	IToken getToken(int node) {
+		return node == NONE ? null : fTokens[node];
+	}
+
+	private char normalize(char c) {
+		return fIgnoreCase ? Character.toLowerCase(c) : c;
+	}
+
+	private int newNode() {
+		if (fNodeCount == fTokens.length) {
+			int capacity= fNodeCount * 2;
+			fKeys= Arrays.copyOf(fKeys, capacity);
+			fChildren= Arrays.copyOf(fChildren, capacity);
+			fTokens= Arrays.copyOf(fTokens, capacity);
+		}
+		fKeys[fNodeCount]= NO_KEYS;
+		fChildren[fNodeCount]= NO_CHILDREN;
+		return fNodeCount++;
+	}
+
+	private void insertEdge(int node, int index, char c, int child) {
+		char[] keys= fKeys[node];
+		int[] children= fChildren[node];
+		char[] newKeys= new char[keys.length + 1];
+		int[] newChildren= new int[children.length + 1];
+		System.arraycopy(keys, 0, newKeys, 0, index);
+		System.arraycopy(children, 0, newChildren, 0, index);
+		newKeys[index]= c;
+		newChildren[index]= child;
+		System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+		System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+		fKeys[node]= newKeys;
+		fChildren[node]= newChildren;
+	}
+}
@@ -36,6 +36,12 @@ public class WhitespaceRule implements IRule {
 	 */
 	protected final IToken fWhitespaceToken;
 
+	/**
+	 * The buffer used to read whitespace runs from an {@link ICharacterScannerExtension}.
+	 * @since 3.16
+	 */
+	private char[] fBuffer;
+
 	/**
 	 * Creates a rule which, with the help of an whitespace detector, will return
 	 * {@link Token#WHITESPACE} when a whitespace is detected.
@@ -71,6 +77,10 @@ public class WhitespaceRule implements IRule {
 	public IToken evaluate(ICharacterScanner scanner) {
 		int c= scanner.read();
 		if (fDetector.isWhitespace((char) c)) {
+			if (scanner instanceof ICharacterScannerExtension) {
+				readWhitespace((ICharacterScannerExtension) scanner);
+				return fWhitespaceToken;
+			}
 			do {
 				c= scanner.read();
 			} while (fDetector.isWhitespace((char) c));
@@ -81,4 +91,27 @@ public class WhitespaceRule implements IRule {
 		scanner.unread();
 		return Token.UNDEFINED;
 	}
+
+	/**
+	 * Reads the remaining whitespace characters in bulk and positions the scanner
+	 * behind the last whitespace character.
+	 *
+	 * @param scanner the scanner to read from
+	 * @since 3.16
+	 */
+	private void readWhitespace(ICharacterScannerExtension scanner) {
+		if (fBuffer == null)
+			fBuffer= new char[32];
+
+		int count;
+		do {
+			count= scanner.read(fBuffer, 0, fBuffer.length);
+			for (int i= 0; i < count; i++) {
+				if (!fDetector.isWhitespace(fBuffer[i])) {
+					scanner.unread(count - i);
+					return;
+				}
+			}
+		} while (count == fBuffer.length);
+	}
 }
@@ -28,8 +28,17 @@ public class WordPatternRule extends SingleLineRule {
 
 	/** The word detector used by this rule */
 	protected IWordDetector fDetector;
-	/** The internal buffer used for pattern detection */
-	private StringBuilder fBuffer= new StringBuilder();
+	/**
+	 * The last characters of the word read by {@link #endSequenceDetected(ICharacterScanner)},
+	 * used as ring buffer.
+	 * @since 3.16
+	 */
+	private char[] fTail;
+	/**
+	 * The number of characters read by {@link #endSequenceDetected(ICharacterScanner)}.
+	 * @since 3.16
+	 */
+	private int fReadCount;
 
 	/**
 	 * Creates a rule for the given starting and ending word
@@ -68,24 +77,31 @@ public class WordPatternRule extends SingleLineRule {
 	 * Returns whether the end sequence was detected.
 	 * The rule acquires the rest of the word, using the
 	 * provided word detector, and tests to determine if
-	 * it ends with the end sequence.
+	 * it ends with the end sequence. Only the last characters
+	 * of the word are remembered, the word itself is not buffered.
 	 *
 	 * @param scanner the scanner to be used
 	 * @return <code>true</code> if the word ends on the given end sequence
 	 */
 	@Override
 	protected boolean endSequenceDetected(ICharacterScanner scanner) {
-		fBuffer.setLength(0);
+		int tailLength= fEndSequence.length;
+		if (fTail == null || fTail.length != tailLength)
+			fTail= new char[tailLength];
+
+		fReadCount= 0;
 		int c= scanner.read();
 		while (fDetector.isWordPart((char) c)) {
-			fBuffer.append((char) c);
+			if (tailLength > 0)
+				fTail[fReadCount % tailLength]= (char) c;
+			++ fReadCount;
 			c= scanner.read();
 		}
 		scanner.unread();
 
-		if (fBuffer.length() >= fEndSequence.length) {
-			for (int i=fEndSequence.length - 1, j= fBuffer.length() - 1; i >= 0; i--, j--) {
-				if (fEndSequence[i] != fBuffer.charAt(j)) {
+		if (fReadCount >= tailLength) {
+			for (int i= tailLength - 1, j= fReadCount - 1; i >= 0; i--, j--) {
+				if (fEndSequence[i] != fTail[j % tailLength]) {
 					unreadBuffer(scanner);
 					return false;
 				}
@@ -105,8 +121,7 @@ public class WordPatternRule extends SingleLineRule {
 	 * @param scanner the scanner to be used
 	 */
 	protected void unreadBuffer(ICharacterScanner scanner) {
-		fBuffer.insert(0, fStartSequence);
-		for (int i= fBuffer.length() - 1; i > 0; i--)
+		for (int i= fStartSequence.length + fReadCount - 1; i > 0; i--)
 			scanner.unread();
 	}
 }
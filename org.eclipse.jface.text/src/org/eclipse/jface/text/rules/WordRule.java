@@ -25,8 +25,13 @@ import org.eclipse.core.runtime.Assert;
  * associate a token to a word. That is, not only can the rule be used to provide tokens for exact
  * matches, but also for the generalized notion of a word in the context in which it is used. A word
  * rule uses a word detector to determine what a word is.
+ * <p>
+ * Rules for languages with many predefined words should share a {@link KeywordTrie}, see
+ * {@link #WordRule(IWordDetector, IToken, KeywordTrie)}.
+ * </p>
  *
  * @see IWordDetector
+ * @see KeywordTrie
  */
 public class WordRule implements IRule {
 
@@ -48,6 +53,11 @@ public class WordRule implements IRule {
 	 * @since 3.3
 	 */
 	private boolean fIgnoreCase= false;
+	/**
+	 * The shared predefined words and tokens, or <code>null</code> if none.
+	 * @since 3.16
+	 */
+	private final KeywordTrie fKeywords;
 
 
 	/**
@@ -96,6 +106,35 @@ public class WordRule implements IRule {
 		fDetector= detector;
 		fDefaultToken= defaultToken;
 		fIgnoreCase= ignoreCase;
+		fKeywords= null;
+	}
+
+	/**
+	 * Creates a rule which, with the help of a word detector, will return the token
+	 * associated with the detected word in the given keyword trie. If no token has been
+	 * associated, the specified default token will be returned. The case sensitivity of
+	 * this rule is the one of the trie.
+	 * <p>
+	 * The trie is not copied and may be shared with other rules. Words added to this rule
+	 * with {@link #addWord(String, IToken)} are only known to this rule and are only
+	 * looked up if the word is not contained in the trie.
+	 * </p>
+	 *
+	 * @param detector the word detector to be used by this rule, may not be <code>null</code>
+	 * @param defaultToken the default token to be returned on success
+	 *			if nothing else is specified, may not be <code>null</code>
+	 * @param keywords the predefined words and their tokens, may not be <code>null</code>
+	 * @since 3.16
+	 */
+	public WordRule(IWordDetector detector, IToken defaultToken, KeywordTrie keywords) {
+		Assert.isNotNull(detector);
+		Assert.isNotNull(defaultToken);
+		Assert.isNotNull(keywords);
+
+		fDetector= detector;
+		fDefaultToken= defaultToken;
+		fIgnoreCase= keywords.isIgnoreCase();
+		fKeywords= keywords;
 	}
 
 	/**
@@ -135,18 +174,30 @@ public class WordRule implements IRule {
 			if (fColumn == UNDEFINED || (fColumn == scanner.getColumn() - 1)) {
 
 				fBuffer.setLength(0);
+				// the buffer is only needed to look up the added words or to unread the word
+				boolean buffered= fKeywords == null || !fWords.isEmpty() || fDefaultToken.isUndefined();
+				int node= KeywordTrie.ROOT;
 				do {
-					fBuffer.append((char) c);
+					if (buffered)
+						fBuffer.append((char) c);
+					if (fKeywords != null)
+						node= fKeywords.next(node, (char) c);
 					c= scanner.read();
 				} while (c != ICharacterScanner.EOF && fDetector.isWordPart((char) c));
 				scanner.unread();
 
-				String buffer= fBuffer.toString();
-				// If case-insensitive, convert to lower case before accessing the map
-				if (fIgnoreCase)
-					buffer= buffer.toLowerCase();
+				IToken token= null;
+				if (fKeywords != null)
+					token= fKeywords.getToken(node);
+
+				if (token == null && !fWords.isEmpty()) {
+					String buffer= fBuffer.toString();
+					// If case-insensitive, convert to lower case before accessing the map
+					if (fIgnoreCase)
+						buffer= buffer.toLowerCase();
 
-				IToken token= fWords.get(buffer);
+					token= fWords.get(buffer);
+				}
 
 				if (token != null)
 					return token;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,14 +16,12 @@ package org.eclipse.jface.text.source;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
@@ -323,6 +321,11 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 	 * and underlines.
 	 */
 	private static class Decoration {
+		/**
+		 * The annotation of this decoration
+		 * @since 3.16
+		 */
+		private Annotation fAnnotation;
 		/** The position of this decoration */
 		private Position fPosition;
 		/** The color of this decoration */
@@ -555,160 +558,150 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		int drawRangeStart= Integer.MAX_VALUE;
 		int drawRangeEnd= -1;
 
-		Map<Annotation, Decoration> decorationsMap;
-		Map<Annotation, Decoration> highlightedDecorationsMap;
-
-		// Clone decoration maps
+		// Update the decoration maps in place, only the annotations of the event are looked at
 		synchronized (fDecorationMapLock) {
-			decorationsMap= new HashMap<>(fDecorationsMap);
-		}
-		synchronized (fHighlightedDecorationsMapLock) {
-			highlightedDecorationsMap= new HashMap<>(fHighlightedDecorationsMap);
-		}
-
-		boolean isWorldChange= false;
-
-		Iterator<Annotation> e;
-		if (event == null || event.isWorldChange()) {
-			isWorldChange= true;
+			synchronized (fHighlightedDecorationsMapLock) {
+				Map<Annotation, Decoration> decorationsMap= fDecorationsMap;
+				Map<Annotation, Decoration> highlightedDecorationsMap= fHighlightedDecorationsMap;
 
-			if (DEBUG && event == null)
-				System.out.println("AP: INTERNAL CHANGE"); //$NON-NLS-1$
+				boolean isWorldChange= false;
 
-			Iterator<Entry<Annotation, Decoration>> iter= decorationsMap.entrySet().iterator();
-			while (iter.hasNext()) {
-				Entry<Annotation, Decoration> entry= iter.next();
-				Annotation annotation= entry.getKey();
-				Decoration decoration= entry.getValue();
-				drawDecoration(decoration, null, annotation, clippingRegion, document);
-			}
+				Iterator<Annotation> e;
+				if (event == null || event.isWorldChange()) {
+					isWorldChange= true;
 
-			decorationsMap.clear();
+					if (DEBUG && event == null)
+						System.out.println("AP: INTERNAL CHANGE"); //$NON-NLS-1$
 
-			highlightedDecorationsMap.clear();
+					Iterator<Entry<Annotation, Decoration>> iter= decorationsMap.entrySet().iterator();
+					while (iter.hasNext()) {
+						Entry<Annotation, Decoration> entry= iter.next();
+						Annotation annotation= entry.getKey();
+						Decoration decoration= entry.getValue();
+						drawDecoration(decoration, null, annotation, clippingRegion, document);
+					}
 
-			e= fModel.getAnnotationIterator();
+					decorationsMap.clear();
 
+					highlightedDecorationsMap.clear();
 
-		} else {
+					e= fModel.getAnnotationIterator();
 
-			// Remove annotations
-			Annotation[] removedAnnotations= event.getRemovedAnnotations();
-			for (Annotation annotation : removedAnnotations) {
-				Decoration decoration= highlightedDecorationsMap.remove(annotation);
-				if (decoration != null) {
-					Position position= decoration.fPosition;
-					if (position != null) {
-						highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
-						highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
-					}
-				}
-				decoration= decorationsMap.remove(annotation);
-				if (decoration != null) {
-					drawDecoration(decoration, null, annotation, clippingRegion, document);
-					Position position= decoration.fPosition;
-					if (position != null) {
-						drawRangeStart= Math.min(drawRangeStart, position.offset);
-						drawRangeEnd= Math.max(drawRangeEnd, position.offset + position.length);
-					}
-				}
 
-			}
+				} else {
 
-			// Update existing annotations
-			Annotation[] changedAnnotations= event.getChangedAnnotations();
-			for (Annotation annotation : changedAnnotations) {
-				boolean isHighlighting= false;
-
-				Decoration decoration= highlightedDecorationsMap.get(annotation);
-
-				if (decoration != null) {
-					isHighlighting= true;
-					// The call below updates the decoration - no need to create new decoration
-					decoration= getDecoration(annotation, decoration);
-					if (decoration == null) {
-						Decoration removedDecoration= highlightedDecorationsMap.remove(annotation);
-						if (removedDecoration != null) {
-							highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, removedDecoration.fPosition.offset);
-							highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, removedDecoration.fPosition.offset + removedDecoration.fPosition.length);
+					// Remove annotations
+					Annotation[] removedAnnotations= event.getRemovedAnnotations();
+					for (Annotation annotation : removedAnnotations) {
+						Decoration decoration= highlightedDecorationsMap.remove(annotation);
+						if (decoration != null) {
+							Position position= decoration.fPosition;
+							if (position != null) {
+								highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
+								highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
+							}
+						}
+						decoration= decorationsMap.remove(annotation);
+						if (decoration != null) {
+							drawDecoration(decoration, null, annotation, clippingRegion, document);
+							Position position= decoration.fPosition;
+							if (position != null) {
+								drawRangeStart= Math.min(drawRangeStart, position.offset);
+								drawRangeEnd= Math.max(drawRangeEnd, position.offset + position.length);
+							}
 						}
-					}
 
-				} else {
-					decoration= getDecoration(annotation, decoration);
-					if (decoration != null && decoration.fPaintingStrategy instanceof ITextStyleStrategy) {
-						highlightedDecorationsMap.put(annotation, decoration);
-						isHighlighting= true;
 					}
-				}
-
-				boolean usesDrawingStrategy= !isHighlighting && decoration != null;
 
-				Position position= null;
-				if (decoration == null)
-					position= fModel.getPosition(annotation);
-				else
-					position= decoration.fPosition;
+					// Update existing annotations
+					Annotation[] changedAnnotations= event.getChangedAnnotations();
+					for (Annotation annotation : changedAnnotations) {
+						boolean isHighlighting= false;
+
+						Decoration decoration= highlightedDecorationsMap.get(annotation);
+
+						if (decoration != null) {
+							isHighlighting= true;
+							// The call below updates the decoration - no need to create new decoration
+							decoration= getDecoration(annotation, decoration);
+							if (decoration == null) {
+								Decoration removedDecoration= highlightedDecorationsMap.remove(annotation);
+								if (removedDecoration != null) {
+									highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, removedDecoration.fPosition.offset);
+									highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, removedDecoration.fPosition.offset + removedDecoration.fPosition.length);
+								}
+							}
+
+						} else {
+							decoration= getDecoration(annotation, decoration);
+							if (decoration != null && decoration.fPaintingStrategy instanceof ITextStyleStrategy) {
+								highlightedDecorationsMap.put(annotation, decoration);
+								isHighlighting= true;
+							}
+						}
 
-				if (position != null && !position.isDeleted()) {
-					if (isHighlighting) {
-						highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
-						highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
-					}
-					if (usesDrawingStrategy) {
-						drawRangeStart= Math.min(drawRangeStart, position.offset);
-						drawRangeEnd= Math.max(drawRangeEnd, position.offset + position.length);
-					}
-				} else {
-					Decoration removedDecoration= highlightedDecorationsMap.remove(annotation);
-					if (removedDecoration != null) {
-						highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, removedDecoration.fPosition.offset);
-						highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, removedDecoration.fPosition.offset + removedDecoration.fPosition.length);
-					}
-				}
+						boolean usesDrawingStrategy= !isHighlighting && decoration != null;
 
-				if (usesDrawingStrategy) {
-					Decoration oldDecoration= decorationsMap.get(annotation);
-					if (oldDecoration != null) {
-						drawDecoration(oldDecoration, null, annotation, clippingRegion, document);
-						if (decoration != null)
-							decorationsMap.put(annotation, decoration);
+						Position position= null;
+						if (decoration == null)
+							position= fModel.getPosition(annotation);
 						else
-							decorationsMap.remove(annotation);
+							position= decoration.fPosition;
+
+						if (position != null && !position.isDeleted()) {
+							if (isHighlighting) {
+								highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
+								highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
+							}
+							if (usesDrawingStrategy) {
+								drawRangeStart= Math.min(drawRangeStart, position.offset);
+								drawRangeEnd= Math.max(drawRangeEnd, position.offset + position.length);
+							}
+						} else {
+							Decoration removedDecoration= highlightedDecorationsMap.remove(annotation);
+							if (removedDecoration != null) {
+								highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, removedDecoration.fPosition.offset);
+								highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, removedDecoration.fPosition.offset + removedDecoration.fPosition.length);
+							}
+						}
+
+						if (usesDrawingStrategy) {
+							Decoration oldDecoration= decorationsMap.get(annotation);
+							if (oldDecoration != null) {
+								drawDecoration(oldDecoration, null, annotation, clippingRegion, document);
+								if (decoration != null)
+									decorationsMap.put(annotation, decoration);
+								else
+									decorationsMap.remove(annotation);
+							}
+						}
 					}
+
+					e= Arrays.asList(event.getAddedAnnotations()).iterator();
 				}
-			}
 
-			e= Arrays.asList(event.getAddedAnnotations()).iterator();
-		}
+				// Add new annotations
+				while (e.hasNext()) {
+					Annotation annotation= e.next();
+					Decoration pp= getDecoration(annotation, null);
+					if (pp != null) {
+						if (pp.fPaintingStrategy instanceof IDrawingStrategy) {
+							decorationsMap.put(annotation, pp);
+							drawRangeStart= Math.min(drawRangeStart, pp.fPosition.offset);
+							drawRangeEnd= Math.max(drawRangeEnd, pp.fPosition.offset + pp.fPosition.length);
+						} else if (pp.fPaintingStrategy instanceof ITextStyleStrategy) {
+							highlightedDecorationsMap.put(annotation, pp);
+							highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, pp.fPosition.offset);
+							highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, pp.fPosition.offset + pp.fPosition.length);
+						}
 
-		// Add new annotations
-		while (e.hasNext()) {
-			Annotation annotation= e.next();
-			Decoration pp= getDecoration(annotation, null);
-			if (pp != null) {
-				if (pp.fPaintingStrategy instanceof IDrawingStrategy) {
-					decorationsMap.put(annotation, pp);
-					drawRangeStart= Math.min(drawRangeStart, pp.fPosition.offset);
-					drawRangeEnd= Math.max(drawRangeEnd, pp.fPosition.offset + pp.fPosition.length);
-				} else if (pp.fPaintingStrategy instanceof ITextStyleStrategy) {
-					highlightedDecorationsMap.put(annotation, pp);
-					highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, pp.fPosition.offset);
-					highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, pp.fPosition.offset + pp.fPosition.length);
+					}
 				}
 
+				updateDrawRanges(drawRangeStart, drawRangeEnd, isWorldChange);
+				updateHighlightRanges(highlightAnnotationRangeStart, highlightAnnotationRangeEnd, isWorldChange);
 			}
 		}
-
-		synchronized (fDecorationMapLock) {
-			fDecorationsMap= decorationsMap;
-			updateDrawRanges(drawRangeStart, drawRangeEnd, isWorldChange);
-		}
-
-		synchronized (fHighlightedDecorationsMapLock) {
-			fHighlightedDecorationsMap= highlightedDecorationsMap;
-			updateHighlightRanges(highlightAnnotationRangeStart, highlightAnnotationRangeEnd, isWorldChange);
-		}
 	}
 
 	/**
@@ -853,6 +846,7 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		if (decoration == null)
 			decoration= new Decoration();
 
+		decoration.fAnnotation= annotation;
 		decoration.fPosition= position;
 		decoration.fColor= color;
 		if (fAnnotationAccess instanceof IAnnotationAccessExtension) {
@@ -976,29 +970,25 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 
 	@Override
 	public void applyTextPresentation(TextPresentation tp) {
-		Set<Entry<Annotation, Decoration>> decorations;
+		IRegion region= tp.getExtent();
 
 		synchronized (fHighlightedDecorationsMapLock) {
 			if (fHighlightedDecorationsMap == null || fHighlightedDecorationsMap.isEmpty())
 				return;
-
-			decorations= new HashSet<>(fHighlightedDecorationsMap.entrySet());
 		}
 
-		IRegion region= tp.getExtent();
+		List<Decoration> decorations= getDecorations(fHighlightedDecorationsMap, fHighlightedDecorationsMapLock, region.getOffset(), region.getLength());
 
 		if (DEBUG)
 			System.out.println("AP: applying text presentation offset: " + region.getOffset() + ", length= " + region.getLength()); //$NON-NLS-1$ //$NON-NLS-2$
 
 		for (int layer= 0, maxLayer= 1;	layer < maxLayer; layer++) {
 
-			for (Entry<Annotation, Decoration> entry : decorations) {
-				Annotation a= entry.getKey();
+			for (Decoration pp : decorations) {
+				Annotation a= pp.fAnnotation;
 				if (a.isMarkedDeleted())
 					continue;
 
-				Decoration pp = entry.getValue();
-
 				maxLayer= Math.max(maxLayer, pp.fLayer + 1); // dynamically update layer maximum
 				if (pp.fLayer != layer)	// wrong layer: skip annotation
 					continue;
@@ -1355,36 +1345,29 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		int vLength= clippingRegion.getLength();
 
 		final GC gc= event != null ? event.gc : null;
+		IDocument document= fSourceViewer.getDocument();
 
-		// Clone decorations
-		Collection<Entry<Annotation, Decoration>> decorations;
-		synchronized (fDecorationMapLock) {
-			decorations= new ArrayList<>(fDecorationsMap.size());
-			decorations.addAll(fDecorationsMap.entrySet());
-		}
+		// Collect the decorations in the clipping region
+		List<Decoration> decorations= getDecorations(fDecorationsMap, fDecorationMapLock, vOffset, vLength);
 
 		/*
 		 * Create a new list of annotations to be drawn, since removing from decorations is more
 		 * expensive. One bucket per drawing layer. Use linked lists as addition is cheap here.
 		 */
-		ArrayList<LinkedList<Entry<Annotation, Decoration>>> toBeDrawn= new ArrayList<>(10);
-		for (Entry<Annotation, Decoration> entry : decorations) {
-			Annotation a= entry.getKey();
-			Decoration pp = entry.getValue();
+		ArrayList<LinkedList<Decoration>> toBeDrawn= new ArrayList<>(10);
+		for (Decoration pp : decorations) {
+			Annotation a= pp.fAnnotation;
 			// prune any annotation that is not drawable or does not need drawing
 			if (!(a.isMarkedDeleted() || skip(a) || !regionsTouchOrOverlap(pp.fPosition.getOffset(), pp.fPosition.getLength(), vOffset, vLength))) {
 				// ensure sized appropriately
 				for (int i= toBeDrawn.size(); i <= pp.fLayer; i++)
 					toBeDrawn.add(new LinkedList<>());
-				toBeDrawn.get(pp.fLayer).add(entry);
+				toBeDrawn.get(pp.fLayer).add(pp);
 			}
 		}
-		IDocument document= fSourceViewer.getDocument();
-		for (LinkedList<Entry<Annotation, Decoration>> layer : toBeDrawn) {
-			for (Entry<Annotation, Decoration> entry : layer) {
-				Annotation a= entry.getKey();
-				Decoration pp = entry.getValue();
-				drawDecoration(pp, gc, a, clippingRegion, document);
+		for (LinkedList<Decoration> layer : toBeDrawn) {
+			for (Decoration pp : layer) {
+				drawDecoration(pp, gc, pp.fAnnotation, clippingRegion, document);
 			}
 		}
 	}
@@ -1588,6 +1571,41 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		return (offset1 <= offset2+length2) && (offset2 <= offset1+length1);
 	}
 
+	/**
+	 * Returns the decorations of the given map whose annotations may touch or overlap with the
+	 * given region. If the annotation model supports {@link IAnnotationModelExtension3}, only the
+	 * annotations of the model in the region are looked up in the map, otherwise all decorations
+	 * are returned. The caller has to check the positions of the returned decorations.
+	 *
+	 * @param decorationsMap the decoration map
+	 * @param lock the lock of the decoration map
+	 * @param offset the offset of the region
+	 * @param length the length of the region
+	 * @return the decorations which may touch or overlap with the region
+	 * @since 3.16
+	 */
+	private List<Decoration> getDecorations(Map<Annotation, Decoration> decorationsMap, Object lock, int offset, int length) {
+		IAnnotationModel model= fModel;
+		if (!(model instanceof IAnnotationModelExtension3)) {
+			synchronized (lock) {
+				return new ArrayList<>(decorationsMap.values());
+			}
+		}
+
+		// widen the region by one character so that touching annotations are found as well
+		int start= Math.max(0, offset - 1);
+		Annotation[] annotations= ((IAnnotationModelExtension3) model).getAnnotations(start, offset + length + 1 - start);
+		List<Decoration> decorations= new ArrayList<>(annotations.length);
+		synchronized (lock) {
+			for (Annotation annotation : annotations) {
+				Decoration decoration= decorationsMap.get(annotation);
+				if (decoration != null)
+					decorations.add(decoration);
+			}
+		}
+		return decorations;
+	}
+
 	@Override
 	public void deactivate(boolean redraw) {
 		if (fIsActive) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2017, 2018 Angelo ZERR.
+ *  Copyright (c) 2017, 2019 Angelo ZERR.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -13,8 +13,10 @@
  *******************************************************************************/
 package org.eclipse.jface.text.source;
 
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.codemining.ICodeMining;
 import org.eclipse.jface.text.codemining.ICodeMiningProvider;
+import org.eclipse.jface.text.codemining.ICodeMiningProviderExtension;
 
 /**
  * Extension interface for {@link org.eclipse.jface.text.source.ISourceViewer}.
@@ -60,4 +62,23 @@ public interface ISourceViewerExtension5 {
 	 */
 	void updateCodeMinings();
 
+	/**
+	 * Update the code minings after the given region of the document has been changed.
+	 * <p>
+	 * If all code mining providers implement {@link ICodeMiningProviderExtension}, only the code
+	 * minings of the lines touched by the region are recomputed; the other code minings are kept.
+	 * Otherwise, all code minings are updated as with {@link #updateCodeMinings()}.
+	 * </p>
+	 * <p>
+	 * The default implementation calls {@link #updateCodeMinings()}.
+	 * </p>
+	 *
+	 * @param damage the changed region of the document, or <code>null</code> to update all code
+	 *            minings
+	 * @since 3.16
+	 */
+	default void updateCodeMinings(IRegion damage) {
+		updateCodeMinings();
+	}
+
 }
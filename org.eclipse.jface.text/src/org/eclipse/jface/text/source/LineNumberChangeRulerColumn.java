@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -182,6 +182,12 @@ public class LineNumberChangeRulerColumn extends LineNumberRulerColumn implement
 			super.doPaint(gc, visibleLines);
 	}
 
+	@Override
+	boolean isLinewisePaint() {
+		// revisions are painted as boxes spanning several lines
+		return !fRevisionPainter.hasInformation();
+	}
+
 	@Override
 	public IAnnotationHover getHover() {
 		int activeLine= getParentRuler().getLineOfLastMouseButtonActivity();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -91,6 +91,7 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 		@Override
 		public void textChanged(TextEvent event) {
 
+			invalidateBuffer();
 			fCachedRedrawState= event.getViewerRedrawState();
 			if (!fCachedRedrawState)
 				return;
@@ -408,15 +409,27 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 	 * @since 3.0
 	 */
 	private boolean fIsRunnablePosted= false;
+	/**
+	 * Tells whether the posted redraw only has to bring the buffer up to date with the scrolled
+	 * text widget, see {@link #postScrollRedraw()}.
+	 * @since 3.16
+	 */
+	private boolean fIsScrollRedrawPosted= false;
 	/**
 	 * Redraw runnable
 	 * @since 3.0
 	 */
 	private Runnable fRunnable= () -> {
+		boolean scrollRedraw;
 		synchronized (fRunnableLock) {
 			fIsRunnablePosted= false;
+			scrollRedraw= fIsScrollRedrawPosted;
+			fIsScrollRedrawPosted= false;
 		}
-		redraw();
+		if (scrollRedraw)
+			repaint();
+		else
+			redraw();
 	};
 	/* @since 3.2 */
 	private MouseHandler fMouseHandler;
@@ -433,7 +446,47 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 	 *
 	 * @since 3.13
 	 */
-	private Consumer<StyledText> lineHeightChangeHandler= (t) -> postRedraw();
+	private Consumer<StyledText> lineHeightChangeHandler= (t) -> postScrollRedraw();
+
+	/**
+	 * Tells whether the buffer shows the current state of this column for the text widget scrolled
+	 * to {@link #fBufferTopPixel}. If so, scrolling only requires to move the content of the buffer
+	 * and to paint the lines that became visible.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fIsBufferValid= false;
+	/**
+	 * The top pixel of the text widget when the buffer was painted.
+	 *
+	 * @since 3.16
+	 */
+	private int fBufferTopPixel;
+	/**
+	 * The first and the last widget line painted into the buffer.
+	 *
+	 * @since 3.16
+	 */
+	private int fBufferTopLine, fBufferBottomLine;
+	/**
+	 * The pixels of {@link #fBufferTopLine} and {@link #fBufferBottomLine} when the buffer was
+	 * painted.
+	 *
+	 * @since 3.16
+	 */
+	private int fBufferTopLinePixel, fBufferBottomLinePixel;
+	/**
+	 * The font for which {@link #fFontBaseline} has been computed.
+	 *
+	 * @since 3.16
+	 */
+	private Font fBaselineFont;
+	/**
+	 * The baseline of {@link #fBaselineFont}.
+	 *
+	 * @since 3.16
+	 */
+	private int fFontBaseline;
 
 	/**
 	 * Constructs a new vertical ruler column.
@@ -448,6 +501,7 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 	 */
 	public void setForeground(Color foreground) {
 		fForeground= foreground;
+		invalidateBuffer();
 	}
 
 	/**
@@ -467,6 +521,7 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 	 */
 	public void setBackground(Color background) {
 		fBackground= background;
+		invalidateBuffer();
 		if (fCanvas != null && !fCanvas.isDisposed())
 			fCanvas.setBackground(getBackground(fCanvas.getDisplay()));
 	}
@@ -567,6 +622,7 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 		if (fCanvas == null || fCanvas.isDisposed())
 			return;
 
+		invalidateBuffer();
 		GC gc= new GC(fCanvas);
 		try {
 
@@ -682,6 +738,9 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 			fLastZoomedFont= null;
 			fLastFont= null;
 		}
+
+		fBaselineFont= null;
+		invalidateBuffer();
 	}
 
 	/**
@@ -753,8 +812,10 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 			});
 
 		} else {
-			if (fBuffer == null)
+			if (fBuffer == null) {
 				fBuffer= new Image(fCanvas.getDisplay(), size.x, size.y);
+				fIsBufferValid= false;
+			}
 
 			GC gc= new GC(fBuffer);
 			gc.setFont(fCanvas.getFont());
@@ -763,9 +824,12 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 
 			try {
 				gc.setBackground(getBackground(fCanvas.getDisplay()));
-				gc.fillRectangle(0, 0, size.x, size.y);
+				if (!fIsBufferValid || !scrollBuffer(gc, size)) {
+					gc.fillRectangle(0, 0, size.x, size.y);
 
-				doPaint(gc, visibleLines);
+					doPaint(gc, visibleLines);
+				}
+				rememberBuffer();
 			} finally {
 				gc.dispose();
 			}
@@ -774,6 +838,90 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 		dest.drawImage(fBuffer, 0, 0);
 	}
 
+	/**
+	 * Brings the valid buffer up to date with the scrolled text widget by moving its content and
+	 * painting the lines that became visible. Fails if the lines painted into the buffer have not
+	 * only been scrolled, e.g. because the height of a line has changed.
+	 *
+	 * @param gc the GC of the buffer
+	 * @param size the size of the buffer
+	 * @return <code>true</code> if the buffer is up to date, <code>false</code> if it has to be
+	 *         painted entirely
+	 * @since 3.16
+	 */
+	private boolean scrollBuffer(GC gc, Point size) {
+		int delta= fCachedTextWidget.getTopPixel() - fBufferTopPixel;
+		if (Math.abs(delta) >= size.y || !isLinewisePaint() && delta != 0)
+			return false;
+		if (fBufferTopLine >= fCachedTextWidget.getLineCount() || fBufferBottomLine >= fCachedTextWidget.getLineCount())
+			return false;
+		if (JFaceTextUtil.getLinePixel(fCachedTextWidget, fBufferTopLine) != fBufferTopLinePixel - delta
+				|| JFaceTextUtil.getLinePixel(fCachedTextWidget, fBufferBottomLine) != fBufferBottomLinePixel - delta)
+			return false;
+		if (delta == 0)
+			return true;
+
+		// the previous first or last line may have been cut off, paint it again
+		int firstLine, lastLine;
+		if (delta > 0) {
+			gc.copyArea(0, delta, size.x, size.y - delta, 0, 0);
+			firstLine= fBufferBottomLine;
+			lastLine= JFaceTextUtil.getPartialBottomIndex(fCachedTextWidget);
+		} else {
+			gc.copyArea(0, 0, size.x, size.y + delta, 0, -delta);
+			firstLine= JFaceTextUtil.getPartialTopIndex(fCachedTextWidget);
+			lastLine= fBufferTopLine;
+		}
+		if (firstLine == -1 || lastLine < firstLine)
+			return false;
+
+		int top= JFaceTextUtil.getLinePixel(fCachedTextWidget, firstLine);
+		int bottom= lastLine + 1 < fCachedTextWidget.getLineCount() ? JFaceTextUtil.getLinePixel(fCachedTextWidget, lastLine + 1) : size.y;
+		gc.fillRectangle(0, top, size.x, bottom - top);
+
+		int firstModelLine= JFaceTextUtil.widgetLine2ModelLine(fCachedTextViewer, firstLine);
+		int lastModelLine= JFaceTextUtil.widgetLine2ModelLine(fCachedTextViewer, lastLine);
+		if (firstModelLine != -1 && lastModelLine >= firstModelLine)
+			doPaint(gc, new LineRange(firstModelLine, lastModelLine - firstModelLine + 1));
+		return true;
+	}
+
+	/**
+	 * Remembers which part of the text widget the buffer shows.
+	 *
+	 * @since 3.16
+	 */
+	private void rememberBuffer() {
+		fBufferTopPixel= fCachedTextWidget.getTopPixel();
+		fBufferTopLine= JFaceTextUtil.getPartialTopIndex(fCachedTextWidget);
+		fBufferBottomLine= JFaceTextUtil.getPartialBottomIndex(fCachedTextWidget);
+		fIsBufferValid= fBufferTopLine != -1 && fBufferBottomLine != -1;
+		if (fIsBufferValid) {
+			fBufferTopLinePixel= JFaceTextUtil.getLinePixel(fCachedTextWidget, fBufferTopLine);
+			fBufferBottomLinePixel= JFaceTextUtil.getLinePixel(fCachedTextWidget, fBufferBottomLine);
+		}
+	}
+
+	/**
+	 * Forces the next paint to paint the entire column.
+	 *
+	 * @since 3.16
+	 */
+	private void invalidateBuffer() {
+		fIsBufferValid= false;
+	}
+
+	/**
+	 * Tells whether this column paints each line independently of the other lines, so that a part
+	 * of the visible lines can be painted when the text widget is scrolled.
+	 *
+	 * @return <code>true</code> if lines can be painted independently
+	 * @since 3.16
+	 */
+	boolean isLinewisePaint() {
+		return true;
+	}
+
 	/**
 	 * This method is not API and it is expected to disappear in Eclipse 4.8.
 	 * Subclasses that want to take advantage of the unsupported workaround for bug 516258
@@ -839,7 +987,12 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 		Display display= fCachedTextWidget.getDisplay();
 
 		// draw diff info
-		int y= -JFaceTextUtil.getHiddenTopLinePixels(fCachedTextWidget);
+		int y;
+		int startWidgetLine= JFaceTextUtil.modelLineToWidgetLine(fCachedTextViewer, visibleLines.getStartLine());
+		if (startWidgetLine == -1)
+			y= -JFaceTextUtil.getHiddenTopLinePixels(fCachedTextWidget);
+		else // the lines may start below the top of the view port if only a part of them is painted
+			y= JFaceTextUtil.getLinePixel(fCachedTextWidget, startWidgetLine);
 
 		// add empty lines if line is wrapped
 		boolean isWrapActive= fCachedTextWidget.getWordWrap();
@@ -913,9 +1066,13 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 		int offset= fCachedTextWidget.getOffsetAtLine(widgetLine);
 		int widgetBaseline= fCachedTextWidget.getBaseline(offset);
 
-		FontMetrics fm= gc.getFontMetrics();
-		int fontBaseline= fm.getAscent() + fm.getLeading();
-		int baselineBias= widgetBaseline - fontBaseline;
+		Font font= gc.getFont();
+		if (font != fBaselineFont) {
+			FontMetrics fm= gc.getFontMetrics();
+			fFontBaseline= fm.getAscent() + fm.getLeading();
+			fBaselineFont= font;
+		}
+		int baselineBias= widgetBaseline - fFontBaseline;
 		return Math.max(0, baselineBias);
 	}
 
@@ -955,6 +1112,7 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 			Display d= fCanvas.getDisplay();
 			if (d != null) {
 				synchronized (fRunnableLock) {
+					fIsScrollRedrawPosted= false;
 					if (fIsRunnablePosted)
 						return;
 					fIsRunnablePosted= true;
@@ -964,8 +1122,39 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 		}
 	}
 
+	/**
+	 * Triggers a redraw in the display thread which only brings this column up to date with the
+	 * scrolled text widget, unless a full redraw is posted too.
+	 *
+	 * @since 3.16
+	 */
+	private void postScrollRedraw() {
+		if (fCanvas != null && !fCanvas.isDisposed()) {
+			Display d= fCanvas.getDisplay();
+			if (d != null) {
+				synchronized (fRunnableLock) {
+					if (fIsRunnablePosted)
+						return;
+					fIsRunnablePosted= true;
+					fIsScrollRedrawPosted= true;
+				}
+				d.asyncExec(fRunnable);
+			}
+		}
+	}
+
 	@Override
 	public void redraw() {
+		invalidateBuffer();
+		repaint();
+	}
+
+	/**
+	 * Repaints this column, reusing the buffer if it is still valid.
+	 *
+	 * @since 3.16
+	 */
+	private void repaint() {
 
 		if (fRelayoutRequired) {
 			layout(true);
@@ -995,6 +1184,7 @@ public class LineNumberRulerColumn implements IVerticalRulerColumn {
 	@Override
 	public void setFont(Font font) {
 		fFont= font;
+		invalidateBuffer();
 		if (fCanvas != null && !fCanvas.isDisposed()) {
 			fCanvas.setFont(fFont);
 			updateNumberOfDigits();
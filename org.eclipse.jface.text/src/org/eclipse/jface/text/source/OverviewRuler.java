@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,9 +14,11 @@
 package org.eclipse.jface.text.source;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +46,7 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.ScrollBar;
 
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextListener;
@@ -81,6 +84,14 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		 */
 		@Override
 		public void textChanged(TextEvent e) {
+			DocumentEvent event= e.getDocumentEvent();
+			if (event == null) {
+				// the visible document has changed
+				fRowsInfos= null;
+			} else {
+				// the annotations around the change may have moved to other lines
+				addDamage(event);
+			}
 			if (fTextViewer != null && e.getDocumentEvent() == null && e.getViewerRedrawState()) {
 				// handle only changes of visible document
 				redraw();
@@ -102,11 +113,18 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 				return;
 			}
 
+			synchronized (fRunnableLock) {
+				Collections.addAll(fDirtyAnnotations, event.getAddedAnnotations());
+				Collections.addAll(fDirtyAnnotations, event.getRemovedAnnotations());
+				Collections.addAll(fDirtyAnnotations, event.getChangedAnnotations());
+				fHasModelChanged= true;
+			}
+
 			Annotation[] annotations= event.getAddedAnnotations();
 			int length= annotations.length;
 			for (int i= 0; i < length; i++) {
 				if (!skip(annotations[i].getType())) {
-					update();
+					postUpdate();
 					return;
 				}
 			}
@@ -115,7 +133,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			length= annotations.length;
 			for (int i= 0; i < length; i++) {
 				if (!skip(annotations[i].getType())) {
-					update();
+					postUpdate();
 					return;
 				}
 			}
@@ -124,7 +142,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			length= annotations.length;
 			for (int i= 0; i < length; i++) {
 				if (!skip(annotations[i].getType())) {
-					update();
+					postUpdate();
 					return;
 				}
 			}
@@ -377,6 +395,85 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			visibleLines= bottomIndex - topIndex;
 			invisibleLines= maxLines - visibleLines;
 		}
+
+		/**
+		 * Tells whether the given widget infos map the lines of the text widget to the same
+		 * vertical positions in the overview ruler as these infos.
+		 *
+		 * @param other the other widget infos, may be <code>null</code>
+		 * @return <code>true</code> if {@link OverviewRuler#computeY(int, WidgetInfos)} yields
+		 *         the same results for both infos
+		 * @since 3.16
+		 */
+		boolean hasSameMapping(WidgetInfos other) {
+			return other != null && maxLines == other.maxLines && thumbHeight == other.thumbHeight && visibleLines == other.visibleLines
+					&& writable == other.writable && bounds.equals(other.bounds);
+		}
+	}
+
+	/**
+	 * The rectangles drawn for the annotations of one annotation type and style. Annotations which
+	 * are drawn at the same vertical position with the same height share a rectangle, so the number
+	 * of rectangles is bounded by the height of the ruler rather than by the number of annotations.
+	 *
+	 * @since 3.16
+	 */
+	private static final class Rectangles {
+
+		/** The number of annotations drawn per rectangle, keyed by {@link #key(int, int)}. */
+		private final Map<Long, int[]> fCounts= new HashMap<>();
+
+		/**
+		 * Returns the key of the rectangle at the given vertical position with the given height.
+		 *
+		 * @param y the vertical position
+		 * @param height the height
+		 * @return the key of the rectangle
+		 */
+		static long key(int y, int height) {
+			return ((long) y << 32) | height;
+		}
+
+		static int y(long key) {
+			return (int) (key >>> 32);
+		}
+
+		static int height(long key) {
+			return (int) key;
+		}
+
+		void add(long key) {
+			int[] count= fCounts.get(Long.valueOf(key));
+			if (count == null)
+				fCounts.put(Long.valueOf(key), new int[] { 1 });
+			else
+				count[0]++;
+		}
+
+		void remove(long key) {
+			Long boxed= Long.valueOf(key);
+			int[] count= fCounts.get(boxed);
+			if (count != null && --count[0] == 0)
+				fCounts.remove(boxed);
+		}
+	}
+
+	/**
+	 * The rectangle drawn for a cached annotation and the aggregates it is counted in.
+	 *
+	 * @since 3.16
+	 */
+	private static final class DrawnAnnotation {
+
+		/** The key of the rectangle, see {@link Rectangles#key(int, int)}. */
+		final long fKey;
+		/** The aggregates the rectangle is counted in. */
+		final List<Rectangles> fRectangles;
+
+		DrawnAnnotation(long key, List<Rectangles> rectangles) {
+			fKey= key;
+			fRectangles= rectangles;
+		}
 	}
 
 	private static final boolean DEBUG_DRAW= false;
@@ -455,10 +552,62 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 	 */
 	private Map<Object, Boolean> fAllowedHeaderAnnotationTypes= new HashMap<>();
 	/**
-	 * The cached annotations.
+	 * The cached annotations mapped to the rectangles drawn for them, or to <code>null</code> if
+	 * they are not drawn. Only accessed in the UI thread.
 	 * @since 3.0
 	 */
-	private List<Annotation> fCachedAnnotations= new ArrayList<>();
+	private Map<Annotation, DrawnAnnotation> fCachedAnnotations= new LinkedHashMap<>();
+	/**
+	 * The drawn rectangles by annotation type, the first element of the value holds the
+	 * rectangles of the persistent annotations, the second those of the temporary annotations.
+	 * Only accessed in the UI thread.
+	 *
+	 * @since 3.16
+	 */
+	private Map<Object, Rectangles[]> fRectangles= new HashMap<>();
+	/**
+	 * The annotation types of {@link #fAnnotationsSortedByLayer} under which the annotations of a
+	 * given type are drawn. Only accessed in the UI thread.
+	 *
+	 * @since 3.16
+	 */
+	private Map<Object, List<Object>> fDrawnTypes= new HashMap<>();
+	/**
+	 * The widget infos {@link #fRectangles} have been computed with, <code>null</code> if they
+	 * have to be recomputed. Only accessed in the UI thread.
+	 *
+	 * @since 3.16
+	 */
+	private WidgetInfos fRowsInfos;
+	/**
+	 * The start and end offset of the range of the document whose annotations may have moved to
+	 * other lines since their rectangles have been computed, or <code>-1</code>. Only accessed in
+	 * the UI thread.
+	 *
+	 * @since 3.16
+	 */
+	private int fDamageStart= -1, fDamageEnd= -1;
+	/**
+	 * Tells whether {@link #fCachedAnnotations} has to be reloaded from the model. Guarded by
+	 * {@link #fRunnableLock}.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fIsCacheInvalid= true;
+	/**
+	 * Tells whether the model has reported a change since the cache was last updated. Guarded by
+	 * {@link #fRunnableLock}.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fHasModelChanged;
+	/**
+	 * The annotations which have been added, removed or changed since the cache was last updated.
+	 * Guarded by {@link #fRunnableLock}.
+	 *
+	 * @since 3.16
+	 */
+	private Set<Annotation> fDirtyAnnotations= new HashSet<>();
 
 	/**
 	 * Redraw runnable lock
@@ -644,10 +793,18 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fAllowedAnnotationTypes.clear();
 			fConfiguredHeaderAnnotationTypes.clear();
 			fAllowedHeaderAnnotationTypes.clear();
+			fDirtyAnnotations.clear();
+			fIsCacheInvalid= true;
 		}
 		fAnnotationTypes2Colors.clear();
 		fAnnotationsSortedByLayer.clear();
 		fLayersSortedByLayer.clear();
+		fCachedAnnotations.clear();
+		fRectangles.clear();
+		fDrawnTypes.clear();
+		fRowsInfos= null;
+		fDamageStart= -1;
+		fDamageEnd= -1;
 	}
 
 	/**
@@ -677,9 +834,10 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			gc.setBackground(fCanvas.getBackground());
 			gc.fillRectangle(0, 0, size.x, size.y);
 
-			cacheAnnotations();
+			WidgetInfos infos= new WidgetInfos(fTextViewer.getTextWidget(), fCanvas);
+			cacheAnnotations(infos);
 
-			doPaint(gc);
+			doPaint(gc, infos);
 
 		} finally {
 			gc.dispose();
@@ -688,33 +846,190 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		dest.drawImage(fBuffer, 0, 0);
 	}
 
-	private void cacheAnnotations() {
-		fCachedAnnotations.clear();
-		if (fModel != null) {
-			Iterator<Annotation> iter= fModel.getAnnotationIterator();
-			while (iter.hasNext()) {
-				Annotation annotation= iter.next();
+	/**
+	 * Brings the cached annotations and their rectangles up to date. The annotations reported by
+	 * the model since the last update are updated individually, the model is only iterated after a
+	 * world change or a change of the configuration of this ruler. The rectangles of all cached
+	 * annotations are only recomputed if the lines of the text widget have moved in this ruler,
+	 * otherwise only those of the annotations around the text changes are recomputed. The cached
+	 * annotations are only checked for annotations which have been marked deleted if the model
+	 * has reported a change, as that is when annotations are marked deleted.
+	 *
+	 * @param infos the widget infos used to compute the rectangles
+	 */
+	private void cacheAnnotations(WidgetInfos infos) {
+		boolean reload;
+		boolean hasModelChanged;
+		Set<Annotation> dirty;
+		synchronized (fRunnableLock) {
+			reload= fIsCacheInvalid || fModel == null;
+			fIsCacheInvalid= false;
+			hasModelChanged= fHasModelChanged;
+			fHasModelChanged= false;
+			dirty= fDirtyAnnotations;
+			fDirtyAnnotations= new HashSet<>();
+		}
 
-				if (annotation.isMarkedDeleted())
-					continue;
+		if (reload) {
+			fCachedAnnotations.clear();
+			fDrawnTypes.clear();
+			fRowsInfos= null;
+			if (fModel != null) {
+				Iterator<Annotation> iter= fModel.getAnnotationIterator();
+				while (iter.hasNext()) {
+					Annotation annotation= iter.next();
+
+					if (annotation.isMarkedDeleted())
+						continue;
 
-				if (skip(annotation.getType()))
+					if (skip(annotation.getType()))
+						continue;
+
+					fCachedAnnotations.put(annotation, null);
+				}
+			}
+		}
+
+		boolean recompute= !infos.hasSameMapping(fRowsInfos);
+		if (!reload) {
+			for (Annotation annotation : dirty) {
+				DrawnAnnotation drawn= fCachedAnnotations.remove(annotation);
+				if (!recompute)
+					removeRectangle(drawn);
+
+				if (annotation.isMarkedDeleted() || skip(annotation.getType()) || fModel.getPosition(annotation) == null)
 					continue;
 
-				fCachedAnnotations.add(annotation);
+				fCachedAnnotations.put(annotation, recompute ? null : computeRectangle(annotation, infos));
+			}
+		}
+
+		if (recompute) {
+			fRectangles.clear();
+			fRowsInfos= infos;
+		} else if (fDamageStart != -1) {
+			updateMovedAnnotations(fDamageStart, fDamageEnd, infos);
+		}
+		fDamageStart= -1;
+		fDamageEnd= -1;
+
+		if (!recompute && !hasModelChanged)
+			return;
+
+		for (Iterator<Map.Entry<Annotation, DrawnAnnotation>> iter= fCachedAnnotations.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<Annotation, DrawnAnnotation> entry= iter.next();
+			// annotations are marked deleted without an event of their own, the model reports the
+			// change they belong to
+			if (entry.getKey().isMarkedDeleted()) {
+				if (!recompute)
+					removeRectangle(entry.getValue());
+				iter.remove();
+			} else if (recompute) {
+				entry.setValue(computeRectangle(entry.getKey(), infos));
 			}
 		}
 	}
 
 	/**
-	 * Draws this overview ruler.
+	 * Adds the range changed by the given document event to the range whose annotations may have
+	 * moved to other lines. The event is one of the visible document of the viewer, its range is
+	 * mapped to the document of the annotation model.
 	 *
-	 * @param gc the GC to draw into
+	 * @param event the document event
+	 * @since 3.16
+	 */
+	private void addDamage(DocumentEvent event) {
+		int textLength= event.getText() == null ? 0 : event.getText().length();
+		IRegion region= new Region(event.getOffset(), textLength);
+		if (fTextViewer instanceof ITextViewerExtension5)
+			region= ((ITextViewerExtension5) fTextViewer).widgetRange2ModelRange(region);
+		else if (fTextViewer != null)
+			region= new Region(region.getOffset() + fTextViewer.getVisibleRegion().getOffset(), textLength);
+		if (region == null) {
+			// recomputes the rectangles of all annotations
+			fRowsInfos= null;
+			return;
+		}
+
+		int offset= region.getOffset();
+		int end= offset + region.getLength();
+		if (fDamageStart == -1) {
+			fDamageStart= offset;
+			fDamageEnd= end;
+			return;
+		}
+		// move the previous damage along with the text
+		int delta= textLength - event.getLength();
+		if (fDamageStart > offset)
+			fDamageStart= Math.max(offset, fDamageStart + delta);
+		if (fDamageEnd > offset)
+			fDamageEnd= Math.max(offset, fDamageEnd + delta);
+		fDamageStart= Math.min(fDamageStart, offset);
+		fDamageEnd= Math.max(fDamageEnd, end);
+	}
+
+	/**
+	 * Recomputes the rectangles of the cached annotations which overlap the given range of the
+	 * document, since they may have moved to other lines.
+	 *
+	 * @param start the start offset of the range
+	 * @param end the end offset of the range
+	 * @param infos the widget infos
+	 * @since 3.16
 	 */
-	private void doPaint(GC gc) {
+	private void updateMovedAnnotations(int start, int end, WidgetInfos infos) {
+		int length= Math.max(1, end - start);
+		List<Annotation> moved= new ArrayList<>();
+		if (fModel instanceof IAnnotationModelExtension2) {
+			Iterator<Annotation> iter= ((IAnnotationModelExtension2) fModel).getAnnotationIterator(start, length, true, true);
+			while (iter.hasNext()) {
+				Annotation annotation= iter.next();
+				if (fCachedAnnotations.containsKey(annotation))
+					moved.add(annotation);
+			}
+		} else {
+			for (Annotation annotation : fCachedAnnotations.keySet()) {
+				Position p= fModel.getPosition(annotation);
+				if (p != null && p.overlapsWith(start, length))
+					moved.add(annotation);
+			}
+		}
+		for (Annotation annotation : moved) {
+			removeRectangle(fCachedAnnotations.get(annotation));
+			fCachedAnnotations.put(annotation, computeRectangle(annotation, infos));
+		}
+	}
 
-		Rectangle r= new Rectangle(0, 0, 0, 0);
-		int yy, hh= ANNOTATION_HEIGHT;
+	/**
+	 * Removes the rectangle of the given drawn annotation from the rectangles it is counted in.
+	 *
+	 * @param drawn the drawn annotation, may be <code>null</code>
+	 * @since 3.16
+	 */
+	private static void removeRectangle(DrawnAnnotation drawn) {
+		if (drawn != null) {
+			for (Rectangles rectangles : drawn.fRectangles)
+				rectangles.remove(drawn.fKey);
+		}
+	}
+
+	/**
+	 * Computes the rectangle of the given annotation and adds it to the rectangles of the
+	 * annotation types under which the annotation is drawn.
+	 *
+	 * @param annotation the annotation
+	 * @param infos the widget infos
+	 * @return the drawn annotation or <code>null</code> if the annotation is not drawn
+	 * @since 3.16
+	 */
+	private DrawnAnnotation computeRectangle(Annotation annotation, WidgetInfos infos) {
+		List<Rectangles> drawnRectangles= getRectangles(annotation);
+		if (drawnRectangles.isEmpty())
+			return null;
+
+		Position p= fModel.getPosition(annotation);
+		if (p == null || p.isDeleted())
+			return null;
 
 		IDocument document= fTextViewer.getDocument();
 		StyledText textWidget= fTextViewer.getTextWidget();
@@ -725,90 +1040,147 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		else
 			visible= fTextViewer.getVisibleRegion(); // legacy support
 
-		WidgetInfos infos= null;
+		if (visible != null && !p.overlapsWith(visible.getOffset(), visible.getLength()))
+			return null;
+
+		int annotationOffset= p.getOffset();
+		int annotationLength= p.getLength();
+		IRegion widgetRegion= null;
+		if (visible != null) {
+			annotationOffset= Math.max(p.getOffset(), visible.getOffset());
+			int annotationEnd= Math.min(p.getOffset() + p.getLength(), visible.getOffset() + visible.getLength());
+			annotationLength= annotationEnd - annotationOffset;
+		} else {
+			widgetRegion= extension.modelRange2WidgetRange(new Region(annotationOffset, annotationLength));
+			if (widgetRegion == null)
+				return null;
+		}
+
+		try {
+			int startOffset= visible != null ? annotationOffset - visible.getOffset() : widgetRegion.getOffset();
+			int startLine= textWidget.getLineAtOffset(startOffset);
+
+			int yy= computeY(startLine, infos);
+			int hh= ANNOTATION_HEIGHT;
+
+			if (ANNOTATION_HEIGHT_SCALABLE) {
+				int numberOfLines= document.getNumberOfLines(annotationOffset, annotationLength);
+				// don't count empty trailing line
+				IRegion lastLine= document.getLineInformationOfOffset(annotationOffset + annotationLength);
+				if (lastLine.getOffset() == annotationOffset + annotationLength) {
+					numberOfLines--;
+				}
+				if (numberOfLines > 1) {
+					int yy2= computeY(startLine + numberOfLines - 1, infos);
+					hh= Math.max(yy2 - yy, ANNOTATION_HEIGHT);
+				}
+			}
+
+			long key= Rectangles.key(yy, hh);
+			for (Rectangles rectangles : drawnRectangles)
+				rectangles.add(key);
+			return new DrawnAnnotation(key, drawnRectangles);
+		} catch (BadLocationException x) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the rectangles to which the given annotation contributes, i.e. those of its style
+	 * for each annotation type under which it is drawn.
+	 *
+	 * @param annotation the annotation
+	 * @return the rectangles of the annotation
+	 * @since 3.16
+	 */
+	private List<Rectangles> getRectangles(Annotation annotation) {
+		Object annotationType= annotation.getType();
+		List<Object> drawnTypes= fDrawnTypes.get(annotationType);
+		if (drawnTypes == null) {
+			drawnTypes= new ArrayList<>();
+			for (Object type : fAnnotationsSortedByLayer) {
+				if (skip(type))
+					continue;
+				if (type.equals(annotationType) || !fConfiguredAnnotationTypes.contains(annotationType) && isSubtype(annotationType, type))
+					drawnTypes.add(type);
+			}
+			fDrawnTypes.put(annotationType, drawnTypes);
+		}
+
+		List<Rectangles> result= new ArrayList<>(drawnTypes.size());
+		int style= annotation.isPersistent() ? 0 : 1;
+		for (Object type : drawnTypes) {
+			Rectangles[] rectangles= fRectangles.get(type);
+			if (rectangles == null) {
+				rectangles= new Rectangles[] { new Rectangles(), new Rectangles() };
+				fRectangles.put(type, rectangles);
+			}
+			result.add(rectangles[style]);
+		}
+		return result;
+	}
+
+	/**
+	 * Tells whether the given annotation type is a subtype of the given potential super type.
+	 *
+	 * @param annotationType the annotation type
+	 * @param superType the potential super type
+	 * @return <code>true</code> if <code>annotationType</code> is a subtype of <code>superType</code>
+	 * @since 3.16
+	 */
+	private boolean isSubtype(Object annotationType, Object superType) {
+		if (fAnnotationAccess instanceof IAnnotationAccessExtension) {
+			IAnnotationAccessExtension extension= (IAnnotationAccessExtension) fAnnotationAccess;
+			return extension.isSubtype(annotationType, superType);
+		}
+		return superType.equals(annotationType);
+	}
+
+	/**
+	 * Draws this overview ruler.
+	 *
+	 * @param gc the GC to draw into
+	 * @param infos the widget infos
+	 */
+	private void doPaint(GC gc, WidgetInfos infos) {
+
+		Rectangle r= new Rectangle(INSET, 0, infos.bounds.width - (2 * INSET), 0);
+		int yy, hh;
 
 		for (Object annotationType : fAnnotationsSortedByLayer) {
 			if (skip(annotationType))
 				continue;
 
-			int[] style= new int[] { FilterIterator.PERSISTENT, FilterIterator.TEMPORARY };
-			for (int element : style) {
-				boolean areColorsComputed= false;
-				Color fill= null;
-				Color stroke= null;
+			Rectangles[] rectangles= fRectangles.get(annotationType);
+			if (rectangles == null)
+				continue;
 
-				Iterator<Annotation> e= new FilterIterator(annotationType, element, fCachedAnnotations.iterator());
-				while (e.hasNext()) {
-					Annotation a= e.next();
-					Position p= fModel.getPosition(a);
+			// persistent annotations first, then the temporary ones
+			for (int style= 0; style < rectangles.length; style++) {
+				if (rectangles[style].fCounts.isEmpty())
+					continue;
 
-					if (p == null)
-						continue;
-					if (visible != null && !p.overlapsWith(visible.getOffset(), visible.getLength()))
-						continue;
+				Color stroke= getStrokeColor(annotationType, style == 1);
+				Color fill= fUseSaturatedColors ? stroke : getFillColor(annotationType, style == 1);
 
-					int annotationOffset= p.getOffset();
-					int annotationLength= p.getLength();
-					IRegion widgetRegion= null;
-					if (visible != null) {
-						annotationOffset= Math.max(p.getOffset(), visible.getOffset());
-						int annotationEnd= Math.min(p.getOffset() + p.getLength(), visible.getOffset() + visible.getLength());
-						annotationLength= annotationEnd - annotationOffset;
-					} else {
-						widgetRegion= extension.modelRange2WidgetRange(new Region(annotationOffset, annotationLength));
-						if (widgetRegion == null)
-							continue;
-					}
+				for (Long key : rectangles[style].fCounts.keySet()) {
+					yy= Rectangles.y(key.longValue());
+					hh= Rectangles.height(key.longValue());
+					fAnnotationHeight= hh;
 
-					if (infos == null) {
-						infos= new WidgetInfos(textWidget, fCanvas);
-						r.x= INSET;
-						r.width= infos.bounds.width - (2 * INSET);
+					if (fill != null) {
+						gc.setBackground(fill);
+						gc.fillRectangle(INSET, yy, infos.bounds.width-(2*INSET), hh);
 					}
 
-					try {
-						int startOffset= visible != null ? annotationOffset - visible.getOffset() : widgetRegion.getOffset();
-						int startLine= textWidget.getLineAtOffset(startOffset);
-
-						yy= computeY(startLine, infos);
-
-						if (ANNOTATION_HEIGHT_SCALABLE) {
-							int numberOfLines= document.getNumberOfLines(annotationOffset, annotationLength);
-							// don't count empty trailing line
-							IRegion lastLine= document.getLineInformationOfOffset(annotationOffset + annotationLength);
-							if (lastLine.getOffset() == annotationOffset + annotationLength) {
-								numberOfLines--;
-							}
-							if (numberOfLines > 1) {
-								int yy2= computeY(startLine + numberOfLines - 1, infos);
-								hh= Math.max(yy2 - yy, ANNOTATION_HEIGHT);
-							} else {
-								hh= ANNOTATION_HEIGHT;
-							}
-						}
-						fAnnotationHeight= hh;
-
-						if (!areColorsComputed) {
-							stroke= getStrokeColor(annotationType, element == FilterIterator.TEMPORARY);
-							fill= fUseSaturatedColors ? stroke : getFillColor(annotationType, element == FilterIterator.TEMPORARY);
-							areColorsComputed= true;
-						}
-
-						if (fill != null) {
-							gc.setBackground(fill);
-							gc.fillRectangle(INSET, yy, infos.bounds.width-(2*INSET), hh);
-						}
-
-						if (stroke != null) {
-							gc.setForeground(stroke);
-							r.y= yy;
-							if (yy + hh == infos.bounds.height)
-								r.y--;
-							r.height= hh;
-							gc.setLineWidth(0); // NOTE: 0 means width is 1 but with optimized performance
-							gc.drawRectangle(r);
-						}
-					} catch (BadLocationException x) {
+					if (stroke != null) {
+						gc.setForeground(stroke);
+						r.y= yy;
+						if (yy + hh == infos.bounds.height)
+							r.y--;
+						r.height= hh;
+						gc.setLineWidth(0); // NOTE: 0 means width is 1 but with optimized performance
+						gc.drawRectangle(r);
 					}
 				}
 			}
@@ -816,8 +1188,6 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 
 		if (DEBUG_DRAW) {
 			// draw debugging guides (boundaries):
-			if (infos == null)
-				infos= new WidgetInfos(textWidget, fCanvas);
 			gc.setForeground(gc.getDevice().getSystemColor(SWT.COLOR_DARK_MAGENTA));
 			yy= infos.thumbHeight / 2;
 			gc.drawLine(0, yy, infos.bounds.x/2, yy);
@@ -873,6 +1243,17 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 
 	 @Override
 	public void update() {
+		invalidateCache();
+		postUpdate();
+	}
+
+	/**
+	 * Posts a redraw of this ruler and its header without reloading the annotations from the
+	 * model, see {@link #update()}.
+	 *
+	 * @since 3.16
+	 */
+	private void postUpdate() {
 		if (fCanvas != null && !fCanvas.isDisposed()) {
 			Display d= fCanvas.getDisplay();
 			if (d != null) {
@@ -886,6 +1267,18 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		}
 	}
 
+	/**
+	 * Tells this ruler to reload the cached annotations from the model on the next paint.
+	 *
+	 * @since 3.16
+	 */
+	private void invalidateCache() {
+		synchronized (fRunnableLock) {
+			fIsCacheInvalid= true;
+			fDirtyAnnotations.clear();
+		}
+	}
+
 	/**
 	 * Redraws the overview ruler.
 	 */
@@ -1151,6 +1544,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fConfiguredAnnotationTypes.add(annotationType);
 			fAllowedAnnotationTypes.clear();
 		}
+		invalidateCache();
 	}
 
 	@Override
@@ -1159,6 +1553,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fConfiguredAnnotationTypes.remove(annotationType);
 			fAllowedAnnotationTypes.clear();
 		}
+		invalidateCache();
 	}
 
 	@Override
@@ -1178,6 +1573,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fLayersSortedByLayer.add(i, layerObj);
 			fAnnotationsSortedByLayer.add(i, annotationType);
 		}
+		invalidateCache();
 	}
 
 	@Override
@@ -1444,7 +1840,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			if (skipInHeader(annotationType) || skip(annotationType))
 				continue;
 
-			Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS, fCachedAnnotations.iterator());
+			Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS, fCachedAnnotations.keySet().iterator());
 			while (e.hasNext()) {
 				if (e.next() != null) {
 					colorType= annotationType;
@@ -1494,7 +1890,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			int count= 0;
 			String annotationTypeLabel= null;
 
-			Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS, fCachedAnnotations.iterator());
+			Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS, fCachedAnnotations.keySet().iterator());
 			while (e.hasNext()) {
 				Annotation annotation= e.next();
 				if (annotation != null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -389,6 +389,29 @@ public class SourceViewer extends TextViewer implements ISourceViewer, ISourceVi
 	 */
 	private CodeMiningManager fCodeMiningManager;
 
+	/**
+	 * Tells whether the presentation reconciler is not installed because presentation reconciling
+	 * is degraded in large document mode.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fIsPresentationReconcilerSuspended;
+
+	/**
+	 * Tells whether the reconciler is not installed because reconciling is degraded in large
+	 * document mode.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fIsReconcilerSuspended;
+
+	/**
+	 * Tells whether the code minings are degraded in large document mode.
+	 *
+	 * @since 3.16
+	 */
+	private boolean fAreCodeMiningsSuspended;
+
 	/**
 	 * Constructs a new source viewer. The vertical ruler is initially visible.
 	 * The viewer has not yet been initialized with a source viewer configuration.
@@ -490,11 +513,13 @@ public class SourceViewer extends TextViewer implements ISourceViewer, ISourceVi
 
 		// install content type independent plug-ins
 		fPresentationReconciler= configuration.getPresentationReconciler(this);
-		if (fPresentationReconciler != null)
+		fIsPresentationReconcilerSuspended= fPresentationReconciler != null && isLargeDocumentFeatureDegraded(PRESENTATION_RECONCILING);
+		if (fPresentationReconciler != null && !fIsPresentationReconcilerSuspended)
 			fPresentationReconciler.install(this);
 
 		fReconciler= configuration.getReconciler(this);
-		if (fReconciler != null)
+		fIsReconcilerSuspended= fReconciler != null && isLargeDocumentFeatureDegraded(RECONCILING);
+		if (fReconciler != null && !fIsReconcilerSuspended)
 			fReconciler.install(this);
 
 		fContentAssistant= configuration.getContentAssistant(this);
@@ -711,13 +736,17 @@ public class SourceViewer extends TextViewer implements ISourceViewer, ISourceVi
 		clearRememberedSelection();
 
 		if (fPresentationReconciler != null) {
-			fPresentationReconciler.uninstall();
+			if (!fIsPresentationReconcilerSuspended)
+				fPresentationReconciler.uninstall();
 			fPresentationReconciler= null;
+			fIsPresentationReconcilerSuspended= false;
 		}
 
 		if (fReconciler != null) {
-			fReconciler.uninstall();
+			if (!fIsReconcilerSuspended)
+				fReconciler.uninstall();
 			fReconciler= null;
+			fIsReconcilerSuspended= false;
 		}
 
 		if (fContentAssistant != null) {
@@ -775,6 +804,54 @@ public class SourceViewer extends TextViewer implements ISourceViewer, ISourceVi
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The presentation reconciler and the reconciler are uninstalled while their features are
+	 * degraded, the code minings are removed. Features which are not degraded are left alone.
+	 * </p>
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	protected void handleLargeDocumentModeChanged() {
+		super.handleLargeDocumentModeChanged();
+
+		if (fPresentationReconciler != null) {
+			boolean suspend= isLargeDocumentFeatureDegraded(PRESENTATION_RECONCILING);
+			if (suspend && !fIsPresentationReconcilerSuspended)
+				fPresentationReconciler.uninstall();
+			else if (!suspend && fIsPresentationReconcilerSuspended)
+				fPresentationReconciler.install(this);
+			fIsPresentationReconcilerSuspended= suspend;
+		}
+
+		if (fReconciler != null) {
+			boolean suspend= isLargeDocumentFeatureDegraded(RECONCILING);
+			if (suspend && !fIsReconcilerSuspended)
+				fReconciler.uninstall();
+			else if (!suspend && fIsReconcilerSuspended)
+				fReconciler.install(this);
+			fIsReconcilerSuspended= suspend;
+		}
+
+		boolean suspendCodeMinings= isLargeDocumentFeatureDegraded(CODE_MININGS);
+		if (suspendCodeMinings && !fAreCodeMiningsSuspended) {
+			fAreCodeMiningsSuspended= true;
+			if (fCodeMiningManager != null) {
+				fCodeMiningManager.uninstall();
+				fCodeMiningManager= null;
+			}
+			if (fInlinedAnnotationSupport != null) {
+				fInlinedAnnotationSupport.uninstall();
+				fInlinedAnnotationSupport= null;
+			}
+		} else if (!suspendCodeMinings && fAreCodeMiningsSuspended) {
+			fAreCodeMiningsSuspended= false;
+			ensureCodeMiningManagerInstalled();
+		}
+	}
+
 	@Override
 	protected void handleDispose() {
 		unconfigure();
@@ -1289,6 +1366,8 @@ public class SourceViewer extends TextViewer implements ISourceViewer, ISourceVi
 	 * @since 3.13
 	 */
 	private void ensureCodeMiningManagerInstalled() {
+		if (fAreCodeMiningsSuspended)
+			return;
 		if (fCodeMiningProviders != null && fCodeMiningProviders.length > 0 && fAnnotationPainter != null) {
 			if (fInlinedAnnotationSupport == null) {
 				fInlinedAnnotationSupport= new InlinedAnnotationSupport();
@@ -1314,6 +1393,18 @@ public class SourceViewer extends TextViewer implements ISourceViewer, ISourceVi
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.16
+	 */
+	@Override
+	public void updateCodeMinings(IRegion damage) {
+		if (hasCodeMiningProviders()) {
+			fCodeMiningManager.run(damage);
+		}
+	}
+
 	@Override
 	public void setCodeMiningAnnotationPainter(AnnotationPainter painter) {
 		fAnnotationPainter= painter;
@@ -1,5 +1,5 @@
 /**
- *  Copyright (c) 2017, 2018 Angelo ZERR.
+ *  Copyright (c) 2017, 2019 Angelo ZERR.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -452,7 +452,10 @@ public class InlinedAnnotationSupport {
 					((IAnnotationModelExtension) annotationModel).replaceAnnotations(
 							annotationsToRemove.toArray(new Annotation[annotationsToRemove.size()]), annotationsToAdd);
 				} else {
-					removeInlinedAnnotations();
+					// remove only the annotations which are no longer used, the others are kept
+					for (AbstractInlinedAnnotation ann : annotationsToRemove) {
+						annotationModel.removeAnnotation(ann);
+					}
 					Iterator<Entry<AbstractInlinedAnnotation, Position>> iter= annotationsToAdd.entrySet().iterator();
 					while (iter.hasNext()) {
 						Entry<AbstractInlinedAnnotation, Position> mapEntry= iter.next();
@@ -2651,4 +2651,131 @@ public class ProjectionDocumentTest {
 			assertTrue(false);
 		}
 	}
+
+	private List<DocumentEvent> recordSlaveEvents() {
+		final List<DocumentEvent> receivedEvents= new ArrayList<>();
+		fSlaveDocument.addDocumentListener(new IDocumentListener() {
+			@Override
+			public void documentAboutToBeChanged(DocumentEvent event) {}
+			@Override
+			public void documentChanged(DocumentEvent event) {
+				receivedEvents.add(event);
+			}
+		});
+		return receivedEvents;
+	}
+
+	@Test
+	public void test30_1() throws BadLocationException {
+		// test replacing the master document ranges at once, hiding ranges
+
+		createIdenticalProjection();
+		List<DocumentEvent> receivedEvents= recordSlaveEvents();
+
+		IRegion[] ranges= {
+			new Region(0, 20),
+			new Region(40, 20),
+			new Region(80, 20),
+			new Region(120, 20),
+			new Region(160, 20)
+		};
+		fSlaveDocument.replaceMasterDocumentRanges(ranges);
+
+		Position[] expected= {
+			new Position(0, 20),
+			new Position(40, 20),
+			new Position(80, 20),
+			new Position(120, 20),
+			new Position(160, 20)
+		};
+		assertFragmentation(expected);
+		assertSlaveContents(getProjectionASlaveContents());
+
+		StringBuilder buffer= new StringBuilder(getOriginalMasterContents());
+		String text= buffer.substring(40, 60) + buffer.substring(80, 100) + buffer.substring(120, 140);
+		assertSlaveEvents(new DocumentEvent[] { new DocumentEvent(fSlaveDocument, 20, 140, text) }, receivedEvents.toArray(new DocumentEvent[0]));
+	}
+
+	@Test
+	public void test30_2() throws BadLocationException {
+		// test replacing the master document ranges at once, showing and hiding ranges
+
+		createProjectionA();
+		List<DocumentEvent> receivedEvents= recordSlaveEvents();
+
+		// unsorted and overlapping
+		IRegion[] ranges= {
+			new Region(100, 20),
+			new Region(20, 10),
+			new Region(60, 20),
+			new Region(25, 15),
+			new Region(140, 20)
+		};
+		fSlaveDocument.replaceMasterDocumentRanges(ranges);
+
+		Position[] expected= {
+			new Position(20, 20),
+			new Position(60, 20),
+			new Position(100, 20),
+			new Position(140, 20)
+		};
+		assertFragmentation(expected);
+		assertSlaveContents(getProjectionBSlaveContents());
+		Assert.assertEquals(1, receivedEvents.size());
+
+		// master document changes are still projected
+		fMasterDocument.replace(65, 5, "x");
+		StringBuilder buffer= new StringBuilder(getProjectionBSlaveContents());
+		buffer.replace(25, 30, "x");
+		assertSlaveContents(buffer.toString());
+	}
+
+	@Test
+	public void test30_3() throws BadLocationException {
+		// test replacing the master document ranges at once, hiding all ranges
+
+		createProjectionA();
+		List<DocumentEvent> receivedEvents= recordSlaveEvents();
+
+		fSlaveDocument.replaceMasterDocumentRanges(new IRegion[0]);
+
+		assertSlaveContents("");
+		assertSlaveEvents(new DocumentEvent[] { new DocumentEvent(fSlaveDocument, 0, 100, "") }, receivedEvents.toArray(new DocumentEvent[0]));
+
+		fSlaveDocument.replaceMasterDocumentRanges(new IRegion[] { new Region(40, 20) });
+		assertFragmentation(new Position[] { new Position(40, 20) });
+		assertSlaveContents(getOriginalMasterContents().substring(40, 60));
+	}
+
+	@Test
+	public void test30_4() throws BadLocationException {
+		// test replacing the master document ranges with the current ranges
+
+		createProjectionA();
+		List<DocumentEvent> receivedEvents= recordSlaveEvents();
+
+		fSlaveDocument.replaceMasterDocumentRanges(new IRegion[] { new Region(0, 20), new Region(40, 20), new Region(80, 20), new Region(120, 20), new Region(160, 20) });
+
+		assertTrue(receivedEvents.isEmpty());
+		assertSlaveContents(getProjectionASlaveContents());
+	}
+
+	@Test
+	public void test30_5() throws BadLocationException {
+		// test that replacing the master document ranges at once equals adding and removing them one by one
+
+		createIdenticalProjection();
+		fSlaveDocument.removeMasterDocumentRange(20, 40);
+		fSlaveDocument.removeMasterDocumentRange(100, 30);
+		fSlaveDocument.addMasterDocumentRange(40, 10);
+		String expected= fSlaveDocument.get();
+		Position[] expectedFragments= fSlaveDocument.getFragments2();
+
+		tearDown();
+		setUp();
+		fSlaveDocument.replaceMasterDocumentRanges(new IRegion[] { new Region(0, 20), new Region(40, 10), new Region(60, 40), new Region(130, 50) });
+
+		assertFragmentation(expectedFragments);
+		assertSlaveContents(expected);
+	}
 }
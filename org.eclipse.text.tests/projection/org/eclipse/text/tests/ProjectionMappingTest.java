@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -22,6 +22,7 @@ import org.junit.Test;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DefaultPositionUpdater;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
@@ -1018,4 +1019,36 @@ public class ProjectionMappingTest {
 		createLineWrappingProjection();
 		assertEquals(fSlaveDocument.getLength(), fProjectionMapping.getImageLength());
 	}
+
+	@Test
+	public void test14a() throws BadLocationException {
+		// test that the mapping follows fragments moved by master document changes
+		createStandardProjection();
+		fMasterDocument.addPositionUpdater(new DefaultPositionUpdater(fFragmentsCategory));
+		assertEquals(25, fProjectionMapping.toImageOffset(65));
+		assertEquals(65, fProjectionMapping.toOriginOffset(25));
+
+		fMasterDocument.replace(0, 0, "xxxxx");
+		assertEquals(20, fProjectionMapping.toImageOffset(65));
+		assertEquals(25, fProjectionMapping.toImageOffset(70));
+		assertEquals(70, fProjectionMapping.toOriginOffset(25));
+		assertEquals(-1, fProjectionMapping.toImageOffset(20));
+		assertEquals(new Region(25, 60), fProjectionMapping.getCoverage());
+	}
+
+	@Test
+	public void test14b() throws BadLocationException {
+		// test that the mapping follows projection changes
+		createStandardProjection();
+		assertEquals(40, fProjectionMapping.getImageLength());
+		assertEquals(-1, fProjectionMapping.toImageOffset(170));
+
+		fSlaveDocument.replace(40, 0, "9999999999");
+		addProjection(165, 40, 10);
+		fProjectionMapping.projectionChanged();
+		assertEquals(50, fProjectionMapping.getImageLength());
+		assertEquals(45, fProjectionMapping.toImageOffset(170));
+		assertEquals(170, fProjectionMapping.toOriginOffset(45));
+		assertEquals(2, fProjectionMapping.toImageLine(8));
+	}
 }
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+
+/**
+ * Tests the {@link org.eclipse.jface.text.source.IAnnotationModelExtension3}.
+ *
+ * @since 3.9
+ */
+public class AnnotationModelExtension3Test {
+
+	private Document fDocument;
+	private AnnotationModel fAnnotationModel;
+
+	@Before
+	public void setUp() {
+		fDocument= new Document("How much wood\nwould a woodchuck chuck\nif a woodchuck\ncould chuck wood?\n42");
+		fAnnotationModel= new AnnotationModel();
+		fAnnotationModel.connect(fDocument);
+	}
+
+	private Annotation add(int offset, int length) {
+		Annotation annotation= new Annotation(false);
+		fAnnotationModel.addAnnotation(annotation, new Position(offset, length));
+		return annotation;
+	}
+
+	private void assertOverlapping(int offset, int length) {
+		Position region= new Position(offset, length);
+		List<Annotation> expected= new ArrayList<>();
+		for (Iterator<Annotation> iter= fAnnotationModel.getAnnotationIterator(); iter.hasNext();) {
+			Annotation annotation= iter.next();
+			Position position= fAnnotationModel.getPosition(annotation);
+			if (region.overlapsWith(position.getOffset(), position.getLength()))
+				expected.add(annotation);
+		}
+
+		Annotation[] actual= fAnnotationModel.getAnnotations(offset, length);
+		assertEquals(new HashSet<>(expected), new HashSet<>(Arrays.asList(actual)));
+		assertEquals(expected.size(), actual.length);
+		for (int i= 1; i < actual.length; i++)
+			assertTrue(fAnnotationModel.getPosition(actual[i - 1]).getOffset() <= fAnnotationModel.getPosition(actual[i]).getOffset());
+	}
+
+	@Test
+	public void testGetAnnotations() {
+		Annotation a= add(0, 3);
+		Annotation b= add(4, 4);
+		Annotation c= add(4, 0);
+		Annotation d= add(14, 40);
+		Annotation e= add(20, 5);
+
+		assertArrayEquals(new Annotation[] { a }, fAnnotationModel.getAnnotations(0, 1));
+		// annotations with the same offset may be returned in any order
+		assertEquals(new HashSet<>(Arrays.asList(b, c)), new HashSet<>(Arrays.asList(fAnnotationModel.getAnnotations(4, 0))));
+		assertArrayEquals(new Annotation[0], fAnnotationModel.getAnnotations(10, 3));
+		assertArrayEquals(new Annotation[] { d, e }, fAnnotationModel.getAnnotations(22, 1));
+		assertArrayEquals(new Annotation[] { d }, fAnnotationModel.getAnnotations(40, 10));
+	}
+
+	@Test
+	public void testGetAnnotationsOnLines() throws BadLocationException {
+		Annotation first= add(0, 3);
+		Annotation spanning= add(10, 10);
+		Annotation third= add(40, 2);
+
+		assertArrayEquals(new Annotation[] { first, spanning }, fAnnotationModel.getAnnotationsOnLines(0, 0));
+		assertArrayEquals(new Annotation[] { spanning }, fAnnotationModel.getAnnotationsOnLines(1, 1));
+		assertArrayEquals(new Annotation[] { spanning, third }, fAnnotationModel.getAnnotationsOnLines(1, 2));
+		assertArrayEquals(new Annotation[0], fAnnotationModel.getAnnotationsOnLines(3, 4));
+	}
+
+	@Test
+	public void testDocumentChanges() throws BadLocationException {
+		Annotation a= add(0, 3);
+		Annotation b= add(14, 5);
+		assertArrayEquals(new Annotation[] { b }, fAnnotationModel.getAnnotations(14, 1));
+
+		fDocument.replace(0, 0, "0123456789");
+		assertArrayEquals(new Annotation[0], fAnnotationModel.getAnnotations(14, 1));
+		assertArrayEquals(new Annotation[] { b }, fAnnotationModel.getAnnotations(24, 1));
+		assertArrayEquals(new Annotation[] { a }, fAnnotationModel.getAnnotations(10, 1));
+
+		fAnnotationModel.removeAnnotation(a);
+		assertArrayEquals(new Annotation[0], fAnnotationModel.getAnnotations(10, 1));
+
+		fAnnotationModel.modifyAnnotationPosition(b, new Position(0, 1));
+		assertArrayEquals(new Annotation[] { b }, fAnnotationModel.getAnnotations(0, 1));
+	}
+
+	@Test
+	public void testOrderPreservingDocumentChanges() throws BadLocationException {
+		Annotation a= add(0, 3);
+		Annotation b= add(14, 5);
+		Annotation c= add(20, 30);
+		assertArrayEquals(new Annotation[] { a, b, c }, fAnnotationModel.getAnnotations(0, 60));
+		Object annotationIndex= new Accessor(fAnnotationModel, AnnotationModel.class).get("fIndex");
+		Accessor index= new Accessor(annotationIndex, annotationIndex.getClass());
+		Object entries= index.get("fEntries");
+
+		fDocument.replace(16, 6, "");
+		assertArrayEquals(new Annotation[] { b, c }, fAnnotationModel.getAnnotations(15, 2));
+		assertArrayEquals(new Annotation[] { c }, fAnnotationModel.getAnnotations(40, 3));
+		// the entries are not re-sorted
+		assertSame(entries, index.get("fEntries"));
+	}
+
+	@Test
+	public void testDocumentChangesReorderingPositions() throws BadLocationException {
+		Position moved= new Position(0, 3);
+		Annotation a= new Annotation(false);
+		fAnnotationModel.addAnnotation(a, moved);
+		Annotation b= add(14, 5);
+		assertArrayEquals(new Annotation[] { a, b }, fAnnotationModel.getAnnotations(0, 40));
+
+		// clients may move positions themselves, the index picks this up on the next document change
+		moved.setOffset(30);
+		fDocument.replace(50, 0, "x");
+		assertArrayEquals(new Annotation[] { b, a }, fAnnotationModel.getAnnotations(0, 40));
+		assertArrayEquals(new Annotation[] { a }, fAnnotationModel.getAnnotations(31, 1));
+	}
+
+	@Test
+	public void testDeletedPositions() throws BadLocationException {
+		Annotation a= add(4, 4);
+		Annotation b= add(14, 5);
+		fDocument.replace(2, 8, "");
+
+		assertArrayEquals(new Annotation[] { b }, fAnnotationModel.getAnnotations(0, 20));
+		assertEquals(null, fAnnotationModel.getPosition(a));
+	}
+
+	@Test
+	public void testOverriddenAnnotationIterator() {
+		Annotation hidden= new Annotation("hidden", false, null);
+		fAnnotationModel= new AnnotationModel() {
+			@Override
+			protected Iterator<Annotation> getAnnotationIterator(boolean cleanup) {
+				List<Annotation> annotations= new ArrayList<>();
+				for (Iterator<Annotation> iter= super.getAnnotationIterator(cleanup); iter.hasNext();) {
+					Annotation annotation= iter.next();
+					if (annotation != hidden)
+						annotations.add(annotation);
+				}
+				return annotations.iterator();
+			}
+		};
+		fAnnotationModel.connect(fDocument);
+		Annotation shown= add(0, 3);
+		fAnnotationModel.addAnnotation(hidden, new Position(1, 3));
+
+		assertArrayEquals(new Annotation[] { shown }, fAnnotationModel.getAnnotations(0, 5));
+	}
+
+	@Test
+	public void testAttachedModels() {
+		AnnotationModel attached= new AnnotationModel();
+		fAnnotationModel.addAnnotationModel("attached", attached);
+		Annotation outer= add(10, 5);
+		Annotation inner= new Annotation(false);
+		attached.addAnnotation(inner, new Position(5, 10));
+
+		assertArrayEquals(new Annotation[] { inner, outer }, fAnnotationModel.getAnnotations(12, 1));
+		assertArrayEquals(new Annotation[] { inner }, attached.getAnnotations(12, 1));
+	}
+
+	@Test
+	public void testRandomized() throws BadLocationException {
+		Random random= new Random(42);
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < 2000; i++)
+			text.append(i % 50 == 49 ? '\n' : 'x');
+		fDocument.set(text.toString());
+
+		List<Annotation> annotations= new ArrayList<>();
+		for (int i= 0; i < 500; i++) {
+			int offset= random.nextInt(2000);
+			annotations.add(add(offset, random.nextInt(Math.min(100, 2000 - offset) + 1)));
+		}
+		for (int i= 0; i < 50; i++)
+			assertOverlapping(random.nextInt(2000), random.nextInt(50));
+
+		for (int i= 0; i < 100; i++) {
+			int offset= random.nextInt(fDocument.getLength());
+			fDocument.replace(offset, random.nextInt(Math.min(10, fDocument.getLength() - offset) + 1), random.nextBoolean() ? "abc" : "");
+			if (i % 10 == 0)
+				fAnnotationModel.removeAnnotation(annotations.get(random.nextInt(annotations.size())));
+			assertOverlapping(random.nextInt(fDocument.getLength()), random.nextInt(50));
+		}
+	}
+}
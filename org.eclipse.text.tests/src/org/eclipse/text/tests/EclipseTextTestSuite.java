@@ -46,6 +46,7 @@ import org.eclipse.text.tests.templates.TemplatesTestSuite;
 		TextUtilitiesTest.class,
 		AnnotationModelStressTest.class,
 		AnnotationModelExtension2Test.class,
+		AnnotationModelExtension3Test.class,
 		TemplatesTestSuite.class
 })
 public class EclipseTextTestSuite {
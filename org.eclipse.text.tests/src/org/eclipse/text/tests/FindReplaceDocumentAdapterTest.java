@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,8 @@ import static org.junit.Assert.*;
 
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.junit.After;
@@ -29,6 +31,7 @@ import org.junit.Test;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentRewriteSessionEvent;
 import org.eclipse.jface.text.FindReplaceDocumentAdapter;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Region;
@@ -503,4 +506,159 @@ public class FindReplaceDocumentAdapterTest {
 		}
 		fail();
 	}
+
+	@Test
+	public void testRegexFindBackwardInLargeDocument() throws Exception {
+		String text= createLargeText(100000);
+		fDocument.set(text);
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+
+		String[] patterns= { "method\\d", "^\\s*// comment", "\\bclass\\b", "(?<=public )void", "m[a-z]{5}(?=\\d)", "\\}$", "(a|b)\\1", "com+ent\\d" };
+		for (String regex : patterns) {
+			Pattern pattern= Pattern.compile(regex, Pattern.MULTILINE);
+			for (int offset= text.length(); offset > 0; offset-= 997) {
+				IRegion result= adapter.find(offset, regex, false, true, false, true);
+				assertEquals(regex + " at " + offset, findBackward(pattern, text, offset), result);
+			}
+		}
+	}
+
+	@Test
+	public void testFindPreviousInLargeDocument() throws Exception {
+		String text= createLargeText(1000000);
+		fDocument.set(text);
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+
+		int expected= 0;
+		Matcher matcher= Pattern.compile("method2").matcher(text); //$NON-NLS-1$
+		while (matcher.find())
+			expected++;
+
+		int count= 0;
+		IRegion result= adapter.find(-1, "method2", false, true, false, false); //$NON-NLS-1$
+		while (result != null) {
+			count++;
+			if (result.getOffset() == 0)
+				break;
+			result= adapter.find(result.getOffset() - 1, "method2", false, true, false, false); //$NON-NLS-1$
+		}
+		assertEquals(expected, count);
+	}
+
+	@Test
+	public void testReplaceAll() throws Exception {
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+		String text= fDocument.get();
+
+		assertEquals(3, adapter.replaceAll("comment", "note", true, false, false, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(text.replace("comment", "note"), fDocument.get()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(0, adapter.replaceAll("comment", "note", true, false, false, null)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// a replace must be preceded by a find
+		try {
+			adapter.replace("x", false); //$NON-NLS-1$
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRegexReplaceAll() throws Exception {
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+		String text= fDocument.get();
+
+		assertEquals(2, adapter.replaceAll("method(\\d)", "\\Cfunction_$1", true, false, true, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(text.replace("method1", "function_1").replace("method2", "function_2"), fDocument.get()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	@Test
+	public void testRegexReplaceAllEmptyMatches() throws Exception {
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+
+		fDocument.set("ab\ncd\n"); //$NON-NLS-1$
+		// as in Pattern.MULTILINE, ^ does not match after the last line delimiter
+		assertEquals(2, adapter.replaceAll("^", "// ", true, false, true, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("// ab\n// cd\n", fDocument.get()); //$NON-NLS-1$
+
+		fDocument.set("ab\ncd"); //$NON-NLS-1$
+		assertEquals(2, adapter.replaceAll("$", ";", true, false, true, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("ab;\ncd;", fDocument.get()); //$NON-NLS-1$
+
+		fDocument.set("axxbxc"); //$NON-NLS-1$
+		assertEquals("axxbxc".replaceAll("x*", "-"), "-a--b--c-"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals(6, adapter.replaceAll("x*", "-", true, false, true, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("-a--b--c-", fDocument.get()); //$NON-NLS-1$
+
+		fDocument.set("foo bar foo"); //$NON-NLS-1$
+		assertEquals(2, adapter.replaceAll("(?=foo)", "[", true, false, true, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("[foo bar [foo", fDocument.get()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testReplaceAllInRange() throws Exception {
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+		String text= fDocument.get();
+		int start= text.indexOf("// comment1"); //$NON-NLS-1$
+		int end= text.indexOf("// comment2") + 5; //$NON-NLS-1$
+
+		// the last occurrence is not completely inside of the range
+		assertEquals(1, adapter.replaceAll("comment", "note", false, false, false, new Region(start, end - start))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(text.substring(0, start) + "// note1" + text.substring(start + 11), fDocument.get()); //$NON-NLS-1$
+
+		try {
+			adapter.replaceAll("comment", "note", false, false, false, new Region(start, text.length())); //$NON-NLS-1$ //$NON-NLS-2$
+			fail();
+		} catch (BadLocationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testReplaceAllInLargeDocument() throws Exception {
+		String text= createLargeText(1000000);
+		fDocument.set(text);
+		int[] sessions= new int[1];
+		fDocument.addDocumentRewriteSessionListener(event -> {
+			if (event.getChangeType() == DocumentRewriteSessionEvent.SESSION_START)
+				sessions[0]++;
+		});
+
+		int expected= 0;
+		Matcher matcher= Pattern.compile("comment").matcher(text); //$NON-NLS-1$
+		while (matcher.find())
+			expected++;
+
+		FindReplaceDocumentAdapter adapter= new FindReplaceDocumentAdapter(fDocument);
+		assertEquals(expected, adapter.replaceAll("comment", "remark", true, false, false, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(text.replace("comment", "remark"), fDocument.get()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, sessions[0]);
+	}
+
+	private static String createLargeText(int length) {
+		StringBuilder buffer= new StringBuilder(length + 100);
+		for (int i= 0; buffer.length() < length; i++) {
+			buffer.append("\t\t// comment").append(i % 10).append('\n'); //$NON-NLS-1$
+			buffer.append("\t\tpublic void method").append(i % 3).append("() {\n\t\t}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (i % 50 == 0)
+				buffer.append("\tpublic class Class").append(i).append(" {\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Finds the last match ending at or before <code>offset + 1</code> by visiting all matches
+	 * from the start of the text.
+	 */
+	private static IRegion findBackward(Pattern pattern, String text, int offset) {
+		Matcher matcher= pattern.matcher(text);
+		IRegion result= null;
+		boolean found= matcher.find(0);
+		while (found && matcher.end() <= offset + 1) {
+			result= new Region(matcher.start(), matcher.end() - matcher.start());
+			found= matcher.find(matcher.start() + 1);
+		}
+		return result;
+	}
 }
@@ -95,6 +95,25 @@ public abstract class TextStoreTest {
 
 	}
 
+	@Test
+	public void testGetChars() throws Exception {
+		set("abcdefghij");
+		// move the gap into the middle of the content
+		replace(4, 0, "xy");
+		replace(8, 2, "");
+
+		String text= fTextStore.get(0, fTextStore.getLength());
+		for (int offset= 0; offset <= text.length(); offset++) {
+			for (int length= 0; offset + length <= text.length(); length++) {
+				char[] chars= new char[length + 2];
+				fTextStore.getChars(offset, length, chars, 1);
+				assertEquals(text.substring(offset, offset + length), new String(chars, 1, length));
+				assertEquals(0, chars[0]);
+				assertEquals(0, chars[length + 1]);
+			}
+		}
+	}
+
 	@Test
 	public void testEditScript1() throws Exception {
 		replace(0, fTextStore.getLength(), "x");
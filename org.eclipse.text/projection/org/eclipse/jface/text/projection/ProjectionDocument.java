@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.jface.text.projection;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.jface.text.AbstractDocument;
@@ -743,8 +744,11 @@ public class ProjectionDocument extends AbstractDocument {
 				} catch (BadLocationException e) {
 					internalError();
 				}
-			} else if (ensureWellFormedSegmentation(masterEvent.getOffset()))
+			} else {
+				// the change may have moved the fragments even if it did not affect the projection
+				ensureWellFormedSegmentation(masterEvent.getOffset());
 				fMapping.projectionChanged();
+			}
 		}
 	}
 
@@ -889,4 +893,175 @@ public class ProjectionDocument extends AbstractDocument {
 			internalError();
 		}
 	}
+
+	/**
+	 * Replaces all master document ranges with the given master document ranges.
+	 * <p>
+	 * This has the same effect as adding and removing the master document ranges one by one,
+	 * however the fragments and segments are rebuilt only once and a single projection document
+	 * event is sent. The event replaces the region of this document between the first and the
+	 * last master document offset whose projection changes. Clients showing and hiding many ranges
+	 * at once, e.g. when collapsing all folding regions, should use this method.
+	 * </p>
+	 *
+	 * @param rangesInMaster the master document ranges, may overlap and may be in any order
+	 * @throws BadLocationException if one of the ranges is not valid in the master document
+	 * @since 3.9
+	 */
+	public void replaceMasterDocumentRanges(IRegion[] rangesInMaster) throws BadLocationException {
+		int masterLength= fMasterDocument.getLength();
+		IRegion[] sorted= rangesInMaster.clone();
+		Arrays.sort(sorted, (r1, r2) -> Integer.compare(r1.getOffset(), r2.getOffset()));
+
+		int[] newStarts= new int[sorted.length];
+		int[] newEnds= new int[sorted.length];
+		int newCount= 0;
+		for (IRegion range : sorted) {
+			int start= range.getOffset();
+			int end= start + range.getLength();
+			if (start < 0 || start > end || end > masterLength)
+				throw new BadLocationException();
+			newCount= addRange(newStarts, newEnds, newCount, start, end);
+		}
+
+		Position[] fragments= getFragments();
+		int[] oldStarts= new int[fragments.length];
+		int[] oldEnds= new int[fragments.length];
+		int oldCount= 0;
+		for (Position fragment : fragments) {
+			if (!fragment.isDeleted())
+				oldCount= addRange(oldStarts, oldEnds, oldCount, fragment.getOffset(), fragment.getOffset() + fragment.getLength());
+		}
+
+		// skip the ranges which do not change at the start and at the end
+		int first= 0;
+		while (first < oldCount && first < newCount && oldStarts[first] == newStarts[first] && oldEnds[first] == newEnds[first])
+			first++;
+		if (first == oldCount && first == newCount)
+			return;
+
+		int last= 0;
+		while (last < oldCount - first && last < newCount - first && oldStarts[oldCount - 1 - last] == newStarts[newCount - 1 - last] && oldEnds[oldCount - 1 - last] == newEnds[newCount - 1 - last])
+			last++;
+		int oldLast= oldCount - 1 - last;
+		int newLast= newCount - 1 - last;
+
+		int startInMaster;
+		if (first == oldCount)
+			startInMaster= newStarts[first];
+		else if (first == newCount)
+			startInMaster= oldStarts[first];
+		else if (oldStarts[first] != newStarts[first])
+			startInMaster= Math.min(oldStarts[first], newStarts[first]);
+		else
+			startInMaster= Math.min(oldEnds[first], newEnds[first]);
+
+		int endInMaster;
+		if (oldLast < first)
+			endInMaster= newEnds[newLast];
+		else if (newLast < first)
+			endInMaster= oldEnds[oldLast];
+		else if (oldEnds[oldLast] != newEnds[newLast])
+			endInMaster= Math.max(oldEnds[oldLast], newEnds[newLast]);
+		else
+			endInMaster= Math.max(oldStarts[oldLast], newStarts[newLast]);
+
+		int offset= computeImageOffset(oldStarts, oldEnds, oldCount, startInMaster);
+		int length= computeImageOffset(oldStarts, oldEnds, oldCount, endInMaster) - offset;
+		StringBuilder text= new StringBuilder();
+		for (int i= 0; i < newCount; i++) {
+			int start= Math.max(newStarts[i], startInMaster);
+			int end= Math.min(newEnds[i], endInMaster);
+			if (start < end)
+				text.append(fMasterDocument.get(start, end - start));
+		}
+
+		ProjectionDocumentEvent event= new ProjectionDocumentEvent(this, offset, length, text.toString(), startInMaster, endInMaster - startInMaster);
+		super.fireDocumentAboutToBeChanged(event);
+
+		try {
+
+			// clearing the categories is cheaper than removing the positions one by one
+			fMasterDocument.removePositionCategory(fFragmentsCategory);
+			fMasterDocument.addPositionCategory(fFragmentsCategory);
+			removePositionCategory(fSegmentsCategory);
+			addPositionCategory(fSegmentsCategory);
+
+			if (newCount == 0) {
+				// keep an empty fragment as anchor, like removing the last range does
+				Fragment fragment= new Fragment(endInMaster, 0);
+				fMasterDocument.addPosition(fFragmentsCategory, fragment);
+				createSegmentFor(fragment, 0);
+			}
+
+			Segment[] segments= new Segment[newCount];
+			for (int i= 0; i < newCount; i++) {
+				Fragment fragment= new Fragment(newStarts[i], newEnds[i] - newStarts[i]);
+				Segment segment= new Segment(0, 0);
+				segment.fragment= fragment;
+				fragment.segment= segment;
+				fMasterDocument.addPosition(fFragmentsCategory, fragment);
+				segments[i]= segment;
+			}
+
+			// the length of this document is still computed from the old segments, hence the new
+			// segments are added empty at the start, in reverse order, and moved into place afterwards
+			for (int i= newCount - 1; i >= 0; i--)
+				addPosition(fSegmentsCategory, segments[i]);
+
+			int offsetInSlave= 0;
+			for (Segment segment : segments) {
+				segment.setOffset(offsetInSlave);
+				segment.setLength(segment.fragment.getLength());
+				offsetInSlave += segment.getLength();
+			}
+
+			getTracker().replace(event.getOffset(), event.getLength(), event.getText());
+			fSegmentUpdater.ignore(event);
+			super.fireDocumentChanged(event);
+
+		} catch (BadPositionCategoryException x) {
+			internalError();
+		}
+	}
+
+	/**
+	 * Appends the given range to the given sorted ranges, merging it with the last range if they
+	 * overlap or touch. Empty ranges are ignored.
+	 *
+	 * @param starts the start offsets of the ranges
+	 * @param ends the end offsets of the ranges
+	 * @param count the number of ranges
+	 * @param start the start offset of the range to append, not smaller than the last start offset
+	 * @param end the end offset of the range to append
+	 * @return the new number of ranges
+	 */
+	private static int addRange(int[] starts, int[] ends, int count, int start, int end) {
+		if (start == end)
+			return count;
+		if (count > 0 && start <= ends[count - 1]) {
+			ends[count - 1]= Math.max(ends[count - 1], end);
+			return count;
+		}
+		starts[count]= start;
+		ends[count]= end;
+		return count + 1;
+	}
+
+	/**
+	 * Returns the offset in the image of the given sorted master document ranges that corresponds
+	 * to the given master document offset.
+	 *
+	 * @param starts the start offsets of the ranges
+	 * @param ends the end offsets of the ranges
+	 * @param count the number of ranges
+	 * @param offsetInMaster the master document offset
+	 * @return the image offset
+	 */
+	private static int computeImageOffset(int[] starts, int[] ends, int count, int offsetInMaster) {
+		int offset= 0;
+		for (int i= 0; i < count && starts[i] < offsetInMaster; i++)
+			offset += Math.min(ends[i], offsetInMaster) - starts[i];
+		return offset;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IDocumentInformationMapping;
 import org.eclipse.jface.text.IDocumentInformationMappingExtension;
 import org.eclipse.jface.text.IDocumentInformationMappingExtension2;
@@ -54,6 +55,22 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 	private Position[] fCachedSegments;
 	/** Cached fragments */
 	private Position[] fCachedFragments;
+	/** The modification stamp of the master document when the segments and fragments were cached */
+	private long fCachedMasterStamp;
+	/** The offsets of the cached segments */
+	private int[] fSegmentOffsets= new int[0];
+	/** The exclusive end offsets of the cached segments */
+	private int[] fSegmentEnds= new int[0];
+	/** The offsets of the fragments of the cached segments */
+	private int[] fSegmentOriginOffsets= new int[0];
+	/** The offsets of the cached fragments */
+	private int[] fFragmentOffsets= new int[0];
+	/** The exclusive end offsets of the cached fragments */
+	private int[] fFragmentEnds= new int[0];
+	/** The offsets of the segments of the cached fragments */
+	private int[] fFragmentImageOffsets= new int[0];
+	/** The sum of the lengths of the cached segments */
+	private int fImageLength;
 
 	/**
 	 * Creates a new mapping between the given parent document and the given projection document.
@@ -79,69 +96,121 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 	}
 
 	private Position[] getSegments() {
-		if (fCachedSegments == null) {
-			try {
-				fCachedSegments= fSlaveDocument.getPositions(fSegmentsCategory);
-			} catch (BadPositionCategoryException e) {
-				return new Position[0];
-			}
-		}
-		return fCachedSegments;
+		updateCache();
+		return fCachedSegments != null ? fCachedSegments : new Position[0];
 	}
 
 	private Position[] getFragments() {
-		if (fCachedFragments == null) {
-			try {
-				fCachedFragments= fMasterDocument.getPositions(fFragmentsCategory);
-			} catch (BadPositionCategoryException e) {
-				return new Position[0];
-			}
-		}
-		return fCachedFragments;
+		updateCache();
+		return fCachedFragments != null ? fCachedFragments : new Position[0];
 	}
 
-	private int findSegmentIndex(int offset) throws BadLocationException {
-		Position[] segments= getSegments();
-		if (segments.length == 0) {
-			if (offset > 0)
-				throw new BadLocationException();
-			return -1;
-		}
+	/**
+	 * Fetches the segments and fragments and records their boundaries in primitive arrays unless
+	 * this has already been done since the last projection change. The positions are also
+	 * fetched again if the master document has been modified since, as its modifications may have
+	 * moved the fragments without changing the projection.
+	 */
+	private void updateCache() {
+		long masterStamp= getMasterModificationStamp();
+		if (fCachedSegments != null && fCachedFragments != null && masterStamp == fCachedMasterStamp)
+			return;
 
+		fCachedMasterStamp= masterStamp;
+		Position[] segments;
 		try {
-			int index= fSlaveDocument.computeIndexInCategory(fSegmentsCategory, offset);
-			if (index == segments.length && offset > exclusiveEnd(segments[index-1]))
-				throw new BadLocationException();
+			segments= fSlaveDocument.getPositions(fSegmentsCategory);
+			fCachedSegments= segments;
+		} catch (BadPositionCategoryException e) {
+			segments= new Position[0];
+			fCachedSegments= null;
+		}
+		Position[] fragments;
+		try {
+			fragments= fMasterDocument.getPositions(fFragmentsCategory);
+			fCachedFragments= fragments;
+		} catch (BadPositionCategoryException e) {
+			fragments= new Position[0];
+			fCachedFragments= null;
+		}
 
-			if (index < segments.length && offset == segments[index].offset)
-				return index;
+		if (fSegmentOffsets.length != segments.length) {
+			fSegmentOffsets= new int[segments.length];
+			fSegmentEnds= new int[segments.length];
+			fSegmentOriginOffsets= new int[segments.length];
+		}
+		fImageLength= 0;
+		for (int i= 0; i < segments.length; i++) {
+			Segment segment= (Segment) segments[i];
+			fSegmentOffsets[i]= segment.offset;
+			fSegmentEnds[i]= segment.offset + segment.length;
+			fSegmentOriginOffsets[i]= segment.fragment != null ? segment.fragment.offset : 0;
+			fImageLength += segment.length;
+		}
 
-			if (index > 0)
-				index--;
+		if (fFragmentOffsets.length != fragments.length) {
+			fFragmentOffsets= new int[fragments.length];
+			fFragmentEnds= new int[fragments.length];
+			fFragmentImageOffsets= new int[fragments.length];
+		}
+		for (int i= 0; i < fragments.length; i++) {
+			Fragment fragment= (Fragment) fragments[i];
+			fFragmentOffsets[i]= fragment.offset;
+			// deleted fragments do not include any offset
+			fFragmentEnds[i]= fragment.isDeleted() ? fragment.offset : fragment.offset + fragment.length;
+			fFragmentImageOffsets[i]= fragment.segment != null ? fragment.segment.offset : 0;
+		}
+	}
 
-			return index;
+	private long getMasterModificationStamp() {
+		if (fMasterDocument instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) fMasterDocument).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
 
-		} catch (BadPositionCategoryException e) {
-			throw new IllegalStateException();
+	/**
+	 * Returns the index of the first of the given offsets that is greater than or equal to
+	 * <code>offset</code>, i.e. the index at which a position with the given offset would be
+	 * inserted into a position category as computed by
+	 * {@link IDocument#computeIndexInCategory(String, int)}.
+	 *
+	 * @param offsets the ascending offsets
+	 * @param offset the offset to search for
+	 * @return the insertion index of <code>offset</code>
+	 */
+	private static int computeIndex(int[] offsets, int offset) {
+		int left= 0;
+		int right= offsets.length;
+		while (left < right) {
+			int mid= (left + right) >>> 1;
+			if (offsets[mid] < offset)
+				left= mid + 1;
+			else
+				right= mid;
 		}
+		return left;
 	}
 
-	private Segment findSegment(int offset) throws BadLocationException {
+	private int findSegmentIndex(int offset) throws BadLocationException {
+		updateCache();
+		int count= fSegmentOffsets.length;
+		if (count == 0) {
+			if (offset > 0)
+				throw new BadLocationException();
+			return -1;
+		}
 
-		checkImageOffset(offset);
+		int index= computeIndex(fSegmentOffsets, offset);
+		if (index == count && offset > fSegmentEnds[index - 1])
+			throw new BadLocationException();
 
-		int index= findSegmentIndex(offset);
-		if (index == -1) {
+		if (index < count && offset == fSegmentOffsets[index])
+			return index;
 
-			Segment s= new Segment(0, 0);
-			Fragment f= new Fragment(0, 0);
-			s.fragment= f;
-			f.segment= s;
-			return s;
-		}
+		if (index > 0)
+			index--;
 
-		Position[] segments= getSegments();
-		return (Segment) segments[index];
+		return index;
 	}
 
 	/**
@@ -168,49 +237,28 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 	 *         document
 	 */
 	private int findFragmentIndex(int offset, int extensionDirection) throws BadLocationException {
-		try {
+		updateCache();
+		int count= fFragmentOffsets.length;
+		if (count == 0)
+			return -1;
 
-			Position[] fragments= getFragments();
-			if (fragments.length == 0)
-				return -1;
+		int index= computeIndex(fFragmentOffsets, offset);
 
-			int index= fMasterDocument.computeIndexInCategory(fFragmentsCategory, offset);
+		if (index < count && offset == fFragmentOffsets[index])
+			return index;
 
-			if (index < fragments.length && offset == fragments[index].offset)
-				return index;
+		if (0 < index && index <= count && fFragmentOffsets[index - 1] <= offset && offset < fFragmentEnds[index - 1])
+			return index - 1;
 
-			if (0 < index && index <= fragments.length && fragments[index - 1].includes(offset))
+		switch (extensionDirection) {
+			case LEFT:
 				return index - 1;
-
-			switch (extensionDirection) {
-				case LEFT:
-					return index - 1;
-				case RIGHT:
-					if (index < fragments.length)
-						return index;
-			}
-
-			return -1;
-
-		} catch (BadPositionCategoryException e) {
-			throw new IllegalStateException();
+			case RIGHT:
+				if (index < count)
+					return index;
 		}
-	}
-
-	private Fragment findFragment(int offset) throws BadLocationException {
-		checkOriginOffset(offset);
 
-		int index= findFragmentIndex(offset, NONE);
-		Position[] fragments= getFragments();
-		if (index == -1) {
-			if (fragments.length > 0) {
-				Fragment last= (Fragment) fragments[fragments.length - 1];
-				if (exclusiveEnd(last) == offset)
-					return last;
-			}
-			return null;
-		}
-		return (Fragment) fragments[index];
+		return -1;
 	}
 
 	/**
@@ -371,9 +419,14 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 
 	@Override
 	public int toOriginOffset(int imageOffset) throws BadLocationException {
-		Segment segment= findSegment(imageOffset);
-		int relative= imageOffset - segment.offset;
-		return segment.fragment.offset + relative;
+		checkImageOffset(imageOffset);
+
+		int index= findSegmentIndex(imageOffset);
+		if (index == -1)
+			return imageOffset;
+
+		int relative= imageOffset - fSegmentOffsets[index];
+		return fSegmentOriginOffsets[index] + relative;
 	}
 
 	@Override
@@ -418,12 +471,18 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 
 	@Override
 	public int toImageOffset(int originOffset) throws BadLocationException {
-		Fragment fragment= findFragment(originOffset);
-		if (fragment != null) {
-			int relative= originOffset - fragment.offset;
-			return fragment.segment.offset + relative;
+		checkOriginOffset(originOffset);
+
+		int index= findFragmentIndex(originOffset, NONE);
+		if (index == -1) {
+			int last= fFragmentOffsets.length - 1;
+			if (last == -1 || fFragmentEnds[last] != originOffset)
+				return -1;
+			index= last;
 		}
-		return -1;
+
+		int relative= originOffset - fFragmentOffsets[index];
+		return fFragmentImageOffsets[index] + relative;
 	}
 
 	@Override
@@ -466,44 +525,37 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 
 	@Override
 	public int toClosestImageLine(int originLine) throws BadLocationException {
-		try {
-
-			int imageLine= toImageLine(originLine);
-			if (imageLine > -1)
-				return imageLine;
-
-			Position[] fragments= getFragments();
-			if (fragments.length == 0)
-				return -1;
+		int imageLine= toImageLine(originLine);
+		if (imageLine > -1)
+			return imageLine;
 
-			IRegion originLineRegion= fMasterDocument.getLineInformation(originLine);
-			int index= fMasterDocument.computeIndexInCategory(fFragmentsCategory, originLineRegion.getOffset());
+		Position[] fragments= getFragments();
+		if (fragments.length == 0)
+			return -1;
 
-			if (0 < index && index < fragments.length) {
-				Fragment left= (Fragment) fragments[index - 1];
-				int leftDistance= originLineRegion.getOffset() - (exclusiveEnd(left));
-				Fragment right= (Fragment) fragments[index];
-				int rightDistance= right.getOffset() - (exclusiveEnd(originLineRegion));
+		IRegion originLineRegion= fMasterDocument.getLineInformation(originLine);
+		int index= computeIndex(fFragmentOffsets, originLineRegion.getOffset());
 
-				if (leftDistance <= rightDistance)
-					originLine= fMasterDocument.getLineOfOffset(left.getOffset() + Math.max(left.getLength() - 1, 0));
-				else
-					originLine= fMasterDocument.getLineOfOffset(right.getOffset());
+		if (0 < index && index < fragments.length) {
+			Fragment left= (Fragment) fragments[index - 1];
+			int leftDistance= originLineRegion.getOffset() - (exclusiveEnd(left));
+			Fragment right= (Fragment) fragments[index];
+			int rightDistance= right.getOffset() - (exclusiveEnd(originLineRegion));
 
-			} else if (index == 0) {
-				Fragment right= (Fragment) fragments[index];
+			if (leftDistance <= rightDistance)
+				originLine= fMasterDocument.getLineOfOffset(left.getOffset() + Math.max(left.getLength() - 1, 0));
+			else
 				originLine= fMasterDocument.getLineOfOffset(right.getOffset());
-			} else if (index == fragments.length) {
-				Fragment left= (Fragment) fragments[index - 1];
-				originLine= fMasterDocument.getLineOfOffset(exclusiveEnd(left));
-			}
 
-			return toImageLine(originLine);
-
-		} catch (BadPositionCategoryException x) {
+		} else if (index == 0) {
+			Fragment right= (Fragment) fragments[index];
+			originLine= fMasterDocument.getLineOfOffset(right.getOffset());
+		} else if (index == fragments.length) {
+			Fragment left= (Fragment) fragments[index - 1];
+			originLine= fMasterDocument.getLineOfOffset(exclusiveEnd(left));
 		}
 
-		return -1;
+		return toImageLine(originLine);
 	}
 
 	@Override
@@ -546,12 +598,8 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 
 	@Override
 	public int getImageLength() {
-		Position[] segments= getSegments();
-		int length= 0;
-		for (Position segment : segments) {
-			length += segment.length;
-		}
-		return length;
+		updateCache();
+		return fImageLength;
 	}
 
 	@Override
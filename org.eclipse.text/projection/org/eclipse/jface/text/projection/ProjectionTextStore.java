@@ -16,6 +16,7 @@ package org.eclipse.jface.text.projection;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension5;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextStore;
 import org.eclipse.jface.text.Region;
@@ -143,4 +144,21 @@ class ProjectionTextStore implements ITextStore {
 		// unreachable
 		return null;
 	}
+
+	@Override
+	public void getChars(int offset, int length, char[] destination, int destinationOffset) {
+		try {
+			IRegion[] fragments= fMapping.toExactOriginRegions(new Region(offset, length));
+			for (IRegion fragment : fragments) {
+				int fragmentLength= fragment.getLength();
+				if (fMasterDocument instanceof IDocumentExtension5)
+					((IDocumentExtension5) fMasterDocument).getChars(fragment.getOffset(), fragmentLength, destination, destinationOffset);
+				else
+					fMasterDocument.get(fragment.getOffset(), fragmentLength).getChars(0, fragmentLength, destination, destinationOffset);
+				destinationOffset += fragmentLength;
+			}
+		} catch (BadLocationException e) {
+			internalError();
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -35,6 +35,11 @@ class SegmentUpdater extends DefaultPositionUpdater {
 
 	private Segment fNextSegment= null;
 	private boolean fIsProjectionChange= false;
+	/**
+	 * The event whose changes are already reflected by the segments.
+	 * @since 3.9
+	 */
+	private DocumentEvent fIgnoredEvent= null;
 
 	/**
 	 * Creates the segment updater for the given category.
@@ -45,10 +50,26 @@ class SegmentUpdater extends DefaultPositionUpdater {
 		super(segmentCategory);
 	}
 
+	/**
+	 * Tells this updater that the segments already reflect the given event, e.g. because they
+	 * have been rebuilt by the projection document, so that the next update for this event is
+	 * skipped.
+	 *
+	 * @param event the event to ignore
+	 * @since 3.9
+	 */
+	void ignore(DocumentEvent event) {
+		fIgnoredEvent= event;
+	}
+
 	@Override
 	public void update(DocumentEvent event) {
 
 		Assert.isTrue(event instanceof ProjectionDocumentEvent);
+		if (event == fIgnoredEvent) {
+			fIgnoredEvent= null;
+			return;
+		}
 		fIsProjectionChange= ((ProjectionDocumentEvent) event).getChangeType() == ProjectionDocumentEvent.PROJECTION_CHANGE;
 
 		try {
@@ -58,7 +58,7 @@ import org.eclipse.core.runtime.SafeRunner;
  * @see org.eclipse.jface.text.ITextStore
  * @see org.eclipse.jface.text.ILineTracker
  */
-public abstract class AbstractDocument implements IDocument, IDocumentExtension, IDocumentExtension2, IDocumentExtension3, IDocumentExtension4, IRepairableDocument, IRepairableDocumentExtension {
+public abstract class AbstractDocument implements IDocument, IDocumentExtension, IDocumentExtension2, IDocumentExtension3, IDocumentExtension4, IDocumentExtension5, IRepairableDocument, IRepairableDocumentExtension {
 
 	/**
 	 * Tells whether this class is in debug mode.
@@ -969,6 +969,19 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		return getStore().get(pos, length);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.9
+	 */
+	@Override
+	public void getChars(int pos, int length, char[] destination, int destinationOffset) throws BadLocationException {
+		int myLength= getLength();
+		if ((0 > pos) || (0 > length) || (pos + length > myLength))
+			throw new BadLocationException();
+		getStore().getChars(pos, length, destination, destinationOffset);
+	}
+
 	@Override
 	public void insertPositionUpdater(IPositionUpdater updater, int index) {
 
@@ -80,6 +80,11 @@ public class CopyOnWriteTextStore implements ITextStore {
 			return fText.substring(offset, offset + length);
 		}
 
+		@Override
+		public void getChars(int offset, int length, char[] destination, int destinationOffset) {
+			fText.getChars(offset, offset + length, destination, destinationOffset);
+		}
+
 		@Override
 		public int getLength() {
 			return fText.length();
@@ -128,6 +133,16 @@ public class CopyOnWriteTextStore implements ITextStore {
 		return fTextStore.get(offset, length);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.9
+	 */
+	@Override
+	public void getChars(int offset, int length, char[] destination, int destinationOffset) {
+		fTextStore.getChars(offset, length, destination, destinationOffset);
+	}
+
 	@Override
 	public int getLength() {
 		return fTextStore.getLength();
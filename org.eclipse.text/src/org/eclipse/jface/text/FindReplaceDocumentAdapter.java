@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,10 @@ import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.core.runtime.Assert;
 
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+
 
 /**
  * Provides search and replace operations on
@@ -54,6 +58,18 @@ public class FindReplaceDocumentAdapter implements CharSequence {
 	private static final int RC_LOWER= 2;
 	private static final int RC_FIRSTUPPER= 3;
 
+	/**
+	 * The initial number of characters scanned by a backward search before the search offset.
+	 * @since 3.9
+	 */
+	private static final int BACKWARD_SEARCH_CHUNK_SIZE= 8192;
+
+	/**
+	 * The maximal match length up to which a pattern is considered bounded.
+	 * @since 3.9
+	 */
+	private static final int MAX_BOUNDED_MATCH_LENGTH= 1024;
+
 
 	/**
 	 * The adapted document.
@@ -75,6 +91,13 @@ public class FindReplaceDocumentAdapter implements CharSequence {
 	 */
 	private int fFindReplaceMatchOffset;
 
+	/**
+	 * The maximal length of a match of the pattern used in findReplace, or <code>-1</code> if
+	 * the length of a match is not known to be bounded.
+	 * @since 3.9
+	 */
+	private int fFindReplaceMaxMatchLength;
+
 	/**
 	 * Retain case mode
 	 */
@@ -159,59 +182,21 @@ public class FindReplaceDocumentAdapter implements CharSequence {
 			if (startOffset < 0 || startOffset > length())
 				throw new BadLocationException();
 
-			int patternFlags= 0;
-
-			if (regExSearch) {
-				patternFlags |= Pattern.MULTILINE;
-				findString= substituteLinebreak(findString);
-			}
-
-			if (!caseSensitive)
-				patternFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
-
-			if (!regExSearch)
-				findString= asRegPattern(findString);
-
-			if (wholeWord)
-				findString= "\\b" + findString + "\\b"; //$NON-NLS-1$ //$NON-NLS-2$
-
 			fFindReplaceMatchOffset= startOffset;
-			if (fFindReplaceMatcher != null && fFindReplaceMatcher.pattern().pattern().equals(findString) && fFindReplaceMatcher.pattern().flags() == patternFlags) {
-				/*
-				 * Commented out for optimization:
-				 * The call is not needed since FIND_FIRST uses find(int) which resets the matcher
-				 */
-				// fFindReplaceMatcher.reset();
-			} else {
-				Pattern pattern= Pattern.compile(findString, patternFlags);
-				fFindReplaceMatcher= pattern.matcher(this);
-			}
+			findString= prepareMatcher(findString, caseSensitive, wholeWord, regExSearch);
 		}
 
 		// Set state
 		fFindReplaceState= operationCode;
 
 		if (operationCode == REPLACE || operationCode == REPLACE_FIND_NEXT) {
-			if (regExSearch) {
-				Pattern pattern= fFindReplaceMatcher.pattern();
-				String prevMatch= fFindReplaceMatcher.group();
-				try {
-					replaceText= interpretReplaceEscapes(replaceText, prevMatch);
-					Matcher replaceTextMatcher= pattern.matcher(prevMatch);
-					replaceText= replaceTextMatcher.replaceFirst(replaceText);
-				} catch (IndexOutOfBoundsException ex) {
-					throw new PatternSyntaxException(ex.getLocalizedMessage(), replaceText, -1);
-				}
-			}
+			if (regExSearch)
+				replaceText= interpretRegExReplaceText(fFindReplaceMatcher.pattern(), fFindReplaceMatcher.group(), replaceText);
 
 			int offset= fFindReplaceMatcher.start();
 			int length= fFindReplaceMatcher.group().length();
 
-			if (fDocument instanceof IRepairableDocumentExtension
-					&& ((IRepairableDocumentExtension)fDocument).isLineInformationRepairNeeded(offset, length, replaceText)) {
-				String message= TextMessages.getString("FindReplaceDocumentAdapter.incompatibleLineDelimiter"); //$NON-NLS-1$
-				throw new PatternSyntaxException(message, replaceText, offset);
-			}
+			checkLineDelimiters(offset, length, replaceText);
 
 			fDocument.replace(offset, length, replaceText);
 
@@ -238,19 +223,12 @@ public class FindReplaceDocumentAdapter implements CharSequence {
 					return null;
 				}
 				// backward search
-				boolean found= fFindReplaceMatcher.find(0);
-				int index= -1;
-				int length= -1;
-				while (found && fFindReplaceMatcher.start() + fFindReplaceMatcher.group().length() <= fFindReplaceMatchOffset + 1) {
-					index= fFindReplaceMatcher.start();
-					length= fFindReplaceMatcher.group().length();
-					found= fFindReplaceMatcher.find(index + 1);
-				}
+				int index= findBackward(fFindReplaceMatchOffset + 1);
 				fFindReplaceMatchOffset= index;
 				if (index > -1) {
 					// must set matcher to correct position
 					fFindReplaceMatcher.find(index);
-					return new Region(index, length);
+					return new Region(index, fFindReplaceMatcher.group().length());
 				}
 				return null;
 			} catch (StackOverflowError e) {
@@ -262,6 +240,152 @@ public class FindReplaceDocumentAdapter implements CharSequence {
 		return null;
 	}
 
+	/**
+	 * Compiles the pattern for the given find string unless the current matcher already uses
+	 * the same pattern.
+	 *
+	 * @param findString the string to find
+	 * @param caseSensitive indicates whether lower and upper case should be distinguished
+	 * @param wholeWord indicates whether the findString should be limited by white spaces
+	 * @param regExSearch if <code>true</code> findString represents a regular expression
+	 * @return the regular expression of the pattern
+	 * @throws PatternSyntaxException if a regular expression has invalid syntax
+	 * @since 3.9
+	 */
+	private String prepareMatcher(String findString, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+		int patternFlags= 0;
+
+		if (regExSearch) {
+			patternFlags |= Pattern.MULTILINE;
+			findString= substituteLinebreak(findString);
+		}
+
+		if (!caseSensitive)
+			patternFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+		if (!regExSearch)
+			findString= asRegPattern(findString);
+
+		if (wholeWord)
+			findString= "\\b" + findString + "\\b"; //$NON-NLS-1$ //$NON-NLS-2$
+
+		if (fFindReplaceMatcher != null && fFindReplaceMatcher.pattern().pattern().equals(findString) && fFindReplaceMatcher.pattern().flags() == patternFlags) {
+			/*
+			 * Commented out for optimization:
+			 * The call is not needed since FIND_FIRST uses find(int) which resets the matcher
+			 */
+			// fFindReplaceMatcher.reset();
+		} else {
+			Pattern pattern= Pattern.compile(findString, patternFlags);
+			fFindReplaceMatcher= pattern.matcher(this);
+			fFindReplaceMaxMatchLength= new MatchLengthBound(findString).compute();
+		}
+		return findString;
+	}
+
+	/**
+	 * Computes the text that replaces the given match of a regular expression.
+	 *
+	 * @param pattern the pattern that matched
+	 * @param match the matched text
+	 * @param replaceText the replace string, which may contain escapes and group references
+	 * @return the replacement text
+	 * @throws PatternSyntaxException if the replace string is invalid
+	 * @since 3.9
+	 */
+	private String interpretRegExReplaceText(Pattern pattern, String match, String replaceText) {
+		try {
+			replaceText= interpretReplaceEscapes(replaceText, match);
+			Matcher replaceTextMatcher= pattern.matcher(match);
+			return replaceTextMatcher.replaceFirst(replaceText);
+		} catch (IndexOutOfBoundsException ex) {
+			throw new PatternSyntaxException(ex.getLocalizedMessage(), replaceText, -1);
+		}
+	}
+
+	/**
+	 * Checks that replacing the given range with the given text does not create line
+	 * delimiters the document cannot handle.
+	 *
+	 * @param offset the offset of the replaced range
+	 * @param length the length of the replaced range
+	 * @param replaceText the replacement text
+	 * @throws BadLocationException if the range is invalid
+	 * @throws PatternSyntaxException if the replacement would break the line information
+	 * @since 3.9
+	 */
+	private void checkLineDelimiters(int offset, int length, String replaceText) throws BadLocationException {
+		if (fDocument instanceof IRepairableDocumentExtension
+				&& ((IRepairableDocumentExtension)fDocument).isLineInformationRepairNeeded(offset, length, replaceText)) {
+			String message= TextMessages.getString("FindReplaceDocumentAdapter.incompatibleLineDelimiter"); //$NON-NLS-1$
+			throw new PatternSyntaxException(message, replaceText, offset);
+		}
+	}
+
+	/**
+	 * Returns the start of the last match which ends at or before the given offset. Matches are
+	 * visited in the order of their start offsets and the search stops at the first match that
+	 * ends after the given offset.
+	 * <p>
+	 * If the length of a match is bounded, only chunks of the document before the given offset
+	 * are scanned, starting with the chunk right before the offset and continuing with
+	 * increasingly larger chunks until a match has been found. Otherwise, all matches from the
+	 * start of the document are visited.
+	 * </p>
+	 *
+	 * @param limit the offset at or before which a match must end
+	 * @return the start of the match or <code>-1</code> if there is none
+	 * @since 3.9
+	 */
+	private int findBackward(int limit) {
+		int maxLength= fFindReplaceMaxMatchLength;
+		int chunkSize= Math.max(BACKWARD_SEARCH_CHUNK_SIZE, 2 * maxLength);
+		if (maxLength < 0 || limit <= chunkSize) {
+			boolean found= fFindReplaceMatcher.find(0);
+			int index= -1;
+			while (found && fFindReplaceMatcher.end() <= limit) {
+				index= fFindReplaceMatcher.start();
+				found= fFindReplaceMatcher.find(index + 1);
+			}
+			return index;
+		}
+
+		/*
+		 * Since a match is at most maxLength characters long, a match that starts before the
+		 * first chunk cannot end after the limit and a match starting at offset i can be found
+		 * without looking at the characters after i + maxLength. Transparent and non-anchoring
+		 * bounds make sure that look-arounds, boundaries and anchors see the whole document.
+		 */
+		Matcher matcher= fFindReplaceMatcher;
+		int length= length();
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		try {
+			int last= Math.min(limit, length);
+			while (true) {
+				int first= Math.max(0, last - chunkSize);
+				int regionEnd= Math.min(length, last + maxLength);
+				int index= -1;
+				int from= first;
+				while (from <= last) {
+					matcher.region(from, regionEnd);
+					if (!matcher.find() || matcher.start() > last || matcher.end() > limit)
+						break;
+					index= matcher.start();
+					from= index + 1;
+				}
+				if (index != -1 || first == 0)
+					return index;
+				last= first - 1;
+				chunkSize*= 2;
+			}
+		} finally {
+			matcher.useTransparentBounds(false);
+			matcher.useAnchoringBounds(true);
+			matcher.reset();
+		}
+	}
+
 	/**
 	 * Substitutes \R in a regex find pattern with (?>\r\n?|\n)
 	 *
@@ -607,6 +731,390 @@ public class FindReplaceDocumentAdapter implements CharSequence {
 		return findReplace(REPLACE, -1, null, text, false, false, false, regExReplace);
 	}
 
+	/**
+	 * Replaces all matches of the given find string in the given range of this adapter's
+	 * document.
+	 * <p>
+	 * All matches are collected first and are then applied as a single {@link MultiTextEdit}. If
+	 * the document supports rewrite sessions and no session is active, the edit is applied in a
+	 * sequential {@link DocumentRewriteSession}, so that e.g. an undo manager records all
+	 * replacements as one change. Matches are searched in the text before any replacement. As with
+	 * {@link Matcher#replaceAll(String)}, the search continues after the end of each match, empty
+	 * matches, e.g. of <code>^</code> or <code>$</code>, are replaced as well and the search
+	 * continues one character after them. The search stops at the first match that does not end
+	 * inside the range.
+	 * </p>
+	 * <p>
+	 * A subsequent {@link #replace(String, boolean)} must again be preceded by a find.
+	 * </p>
+	 *
+	 * @param findString the string to find
+	 * @param replaceText the replace string, if <code>regExSearch</code> is <code>true</code> it
+	 *            may contain the same escapes and group references as for
+	 *            {@link #replace(String, boolean)}
+	 * @param caseSensitive indicates whether lower and upper case should be distinguished
+	 * @param wholeWord indicates whether the findString should be limited by white spaces as
+	 * 			defined by Character.isWhiteSpace. Must not be used in combination with <code>regExSearch</code>.
+	 * @param regExSearch if <code>true</code> findString represents a regular expression
+	 * 			Must not be used in combination with <code>wholeWord</code>.
+	 * @param range the range in which matches are replaced or <code>null</code> for the whole
+	 *            document
+	 * @return the number of replacements
+	 * @throws BadLocationException if the range is invalid
+	 * @throws PatternSyntaxException if a regular expression or the replace string has invalid
+	 *             syntax or if a replacement would create incompatible line delimiters
+	 * @since 3.9
+	 */
+	public int replaceAll(String findString, String replaceText, boolean caseSensitive, boolean wholeWord, boolean regExSearch, IRegion range) throws BadLocationException {
+		Assert.isTrue(!(regExSearch && wholeWord));
+
+		if (findString == null || findString.isEmpty())
+			return 0;
+		if (replaceText == null)
+			replaceText= ""; //$NON-NLS-1$
+
+		String text= fDocument.get();
+		int rangeOffset= range == null ? 0 : range.getOffset();
+		int rangeEnd= range == null ? text.length() : rangeOffset + range.getLength();
+		if (rangeOffset < 0 || rangeOffset > rangeEnd || rangeEnd > text.length())
+			throw new BadLocationException();
+
+		// a replace must be preceded by a new find
+		fFindReplaceState= null;
+		findString= prepareMatcher(findString, caseSensitive, wholeWord, regExSearch);
+
+		Pattern pattern= fFindReplaceMatcher.pattern();
+		Matcher matcher= pattern.matcher(text);
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		matcher.region(rangeOffset, text.length());
+
+		MultiTextEdit edit= new MultiTextEdit();
+		int count= 0;
+		// the text appended by the matcher since the previous match, followed by the replacement
+		StringBuffer buffer= new StringBuffer();
+		int appendPosition= 0;
+		try {
+			// after an empty match, find() continues one character after it
+			while (matcher.find() && matcher.end() <= rangeEnd) {
+				String match= matcher.group();
+				String replacement= replaceText;
+				if (regExSearch) {
+					// group references are resolved against the document, so that look-arounds and
+					// anchors of empty matches see the surrounding text
+					buffer.setLength(0);
+					try {
+						matcher.appendReplacement(buffer, interpretReplaceEscapes(replaceText, match));
+					} catch (IndexOutOfBoundsException ex) {
+						throw new PatternSyntaxException(ex.getLocalizedMessage(), replaceText, -1);
+					}
+					replacement= buffer.substring(matcher.start() - appendPosition);
+					appendPosition= matcher.end();
+				}
+				checkLineDelimiters(matcher.start(), match.length(), replacement);
+				edit.addChild(new ReplaceEdit(matcher.start(), match.length(), replacement));
+				count++;
+			}
+		} catch (StackOverflowError e) {
+			String message= TextMessages.getString("FindReplaceDocumentAdapter.patternTooComplex"); //$NON-NLS-1$
+			throw new PatternSyntaxException(message, findString, -1);
+		}
+		if (count == 0)
+			return 0;
+
+		DocumentRewriteSession session= null;
+		if (fDocument instanceof IDocumentExtension4) {
+			IDocumentExtension4 extension= (IDocumentExtension4) fDocument;
+			if (extension.getActiveRewriteSession() == null)
+				session= extension.startRewriteSession(DocumentRewriteSessionType.SEQUENTIAL);
+		}
+		try {
+			edit.apply(fDocument, TextEdit.NONE);
+		} finally {
+			if (session != null)
+				((IDocumentExtension4) fDocument).stopRewriteSession(session);
+		}
+		return count;
+	}
+
+	/**
+	 * Computes an upper bound for the length of the text matched by a regular expression. The
+	 * bound is conservative: constructs whose match length is not obviously bounded, such as
+	 * unbounded quantifiers, back references or the comments flag, make the pattern unbounded.
+	 * Since a single character class may match a supplementary character, it counts as two
+	 * characters.
+	 *
+	 * @since 3.9
+	 */
+	private static class MatchLengthBound {
+
+		private static final int UNBOUNDED= -1;
+
+		private final String fRegex;
+		private int fPos;
+
+		MatchLengthBound(String regex) {
+			fRegex= regex;
+		}
+
+		/**
+		 * Returns the maximal length of a match of the regular expression.
+		 *
+		 * @return the maximal length or <code>-1</code> if the length is not known to be bounded
+		 */
+		int compute() {
+			fPos= 0;
+			try {
+				int length= alternation();
+				if (fPos != fRegex.length() || length > MAX_BOUNDED_MATCH_LENGTH)
+					return UNBOUNDED;
+				return length;
+			} catch (IndexOutOfBoundsException e) {
+				return UNBOUNDED;
+			}
+		}
+
+		private int alternation() {
+			int max= sequence();
+			while (max != UNBOUNDED && fPos < fRegex.length() && fRegex.charAt(fPos) == '|') {
+				fPos++;
+				int length= sequence();
+				max= length == UNBOUNDED ? UNBOUNDED : Math.max(max, length);
+			}
+			return max;
+		}
+
+		private int sequence() {
+			int sum= 0;
+			while (fPos < fRegex.length()) {
+				char ch= fRegex.charAt(fPos);
+				if (ch == '|' || ch == ')')
+					break;
+				int length= quantified(atom());
+				if (length == UNBOUNDED)
+					return UNBOUNDED;
+				sum+= length;
+				if (sum > MAX_BOUNDED_MATCH_LENGTH)
+					return UNBOUNDED;
+			}
+			return sum;
+		}
+
+		private int quantified(int length) {
+			if (length == UNBOUNDED || fPos >= fRegex.length())
+				return length;
+			long max;
+			switch (fRegex.charAt(fPos)) {
+				case '?':
+					fPos++;
+					max= length;
+					break;
+				case '*':
+				case '+':
+					fPos++;
+					max= length == 0 ? 0 : UNBOUNDED;
+					break;
+				case '{':
+					int close= fRegex.indexOf('}', fPos);
+					if (close == -1)
+						return UNBOUNDED;
+					String range= fRegex.substring(fPos + 1, close);
+					fPos= close + 1;
+					int comma= range.indexOf(',');
+					try {
+						if (comma == -1)
+							max= length * Long.parseLong(range.trim());
+						else if (comma == range.length() - 1)
+							max= length == 0 ? 0 : UNBOUNDED;
+						else
+							max= length * Long.parseLong(range.substring(comma + 1).trim());
+					} catch (NumberFormatException e) {
+						return UNBOUNDED;
+					}
+					if (max < 0 || max > MAX_BOUNDED_MATCH_LENGTH)
+						return UNBOUNDED;
+					break;
+				default:
+					return length;
+			}
+			// reluctant and possessive quantifiers
+			if (fPos < fRegex.length() && (fRegex.charAt(fPos) == '?' || fRegex.charAt(fPos) == '+'))
+				fPos++;
+			return (int) max;
+		}
+
+		private int atom() {
+			char ch= fRegex.charAt(fPos++);
+			switch (ch) {
+				case '(':
+					return group();
+				case '[':
+					skipCharacterClass();
+					return 2;
+				case '.':
+					return 2;
+				case '^':
+				case '$':
+					return 0;
+				case '\\':
+					return escape();
+				default:
+					return 1;
+			}
+		}
+
+		private int group() {
+			boolean lookAround= false;
+			if (fRegex.charAt(fPos) == '?') {
+				fPos++;
+				char ch= fRegex.charAt(fPos);
+				if (ch == ':' || ch == '>') {
+					fPos++;
+				} else if (ch == '=' || ch == '!') {
+					fPos++;
+					lookAround= true;
+				} else if (ch == '<') {
+					char next= fRegex.charAt(fPos + 1);
+					if (next == '=' || next == '!') {
+						fPos+= 2;
+						lookAround= true;
+					} else {
+						// named group
+						int close= fRegex.indexOf('>', fPos);
+						if (close == -1)
+							return UNBOUNDED;
+						fPos= close + 1;
+					}
+				} else {
+					// embedded flags, either "(?flags)" or "(?flags:X)"
+					int start= fPos;
+					while (fPos < fRegex.length() && fRegex.charAt(fPos) != ')' && fRegex.charAt(fPos) != ':')
+						fPos++;
+					String flags= fRegex.substring(start, fPos);
+					if (flags.indexOf('x') != -1)
+						return UNBOUNDED;
+					if (fRegex.charAt(fPos++) == ')')
+						return 0;
+				}
+			}
+			int length= alternation();
+			if (fPos >= fRegex.length() || fRegex.charAt(fPos) != ')')
+				return UNBOUNDED;
+			fPos++;
+			if (length == UNBOUNDED)
+				return UNBOUNDED;
+			return lookAround ? 0 : length;
+		}
+
+		private void skipCharacterClass() {
+			int depth= 1;
+			if (fRegex.charAt(fPos) == '^')
+				fPos++;
+			if (fRegex.charAt(fPos) == ']')
+				fPos++;
+			while (depth > 0) {
+				char ch= fRegex.charAt(fPos++);
+				if (ch == '\\')
+					skipEscape();
+				else if (ch == '[')
+					depth++;
+				else if (ch == ']')
+					depth--;
+			}
+		}
+
+		private int escape() {
+			char ch= fRegex.charAt(fPos);
+			if (ch == 'Q') {
+				int end= fRegex.indexOf("\\E", fPos); //$NON-NLS-1$
+				if (end == -1)
+					end= fRegex.length();
+				int length= end - fPos - 1;
+				fPos= Math.min(end + 2, fRegex.length());
+				return length;
+			}
+			if (ch >= '1' && ch <= '9' || ch == 'k' || ch == 'X')
+				return UNBOUNDED; // back reference or grapheme cluster
+			skipEscape();
+			switch (ch) {
+				case 'b':
+				case 'B':
+				case 'A':
+				case 'z':
+				case 'Z':
+				case 'G':
+					return 0;
+				case 'd':
+				case 'D':
+				case 's':
+				case 'S':
+				case 'w':
+				case 'W':
+				case 'h':
+				case 'H':
+				case 'v':
+				case 'V':
+				case 'p':
+				case 'P':
+				case 'R':
+				case 'N':
+				case 'x':
+					return 2;
+				case '0':
+				case 'u':
+				case 'c':
+				case 't':
+				case 'n':
+				case 'r':
+				case 'f':
+				case 'a':
+				case 'e':
+					return 1;
+				default:
+					return Character.isLetter(ch) ? UNBOUNDED : 1;
+			}
+		}
+
+		/**
+		 * Skips the escape sequence whose backslash has already been read.
+		 */
+		private void skipEscape() {
+			char ch= fRegex.charAt(fPos++);
+			switch (ch) {
+				case 'Q':
+					int end= fRegex.indexOf("\\E", fPos); //$NON-NLS-1$
+					fPos= end == -1 ? fRegex.length() : end + 2;
+					break;
+				case 'p':
+				case 'P':
+				case 'x':
+				case 'N':
+				case 'b':
+					if (fPos < fRegex.length() && fRegex.charAt(fPos) == '{') {
+						int close= fRegex.indexOf('}', fPos);
+						fPos= close == -1 ? fRegex.length() : close + 1;
+					} else if (ch == 'p' || ch == 'P') {
+						fPos++;
+					} else if (ch == 'x') {
+						fPos+= 2;
+					}
+					break;
+				case 'u':
+					fPos+= 4;
+					break;
+				case 'c':
+					fPos++;
+					break;
+				case '0':
+					for (int i= 0; i < 3 && fPos < fRegex.length() && fRegex.charAt(fPos) >= '0' && fRegex.charAt(fPos) <= '7'; i++)
+						fPos++;
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
 	// ---------- CharSequence implementation ----------
 
 	@Override
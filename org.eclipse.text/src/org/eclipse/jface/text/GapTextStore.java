@@ -165,6 +165,30 @@ public class GapTextStore implements ITextStore {
 		return buf.toString();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.9
+	 */
+	@Override
+	public final void getChars(int offset, int length, char[] destination, int destinationOffset) {
+		if (fGapStart <= offset) {
+			System.arraycopy(fContent, offset + gapSize(), destination, destinationOffset, length);
+			return;
+		}
+
+		final int end= offset + length;
+
+		if (end <= fGapStart) {
+			System.arraycopy(fContent, offset, destination, destinationOffset, length);
+			return;
+		}
+
+		int beforeGap= fGapStart - offset;
+		System.arraycopy(fContent, offset, destination, destinationOffset, beforeGap);
+		System.arraycopy(fContent, fGapEnd, destination, destinationOffset + beforeGap, end - fGapStart);
+	}
+
 	@Override
 	public final int getLength() {
 		return fContent.length - gapSize();
@@ -91,6 +91,8 @@ package org.eclipse.jface.text;
  *      concept of rewrite sessions. A rewrite session is a sequence of document replace operations
  *      that form a semantic unit. It also introduces a modification stamp and the ability to
  *      set the initial line delimiter and to query the default line delimiter.</li>
+ * <li> {@link org.eclipse.jface.text.IDocumentExtension5} since version 3.9 introducing bulk
+ *      access to the document's characters.</li>
  * </ul>
  * <p>
  * Clients may implement this interface and its extension interfaces or use the default
@@ -100,6 +102,7 @@ package org.eclipse.jface.text;
  * @see org.eclipse.jface.text.IDocumentExtension2
  * @see org.eclipse.jface.text.IDocumentExtension3
  * @see org.eclipse.jface.text.IDocumentExtension4
+ * @see org.eclipse.jface.text.IDocumentExtension5
  * @see org.eclipse.jface.text.Position
  * @see org.eclipse.jface.text.IPositionUpdater
  * @see org.eclipse.jface.text.IDocumentPartitioner
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+/**
+ * Extension interface for {@link org.eclipse.jface.text.IDocument}. It adds
+ * bulk access to the document's characters without creating intermediate strings.
+ *
+ * @see ITextStore#getChars(int, int, char[], int)
+ * @since 3.9
+ */
+public interface IDocumentExtension5 {
+
+	/**
+	 * Copies the characters of the given range of this document into the given array.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @param destination the array to copy the characters to
+	 * @param destinationOffset the index in <code>destination</code> at which to store the first
+	 *            character
+	 * @throws BadLocationException if the range is invalid in this document
+	 */
+	void getChars(int offset, int length, char[] destination, int destinationOffset) throws BadLocationException;
+}
@@ -42,6 +42,24 @@ public interface ITextStore {
 	 */
 	String get(int offset, int length);
 
+	/**
+	 * Copies the characters of the specified character range into the given array.
+	 * <p>
+	 * The default implementation copies the characters of {@link #get(int, int)}.
+	 * Implementers should override this method to avoid creating the intermediate string.
+	 * </p>
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @param destination the array to copy the characters to
+	 * @param destinationOffset the index in <code>destination</code> at which to store the first
+	 *            character
+	 * @since 3.9
+	 */
+	default void getChars(int offset, int length, char[] destination, int destinationOffset) {
+		get(offset, length).getChars(0, length, destination, destinationOffset);
+	}
+
 	/**
 	 * Returns number of characters stored in this text store.
 	 *
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jface.text.Position;
+
+
+/**
+ * An interval tree over the positions of the annotations of an annotation map which answers the
+ * annotations overlapping a region in <code>O(log n + k)</code>.
+ * <p>
+ * The tree is stored implicitly: the annotations are kept in an array ordered by offset, the
+ * middle element of each range of the array is the root of the subtree spanning the range, and
+ * for each element the maximal end offset of its subtree is remembered.
+ * </p>
+ * <p>
+ * The positions of the annotations are updated by the document, so the tree is brought up to
+ * date lazily on the next query: after annotations have been added or removed it is rebuilt from
+ * the annotation map, after document changes the offsets are re-read in place and the entries are
+ * only re-sorted if the changes have altered the order of the positions.
+ * </p>
+ * <p>
+ * This class is thread-safe, queries are synchronized on the lock object of the annotation map.
+ * </p>
+ *
+ * @since 3.9
+ */
+final class AnnotationIndex {
+
+	/**
+	 * An annotation and its position.
+	 */
+	private static final class Entry {
+		final Annotation fAnnotation;
+		final Position fPosition;
+
+		Entry(Annotation annotation, Position position) {
+			fAnnotation= annotation;
+			fPosition= position;
+		}
+	}
+
+	private static final Entry[] NO_ENTRIES= new Entry[0];
+
+	/** The indexed annotation map. */
+	private final IAnnotationMap fMap;
+	/** The entries ordered by offset. */
+	private Entry[] fEntries= NO_ENTRIES;
+	/** The start offsets of {@link #fEntries} when they were last sorted. */
+	private int[] fStarts= new int[0];
+	/** The end offsets of {@link #fEntries} when they were last sorted. */
+	private int[] fEnds= new int[0];
+	/** The maximal end offset of the subtree rooted at each index. */
+	private int[] fMaxEnds= new int[0];
+	/** Tells whether annotations have been added or removed since the last update. */
+	private volatile boolean fAnnotationsChanged= true;
+	/** Tells whether positions have been changed since the last update. */
+	private volatile boolean fPositionsChanged;
+
+
+	/**
+	 * Creates a new index for the given annotation map.
+	 *
+	 * @param map the annotation map
+	 */
+	AnnotationIndex(IAnnotationMap map) {
+		fMap= map;
+	}
+
+	/**
+	 * Tells this index that annotations have been added to or removed from the annotation map.
+	 */
+	void annotationsChanged() {
+		fAnnotationsChanged= true;
+	}
+
+	/**
+	 * Tells this index that the positions of annotations may have changed, e.g. because the
+	 * document has been changed.
+	 */
+	void positionsChanged() {
+		fPositionsChanged= true;
+	}
+
+	/**
+	 * Returns the annotations whose positions overlap with the given region, ordered by offset.
+	 * Overlapping is defined as in {@link Position#overlapsWith(int, int)}, i.e. empty positions
+	 * and empty regions overlap if they are located inside the other.
+	 *
+	 * @param offset the offset of the region
+	 * @param length the length of the region
+	 * @return the overlapping annotations
+	 */
+	List<Annotation> getAnnotations(int offset, int length) {
+		synchronized (fMap.getLockObject()) {
+			update();
+			List<Annotation> result= new ArrayList<>();
+			if (fEntries.length > 0)
+				collect(0, fEntries.length, offset, length, result);
+			return result;
+		}
+	}
+
+	/**
+	 * Adds the overlapping annotations of the subtree spanning the given range of the entries in
+	 * ascending order.
+	 *
+	 * @param low the first index of the range
+	 * @param high the index after the range
+	 * @param offset the offset of the region
+	 * @param length the length of the region
+	 * @param result the list to add to
+	 */
+	private void collect(int low, int high, int offset, int length, List<Annotation> result) {
+		int mid= (low + high) >>> 1;
+		// no position in this subtree ends after the region starts
+		if (fMaxEnds[mid] < offset)
+			return;
+		if (low < mid)
+			collect(low, mid, offset, length, result);
+		// positions of the right subtree and this node start after the region
+		if (fStarts[mid] > offset + length)
+			return;
+		Position position= fEntries[mid].fPosition;
+		if (!position.isDeleted() && overlaps(fStarts[mid], fEnds[mid] - fStarts[mid], offset, length))
+			result.add(fEntries[mid].fAnnotation);
+		if (mid + 1 < high)
+			collect(mid + 1, high, offset, length, result);
+	}
+
+	/**
+	 * Tells whether the given range overlaps with the given region, see
+	 * {@link Position#overlapsWith(int, int)}.
+	 *
+	 * @param start the offset of the range
+	 * @param length the length of the range
+	 * @param offset the offset of the region
+	 * @param regionLength the length of the region
+	 * @return <code>true</code> if the range overlaps with the region
+	 */
+	private static boolean overlaps(int start, int length, int offset, int regionLength) {
+		int end= start + length;
+		int regionEnd= offset + regionLength;
+
+		if (length > 0) {
+			if (regionLength > 0)
+				return offset < end && start < regionEnd;
+			return start <= offset && offset < end;
+		}
+
+		if (regionLength > 0)
+			return offset <= start && start < regionEnd;
+		return offset == start;
+	}
+
+	private void update() {
+		boolean annotationsChanged= fAnnotationsChanged || fMap.size() != fEntries.length;
+		if (!annotationsChanged && !fPositionsChanged)
+			return;
+		// changes made while updating are picked up by the next update
+		fAnnotationsChanged= false;
+		fPositionsChanged= false;
+		if (!annotationsChanged && refreshPositions())
+			return;
+
+		Entry[] entries;
+		if (annotationsChanged) {
+			List<Entry> list= new ArrayList<>(fMap.size());
+			for (Iterator<Annotation> iter= fMap.keySetIterator(); iter.hasNext();) {
+				Annotation annotation= iter.next();
+				Position position= fMap.get(annotation);
+				if (position != null)
+					list.add(new Entry(annotation, position));
+			}
+			entries= list.toArray(new Entry[list.size()]);
+		} else {
+			// the previous order is almost sorted
+			entries= fEntries;
+		}
+
+		int count= entries.length;
+		int[] starts= new int[count];
+		int[] ends= new int[count];
+		// sorts the start offsets together with the entry indexes in the low bits
+		long[] order= new long[count];
+		for (int i= 0; i < count; i++) {
+			Position position= entries[i].fPosition;
+			starts[i]= position.getOffset();
+			ends[i]= position.getOffset() + position.getLength();
+			order[i]= ((long) starts[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		fEntries= new Entry[count];
+		fStarts= new int[count];
+		fEnds= new int[count];
+		for (int i= 0; i < count; i++) {
+			int index= (int) order[i];
+			fEntries[i]= entries[index];
+			fStarts[i]= starts[index];
+			fEnds[i]= ends[index];
+		}
+		fMaxEnds= new int[count];
+		if (count > 0)
+			computeMaxEnds(0, count);
+	}
+
+	/**
+	 * Re-reads the offsets of the positions of the entries. Most document changes preserve the
+	 * order of the positions, in which case the tree is updated in linear time without sorting
+	 * or allocating.
+	 *
+	 * @return <code>true</code> if the entries are still ordered by offset, <code>false</code>
+	 *         if they have to be re-sorted
+	 */
+	private boolean refreshPositions() {
+		int count= fEntries.length;
+		int previousStart= Integer.MIN_VALUE;
+		for (int i= 0; i < count; i++) {
+			Position position= fEntries[i].fPosition;
+			int start= position.getOffset();
+			if (start < previousStart)
+				return false;
+			fStarts[i]= start;
+			fEnds[i]= start + position.getLength();
+			previousStart= start;
+		}
+		if (count > 0)
+			computeMaxEnds(0, count);
+		return true;
+	}
+
+	private int computeMaxEnds(int low, int high) {
+		int mid= (low + high) >>> 1;
+		int maxEnd= fEnds[mid];
+		if (low < mid)
+			maxEnd= Math.max(maxEnd, computeMaxEnds(low, mid));
+		if (mid + 1 < high)
+			maxEnd= Math.max(maxEnd, computeMaxEnds(mid + 1, high));
+		fMaxEnds[mid]= maxEnd;
+		return maxEnd;
+	}
+}
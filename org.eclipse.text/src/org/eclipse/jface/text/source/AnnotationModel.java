@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.jface.text.source;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -44,7 +45,7 @@ import org.eclipse.jface.text.Position;
  * modifications of the model's internal annotation map are synchronized using
  * the model's lock object.
  */
-public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtension, IAnnotationModelExtension2, ISynchronizable {
+public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtension, IAnnotationModelExtension2, IAnnotationModelExtension3, ISynchronizable {
 
 
 	/**
@@ -297,6 +298,18 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 	 * @since 3.0
 	 */
 	private Object fModificationStamp= new Object();
+	/**
+	 * The interval tree over the positions of the annotations, or <code>null</code> if not yet
+	 * needed.
+	 * @since 3.9
+	 */
+	private volatile AnnotationIndex fIndex;
+	/**
+	 * Tells whether a subclass overrides {@link #getAnnotationIterator(boolean)}, in which case
+	 * region queries do not use the annotation index.
+	 * @since 3.9
+	 */
+	private final boolean fIsAnnotationIteratorOverridden= isAnnotationIteratorOverridden(getClass());
 
 	/**
 	 * Creates a new annotation model. The annotation is empty, i.e. does not
@@ -316,6 +329,9 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 			@Override
 			public void documentChanged(DocumentEvent event) {
 				fDocumentChanged= true;
+				AnnotationIndex index= fIndex;
+				if (index != null)
+					index.positionsChanged();
 			}
 		};
 	}
@@ -425,6 +441,7 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 			addPosition(fDocument, position);
 			fAnnotations.put(annotation, position);
 			fPositions.put(position, annotation);
+			annotationsChanged();
 			synchronized (getLockObject()) {
 				getAnnotationModelEvent().annotationAdded(annotation);
 			}
@@ -705,8 +722,11 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 	 * @since 3.4
 	 */
 	private Iterator<Annotation> getRegionAnnotationIterator(int offset, int length, boolean canStartBefore, boolean canEndAfter) {
-		if (!(fDocument instanceof AbstractDocument))
-			return new RegionIterator(getAnnotationIterator(true), this, offset, length, canStartBefore, canEndAfter);
+		if (!(fDocument instanceof AbstractDocument)) {
+			// the overlapping annotations are a superset of the annotations inside the region
+			Iterator<Annotation> overlapping= getOverlappingAnnotations(offset, length).iterator();
+			return new RegionIterator(overlapping, this, offset, length, canStartBefore, canEndAfter);
+		}
 
 		AbstractDocument document= (AbstractDocument) fDocument;
 		cleanup(true);
@@ -720,6 +740,133 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.9
+	 */
+	@Override
+	public Annotation[] getAnnotations(int offset, int length) {
+		List<Annotation> annotations= getOverlappingAnnotations(offset, length);
+		if (fAttachments.isEmpty())
+			return annotations.toArray(new Annotation[annotations.size()]);
+
+		for (IAnnotationModel attachment : fAttachments.values()) {
+			if (attachment instanceof IAnnotationModelExtension3) {
+				annotations.addAll(Arrays.asList(((IAnnotationModelExtension3) attachment).getAnnotations(offset, length)));
+			} else {
+				Iterator<Annotation> iter;
+				if (attachment instanceof IAnnotationModelExtension2)
+					iter= ((IAnnotationModelExtension2) attachment).getAnnotationIterator(offset, length, true, true);
+				else
+					iter= new RegionIterator(attachment.getAnnotationIterator(), attachment, offset, length, true, true);
+				while (iter.hasNext())
+					annotations.add(iter.next());
+			}
+		}
+
+		Annotation[] result= annotations.toArray(new Annotation[annotations.size()]);
+		// sorts the offsets together with the indexes in the low bits, annotations without position first
+		long[] order= new long[result.length];
+		for (int i= 0; i < result.length; i++) {
+			Position position= getPosition(result[i]);
+			long offsetKey= position != null ? position.getOffset() + 1L : 0;
+			order[i]= (offsetKey << 32) | i;
+		}
+		Arrays.sort(order);
+		Annotation[] sorted= new Annotation[result.length];
+		for (int i= 0; i < result.length; i++)
+			sorted[i]= result[(int) order[i]];
+		return sorted;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 3.9
+	 */
+	@Override
+	public Annotation[] getAnnotationsOnLines(int firstLine, int lastLine) throws BadLocationException {
+		IDocument document= fDocument;
+		if (document == null)
+			return new Annotation[0];
+
+		int offset= document.getLineOffset(firstLine);
+		int end= document.getLineOffset(lastLine) + document.getLineLength(lastLine);
+		return getAnnotations(offset, end - offset);
+	}
+
+	/**
+	 * Returns the annotations of this model which overlap with the given region. As
+	 * {@link #getAnnotationIterator(boolean)}, this first removes the annotations whose positions
+	 * have been deleted. If a subclass overrides {@link #getAnnotationIterator(boolean)}, the
+	 * annotations are taken from it instead of the annotation index.
+	 *
+	 * @param offset the offset of the region
+	 * @param length the length of the region
+	 * @return the overlapping annotations in no particular order
+	 * @since 3.9
+	 */
+	private List<Annotation> getOverlappingAnnotations(int offset, int length) {
+		if (fIsAnnotationIteratorOverridden) {
+			List<Annotation> annotations= new ArrayList<>();
+			Iterator<Annotation> iter= new RegionIterator(getAnnotationIterator(true), this, offset, length, true, true);
+			while (iter.hasNext())
+				annotations.add(iter.next());
+			return annotations;
+		}
+
+		cleanup(true);
+		return getAnnotationIndex().getAnnotations(offset, length);
+	}
+
+	/**
+	 * Tells whether the given class overrides {@link #getAnnotationIterator(boolean)}.
+	 *
+	 * @param modelClass the class of the annotation model
+	 * @return <code>true</code> if the class or one of its superclasses below
+	 *         <code>AnnotationModel</code> declares the method
+	 * @since 3.9
+	 */
+	private static boolean isAnnotationIteratorOverridden(Class<?> modelClass) {
+		for (Class<?> c= modelClass; c != AnnotationModel.class; c= c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("getAnnotationIterator", boolean.class); //$NON-NLS-1$
+				return true;
+			} catch (NoSuchMethodException e) {
+				// look in the superclass
+			} catch (SecurityException e) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the interval tree over the positions of the annotations of this model.
+	 *
+	 * @return the annotation index
+	 * @since 3.9
+	 */
+	private AnnotationIndex getAnnotationIndex() {
+		synchronized (getLockObject()) {
+			if (fIndex == null)
+				fIndex= new AnnotationIndex(getAnnotationMap());
+			return fIndex;
+		}
+	}
+
+	/**
+	 * Tells the annotation index that annotations have been added or removed.
+	 *
+	 * @since 3.9
+	 */
+	private void annotationsChanged() {
+		AnnotationIndex index= fIndex;
+		if (index != null)
+			index.annotationsChanged();
+	}
+
 	/**
 	 * Returns all annotations managed by this model. <code>cleanup</code>
 	 * indicates whether all annotations whose associated positions are
@@ -800,6 +947,7 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 
 		fAnnotations.clear();
 		fPositions.clear();
+		annotationsChanged();
 
 		if (fireModelChanged)
 			fireModelChanged();
@@ -829,6 +977,7 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 
 			fAnnotations.remove(annotation);
 			fPositions.remove(p);
+			annotationsChanged();
 			synchronized (getLockObject()) {
 				getAnnotationModelEvent().annotationRemoved(annotation, p);
 			}
@@ -875,6 +1024,9 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 					} catch (BadLocationException e) {
 						// ignore invalid position
 					}
+					AnnotationIndex index= fIndex;
+					if (index != null)
+						index.positionsChanged();
 				}
 				synchronized (getLockObject()) {
 					getAnnotationModelEvent().annotationChanged(annotation);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -37,6 +37,9 @@ import org.eclipse.jface.text.Position;
  * <li> {@link org.eclipse.jface.text.source.IAnnotationModelExtension2} since version 3.4 allows to retrieve
  * 		annotations within a given region.
  * </li>
+ * <li> {@link org.eclipse.jface.text.source.IAnnotationModelExtension3} since version 3.9 allows to retrieve
+ * 		the annotations overlapping a region or a range of lines ordered by offset.
+ * </li>
  * </ul>
  *
  * Clients may implement this interface or use the default implementation provided
@@ -44,6 +47,7 @@ import org.eclipse.jface.text.Position;
  *
  * @see org.eclipse.jface.text.source.IAnnotationModelExtension
  * @see org.eclipse.jface.text.source.IAnnotationModelExtension2
+ * @see org.eclipse.jface.text.source.IAnnotationModelExtension3
  * @see org.eclipse.jface.text.source.Annotation
  * @see org.eclipse.jface.text.source.IAnnotationModelListener
  */
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.source;
+
+import org.eclipse.jface.text.BadLocationException;
+
+
+/**
+ * Extends {@link org.eclipse.jface.text.source.IAnnotationModel} with the ability to retrieve the
+ * annotations overlapping a region or a range of lines, ordered by offset. Implementations are
+ * expected to answer these queries without looking at all annotations of the model, e.g. by
+ * keeping the annotations in an interval tree.
+ *
+ * @since 3.9
+ */
+public interface IAnnotationModelExtension3 {
+
+	/**
+	 * Returns the annotations managed by this model whose positions overlap with the given
+	 * region, ordered by the offsets of their positions. Overlapping is defined as in
+	 * {@link org.eclipse.jface.text.Position#overlapsWith(int, int)}.
+	 *
+	 * @param offset the start of the region, must be &gt;= 0
+	 * @param length the length of the region, must be &gt;= 0
+	 * @return the annotations overlapping with the region
+	 */
+	Annotation[] getAnnotations(int offset, int length);
+
+	/**
+	 * Returns the annotations managed by this model whose positions overlap with the given lines
+	 * of the connected document, ordered by the offsets of their positions. The lines include
+	 * their delimiters.
+	 *
+	 * @param firstLine the first line, must be &gt;= 0
+	 * @param lastLine the last line, must be &gt;= <code>firstLine</code>
+	 * @return the annotations overlapping with the lines, an empty array if this model is not
+	 *         connected to a document
+	 * @throws BadLocationException if the lines are not valid in the connected document
+	 */
+	Annotation[] getAnnotationsOnLines(int firstLine, int lastLine) throws BadLocationException;
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,9 @@ package org.eclipse.ui.workbench.texteditor.tests;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -23,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -593,6 +597,72 @@ public class HippieCompletionTest {
 
 	}
 
+	/*
+	 * Completions must follow the changes of the document after the first completion
+	 */
+	@Test
+	public void testCompletionsAfterDocumentChanges() throws Exception {
+		IDocument document= new Document("" +
+				"foo fooBar\n" +
+				"fooBaz foo" +
+				"");
+
+		List<String> result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("Bar", "Baz"), result);
+
+		// change the end of a word
+		document.replace(document.get().indexOf("fooBaz") + 5, 1, "x");
+		result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("Bar", "Bax"), result);
+
+		// join two words
+		document.replace(document.get().indexOf(" fooBar"), 1, "");
+		result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("fooBar", "Bax"), result);
+
+		// split a word and insert new ones in front of the others
+		document.replace(3, 0, " fooNew ");
+		result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("New", "Bar", "Bax"), result);
+
+		result= fEngine.getCompletionsBackwards(document, "foo", document.getLength());
+		assertEquals(Arrays.asList("Bax", "Bar", "New"), result);
+
+		// replace the whole content
+		document.set("fooOther");
+		result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("Other"), result);
+	}
+
+	/*
+	 * An index which has not been used for a while detaches from its document
+	 */
+	@Test
+	public void testIdleIndexDetaches() throws Exception {
+		IDocument document= new Document("foo fooBar");
+		List<String> result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("Bar"), result);
+
+		String className= "org.eclipse.ui.internal.texteditor.HippieWordIndex";
+		ClassLoader classLoader= HippieCompletionEngine.class.getClassLoader();
+		Map<?, ?> indexes= (Map<?, ?>) new Accessor(className, classLoader).get("fgIndexes");
+		Object index= indexes.get(document);
+		assertNotNull(index);
+
+		// a recently used index follows the changes
+		document.replace(0, 0, "fooNew ");
+		assertSame(index, indexes.get(document));
+
+		new Accessor(index, className, classLoader).set("fLastUse", Long.valueOf(0));
+		document.replace(0, 0, "fooOld ");
+		assertFalse(indexes.containsKey(document));
+
+		// the next lookup builds a new index
+		result= fEngine.getCompletionsForward(document, "foo", 0, false);
+		assertEquals(Arrays.asList("Old", "New", "Bar"), result);
+		assertNotSame(index, indexes.get(document));
+	}
+
 	private List<String> createSuggestions(String prefix, IDocument doc) {
 		return createSuggestions(prefix, Arrays.asList(new IDocument[]{doc}));
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -45,6 +45,11 @@ import org.eclipse.ui.texteditor.ITextEditor;
  * <p>
  * This engine is used by the <code>org.eclipse.ui.texteditor.HippieCompleteAction</code>.
  * </p>
+ * <p>
+ * Completions for prefixes that consist of word characters only are looked up in a
+ * {@link HippieWordIndex} of the document, which is kept up to date while the document changes.
+ * Other prefixes are searched in the document with regular expressions.
+ * </p>
  *
  * TODO: Sort by editor type
  * TODO: Provide history option
@@ -298,6 +303,8 @@ public final class HippieCompletionEngine {
 	 * @since 3.6
 	 */
 	public Iterator<String> getForwardIterator(IDocument document, CharSequence prefix, int firstPosition, boolean currentWordLast) {
+		if (isIndexed(prefix))
+			return new IndexedForwardIterator(document, prefix, firstPosition, currentWordLast);
 		return new HippieCompletionForwardIterator(document, prefix, firstPosition, currentWordLast);
 	}
 
@@ -315,9 +322,85 @@ public final class HippieCompletionEngine {
 	 * @since 3.6
 	 */
 	public Iterator<String> getBackwardIterator(IDocument document, CharSequence prefix, int firstPosition) {
+		if (isIndexed(prefix))
+			return new IndexedBackwardIterator(document, prefix, firstPosition);
 		return new HippieCompletionBackwardIterator(document, prefix, firstPosition);
 	}
 
+	/**
+	 * Tells whether the completions of the given prefix can be looked up in the word index, i.e.
+	 * whether the prefix is not empty and consists of word characters only.
+	 *
+	 * @param prefix the prefix
+	 * @return <code>true</code> if the word index can be used for the prefix
+	 * @since 3.13
+	 */
+	private static boolean isIndexed(CharSequence prefix) {
+		if (prefix.length() == 0)
+			return false;
+		for (int i= 0; i < prefix.length();) {
+			int codePoint= Character.codePointAt(prefix, i);
+			if (!HippieWordIndex.isWordPart(codePoint))
+				return false;
+			i+= Character.charCount(codePoint);
+		}
+		return true;
+	}
+
+	/**
+	 * Tells whether the word at the given offset is preceded by a word boundary as matched by
+	 * {@link #NON_EMPTY_COMPLETION_BOUNDARY} or, if requested, by {@link #COMPLETION_BOUNDARY}.
+	 *
+	 * @param document the document
+	 * @param offset the start offset of the word
+	 * @param lineStart <code>true</code> if the start of a line is a word boundary
+	 * @param searchStart the offset from which the regular expression search would start, a
+	 *            surrogate pair starting before it is not recognized
+	 * @return <code>true</code> if the word at the offset is preceded by a word boundary
+	 * @throws BadLocationException if the offset is invalid
+	 * @since 3.13
+	 */
+	private static boolean isAtBoundary(IDocument document, int offset, boolean lineStart, int searchStart) throws BadLocationException {
+		if (offset == 0)
+			return lineStart;
+		char c= document.getChar(offset - 1);
+		if (lineStart && (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029'))
+			return true;
+		int codePoint= c;
+		if (Character.isLowSurrogate(c) && offset - 2 >= searchStart) {
+			char high= document.getChar(offset - 2);
+			if (Character.isHighSurrogate(high))
+				codePoint= Character.toCodePoint(high, c);
+		}
+		return HippieWordIndex.isBoundary(codePoint);
+	}
+
+	/**
+	 * Tells whether the text from the given start offset up to the given end offset consists of
+	 * word boundaries only.
+	 *
+	 * @param document the document
+	 * @param start the start offset
+	 * @param end the end offset
+	 * @return <code>true</code> if all characters in the range are word boundaries
+	 * @throws BadLocationException if the range is invalid
+	 * @since 3.13
+	 */
+	private static boolean isBoundary(IDocument document, int start, int end) throws BadLocationException {
+		while (start < end) {
+			int codePoint= document.getChar(start);
+			if (Character.isHighSurrogate((char) codePoint) && start + 1 < end) {
+				char low= document.getChar(start + 1);
+				if (Character.isLowSurrogate(low))
+					codePoint= Character.toCodePoint((char) codePoint, low);
+			}
+			if (!HippieWordIndex.isBoundary(codePoint))
+				return false;
+			start+= Character.charCount(codePoint);
+		}
+		return true;
+	}
+
 	/**
 	 * Provides an iterator that will get the completions for all the documents received, starting
 	 * at the "document" passed (first going backward and then forward from the position passed) and
@@ -805,6 +888,132 @@ public final class HippieCompletionEngine {
 
 	}
 
+	/**
+	 * Iterator that gets the word completions in a document from its word index, and returns them
+	 * one by one (lazily gotten) from the current position. Returns the same completions in the
+	 * same order as {@link HippieCompletionForwardIterator}.
+	 *
+	 * @since 3.13
+	 */
+	private class IndexedForwardIterator extends HippieCompletionIterator {
+
+		/**
+		 * If <code>true</code> the word at caret position should be that last completion.
+		 */
+		private final boolean fCurrentWordLast;
+
+		/** The completion for the current word. */
+		private String fCurrentWordCompletion= null;
+
+		/** The occurrences of the words starting with the prefix. */
+		private HippieWordIndex.Occurrences fOccurrences;
+
+		/** Whether the next occurrence starting at a word boundary is the first one. */
+		private boolean fFirstMatch= true;
+
+		private IndexedForwardIterator(IDocument document, CharSequence prefix, int firstPosition, boolean currentWordLast) {
+			super(document, prefix, firstPosition);
+			fCurrentWordLast= currentWordLast;
+			calculateFirst();
+		}
+
+		@Override
+		protected void calculateNext() throws BadLocationException {
+			if (fCurrentState == 0) {
+				if (fFirstPosition == fDocument.getLength()) {
+					fHasNext= false;
+					return;
+				}
+				fOccurrences= HippieWordIndex.getIndex(fDocument).getOccurrencesForward(fPrefix.toString(), fFirstPosition);
+				fCurrentState= 1;
+			}
+
+			if (fCurrentState == 1) {
+				int prefixLength= fPrefix.length();
+				while (fOccurrences.next()) {
+					int offset= fOccurrences.getOffset();
+					// unless we are at the beginning of the document, the start of a line is no boundary
+					if (!isAtBoundary(fDocument, offset, fFirstPosition == 0, Math.max(0, fFirstPosition - 1)))
+						continue;
+					boolean isCurrentWord= fFirstMatch && isBoundary(fDocument, Math.max(0, fFirstPosition - 1), offset);
+					fFirstMatch= false;
+					String word= fOccurrences.getWord();
+					if (word.length() <= prefixLength) // empty suggestion will be added later
+						continue;
+					String completion= word.substring(prefixLength);
+					if (fCurrentWordLast && isCurrentWord) { // we got the word at caret as completion
+						if (fCurrentWordCompletion == null)
+							fCurrentWordCompletion= completion; // add it as the last word.
+						continue;
+					}
+					fNext= completion;
+					fHasNext= true;
+					return;
+				}
+				fCurrentState= 2;
+			}
+
+			if (fCurrentState == 2) {
+				fCurrentState= 3;
+				// the word at caret position goes last (bug 132533).
+				if (fCurrentWordCompletion != null) {
+					fNext= fCurrentWordCompletion;
+					fHasNext= true;
+					return;
+				}
+			}
+
+			fNext= null;
+			fHasNext= false;
+		}
+	}
+
+
+
+	/**
+	 * Iterator that gets the word completions in a document from its word index, and returns them
+	 * one by one (lazily gotten) backward from the current position. Returns the same completions
+	 * in the same order as {@link HippieCompletionBackwardIterator}.
+	 *
+	 * @since 3.13
+	 */
+	private class IndexedBackwardIterator extends HippieCompletionIterator {
+
+		/** The occurrences of the words starting with the prefix. */
+		private HippieWordIndex.Occurrences fOccurrences;
+
+		private IndexedBackwardIterator(IDocument document, CharSequence prefix, int firstPosition) {
+			super(document, prefix, firstPosition);
+			calculateFirst();
+		}
+
+		@Override
+		protected void calculateNext() throws BadLocationException {
+			if (fCurrentState == 0) {
+				fCurrentState= 1;
+				if (fFirstPosition > 1)
+					fOccurrences= HippieWordIndex.getIndex(fDocument).getOccurrencesBackward(fPrefix.toString(), fFirstPosition);
+			}
+
+			int prefixLength= fPrefix.length();
+			while (fOccurrences != null && fOccurrences.next()) {
+				int offset= fOccurrences.getOffset();
+				String word= fOccurrences.getWord();
+				// skip the empty suggestion and words that end after the caret
+				if (word.length() <= prefixLength || offset + word.length() > fFirstPosition)
+					continue;
+				if (!isAtBoundary(fDocument, offset, true, 0))
+					continue;
+				fNext= word.substring(prefixLength);
+				fHasNext= true;
+				return;
+			}
+
+			fNext= null;
+			fHasNext= false;
+		}
+	}
+
 	/**
 	 * Logs the exception.
 	 *
@@ -0,0 +1,547 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.texteditor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+
+
+/**
+ * An index of the words of a document used by the {@link HippieCompletionEngine}.
+ * <p>
+ * The index knows all distinct words of the document, sorted so that the words starting with a
+ * given prefix can be looked up directly, and the start offsets of all word occurrences in
+ * document order. It listens to the document and only rescans the words touched by a change. The
+ * offsets of the occurrences behind a change are shifted lazily: like in a gap text store, all
+ * occurrences after a gap are stored relative to the accumulated length change, and the gap is
+ * moved to the next change. As consecutive changes are usually close to each other, only few
+ * offsets have to be updated per change.
+ * </p>
+ * <p>
+ * An index which has not been used for {@link #IDLE_TIMEOUT} detaches from its document on the
+ * next change, so documents in which no completions are requested anymore do not pay for keeping
+ * it up to date. The next lookup builds a new index.
+ * </p>
+ * <p>
+ * A word is a maximal sequence of word characters as defined by
+ * <code>HippieCompletionEngine#COMPLETION_WORD_REGEX</code>. Whether the character in front of a
+ * word is a word boundary is not part of the index; it is checked in the document when the word
+ * is looked up.
+ * </p>
+ *
+ * @since 3.13
+ */
+final class HippieWordIndex implements IDocumentListener {
+
+	/**
+	 * A distinct word of the document.
+	 */
+	private static final class Word {
+
+		/** The text of the word. */
+		final String fText;
+		/** The number of occurrences of this word. */
+		int fCount;
+
+		Word(String text) {
+			fText= text;
+		}
+	}
+
+	/**
+	 * Iterates over the occurrences of the words that matched a lookup. Must only be used while
+	 * the document does not change.
+	 */
+	abstract class Occurrences {
+
+		/** The words that matched the lookup. */
+		private final Set<Word> fMatches;
+		/** The index of the current occurrence. */
+		int fIndex;
+
+		Occurrences(Set<Word> matches, int index) {
+			fMatches= matches;
+			fIndex= index;
+		}
+
+		/**
+		 * Advances to the next occurrence of a matching word.
+		 *
+		 * @return <code>true</code> if there is a next occurrence, <code>false</code> if all
+		 *         occurrences have been visited
+		 */
+		abstract boolean next();
+
+		/**
+		 * Returns the start offset of the current occurrence.
+		 *
+		 * @return the start offset
+		 */
+		int getOffset() {
+			synchronized (HippieWordIndex.this) {
+				return getStart(fIndex);
+			}
+		}
+
+		/**
+		 * Returns the word of the current occurrence.
+		 *
+		 * @return the word
+		 */
+		String getWord() {
+			synchronized (HippieWordIndex.this) {
+				return fWordAt[fIndex].fText;
+			}
+		}
+
+		/**
+		 * Tells whether the occurrence at the given index is an occurrence of a matching word.
+		 *
+		 * @param index the index
+		 * @return <code>true</code> if the word at the index matched the lookup
+		 */
+		boolean matches(int index) {
+			return fMatches.contains(fWordAt[index]);
+		}
+	}
+
+	/** The initial capacity of the occurrence arrays. */
+	private static final int INITIAL_CAPACITY= 256;
+
+	/** The time in milliseconds after its last use after which an index detaches from its document. */
+	private static final long IDLE_TIMEOUT= 5 * 60 * 1000;
+
+	/** The indexes of all documents for which completions have been computed. */
+	private static final Map<IDocument, HippieWordIndex> fgIndexes= new WeakHashMap<>();
+
+	/**
+	 * Returns the word index of the given document. The index is created and attached to the
+	 * document when it is requested the first time, or the first time after it has detached from
+	 * the document.
+	 *
+	 * @param document the document
+	 * @return the word index of the document
+	 */
+	static HippieWordIndex getIndex(IDocument document) {
+		synchronized (fgIndexes) {
+			HippieWordIndex index= fgIndexes.get(document);
+			if (index == null) {
+				index= new HippieWordIndex();
+				document.addDocumentListener(index);
+				index.reset(document.get());
+				fgIndexes.put(document, index);
+			}
+			index.fLastUse= System.currentTimeMillis();
+			return index;
+		}
+	}
+
+	/** The distinct words of the document, sorted. */
+	private final TreeMap<String, Word> fWords= new TreeMap<>();
+	/** The stored start offsets of the occurrences in document order. */
+	private int[] fStarts= new int[INITIAL_CAPACITY];
+	/** The words of the occurrences in document order. */
+	private Word[] fWordAt= new Word[INITIAL_CAPACITY];
+	/** The number of occurrences. */
+	private int fSize;
+	/** The index of the first occurrence whose stored offset is relative to {@link #fGapDelta}. */
+	private int fGapIndex;
+	/** The length change to add to the stored offsets of the occurrences after the gap. */
+	private int fGapDelta;
+	/** The time of the last request of this index, guarded by {@link #fgIndexes}. */
+	private long fLastUse;
+
+	private HippieWordIndex() {
+	}
+
+	/**
+	 * Looks up the words starting with the given prefix, including the prefix itself, and returns
+	 * the occurrences of these words before the given offset, nearest first.
+	 *
+	 * @param prefix the prefix, must only consist of word characters
+	 * @param offset the offset
+	 * @return the occurrences starting before the offset in descending order
+	 */
+	synchronized Occurrences getOccurrencesBackward(String prefix, int offset) {
+		Set<Word> matches= match(prefix);
+		int index= matches.isEmpty() ? 0 : indexOf(offset);
+		return new Occurrences(matches, index) {
+			@Override
+			boolean next() {
+				synchronized (HippieWordIndex.this) {
+					while (--fIndex >= 0) {
+						if (matches(fIndex))
+							return true;
+					}
+					return false;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Looks up the words starting with the given prefix, including the prefix itself, and returns
+	 * the occurrences of these words at or after the given offset, nearest first.
+	 *
+	 * @param prefix the prefix, must only consist of word characters
+	 * @param offset the offset
+	 * @return the occurrences starting at or after the offset in ascending order
+	 */
+	synchronized Occurrences getOccurrencesForward(String prefix, int offset) {
+		Set<Word> matches= match(prefix);
+		int index= matches.isEmpty() ? fSize : indexOf(offset);
+		return new Occurrences(matches, index - 1) {
+			@Override
+			boolean next() {
+				synchronized (HippieWordIndex.this) {
+					while (++fIndex < fSize) {
+						if (matches(fIndex))
+							return true;
+					}
+					return false;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the words starting with the given prefix.
+	 *
+	 * @param prefix the prefix
+	 * @return the words starting with the prefix
+	 */
+	private Set<Word> match(String prefix) {
+		Set<Word> matches= Collections.newSetFromMap(new IdentityHashMap<Word, Boolean>());
+		for (Word word : fWords.tailMap(prefix, true).values()) {
+			if (!word.fText.startsWith(prefix))
+				break;
+			matches.add(word);
+		}
+		return matches;
+	}
+
+	@Override
+	public void documentAboutToBeChanged(DocumentEvent event) {
+	}
+
+	@Override
+	public void documentChanged(DocumentEvent event) {
+		IDocument document= event.getDocument();
+		synchronized (fgIndexes) {
+			if (System.currentTimeMillis() - fLastUse > IDLE_TIMEOUT) {
+				// not used anymore, the next lookup builds a new index
+				document.removeDocumentListener(this);
+				if (fgIndexes.get(document) == this)
+					fgIndexes.remove(document);
+				return;
+			}
+		}
+		synchronized (this) {
+			update(event);
+		}
+	}
+
+	/**
+	 * Updates the index after the given document change.
+	 *
+	 * @param event the document event
+	 */
+	private void update(DocumentEvent event) {
+		IDocument document= event.getDocument();
+		int offset= event.getOffset();
+		int length= event.getLength();
+		String text= event.getText();
+		int textLength= text == null ? 0 : text.length();
+
+		// remove the occurrences touching the change, they might grow, shrink or merge
+		int last= indexOf(offset + length + 1);
+		int first= last;
+		while (first > 0 && getStart(first - 1) + fWordAt[first - 1].fText.length() >= offset)
+			first--;
+		int from= offset;
+		int to= offset + length;
+		if (first < last) {
+			from= Math.min(from, getStart(first));
+			to= Math.max(to, getStart(last - 1) + fWordAt[last - 1].fText.length());
+		}
+		remove(first, last);
+		fGapDelta+= textLength - length;
+		to+= textLength - length;
+
+		// rescan the changed text together with the removed words and the words adjacent to it
+		try {
+			int documentLength= document.getLength();
+			// the change might have split or joined a surrogate pair
+			if (isInsideSurrogatePair(document, from))
+				from--;
+			if (isInsideSurrogatePair(document, to))
+				to++;
+			while (from > 0) {
+				int codePoint= codePointBefore(document, from);
+				if (!isWordPart(codePoint))
+					break;
+				from-= Character.charCount(codePoint);
+			}
+			while (to < documentLength) {
+				int codePoint= codePointAt(document, to);
+				if (!isWordPart(codePoint))
+					break;
+				to+= Character.charCount(codePoint);
+			}
+
+			// words that have been joined with the changed text
+			last= indexOf(to);
+			first= last;
+			while (first > 0 && getStart(first - 1) + fWordAt[first - 1].fText.length() > from)
+				first--;
+			remove(first, last);
+
+			scan(document.get(from, to - from), from);
+		} catch (BadLocationException e) {
+			reset(document.get());
+		}
+	}
+
+	/**
+	 * Removes the occurrences with the given indexes and moves the gap to their place.
+	 *
+	 * @param first the index of the first occurrence to remove
+	 * @param last the index after the last occurrence to remove
+	 */
+	private void remove(int first, int last) {
+		moveGap(first);
+		for (int i= first; i < last; i++)
+			remove(fWordAt[i]);
+		System.arraycopy(fStarts, last, fStarts, first, fSize - last);
+		System.arraycopy(fWordAt, last, fWordAt, first, fSize - last);
+		Arrays.fill(fWordAt, fSize - (last - first), fSize, null);
+		fSize-= last - first;
+	}
+
+	private static boolean isInsideSurrogatePair(IDocument document, int offset) throws BadLocationException {
+		return offset > 0 && offset < document.getLength() && Character.isLowSurrogate(document.getChar(offset)) && Character.isHighSurrogate(document.getChar(offset - 1));
+	}
+
+	private static int codePointAt(IDocument document, int offset) throws BadLocationException {
+		char c= document.getChar(offset);
+		if (Character.isHighSurrogate(c) && offset + 1 < document.getLength()) {
+			char low= document.getChar(offset + 1);
+			if (Character.isLowSurrogate(low))
+				return Character.toCodePoint(c, low);
+		}
+		return c;
+	}
+
+	private static int codePointBefore(IDocument document, int offset) throws BadLocationException {
+		char c= document.getChar(offset - 1);
+		if (Character.isLowSurrogate(c) && offset > 1) {
+			char high= document.getChar(offset - 2);
+			if (Character.isHighSurrogate(high))
+				return Character.toCodePoint(high, c);
+		}
+		return c;
+	}
+
+	/**
+	 * Clears the index and indexes the given document content.
+	 *
+	 * @param content the content of the document
+	 */
+	private void reset(String content) {
+		fWords.clear();
+		Arrays.fill(fWordAt, 0, fSize, null);
+		fSize= 0;
+		fGapIndex= 0;
+		fGapDelta= 0;
+		scan(content, 0);
+	}
+
+	/**
+	 * Adds the words of the given text in front of the gap.
+	 *
+	 * @param text the text to scan, must neither start nor end inside a word
+	 * @param offset the document offset of the text
+	 */
+	private void scan(String text, int offset) {
+		int[] starts= new int[16];
+		String[] words= new String[16];
+		int count= 0;
+		int length= text.length();
+		int start= -1;
+		for (int i= 0; i <= length;) {
+			int codePoint= i < length ? text.codePointAt(i) : -1;
+			if (codePoint != -1 && isWordPart(codePoint)) {
+				if (start == -1)
+					start= i;
+			} else if (start != -1) {
+				if (count == starts.length) {
+					starts= Arrays.copyOf(starts, count * 2);
+					words= Arrays.copyOf(words, count * 2);
+				}
+				starts[count]= offset + start;
+				words[count]= text.substring(start, i);
+				count++;
+				start= -1;
+			}
+			i+= codePoint == -1 ? 1 : Character.charCount(codePoint);
+		}
+
+		ensureCapacity(fSize + count);
+		System.arraycopy(fStarts, fGapIndex, fStarts, fGapIndex + count, fSize - fGapIndex);
+		System.arraycopy(fWordAt, fGapIndex, fWordAt, fGapIndex + count, fSize - fGapIndex);
+		for (int i= 0; i < count; i++) {
+			fStarts[fGapIndex + i]= starts[i];
+			fWordAt[fGapIndex + i]= add(words[i]);
+		}
+		fSize+= count;
+		fGapIndex+= count;
+	}
+
+	private Word add(String text) {
+		Word word= fWords.get(text);
+		if (word == null) {
+			word= new Word(text);
+			fWords.put(text, word);
+		}
+		word.fCount++;
+		return word;
+	}
+
+	private void remove(Word word) {
+		if (--word.fCount == 0)
+			fWords.remove(word.fText);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > fStarts.length) {
+			int newCapacity= Math.max(capacity, fStarts.length * 2);
+			fStarts= Arrays.copyOf(fStarts, newCapacity);
+			fWordAt= Arrays.copyOf(fWordAt, newCapacity);
+		}
+	}
+
+	/**
+	 * Moves the gap in front of the occurrence with the given index.
+	 *
+	 * @param index the new gap index
+	 */
+	private void moveGap(int index) {
+		if (fGapDelta != 0) {
+			for (int i= fGapIndex; i < index; i++)
+				fStarts[i]+= fGapDelta;
+			for (int i= index; i < fGapIndex; i++)
+				fStarts[i]-= fGapDelta;
+		}
+		fGapIndex= index;
+		if (fGapIndex == fSize)
+			fGapDelta= 0;
+	}
+
+	private int getStart(int index) {
+		return index < fGapIndex ? fStarts[index] : fStarts[index] + fGapDelta;
+	}
+
+	/**
+	 * Returns the index of the first occurrence starting at or after the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first occurrence starting at or after the offset, or the number of
+	 *         occurrences if there is none
+	 */
+	private int indexOf(int offset) {
+		int low= 0;
+		int high= fSize;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (getStart(mid) < offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Tells whether the given code point is part of a word, i.e. whether it is matched by
+	 * <code>HippieCompletionEngine#COMPLETION_WORD_REGEX</code>.
+	 *
+	 * @param codePoint the code point
+	 * @return <code>true</code> if the code point is a word character
+	 */
+	static boolean isWordPart(int codePoint) {
+		switch (Character.getType(codePoint)) {
+			case Character.UPPERCASE_LETTER:
+			case Character.LOWERCASE_LETTER:
+			case Character.TITLECASE_LETTER:
+			case Character.MODIFIER_LETTER:
+			case Character.OTHER_LETTER:
+			case Character.NON_SPACING_MARK:
+			case Character.CONNECTOR_PUNCTUATION:
+			case Character.DECIMAL_DIGIT_NUMBER:
+			case Character.LETTER_NUMBER:
+			case Character.CURRENCY_SYMBOL:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Tells whether the given code point is a word boundary, i.e. whether it is matched by
+	 * <code>HippieCompletionEngine#NON_EMPTY_COMPLETION_BOUNDARY</code>.
+	 *
+	 * @param codePoint the code point
+	 * @return <code>true</code> if the code point is a word boundary
+	 */
+	static boolean isBoundary(int codePoint) {
+		switch (codePoint) {
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\u000B':
+			case '\f':
+			case '\r':
+				return true;
+			default:
+				break;
+		}
+		switch (Character.getType(codePoint)) {
+			case Character.SPACE_SEPARATOR:
+			case Character.LINE_SEPARATOR:
+			case Character.PARAGRAPH_SEPARATOR:
+			case Character.DASH_PUNCTUATION:
+			case Character.START_PUNCTUATION:
+			case Character.END_PUNCTUATION:
+			case Character.INITIAL_QUOTE_PUNCTUATION:
+			case Character.FINAL_QUOTE_PUNCTUATION:
+			case Character.OTHER_PUNCTUATION:
+			case Character.MATH_SYMBOL:
+			case Character.MODIFIER_SYMBOL:
+			case Character.OTHER_SYMBOL:
+				return true;
+			default:
+				return false;
+		}
+	}
+}
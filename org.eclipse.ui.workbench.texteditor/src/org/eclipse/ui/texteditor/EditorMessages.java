@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -86,6 +86,8 @@ final class EditorMessages extends NLS {
 	public static String Editor_FindIncremental_render_tab;
 	public static String Editor_FindIncremental_wrapped;
 	public static String Editor_FindIncremental_reverse;
+	public static String Editor_FindIncremental_match_count_pattern;
+	public static String Editor_FindIncremental_count_job_name;
 	public static String Editor_ConvertLineDelimiter_title;
 	public static String Editor_statusline_state_readonly_label;
 	public static String Editor_statusline_state_writable_label;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -63,6 +63,7 @@ import org.eclipse.jface.text.FindReplaceDocumentAdapterContentProposalProvider;
 import org.eclipse.jface.text.IFindReplaceTarget;
 import org.eclipse.jface.text.IFindReplaceTargetExtension;
 import org.eclipse.jface.text.IFindReplaceTargetExtension3;
+import org.eclipse.jface.text.IFindReplaceTargetExtension4;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextUtilities;
@@ -1496,6 +1497,10 @@ class FindReplaceDialog extends Dialog {
 	 * Replaces all occurrences of the user's findString with
 	 * the replace string.  Returns the number of replacements
 	 * that occur.
+	 * <p>
+	 * If the target supports it, all occurrences are replaced as
+	 * one change, otherwise they are found and replaced one by one.
+	 * </p>
 	 *
 	 * @param findString the string to search for
 	 * @param replaceString the replacement string
@@ -1522,6 +1527,13 @@ class FindReplaceDialog extends Dialog {
 			((IFindReplaceTargetExtension) fTarget).setReplaceAllMode(true);
 
 		try {
+			if (fTarget instanceof IFindReplaceTargetExtension4) {
+				replaceCount= ((IFindReplaceTargetExtension4) fTarget).replaceAll(findString, replaceString, caseSensitive, wholeWord, regExSearch);
+				if (replaceCount != -1)
+					return replaceCount;
+				replaceCount= 0;
+			}
+
 			int index= 0;
 			while (index != -1) {
 				index= findAndSelect(findReplacePosition, findString, forwardSearch, caseSensitive, wholeWord, regExSearch);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,7 @@ import org.eclipse.swt.graphics.Point;
 import org.eclipse.jface.text.IFindReplaceTarget;
 import org.eclipse.jface.text.IFindReplaceTargetExtension;
 import org.eclipse.jface.text.IFindReplaceTargetExtension3;
+import org.eclipse.jface.text.IFindReplaceTargetExtension4;
 import org.eclipse.jface.text.IRegion;
 
 
@@ -26,7 +27,7 @@ import org.eclipse.jface.text.IRegion;
  * Internal find/replace target wrapping the editor's source viewer.
  * @since 2.1
  */
-class FindReplaceTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, IFindReplaceTargetExtension2, IFindReplaceTargetExtension3 {
+class FindReplaceTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, IFindReplaceTargetExtension2, IFindReplaceTargetExtension3, IFindReplaceTargetExtension4 {
 
 	/** The editor */
 	private AbstractTextEditor fEditor;
@@ -90,6 +91,13 @@ class FindReplaceTarget implements IFindReplaceTarget, IFindReplaceTargetExtensi
 		return -1;
 	}
 
+	@Override
+	public int replaceAll(String findString, String replaceString, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+		if (getTarget() instanceof IFindReplaceTargetExtension4)
+			return ((IFindReplaceTargetExtension4)getTarget()).replaceAll(findString, replaceString, caseSensitive, wholeWord, regExSearch);
+		return -1;
+	}
+
 	@Override
 	public Point getSelection() {
 		if (getTarget() != null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,7 +15,10 @@
 
 package org.eclipse.ui.texteditor;
 
+import java.util.Arrays;
 import java.util.Stack;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyledText;
@@ -24,9 +27,14 @@ import org.eclipse.swt.events.FocusEvent;
 import org.eclipse.swt.events.FocusListener;
 import org.eclipse.swt.events.MouseEvent;
 import org.eclipse.swt.events.MouseListener;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.events.VerifyEvent;
 import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
@@ -34,6 +42,10 @@ import org.eclipse.core.commands.IExecutionListener;
 import org.eclipse.core.commands.NotHandledException;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.action.IStatusLineManager;
 import org.eclipse.jface.util.Util;
@@ -42,6 +54,7 @@ import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.ISelectionProvider;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IFindReplaceTarget;
 import org.eclipse.jface.text.IFindReplaceTargetExtension;
 import org.eclipse.jface.text.IRegion;
@@ -50,6 +63,7 @@ import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITextViewerExtension;
 import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextEvent;
 
 import org.eclipse.ui.PlatformUI;
@@ -59,9 +73,15 @@ import org.eclipse.ui.keys.IBindingService;
 
 /**
  * An incremental find target. Replace is always disabled.
+ * <p>
+ * While a session is active, the matches of the find string are counted by a background job on a
+ * snapshot of the document and the total is shown in the status line. The job of the previous
+ * find string is canceled as soon as the find string changes. All matches in the visible lines
+ * are highlighted.
+ * </p>
  * @since 2.0
  */
-class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, VerifyKeyListener, MouseListener, FocusListener, ISelectionChangedListener, ITextListener, IExecutionListener {
+class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, VerifyKeyListener, MouseListener, FocusListener, ISelectionChangedListener, ITextListener, IExecutionListener, PaintListener {
 
 	/** The string representing rendered tab */
 	private final static String TAB= EditorMessages.Editor_FindIncremental_render_tab;
@@ -85,6 +105,10 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 	 * @since 2.1
 	 */
 	private final static String WRAPPED= EditorMessages.Editor_FindIncremental_wrapped;
+	/**
+	 * The number of characters the match counting job scans before it checks for cancellation.
+	 */
+	private final static int COUNT_CHUNK_SIZE= 64 * 1024;
 	/** The text viewer to operate on */
 	private final ITextViewer fTextViewer;
 	/** The status line manager for output */
@@ -141,6 +165,36 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 	 * @since 3.0
 	 */
 	private boolean fIsStatusFieldExtension;
+	/**
+	 * The contents of the document when the matches were first counted in this session. The
+	 * document does not change during a session since any change leaves the session.
+	 */
+	private String fSnapshot;
+	/**
+	 * The pattern matching the current find string, <code>null</code> if no matches are shown.
+	 */
+	private Pattern fPattern;
+	/**
+	 * The job counting the matches of {@link #fPattern}, <code>null</code> if none is running.
+	 */
+	private Job fCountJob;
+	/**
+	 * The number of matches of {@link #fPattern}, -1 if not yet known.
+	 */
+	private int fMatchCount= -1;
+	/**
+	 * The one-based index of the selected match among all matches, -1 if not yet known.
+	 */
+	private int fMatchIndex= -1;
+	/**
+	 * The widget ranges of the matches in the visible lines as offset and length pairs,
+	 * <code>null</code> if they need to be computed.
+	 */
+	private int[] fVisibleMatches;
+	/**
+	 * The document range for which {@link #fVisibleMatches} have been computed.
+	 */
+	private Region fVisibleMatchesRange;
 
 	/**
 	 * Data structure for a search result.
@@ -270,6 +324,7 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 		if (fInstalled) {
 			saveState();
 			repeatSearch(fForward);
+			updateMatches();
 			updateStatus();
 			fSearching= false;
 			return;
@@ -345,6 +400,7 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 
 		text.addMouseListener(this);
 		text.addFocusListener(this);
+		text.addPaintListener(this);
 		fTextViewer.addTextListener(this);
 
 		ISelectionProvider selectionProvider= fTextViewer.getSelectionProvider();
@@ -369,6 +425,8 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 	private void uninstall() {
 
 		fTextViewer.removeTextListener(this);
+		clearMatches();
+		fSnapshot= null;
 
 		ISelectionProvider selectionProvider= fTextViewer.getSelectionProvider();
 		if (selectionProvider != null)
@@ -378,6 +436,7 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 		if (text != null) {
 			text.removeMouseListener(this);
 			text.removeFocusListener(this);
+			text.removePaintListener(this);
 		}
 
 		if (fTextViewer instanceof ITextViewerExtension) {
@@ -419,12 +478,220 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 				statusMessage(REVERSE_FIELD_NAME);
 		} else if (!fForward || fWrapPosition > -1) {
 			String pattern= EditorMessages.Editor_FindIncremental_found_pattern;
-			statusMessage(NLSUtility.format(pattern, new Object[] { reversePrefix, wrapPrefix, string }));
+			statusMessage(appendMatchCount(NLSUtility.format(pattern, new Object[] { reversePrefix, wrapPrefix, string })));
 		} else {
-			statusMessage(string);
+			statusMessage(appendMatchCount(string));
 		}
 	}
 
+	/**
+	 * Appends the index of the selected match and the number of matches to the given message, if
+	 * they are known.
+	 *
+	 * @param message the status message
+	 * @return the status message including the match count
+	 */
+	private String appendMatchCount(String message) {
+		if (fMatchCount < 0 || fMatchIndex < 1)
+			return message;
+		String pattern= EditorMessages.Editor_FindIncremental_match_count_pattern;
+		return NLSUtility.format(pattern, new Object[] { message, Integer.valueOf(fMatchIndex), Integer.valueOf(fMatchCount) });
+	}
+
+	/**
+	 * Updates the highlighted matches and starts counting the matches of the current find string
+	 * in the background. A count that is still running for a previous find string is canceled.
+	 */
+	private void updateMatches() {
+		clearMatches();
+
+		String string= fFindString.toString();
+		StyledText text= fTextViewer.getTextWidget();
+		IDocument document= fTextViewer.getDocument();
+		if (!fFound || string.isEmpty() || text == null || text.isDisposed() || document == null)
+			return;
+
+		int flags= Pattern.LITERAL;
+		if (fCasePosition == -1)
+			flags|= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+		fPattern= Pattern.compile(string, flags);
+		if (fSnapshot == null)
+			fSnapshot= document.get();
+		text.redraw();
+
+		final Pattern pattern= fPattern;
+		final String snapshot= fSnapshot;
+		final int selectionOffset= fTextViewer.getSelectedRange().x;
+		final Display display= text.getDisplay();
+		fCountJob= new Job(EditorMessages.Editor_FindIncremental_count_job_name) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				int[] count= countMatches(pattern, snapshot, selectionOffset, monitor);
+				if (count == null)
+					return Status.CANCEL_STATUS;
+				Job job= this;
+				display.asyncExec(() -> matchesCounted(job, count[0], count[1]));
+				return Status.OK_STATUS;
+			}
+		};
+		fCountJob.setSystem(true);
+		fCountJob.setPriority(Job.SHORT);
+		fCountJob.schedule();
+	}
+
+	/**
+	 * Cancels the match count and removes the highlighted matches.
+	 */
+	private void clearMatches() {
+		if (fCountJob != null) {
+			fCountJob.cancel();
+			fCountJob= null;
+		}
+		fMatchCount= -1;
+		fMatchIndex= -1;
+		fVisibleMatches= null;
+		fVisibleMatchesRange= null;
+		if (fPattern != null) {
+			fPattern= null;
+			StyledText text= fTextViewer.getTextWidget();
+			if (text != null && !text.isDisposed())
+				text.redraw();
+		}
+	}
+
+	/**
+	 * Counts the non-overlapping matches of the given pattern in the given text. The text is
+	 * scanned in chunks so that the count can be canceled quickly even if there are few matches.
+	 *
+	 * @param pattern the literal pattern to count
+	 * @param text the text to search
+	 * @param selectionOffset the offset of the selected match
+	 * @param monitor the progress monitor
+	 * @return the number of matches and the one-based index of the last match starting at or
+	 *         before the selection offset, or <code>null</code> if canceled
+	 */
+	private static int[] countMatches(Pattern pattern, String text, int selectionOffset, IProgressMonitor monitor) {
+		Matcher matcher= pattern.matcher(text);
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		// a literal pattern never matches more characters than it has
+		int maxMatchLength= pattern.pattern().length();
+		int length= text.length();
+		int count= 0;
+		int index= 0;
+		int from= 0;
+		while (from < length) {
+			if (monitor.isCanceled())
+				return null;
+			int chunkEnd= Math.min(length, from + COUNT_CHUNK_SIZE);
+			matcher.region(from, Math.min(length, chunkEnd + maxMatchLength));
+			int next= chunkEnd;
+			while (matcher.find() && matcher.start() < chunkEnd) {
+				count++;
+				if (matcher.start() <= selectionOffset)
+					index= count;
+				next= Math.max(chunkEnd, matcher.end());
+			}
+			from= next;
+		}
+		return new int[] { count, index };
+	}
+
+	/**
+	 * Shows the match count computed by the given job unless the find string changed meanwhile.
+	 * Called in the UI thread.
+	 *
+	 * @param job the job that counted the matches
+	 * @param count the number of matches
+	 * @param index the one-based index of the selected match
+	 */
+	private void matchesCounted(Job job, int count, int index) {
+		if (job != fCountJob || !fInstalled)
+			return;
+		fCountJob= null;
+		fMatchCount= count;
+		fMatchIndex= index;
+		updateStatus();
+	}
+
+	@Override
+	public void paintControl(PaintEvent event) {
+		if (fPattern == null)
+			return;
+
+		StyledText text= fTextViewer.getTextWidget();
+		if (text == null || text.isDisposed())
+			return;
+
+		int[] matches= getVisibleMatches();
+		if (matches.length == 0)
+			return;
+
+		GC gc= event.gc;
+		Color foreground= gc.getForeground();
+		gc.setForeground(text.getSelectionBackground());
+		for (int i= 0; i < matches.length; i+= 2) {
+			Rectangle bounds= text.getTextBounds(matches[i], matches[i] + matches[i + 1] - 1);
+			if (bounds.intersects(event.x, event.y, event.width, event.height))
+				gc.drawRectangle(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+		}
+		gc.setForeground(foreground);
+	}
+
+	/**
+	 * Returns the matches in the visible lines. Only the visible part of the snapshot is searched
+	 * and the result is reused until the visible lines change.
+	 *
+	 * @return the widget ranges of the visible matches as offset and length pairs
+	 */
+	private int[] getVisibleMatches() {
+		int start= Math.max(0, fTextViewer.getTopIndexStartOffset());
+		int end= Math.min(fSnapshot.length(), fTextViewer.getBottomIndexEndOffset() + 1);
+		if (end <= start)
+			return new int[0];
+
+		Region range= new Region(start, end - start);
+		if (fVisibleMatches != null && range.equals(fVisibleMatchesRange))
+			return fVisibleMatches;
+
+		Matcher matcher= fPattern.matcher(fSnapshot);
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		matcher.region(start, Math.min(fSnapshot.length(), end + fPattern.pattern().length() - 1));
+		int[] matches= new int[16];
+		int size= 0;
+		while (matcher.find() && matcher.start() < end) {
+			IRegion widgetRange= modelRange2WidgetRange(matcher.start(), matcher.end() - matcher.start());
+			if (widgetRange == null || widgetRange.getLength() == 0)
+				continue;
+			if (size == matches.length)
+				matches= Arrays.copyOf(matches, size * 2);
+			matches[size++]= widgetRange.getOffset();
+			matches[size++]= widgetRange.getLength();
+		}
+
+		fVisibleMatches= Arrays.copyOf(matches, size);
+		fVisibleMatchesRange= range;
+		return fVisibleMatches;
+	}
+
+	/**
+	 * Converts the given document range into a widget range.
+	 *
+	 * @param offset the document offset
+	 * @param length the length
+	 * @return the widget range or <code>null</code> if the range is not visible
+	 */
+	private IRegion modelRange2WidgetRange(int offset, int length) {
+		if (fTextViewer instanceof ITextViewerExtension5)
+			return ((ITextViewerExtension5) fTextViewer).modelRange2WidgetRange(new Region(offset, length));
+
+		IRegion visible= fTextViewer.getVisibleRegion();
+		if (offset < visible.getOffset() || offset + length > visible.getOffset() + visible.getLength())
+			return null;
+		return new Region(offset - visible.getOffset(), length);
+	}
+
 	@Override
 	public void verifyKey(VerifyEvent event) {
 
@@ -493,6 +760,8 @@ class IncrementalFindTarget implements IFindReplaceTarget, IFindReplaceTargetExt
 				break;
 			}
 		}
+		if (fInstalled)
+			updateMatches();
 		updateStatus();
 		fSearching= false;
 	}